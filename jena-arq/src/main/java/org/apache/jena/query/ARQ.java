@@ -277,6 +277,16 @@ public class ARQ
      */
     public static final Symbol httpServiceAllowed = SystemARQ.allocSymbol("httpServiceAllowed");
 
+    /**
+     * Control whether the results of a SERVICE call are streamed from the remote
+     * endpoint as the query execution needs them. Set to "false" to read all the
+     * results before continuing, which releases the HTTP connection earlier at the
+     * cost of holding the results in memory. SERVICE SILENT always reads all the
+     * results so that errors part way through can be handled.
+     * Default: true.
+     */
+    public static final Symbol httpServiceStreaming = SystemARQ.allocSymbol("httpServiceStreaming");
+
     //public static final Symbol httpQueryCompression  = SystemARQ.allocSymbol("httpQueryCompression");
     public static final Symbol httpQueryClient       = SystemARQ.allocSymbol("httpQueryClient");
     public static final Symbol httpServiceContext    = SystemARQ.allocSymbol("httpServiceContext");
@@ -305,7 +315,11 @@ public class ARQ
      * choosing the value.
      * <p>
      * Operations currently affected by this symbol: <br>
-     * ORDER BY, SPARQL Update, CONSTRUCT (optionally)
+     * ORDER BY, SPARQL Update, CONSTRUCT (optionally), hash joins and hash left joins
+     * <p>
+     * A hash join with more rows than this value on the side used for the hash table
+     * divides both sides into partitions in temporary files and joins one partition
+     * at a time.
      * <p>
      * A reasonable value here is 10000.
      * </p>
@@ -313,9 +327,26 @@ public class ARQ
      */
     // Some possible additions to the list:
     // Sort: DISTINCT, merge joins<br>
-    // Hash table: GROUP BY, MINUS, SERVICE, VALUES, and hash joins <br>
+    // Hash table: GROUP BY, MINUS, SERVICE, VALUES <br>
     public static final Symbol spillToDiskThreshold = SystemARQ.allocSymbol("spillToDiskThreshold");
 
+    /**
+     * Context key controlling whether the main query engine evaluates independent
+     * parts of a query concurrently: the branches of a UNION, the two sides of a join
+     * and the steps of a sequence that share no variables. Each of these is evaluated
+     * by a thread from a shared pool, sized to the number of processors.
+     * <p>
+     * Pool threads read the data on behalf of the query's thread, so this is not done
+     * in a write transaction, nor when the dataset has isolated transactions and is in
+     * a transaction, unless the dataset can start a read transaction in a pool thread
+     * with the same view of the data (TDB2 does, the in-memory transactional dataset
+     * does not). A SERVICE does not read the dataset and is always evaluated
+     * concurrently.
+     * <p>
+     * Default is "false".
+     */
+    public static final Symbol parallelExecution = SystemARQ.allocSymbol("parallelExecution");
+
     // Optimizer controls.
 
     /**
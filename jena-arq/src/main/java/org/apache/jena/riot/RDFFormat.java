@@ -33,6 +33,11 @@ public class RDFFormat {
     public static final RDFFormatVariant BLOCKS         = new RDFFormatVariant("blocks") ;
     /** Print out one per line */
     public static final RDFFormatVariant FLAT           = new RDFFormatVariant("flat") ;
+    /**
+     * Pretty printing of an incoming triple/quad stream, grouped by subject,
+     * with a bounded lookahead
+     */
+    public static final RDFFormatVariant STREAMING      = new RDFFormatVariant("streaming") ;
 
     /** Use ASCII output (N-triples, N-Quads) */
     public static final RDFFormatVariant ASCII          = new RDFFormatVariant("ascii") ;
@@ -40,6 +45,10 @@ public class RDFFormat {
     public static final RDFFormatVariant UTF8           = new RDFFormatVariant("utf-8") ;
     /** Variant for RDF Thrift using values */
     public static final RDFFormatVariant ValueEncoding  = new RDFFormatVariant("Value") ;
+    /** Variant for RDF-Blocks using deflate compression */
+    public static final RDFFormatVariant DEFLATE        = new RDFFormatVariant("deflate") ;
+    /** Variant for RDF-Blocks without compression */
+    public static final RDFFormatVariant UNCOMPRESSED   = new RDFFormatVariant("uncompressed") ;
 
     /** Turtle - pretty form */
     public static final RDFFormat        TURTLE_PRETTY  = new RDFFormat(Lang.TURTLE, PRETTY) ;
@@ -51,6 +60,8 @@ public class RDFFormat {
     public static final RDFFormat        TURTLE_BLOCKS  = new RDFFormat(Lang.TURTLE, BLOCKS) ;
     /** Turtle - one line per triple  */
     public static final RDFFormat        TURTLE_FLAT    = new RDFFormat(Lang.TURTLE, FLAT) ;
+    /** Turtle - streaming, with predicate-object lists, nested blank nodes and RDF lists; input grouped by subject */
+    public static final RDFFormat        TURTLE_STREAMING = new RDFFormat(Lang.TURTLE, STREAMING) ;
 
     /** N-Triples in UTF-8 */
     public static final RDFFormat        NTRIPLES_UTF8  = new RDFFormat(Lang.NTRIPLES, UTF8) ;
@@ -78,6 +89,8 @@ public class RDFFormat {
     public static final RDFFormat        TRIG_BLOCKS    = new RDFFormat(Lang.TRIG, BLOCKS) ;
     /** TriG - one line per triple  */
     public static final RDFFormat        TRIG_FLAT      = new RDFFormat(Lang.TRIG, FLAT) ;
+    /** TriG - streaming, with predicate-object lists, nested blank nodes and RDF lists; input grouped by graph and subject */
+    public static final RDFFormat        TRIG_STREAMING = new RDFFormat(Lang.TRIG, STREAMING) ;
 
     /** SHACL Compact Syntax */
     public static final RDFFormat        SHACLC         = new RDFFormat(Lang.SHACLC);
@@ -253,6 +266,21 @@ public class RDFFormat {
      */
     public static final RDFFormat RDF_THRIFT_VALUES     = new RDFFormat(Lang.RDFTHRIFT, ValueEncoding) ;
 
+    /**
+     * RDF-Blocks output, with LZ4 compression. Terms are written once per block of
+     * rows, with prefix compression of IRIs. This format is a faithful
+     * representation of RDF suitable for database dumps, and an index of blocks
+     * allows a file to be read in parallel.
+     * The number of rows in a block is set by {@link RIOT#symRDFBlocksSize}.
+     *
+     * @see org.apache.jena.riot.protobuf.RDFBlocks
+     */
+    public static final RDFFormat RDF_BLOCKS            = new RDFFormat(Lang.RDFBLOCKS) ;
+    /** RDF-Blocks output, with deflate compression: smaller and slower to write than {@link #RDF_BLOCKS}. */
+    public static final RDFFormat RDF_BLOCKS_DEFLATE    = new RDFFormat(Lang.RDFBLOCKS, DEFLATE) ;
+    /** RDF-Blocks output, with no compression. */
+    public static final RDFFormat RDF_BLOCKS_UNCOMPRESSED = new RDFFormat(Lang.RDFBLOCKS, UNCOMPRESSED) ;
+
     /**
      * The "null" output format (a sink that prints nothing, usually quite
      * efficiently)
@@ -49,6 +49,7 @@ public class RDFLanguages
     public static final String strLangTriX       = "TriX";
     public static final String strLangRDFPROTO   = "RDF-PROTO";
     public static final String strLangRDFTHRIFT  = "RDF-THRIFT";
+    public static final String strLangRDFBLOCKS  = "RDF-BLOCKS";
 
     /* ".owl" is not a formally registered file extension for OWL using RDF/XML. It
      * was mentioned in OWL1 (when there was formally only one syntax for publishing
@@ -152,6 +153,12 @@ public class RDFLanguages
                                                      .addAltNames("RDF_THRIFT", "RDFTHRIFT", "RDF/THRIFT", "TRDF")
                                                      .addFileExtensions("rt", "trdf")
                                                      .build();
+
+    /** The RDF syntax RDF-Blocks : block compressed binary RDF with term dictionaries. */
+    public static final Lang RDFBLOCKS  = LangBuilder.create(strLangRDFBLOCKS, contentTypeRDFBlocks)
+                                                     .addAltNames("RDF_BLOCKS", "RDFBLOCKS", "RDF/BLOCKS")
+                                                     .addFileExtensions("rdfb")
+                                                     .build();
     /** Text */
     public static final Lang TEXT       = LangBuilder.create("text", contentTypeTextPlain)
                                                      .addAltNames("TEXT")
@@ -215,6 +222,7 @@ public class RDFLanguages
         Lang.TRIG       = RDFLanguages.TRIG;
         Lang.RDFPROTO   = RDFLanguages.RDFPROTO;
         Lang.RDFTHRIFT  = RDFLanguages.RDFTHRIFT;
+        Lang.RDFBLOCKS  = RDFLanguages.RDFBLOCKS;
         Lang.TRIX       = RDFLanguages.TRIX;
         Lang.RDFNULL    = RDFLanguages.RDFNULL;
         Lang.SHACLC     = RDFLanguages.SHACLC;
@@ -245,6 +253,7 @@ public class RDFLanguages
         register(NQUADS);
         register(RDFPROTO);
         register(RDFTHRIFT);
+        register(RDFBLOCKS);
         register(TRIX);
         register(RDFNULL);
         register(SHACLC);
@@ -21,6 +21,7 @@ package org.apache.jena.riot;
 import static org.apache.jena.riot.RDFLanguages.NQUADS;
 import static org.apache.jena.riot.RDFLanguages.NTRIPLES;
 import static org.apache.jena.riot.RDFLanguages.RDFJSON;
+import static org.apache.jena.riot.RDFLanguages.TURTLE;
 import static org.apache.jena.riot.RDFLanguages.sameLang;
 
 import java.io.*;
@@ -46,6 +47,8 @@ import org.apache.jena.query.Dataset;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.lang.ParserNTuplesParallel;
+import org.apache.jena.riot.lang.ParserTurtleParallel;
 import org.apache.jena.riot.process.normalize.StreamCanonicalLangTag;
 import org.apache.jena.riot.process.normalize.StreamCanonicalLiterals;
 import org.apache.jena.riot.system.*;
@@ -109,6 +112,9 @@ public class RDFParser {
     private final FactoryRDF          factory;
     private final ErrorHandler        errorHandler;
     private final Context             context;
+    // Parallel parsing of N-Triples, N-Quads and Turtle: number of threads, or 0.
+    private final int                 parallelThreads;
+    private final boolean             parallelOrdered;
     // Some cases the parser is reusable (read a file), some are not (input streams).
     private boolean                 canUseThisParser = true;
 
@@ -188,7 +194,8 @@ public class RDFParser {
                             String parserBaseURI, boolean strict, Optional<Boolean> checking,
                             boolean canonicalLexicalValues, LangTagForm langTagForm,
                             boolean resolveURIs, IRIxResolver resolver, PrefixMap prefixMap,
-                            FactoryRDF factory, ErrorHandler errorHandler, Context context) {
+                            FactoryRDF factory, ErrorHandler errorHandler, Context context,
+                            int parallelThreads, boolean parallelOrdered) {
         int x = countNonNull(uri, path, content, inputStream, javaReader);
         if ( x >= 2 )
             throw new IllegalArgumentException("Only one source allowed: one of uri, path, content, inputStream and javaReader must be set");
@@ -220,6 +227,8 @@ public class RDFParser {
         this.factory = factory;
         this.errorHandler = errorHandler;
         this.context = context;
+        this.parallelThreads = parallelThreads;
+        this.parallelOrdered = parallelOrdered;
     }
 
     /** Count the nulls */
@@ -371,6 +380,10 @@ public class RDFParser {
                 if ( r == null )
                     throw new RiotException("No parser registered for language: " + forceLang);
                 ct = forceLang.getContentType();
+                if ( isParallel(forceLang) ) {
+                    parseParallel(forceLang, input, destination);
+                    return;
+                }
                 reader = createReader(r, forceLang);
             } else {
                 // No forced language.
@@ -378,6 +391,11 @@ public class RDFParser {
                 ct = WebContent.determineCT(input.getContentType(), hintLang, baseURI);
                 if ( ct == null )
                     throw new RiotException("Failed to determine the content type: (URI=" + baseURI + " : stream=" + input.getContentType()+")");
+                Lang lang = RDFLanguages.contentTypeToLang(ct);
+                if ( isParallel(lang) ) {
+                    parseParallel(lang, input, destination);
+                    return;
+                }
                 reader = createReader(ct);
                 if ( reader == null )
                     throw new RiotException("No parser registered for content type: " + ct.getContentTypeStr());
@@ -395,6 +413,10 @@ public class RDFParser {
         ContentType ct = WebContent.determineCT(null, lang, baseURI);
         if ( ct == null )
             throw new RiotException("Failed to determine the RDF syntax (.lang or .base required)");
+        if ( inputStream != null && isParallel(RDFLanguages.contentTypeToLang(ct)) ) {
+            parseParallel(RDFLanguages.contentTypeToLang(ct), inputStream, destination);
+            return;
+        }
 
         ReaderRIOT readerRiot = createReader(ct);
         if ( readerRiot == null )
@@ -423,6 +445,28 @@ public class RDFParser {
         throw new InternalErrorException("Both inputStream and javaReader are null");
     }
 
+    /** Whether to parse {@code lang} with {@link ParserNTuplesParallel} or {@link ParserTurtleParallel}. */
+    private boolean isParallel(Lang lang) {
+        return parallelThreads > 1 && lang != null && ( ParserNTuplesParallel.isParallelLang(lang) || sameLang(TURTLE, lang) );
+    }
+
+    /** Parse N-Triples, N-Quads or Turtle on several threads. */
+    private void parseParallel(Lang lang, InputStream input, StreamRDF destination) {
+        FactoryRDF sharedFactory = ParserNTuplesParallel.factoryForThreads(factory);
+        if ( sameLang(TURTLE, lang) ) {
+            // Each block has its own prefix map.
+            ParserTurtleParallel parser =
+                new ParserTurtleParallel(eh -> makeParserProfile(lang, sharedFactory, eh, PrefixMapFactory.create(prefixMap())),
+                                         errorHandler, parallelThreads, parallelOrdered);
+            parser.parse(input, destination);
+            return;
+        }
+        ParserNTuplesParallel parser =
+            new ParserNTuplesParallel(lang, eh -> makeParserProfile(lang, sharedFactory, eh), errorHandler,
+                                      parallelThreads, parallelOrdered);
+        parser.parse(input, destination);
+    }
+
     @SuppressWarnings("resource")
     private TypedInputStream openTypedInputStream(String urlStr, Path path) {
         // If path, use that.
@@ -489,6 +533,18 @@ public class RDFParser {
 
     // See also RiotLib.profile but this version has RDFParser specific features.
     private ParserProfile makeParserProfile(Lang lang) {
+        return makeParserProfile(lang, factory, errorHandler);
+    }
+
+    private ParserProfile makeParserProfile(Lang lang, FactoryRDF factory, ErrorHandler errorHandler) {
+        return makeParserProfile(lang, factory, errorHandler, prefixMap());
+    }
+
+    private PrefixMap prefixMap() {
+        return ( this.prefixMap != null ) ? this.prefixMap : PrefixMapFactory.create();
+    }
+
+    private ParserProfile makeParserProfile(Lang lang, FactoryRDF factory, ErrorHandler errorHandler, PrefixMap pmap) {
         boolean resolve = resolveURIs;
         boolean allowRelative = false;
         boolean checking$ = strict;
@@ -517,7 +573,6 @@ public class RDFParser {
         IRIxResolver parserResolver = (resolver != null)
                 ? resolver
                 : IRIxResolver.create().base(baseStr).resolve(resolve).allowRelative(allowRelative).build();
-        PrefixMap pmap = ( this.prefixMap != null ) ? this.prefixMap : PrefixMapFactory.create();
         ParserProfileStd parserFactory = new ParserProfileStd(factory, errorHandler,
                                                               parserResolver, pmap,
                                                               context, checking$, strict);
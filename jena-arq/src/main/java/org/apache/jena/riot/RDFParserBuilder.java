@@ -108,6 +108,10 @@ public class RDFParserBuilder {
     // Bad news.
     private ErrorHandler errorHandler = null;
 
+    // Parallel parsing of N-Triples, N-Quads and Turtle.
+    private int parallelThreads = 0;
+    private boolean parallelOrdered = true;
+
     public static RDFParserBuilder create() { return new RDFParserBuilder() ; }
     private RDFParserBuilder() {}
 
@@ -510,6 +514,39 @@ public class RDFParserBuilder {
         return this;
     }
 
+    /**
+     * Parse N-Triples, N-Quads and Turtle using several threads.
+     * The input is split into blocks of lines, or of whole statements for Turtle,
+     * and the blocks are parsed concurrently.
+     * Triples and quads are sent to the destination on the calling thread, in the same
+     * order as the input.
+     * <br/>
+     * Blank node labels are mapped by the {@link FactoryRDF} of the parser as for a
+     * parse on one thread. Other languages, and sources that are a {@code Reader}
+     * or a string, are not affected.
+     * @param threads Number of threads; 0 or 1 for no parallel parsing.
+     * @return this
+     */
+    public RDFParserBuilder parallel(int threads) {
+        return parallel(threads, true);
+    }
+
+    /**
+     * Parse N-Triples, N-Quads and Turtle using several threads (see {@link #parallel(int)}).
+     * If {@code ordered} is false, the output of each block of the input is sent
+     * to the destination as soon as it is ready, not in the order of the input.
+     * @param threads Number of threads; 0 or 1 for no parallel parsing.
+     * @param ordered Whether to keep the order of the input.
+     * @return this
+     */
+    public RDFParserBuilder parallel(int threads, boolean ordered) {
+        if ( threads < 0 )
+            throw new IllegalArgumentException("Negative number of threads: "+threads);
+        this.parallelThreads = threads;
+        this.parallelOrdered = ordered;
+        return this;
+    }
+
     // There are no strict/unstrict differences.
     // Strict is passed through to the RIOT reader.
 //    /**
@@ -701,7 +738,8 @@ public class RDFParserBuilder {
                              parserBaseURI, strict, checking,
                              canonicalValues, langTagForm,
                              resolveURIs, resolver, prefixMap,
-                             factory$, errorHandler$, context);
+                             factory$, errorHandler$, context,
+                             parallelThreads, parallelOrdered);
     }
 
     private FactoryRDF buildFactoryRDF() {
@@ -741,6 +779,8 @@ public class RDFParserBuilder {
         builder.factory =           this.factory;
         builder.labelToNode =       this.labelToNode;
         builder.errorHandler =      this.errorHandler;
+        builder.parallelThreads =   this.parallelThreads;
+        builder.parallelOrdered =   this.parallelOrdered;
         return builder;
     }
 }
@@ -33,6 +33,7 @@ import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.riot.lang.*;
 import org.apache.jena.riot.lang.extra.TurtleJCC;
 import org.apache.jena.riot.protobuf.ProtobufRDF;
+import org.apache.jena.riot.protobuf.RDFBlocks;
 import org.apache.jena.riot.protobuf.RiotProtobufException;
 import org.apache.jena.riot.system.*;
 import org.apache.jena.riot.thrift.RiotThriftException;
@@ -79,6 +80,7 @@ public class RDFParserRegistry
         ReaderRIOTFactory parserFactoryRDFXML    = ReaderRIOTRDFXML.factory;
         ReaderRIOTFactory parserFactoryProtobuf  = ReaderRDFProtobuf.factory;
         ReaderRIOTFactory parserFactoryThrift    = ReaderRDFThrift.factory;
+        ReaderRIOTFactory parserFactoryBlocks    = ReaderRDFBlocks.factory;
         ReaderRIOTFactory parserFactoryTriX      = ReaderTriX.factory;
         ReaderRIOTFactory parserFactoryRDFNULL   = ReaderRDFNULL.factory;
 
@@ -89,6 +91,7 @@ public class RDFParserRegistry
         registerLangTriples(RDFXML,     parserFactoryRDFXML);
         registerLangTriples(RDFPROTO,   parserFactoryProtobuf);
         registerLangTriples(RDFTHRIFT,  parserFactoryTriX);
+        registerLangTriples(RDFBLOCKS,  parserFactoryBlocks);
         registerLangTriples(TRIX,       parserFactoryTriX);
         registerLangTriples(RDFNULL,    parserFactoryRDFNULL);
 
@@ -109,6 +112,7 @@ public class RDFParserRegistry
         registerLangQuads(TRIG,         parserFactory);
         registerLangQuads(RDFPROTO,     parserFactoryProtobuf);
         registerLangQuads(RDFTHRIFT,    parserFactoryThrift);
+        registerLangQuads(RDFBLOCKS,    parserFactoryBlocks);
         registerLangQuads(TRIX,         parserFactoryTriX);
         registerLangQuads(RDFNULL,      parserFactoryRDFNULL);
 
@@ -258,6 +262,30 @@ public class RDFParserRegistry
         }
     }
 
+    private static class ReaderRDFBlocks implements ReaderRIOT {
+        static ReaderRIOTFactory factory = (Lang language, ParserProfile profile) -> new ReaderRDFBlocks(profile);
+        private final ParserProfile profile;
+        public ReaderRDFBlocks(ParserProfile profile) { this.profile = profile; }
+
+        @Override
+        public void read(InputStream in, String baseURI, ContentType ct, StreamRDF output, Context context) {
+            try {
+                RDFBlocks.inputStreamToStreamRDF(in, output);
+            } catch (RiotProtobufException ex) {
+                if ( profile != null && profile.getErrorHandler() != null )
+                    profile.getErrorHandler().error(ex.getMessage(), -1, -1);
+                else
+                    ErrorHandlerFactory.errorHandlerStd.error(ex.getMessage(), -1, -1);
+                throw ex;
+            }
+        }
+
+        @Override
+        public void read(Reader reader, String baseURI, ContentType ct, StreamRDF output, Context context) {
+            throw new RiotException("RDF-Blocks : Reading binary data from a java.io.reader is not supported. Please use an InputStream");
+        }
+    }
+
     private static class ReaderRDFThrift implements ReaderRIOT {
         static ReaderRIOTFactory factory = (Lang language, ParserProfile profile) -> new ReaderRDFThrift(profile);
         private final ParserProfile profile;
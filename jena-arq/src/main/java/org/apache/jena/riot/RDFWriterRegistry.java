@@ -21,7 +21,9 @@ package org.apache.jena.riot;
 import java.util.* ;
 
 import org.apache.jena.atlas.lib.CharSpace ;
+import org.apache.jena.riot.protobuf.WriterDatasetBlocks;
 import org.apache.jena.riot.protobuf.WriterDatasetProtobuf;
+import org.apache.jena.riot.protobuf.WriterGraphBlocks;
 import org.apache.jena.riot.protobuf.WriterGraphProtobuf;
 import org.apache.jena.riot.system.RiotLib ;
 import org.apache.jena.riot.system.StreamRDFWriter;
@@ -68,6 +70,8 @@ public class RDFWriterRegistry
                 return new TurtleWriterBlocks() ;
             if ( Objects.equals(RDFFormat.TURTLE_FLAT, serialization) )
                 return new TurtleWriterFlat() ;
+            if ( Objects.equals(RDFFormat.TURTLE_STREAMING, serialization) )
+                return new TurtleWriterStreaming() ;
 
             if ( Objects.equals(RDFFormat.NTRIPLES_UTF8, serialization) )
                 return new NTriplesWriter() ;
@@ -97,6 +101,8 @@ public class RDFWriterRegistry
                 return new TriGWriterBlocks() ;
             if ( Objects.equals(RDFFormat.TRIG_FLAT, serialization) )
                 return new TriGWriterFlat() ;
+            if ( Objects.equals(RDFFormat.TRIG_STREAMING, serialization) )
+                return new TriGWriterStreaming() ;
             if ( Objects.equals(RDFFormat.NQUADS_UTF8, serialization) )
                 return new NQuadsWriter() ;
             if ( Objects.equals(RDFFormat.NQUADS_ASCII, serialization) )
@@ -123,6 +129,8 @@ public class RDFWriterRegistry
         WriterDatasetRIOTFactory wdsProtoFactory    = syntaxForm -> new WriterDatasetProtobuf(syntaxForm);
         WriterGraphRIOTFactory wgThriftFactory      = syntaxForm -> new WriterGraphThrift(syntaxForm);
         WriterDatasetRIOTFactory wdsThriftFactory   = syntaxForm -> new WriterDatasetThrift(syntaxForm);
+        WriterGraphRIOTFactory wgBlocksFactory      = syntaxForm -> new WriterGraphBlocks(syntaxForm);
+        WriterDatasetRIOTFactory wdsBlocksFactory   = syntaxForm -> new WriterDatasetBlocks(syntaxForm);
         WriterGraphRIOTFactory wgTriXFactory        = syntaxForm -> new WriterTriX();
         WriterDatasetRIOTFactory wdsTriXFactory     = syntaxForm -> new WriterTriX() ;
 
@@ -151,6 +159,7 @@ public class RDFWriterRegistry
         register(Lang.RDFNULL,     RDFFormat.RDFNULL) ;
         register(Lang.RDFPROTO,    RDFFormat.RDF_PROTO) ;
         register(Lang.RDFTHRIFT,   RDFFormat.RDF_THRIFT) ;
+        register(Lang.RDFBLOCKS,   RDFFormat.RDF_BLOCKS) ;
 
         register(Lang.TRIX,        RDFFormat.TRIX) ;
 
@@ -159,6 +168,7 @@ public class RDFWriterRegistry
         register(RDFFormat.TURTLE_PRETTY,  wgfactory) ;
         register(RDFFormat.TURTLE_BLOCKS,  wgfactory) ;
         register(RDFFormat.TURTLE_FLAT,    wgfactory) ;
+        register(RDFFormat.TURTLE_STREAMING, wgfactory) ;
 
         register(RDFFormat.NTRIPLES,       wgfactory) ;
         register(RDFFormat.NTRIPLES_ASCII, wgfactory) ;
@@ -213,6 +223,7 @@ public class RDFWriterRegistry
         register(RDFFormat.TRIG_PRETTY,    wgfactory) ;
         register(RDFFormat.TRIG_BLOCKS,    wgfactory) ;
         register(RDFFormat.TRIG_FLAT,      wgfactory) ;
+        register(RDFFormat.TRIG_STREAMING, wgfactory) ;
 
         register(RDFFormat.NQUADS,         wgfactory) ;
         register(RDFFormat.NQUADS_ASCII,   wgfactory) ;
@@ -222,6 +233,9 @@ public class RDFWriterRegistry
         register(RDFFormat.RDF_PROTO_VALUES,    wgProtoFactory) ;
         register(RDFFormat.RDF_THRIFT,          wgThriftFactory) ;
         register(RDFFormat.RDF_THRIFT_VALUES,   wgThriftFactory) ;
+        register(RDFFormat.RDF_BLOCKS,              wgBlocksFactory) ;
+        register(RDFFormat.RDF_BLOCKS_DEFLATE,      wgBlocksFactory) ;
+        register(RDFFormat.RDF_BLOCKS_UNCOMPRESSED, wgBlocksFactory) ;
 
         register(RDFFormat.TRIX, wgTriXFactory) ;
 
@@ -230,6 +244,7 @@ public class RDFWriterRegistry
         register(RDFFormat.TRIG_PRETTY,    wdsfactory) ;
         register(RDFFormat.TRIG_BLOCKS,    wdsfactory) ;
         register(RDFFormat.TRIG_FLAT,      wdsfactory) ;
+        register(RDFFormat.TRIG_STREAMING, wdsfactory) ;
 
         register(RDFFormat.NQUADS,         wdsfactory) ;
         register(RDFFormat.NQUADS_ASCII,   wdsfactory) ;
@@ -239,6 +254,9 @@ public class RDFWriterRegistry
         register(RDFFormat.RDF_PROTO_VALUES,    wdsProtoFactory) ;
         register(RDFFormat.RDF_THRIFT,          wdsThriftFactory) ;
         register(RDFFormat.RDF_THRIFT_VALUES,   wdsThriftFactory) ;
+        register(RDFFormat.RDF_BLOCKS,              wdsBlocksFactory) ;
+        register(RDFFormat.RDF_BLOCKS_DEFLATE,      wdsBlocksFactory) ;
+        register(RDFFormat.RDF_BLOCKS_UNCOMPRESSED, wdsBlocksFactory) ;
 
         register(RDFFormat.TRIX, wdsTriXFactory) ;
     }
@@ -140,4 +140,26 @@ public class RIOT {
      * not output BASE even when given.
      */
     public static final Symbol symTurtleOmitBase = SystemARQ.allocSymbol(TURTLE_SYMBOL_BASE, "omitBase");
+
+    /**
+     * Streaming pretty printing: the number of triples held back while looking for
+     * blank nodes and RDF lists to write inline. See {@link RDFFormat#TURTLE_STREAMING}.
+     */
+    public static final Symbol symTurtleStreamingWindow = SystemARQ.allocSymbol(TURTLE_SYMBOL_BASE, "streamingWindow");
+
+    /**
+     * Streaming pretty printing of a stream (not a graph or dataset): write blank
+     * nodes inline. Only set this if all the triples of a blank node, and all
+     * the triples that refer to it, are within a window of each other; otherwise
+     * the output is not the same data. Default false.
+     */
+    public static final Symbol symTurtleStreamingInline = SystemARQ.allocSymbol(TURTLE_SYMBOL_BASE, "streamingInline");
+
+    private static String BLOCKS_SYMBOL_BASE = "http://jena.apache.org/riot/rdf-blocks#";
+
+    /**
+     * RDF-Blocks output: the number of rows (triples, quads, prefixes) in each block.
+     * See {@link RDFFormat#RDF_BLOCKS}.
+     */
+    public static final Symbol symRDFBlocksSize = SystemARQ.allocSymbol(BLOCKS_SYMBOL_BASE, "blockSize");
 }
@@ -82,6 +82,10 @@ public class WebContent {
     public static final String contentTypeRDFThrift = "application/rdf+thrift";
     public static final ContentType ctRDFTHRIFT = ContentType.create(contentTypeRDFThrift);
 
+    // Unofficial
+    public static final String      contentTypeRDFBlocks         = "application/rdf+blocks" ;
+    public static final ContentType ctRDFBlocks                  = ContentType.create(contentTypeRDFBlocks) ;
+
     public static final String contentTypeNQuadsAlt1 = "text/n-quads";
     public static final ContentType ctNQuadsAlt1 = ContentType.create(contentTypeNQuadsAlt1);
 
@@ -129,6 +133,10 @@ public class WebContent {
     public static final String      contentTypeResultsProtobuf   = "application/sparql-results+protobuf" ;
     public static final ContentType ctResultsProtobuf            = ContentType.create(contentTypeResultsProtobuf) ;
 
+    // Unofficial
+    public static final String      contentTypeResultsColumnar   = "application/sparql-results+columnar" ;
+    public static final ContentType ctResultsColumnar            = ContentType.create(contentTypeResultsColumnar) ;
+
     // Unofficial
     public static final String      contentTypeResultsThrift     = "application/sparql-results+thrift" ;
     public static final ContentType ctResultsThrift              = ContentType.create(contentTypeResultsThrift) ;
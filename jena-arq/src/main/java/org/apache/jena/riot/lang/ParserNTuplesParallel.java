@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.riot.lang;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Function;
+
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.ErrorHandler;
+import org.apache.jena.riot.system.FactoryRDF;
+import org.apache.jena.riot.system.ParserProfile;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Parse N-Triples or N-Quads on several threads.
+ * <p>
+ * The input is read in blocks which are split at the last newline; each block
+ * of whole lines is parsed by a thread of a pool. The output of each block is sent
+ * to the {@link StreamRDF} on the caller's thread, either in the order of the input
+ * or in the order the blocks are completed.
+ * <p>
+ * All the blocks create terms with the same {@link FactoryRDF} (see
+ * {@link #factoryForThreads}) so blank node labels are allocated by the
+ * one {@link LabelToNode} policy, as for a parse on a single thread. Line numbers
+ * in error messages are the lines of the whole input.
+ */
+public class ParserNTuplesParallel extends ParserParallelBase<ParserParallelBase.Block, CollectorStreamRDF> {
+    private final Lang lang;
+    private final Function<ErrorHandler, ParserProfile> profileMaker;
+
+    /**
+     * A parser for N-Triples or N-Quads.
+     * @param lang {@link RDFLanguages#NTRIPLES} or {@link RDFLanguages#NQUADS}.
+     * @param profileMaker Create a {@link ParserProfile} for a block, given the error handler for the block.
+     *   The profiles should share a {@link FactoryRDF} that can be used by several threads.
+     * @param errorHandler The error handler.
+     * @param threads Number of threads parsing.
+     * @param ordered Whether the output is in the same order as the input.
+     */
+    public ParserNTuplesParallel(Lang lang, Function<ErrorHandler, ParserProfile> profileMaker, ErrorHandler errorHandler,
+                                 int threads, boolean ordered) {
+        this(lang, profileMaker, errorHandler, threads, ordered, DftChunkSize);
+    }
+
+    /*package*/ ParserNTuplesParallel(Lang lang, Function<ErrorHandler, ParserProfile> profileMaker, ErrorHandler errorHandler,
+                                      int threads, boolean ordered, int chunkSize) {
+        super(errorHandler, threads, ordered, chunkSize);
+        if ( ! isParallelLang(lang) )
+            throw new RiotException("Not N-Triples or N-Quads: "+lang);
+        this.lang = lang;
+        this.profileMaker = profileMaker;
+    }
+
+    /** Whether the language can be parsed by this class. */
+    public static boolean isParallelLang(Lang lang) {
+        return RDFLanguages.sameLang(RDFLanguages.NTRIPLES, lang) || RDFLanguages.sameLang(RDFLanguages.NQUADS, lang);
+    }
+
+    /** Read a block of whole lines, or null at the end of the input. */
+    @Override
+    protected Block readChunk(InputStream input) throws IOException {
+        return readBlock(input);
+    }
+
+    @Override
+    protected int split(byte[] buffer, int len) {
+        for ( int i = len-1 ; i >= 0 ; i-- ) {
+            if ( buffer[i] == '\n' )
+                return i+1;
+        }
+        // A line longer than the buffer.
+        return 0;
+    }
+
+    @Override
+    protected CollectorStreamRDF parseChunk(Block chunk) {
+        ErrorHandlerOffset chunkErrorHandler = new ErrorHandlerOffset(errorHandler, chunk.startLine-1);
+        ParserProfile profile = profileMaker.apply(chunkErrorHandler);
+        CollectorStreamRDF output = new CollectorStreamRDF();
+        Tokenizer tokenizer = RiotParsers.tokenizer(chunk.bytes, chunk.length, chunkErrorHandler);
+        LangRIOT parser = RDFLanguages.sameLang(RDFLanguages.NTRIPLES, lang)
+                ? new LangNTriples(tokenizer, profile, output)
+                : new LangNQuads(tokenizer, profile, output);
+        parse(parser, chunkErrorHandler, chunk.startLine);
+        return output;
+    }
+
+    @Override
+    protected void send(CollectorStreamRDF output, StreamRDF dest) {
+        output.getTriples().forEach(dest::triple);
+        output.getQuads().forEach(dest::quad);
+    }
+
+    /**
+     * A {@link FactoryRDF} for use by several threads, where {@code factory} can create
+     * terms other than blank nodes on several threads. Blank nodes are created one at a
+     * time so the label to blank node mapping, which is not thread safe, is the same as
+     * for a single thread.
+     */
+    public static FactoryRDF factoryForThreads(FactoryRDF factory) {
+        return new FactoryRDF() {
+            @Override
+            public Triple createTriple(Node subject, Node predicate, Node object) {
+                return factory.createTriple(subject, predicate, object);
+            }
+
+            @Override
+            public Quad createQuad(Node graph, Node subject, Node predicate, Node object) {
+                return factory.createQuad(graph, subject, predicate, object);
+            }
+
+            @Override
+            public Node createURI(String uriStr) {
+                return factory.createURI(uriStr);
+            }
+
+            @Override
+            public Node createTypedLiteral(String lexical, RDFDatatype datatype) {
+                return factory.createTypedLiteral(lexical, datatype);
+            }
+
+            @Override
+            public Node createLangLiteral(String lexical, String langTag) {
+                return factory.createLangLiteral(lexical, langTag);
+            }
+
+            @Override
+            public Node createStringLiteral(String lexical) {
+                return factory.createStringLiteral(lexical);
+            }
+
+            @Override
+            public Node createBlankNode() {
+                synchronized(factory) {
+                    return factory.createBlankNode();
+                }
+            }
+
+            @Override
+            public Node createBlankNode(String label) {
+                synchronized(factory) {
+                    return factory.createBlankNode(label);
+                }
+            }
+
+            @Override
+            public Node createBlankNode(long mostSigBits, long leastSigBits) {
+                return factory.createBlankNode(mostSigBits, leastSigBits);
+            }
+
+            @Override
+            public void reset() {
+                synchronized(factory) {
+                    factory.reset();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.system.ErrorHandler;
+import org.apache.jena.riot.system.StreamRDF;
+
+/**
+ * Framework for parsing on several threads: the input is read in blocks, each
+ * block is parsed by a thread of a pool, and the output of each block is sent to the
+ * {@link StreamRDF} on the caller's thread, either in the order of the input or in the
+ * order the blocks are completed.
+ * <p>
+ * Subclasses say where a block can be split ({@link #split}), what is parsed for a
+ * block ({@link #readChunk}), how it is parsed ({@link #parseChunk}) and how the
+ * output is sent on ({@link #send}).
+ *
+ * @param <C> Work for one block.
+ * @param <O> Output of one block.
+ */
+abstract class ParserParallelBase<C, O> {
+    // Block size.
+    /*package*/ static final int DftChunkSize = 4*1024*1024;
+    /** Returned by {@link #split} when the rest of the input can not be split. */
+    protected static final int STOP = -1;
+    private static final byte[] EMPTY = new byte[0];
+    private static final AtomicInteger poolCounter = new AtomicInteger(0);
+
+    protected final ErrorHandler errorHandler;
+    protected final int threads;
+    protected final boolean ordered;
+    protected final int chunkSize;
+
+    // Reading state.
+    private byte[] carry = EMPTY;
+    private boolean eof = false;
+    private long line = 1;
+
+    protected ParserParallelBase(ErrorHandler errorHandler, int threads, boolean ordered, int chunkSize) {
+        if ( threads < 1 )
+            throw new IllegalArgumentException("Threads must be at least one: "+threads);
+        this.errorHandler = errorHandler;
+        this.threads = threads;
+        this.ordered = ordered;
+        this.chunkSize = chunkSize;
+    }
+
+    /** Parse the input, sending the output to {@code dest}. The input is closed. */
+    public void parse(InputStream input, StreamRDF dest) {
+        startParse();
+        int poolId = poolCounter.incrementAndGet();
+        AtomicInteger threadCounter = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "RIOT-parse-"+poolId+"-"+threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<O> completion = new ExecutorCompletionService<>(executor);
+        // Limit the blocks read ahead of the output.
+        int maxPending = 2*threads;
+        Deque<Future<O>> pending = new ArrayDeque<>();
+        dest.start();
+        try {
+            for (;;) {
+                C chunk = readChunk(input);
+                if ( chunk == null )
+                    break;
+                pending.addLast(completion.submit(() -> parseChunk(chunk)));
+                if ( pending.size() >= maxPending )
+                    deliver(completion, pending, dest);
+            }
+            while ( ! pending.isEmpty() )
+                deliver(completion, pending, dest);
+            finishParse(input, dest);
+        } catch (IOException ex) {
+            IO.exception(ex);
+        } finally {
+            executor.shutdownNow();
+            IO.close(input);
+            dest.finish();
+        }
+    }
+
+    /** Called before any input is read. */
+    protected void startParse() {}
+
+    /** Called, on the caller's thread, after the output of all the blocks has been sent. */
+    protected void finishParse(InputStream input, StreamRDF dest) {}
+
+    /** The next block to parse, or null for no more blocks. */
+    protected abstract C readChunk(InputStream input) throws IOException;
+
+    /** Parse a block. Called on a pool thread. */
+    protected abstract O parseChunk(C chunk);
+
+    /** Send the output of a block to the destination. */
+    protected abstract void send(O output, StreamRDF dest);
+
+    /**
+     * Where to split {@code buffer[0, len)}: the end of the last whole unit to parse,
+     * 0 if there is no whole unit yet, or {@link #STOP} if the rest of the input can not
+     * be split.
+     */
+    protected abstract int split(byte[] buffer, int len);
+
+    /** Send the output of one block to the destination. */
+    private void deliver(CompletionService<O> completion, Deque<Future<O>> pending, StreamRDF dest) {
+        O output;
+        try {
+            if ( ordered )
+                output = pending.removeFirst().get();
+            else {
+                Future<O> future = completion.take();
+                pending.remove(future);
+                output = future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RiotException("Interrupted", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause;
+            if ( cause instanceof Error )
+                throw (Error)cause;
+            throw new RiotException(cause);
+        }
+        send(output, dest);
+    }
+
+    /** Bytes of the input and the line number of the first byte. */
+    protected static class Block {
+        final byte[] bytes;
+        final int length;
+        final long startLine;
+        Block(byte[] bytes, int length, long startLine) {
+            this.bytes = bytes;
+            this.length = length;
+            this.startLine = startLine;
+        }
+    }
+
+    /**
+     * Read a block, split by {@link #split}, or return null at the end of the input or
+     * if the rest of the input can not be split.
+     */
+    protected Block readBlock(InputStream input) throws IOException {
+        if ( eof && carry.length == 0 )
+            return null;
+        byte[] buffer = Arrays.copyOf(carry, Math.max(chunkSize, 2*carry.length));
+        int len = carry.length;
+        carry = EMPTY;
+        for (;;) {
+            while ( len < buffer.length && ! eof ) {
+                int x = input.read(buffer, len, buffer.length-len);
+                if ( x < 0 )
+                    eof = true;
+                else
+                    len += x;
+            }
+            if ( eof ) {
+                if ( len == 0 )
+                    return null;
+                return block(buffer, len);
+            }
+            int boundary = split(buffer, len);
+            if ( boundary > 0 ) {
+                carry = Arrays.copyOfRange(buffer, boundary, len);
+                return block(buffer, boundary);
+            }
+            if ( boundary == STOP ) {
+                carry = Arrays.copyOf(buffer, len);
+                return null;
+            }
+            // A unit longer than the buffer.
+            buffer = Arrays.copyOf(buffer, 2*buffer.length);
+        }
+    }
+
+    private Block block(byte[] buffer, int len) {
+        Block block = new Block(buffer, len, line);
+        for ( int i = 0 ; i < len ; i++ ) {
+            if ( buffer[i] == '\n' )
+                line++;
+        }
+        return block;
+    }
+
+    /** The input read but not returned in a block. */
+    protected byte[] remaining() {
+        return carry;
+    }
+
+    /** The line number of the start of the input not yet returned in a block. */
+    protected long line() {
+        return line;
+    }
+
+    /** Run a parser, with the line numbers in exceptions moved by the start line of the block. */
+    protected static void parse(LangRIOT parser, ErrorHandlerOffset errorHandler, long startLine) {
+        try {
+            parser.parse();
+        } catch (RiotParseException ex) {
+            // If the error handler did not throw an exception, the parser throws
+            // an exception with the line number within the block.
+            if ( errorHandler.fatalReturned )
+                throw new RiotParseException(ex.getOriginalMessage(), ex.getLine()+startLine-1, ex.getCol());
+            throw ex;
+        }
+    }
+
+    /** Error handler for a block : line numbers are moved by the start line of the block. */
+    /*package*/ static class ErrorHandlerOffset implements ErrorHandler {
+        private final ErrorHandler other;
+        private final long offset;
+        // Set if the fatal error did not throw an exception.
+        /*package*/ boolean fatalReturned = false;
+
+        ErrorHandlerOffset(ErrorHandler other, long offset) {
+            this.other = other;
+            this.offset = offset;
+        }
+
+        private long line(long line) {
+            return ( line < 0 ) ? line : line+offset;
+        }
+
+        @Override
+        public void warning(String message, long line, long col) {
+            synchronized(other) {
+                other.warning(message, line(line), col);
+            }
+        }
+
+        @Override
+        public void error(String message, long line, long col) {
+            synchronized(other) {
+                other.error(message, line(line), col);
+            }
+        }
+
+        @Override
+        public void fatal(String message, long line, long col) {
+            synchronized(other) {
+                other.fatal(message, line(line), col);
+            }
+            fatalReturned = true;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.*;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerText;
+
+/**
+ * Parse Turtle on several threads.
+ * <p>
+ * The input is read in blocks. Each block is scanned, without tokenizing, for
+ * the last {@code .} that ends a statement: one that is not in a string, an IRI
+ * or a comment, and is not inside {@code [ ]}, {@code ( )} or {@code << >>}.
+ * The block up to that point is parsed by a thread of a pool, with the prefixes
+ * and base that are set by the directives before the block. The output of each block
+ * is sent to the {@link StreamRDF} on the caller's thread, either in the order of the
+ * input or in the order the blocks are completed.
+ * <p>
+ * If the scan finds input that it can not split safely, such as a newline in an IRI
+ * or a statement longer than several blocks, the rest of the input is parsed on the
+ * caller's thread by one {@link LangTurtle}.
+ * <p>
+ * As for {@link ParserNTuplesParallel}, the blocks should create terms with a
+ * {@link FactoryRDF} from {@link ParserNTuplesParallel#factoryForThreads} so blank
+ * node labels are the same across blocks. Each call of {@code profileMaker} should
+ * return a profile with its own {@link PrefixMap}.
+ */
+public class ParserTurtleParallel extends ParserParallelBase<ParserTurtleParallel.Chunk, ParserTurtleParallel.ChunkOutput> {
+    // A statement longer than this many blocks ends parallel parsing.
+    private static final int MaxChunks = 4;
+
+    private final Function<ErrorHandler, ParserProfile> profileMaker;
+
+    // Reading state.
+    private boolean unsplittable = false;
+    // The scan of the last split.
+    private Scan lastScan = null;
+
+    // Prefixes and base from the directives read so far.
+    private ParserProfile directives;
+    private String base = null;
+
+    /**
+     * A parser for Turtle.
+     * @param profileMaker Create a {@link ParserProfile} for a block, given the error handler for the block.
+     *   The profiles should share a {@link FactoryRDF} that can be used by several threads.
+     * @param errorHandler The error handler.
+     * @param threads Number of threads parsing.
+     * @param ordered Whether the output is in the same order as the input.
+     */
+    public ParserTurtleParallel(Function<ErrorHandler, ParserProfile> profileMaker, ErrorHandler errorHandler,
+                                int threads, boolean ordered) {
+        this(profileMaker, errorHandler, threads, ordered, DftChunkSize);
+    }
+
+    /*package*/ ParserTurtleParallel(Function<ErrorHandler, ParserProfile> profileMaker, ErrorHandler errorHandler,
+                                     int threads, boolean ordered, int chunkSize) {
+        super(errorHandler, threads, ordered, chunkSize);
+        this.profileMaker = profileMaker;
+    }
+
+    @Override
+    protected void startParse() {
+        // Errors are reported when the block with the directive is parsed.
+        directives = profileMaker.apply(ErrorHandlerFactory.errorHandlerStrictNoLogging);
+    }
+
+    @Override
+    protected void finishParse(InputStream input, StreamRDF dest) {
+        if ( unsplittable )
+            parseRest(input, dest);
+    }
+
+    @Override
+    protected ChunkOutput parseChunk(Chunk chunk) {
+        Block block = chunk.block;
+        ErrorHandlerOffset chunkErrorHandler = new ErrorHandlerOffset(errorHandler, block.startLine-1);
+        ChunkOutput output = new ChunkOutput();
+        Tokenizer tokenizer = RiotParsers.tokenizer(block.bytes, block.length, chunkErrorHandler);
+        ParserProfile profile = profile(chunkErrorHandler, chunk.prefixes, chunk.base);
+        parse(new LangTurtle(tokenizer, profile, output), chunkErrorHandler, block.startLine);
+        return output;
+    }
+
+    @Override
+    protected void send(ChunkOutput output, StreamRDF dest) {
+        output.send(dest);
+    }
+
+    /** Parse the input that could not be split, on this thread. */
+    private void parseRest(InputStream input, StreamRDF dest) {
+        ErrorHandlerOffset restErrorHandler = new ErrorHandlerOffset(errorHandler, line()-1);
+        InputStream in = new SequenceInputStream(new ByteArrayInputStream(remaining()), input);
+        Tokenizer tokenizer = RiotParsers.tokenizer(in, restErrorHandler);
+        ParserProfile profile = profile(restErrorHandler, PrefixMapFactory.create(directives.getPrefixMap()), base);
+        // The destination has already been started.
+        StreamRDF output = new StreamRDFWrapper(dest) {
+            @Override public void start() {}
+            @Override public void finish() {}
+        };
+        parse(new LangTurtle(tokenizer, profile, output), restErrorHandler, line());
+    }
+
+    private ParserProfile profile(ErrorHandler chunkErrorHandler, PrefixMap prefixes, String baseIRI) {
+        ParserProfile profile = profileMaker.apply(chunkErrorHandler);
+        if ( baseIRI != null )
+            profile.setBaseIRI(baseIRI);
+        profile.getPrefixMap().putAll(prefixes);
+        return profile;
+    }
+
+    /*package*/ static class Chunk {
+        final Block block;
+        // Settings at the start of the block.
+        final PrefixMap prefixes;
+        final String base;
+        Chunk(Block block, PrefixMap prefixes, String base) {
+            this.block = block;
+            this.prefixes = prefixes;
+            this.base = base;
+        }
+    }
+
+    /** Triples, and prefix and base settings in order with the triples. */
+    /*package*/ static class ChunkOutput extends StreamRDFBase {
+        private final List<Triple> triples = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+        private final List<Consumer<StreamRDF>> settings = new ArrayList<>();
+
+        @Override
+        public void triple(Triple triple) {
+            triples.add(triple);
+        }
+
+        @Override
+        public void prefix(String prefix, String iri) {
+            positions.add(triples.size());
+            settings.add(dest -> dest.prefix(prefix, iri));
+        }
+
+        @Override
+        public void base(String baseIRI) {
+            positions.add(triples.size());
+            settings.add(dest -> dest.base(baseIRI));
+        }
+
+        void send(StreamRDF dest) {
+            int idx = 0;
+            for ( int i = 0 ; i < triples.size() ; i++ ) {
+                while ( idx < positions.size() && positions.get(idx) == i )
+                    settings.get(idx++).accept(dest);
+                dest.triple(triples.get(i));
+            }
+            while ( idx < settings.size() )
+                settings.get(idx++).accept(dest);
+        }
+    }
+
+    /**
+     * Read a block of whole statements, or null at the end of the input or
+     * if the rest of the input can not be split.
+     */
+    @Override
+    protected Chunk readChunk(InputStream input) throws IOException {
+        if ( unsplittable )
+            return null;
+        lastScan = null;
+        Block block = readBlock(input);
+        if ( block == null )
+            return null;
+        Chunk chunk = new Chunk(block, PrefixMapFactory.create(directives.getPrefixMap()), base);
+        // The last block, at the end of the input, is not split and later blocks
+        // do not need its directives.
+        if ( lastScan != null && lastScan.boundary == block.length ) {
+            for ( int[] range : lastScan.directives )
+                directive(block.bytes, range[0], range[1]);
+        }
+        return chunk;
+    }
+
+    @Override
+    protected int split(byte[] buffer, int len) {
+        Scan scan = scan(buffer, len);
+        lastScan = scan;
+        if ( scan.boundary > 0 ) {
+            unsplittable = scan.unsafe;
+            return scan.boundary;
+        }
+        if ( scan.unsafe || len >= MaxChunks*chunkSize ) {
+            unsplittable = true;
+            return STOP;
+        }
+        // A statement longer than the buffer.
+        return 0;
+    }
+
+    /** Apply a directive to the prefixes and base for the following blocks. */
+    private void directive(byte[] buffer, int start, int end) {
+        StreamRDF settings = new StreamRDFBase() {
+            @Override
+            public void base(String baseIRI) {
+                base = baseIRI;
+            }
+        };
+        ErrorHandler eh = directives.getErrorHandler();
+        Tokenizer tokenizer = TokenizerText.create().source(new ByteArrayInputStream(buffer, start, end-start)).errorHandler(eh).build();
+        try {
+            new LangTurtle(tokenizer, directives, settings).parse();
+        } catch (RiotException ex) {
+            // Reported by the parser of the block.
+        }
+    }
+
+    // ---- Scanning for the ends of statements.
+
+    private static final int INCOMPLETE = -1;
+    private static final int UNSAFE     = -2;
+
+    /*package*/ static class Scan {
+        // End of the last whole statement, or 0.
+        int boundary = 0;
+        // Start and end of directives before the boundary.
+        final List<int[]> directives = new ArrayList<>();
+        // Whether the input after the boundary can not be split.
+        boolean unsafe = false;
+    }
+
+    /** Find the whole statements at the start of {@code bytes}. */
+    /*package*/ static Scan scan(byte[] bytes, int len) {
+        Scan scan = new Scan();
+        int pos = 0;
+        for (;;) {
+            pos = skipWhitespace(bytes, pos, len);
+            if ( pos == INCOMPLETE || pos >= len )
+                return scan;
+            boolean sparqlDirective = matchesKeyword(bytes, pos, len, "PREFIX") || matchesKeyword(bytes, pos, len, "BASE");
+            boolean directive = sparqlDirective || matches(bytes, pos, len, "@prefix") || matches(bytes, pos, len, "@base");
+            int end = statementEnd(bytes, pos, len, sparqlDirective);
+            if ( end == INCOMPLETE )
+                return scan;
+            if ( end == UNSAFE ) {
+                scan.unsafe = true;
+                return scan;
+            }
+            if ( directive )
+                scan.directives.add(new int[] {pos, end});
+            scan.boundary = end;
+            pos = end;
+        }
+    }
+
+    private static int skipWhitespace(byte[] bytes, int pos, int len) {
+        while ( pos < len ) {
+            byte b = bytes[pos];
+            if ( b == '#' ) {
+                pos = endOfLine(bytes, pos, len);
+                if ( pos == INCOMPLETE )
+                    return INCOMPLETE;
+                continue;
+            }
+            if ( ! isWhitespace(b) )
+                return pos;
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * The end of the statement starting at {@code pos} : after the terminating {@code .},
+     * or after the IRI of a SPARQL-style directive.
+     */
+    private static int statementEnd(byte[] bytes, int pos, int len, boolean sparqlDirective) {
+        int depth = 0;
+        while ( pos < len ) {
+            byte b = bytes[pos];
+            switch (b) {
+                case '#':
+                    pos = endOfLine(bytes, pos, len);
+                    if ( pos < 0 )
+                        return pos;
+                    break;
+                case '"': case '\'':
+                    pos = endOfString(bytes, pos, len);
+                    if ( pos < 0 )
+                        return pos;
+                    break;
+                case '<':
+                    if ( pos+1 >= len )
+                        return INCOMPLETE;
+                    if ( bytes[pos+1] == '<' ) {
+                        depth++;
+                        pos += 2;
+                        break;
+                    }
+                    pos = endOfIRI(bytes, pos, len);
+                    if ( pos < 0 )
+                        return pos;
+                    if ( sparqlDirective && depth == 0 )
+                        return pos;
+                    break;
+                case '>':
+                    if ( pos+1 >= len )
+                        return INCOMPLETE;
+                    if ( bytes[pos+1] != '>' || depth == 0 )
+                        return UNSAFE;
+                    depth--;
+                    pos += 2;
+                    break;
+                case '[': case '(': case '{':
+                    depth++;
+                    pos++;
+                    break;
+                case ']': case ')': case '}':
+                    if ( --depth < 0 )
+                        return UNSAFE;
+                    pos++;
+                    break;
+                case '\\':
+                    // Escape in a local name.
+                    pos += 2;
+                    break;
+                case '.':
+                    if ( depth == 0 ) {
+                        // A dot followed by a digit is in a number.
+                        if ( pos+1 >= len )
+                            return INCOMPLETE;
+                        byte next = bytes[pos+1];
+                        if ( isWhitespace(next) || next == '#' )
+                            return pos+1;
+                    }
+                    pos++;
+                    break;
+                default:
+                    pos++;
+            }
+        }
+        return INCOMPLETE;
+    }
+
+    private static int endOfLine(byte[] bytes, int pos, int len) {
+        for ( ; pos < len ; pos++ ) {
+            if ( bytes[pos] == '\n' || bytes[pos] == '\r' )
+                return pos+1;
+        }
+        return INCOMPLETE;
+    }
+
+    private static int endOfIRI(byte[] bytes, int pos, int len) {
+        for ( pos++ ; pos < len ; pos++ ) {
+            byte b = bytes[pos];
+            if ( b == '>' )
+                return pos+1;
+            if ( b == '\n' || b == '\r' || b == '<' || b == '"' )
+                return UNSAFE;
+        }
+        return INCOMPLETE;
+    }
+
+    private static int endOfString(byte[] bytes, int pos, int len) {
+        byte quote = bytes[pos];
+        if ( pos+2 >= len )
+            return INCOMPLETE;
+        boolean isLong = bytes[pos+1] == quote && bytes[pos+2] == quote;
+        if ( isLong ) {
+            for ( pos += 3 ; pos < len ; pos++ ) {
+                byte b = bytes[pos];
+                if ( b == '\\' )
+                    pos++;
+                else if ( b == quote && pos+2 < len && bytes[pos+1] == quote && bytes[pos+2] == quote )
+                    return pos+3;
+            }
+            return INCOMPLETE;
+        }
+        for ( pos++ ; pos < len ; pos++ ) {
+            byte b = bytes[pos];
+            if ( b == '\\' )
+                pos++;
+            else if ( b == quote )
+                return pos+1;
+            else if ( b == '\n' || b == '\r' )
+                return UNSAFE;
+        }
+        return INCOMPLETE;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean matches(byte[] bytes, int pos, int len, String word) {
+        if ( pos+word.length() > len )
+            return false;
+        for ( int i = 0 ; i < word.length() ; i++ ) {
+            if ( bytes[pos+i] != word.charAt(i) )
+                return false;
+        }
+        return true;
+    }
+
+    /** A case-insensitive keyword, followed by whitespace. */
+    private static boolean matchesKeyword(byte[] bytes, int pos, int len, String word) {
+        int n = word.length();
+        if ( pos+n >= len || ! isWhitespace(bytes[pos+n]) )
+            return false;
+        for ( int i = 0 ; i < n ; i++ ) {
+            if ( Character.toUpperCase(bytes[pos+i]) != word.charAt(i) )
+                return false;
+        }
+        return true;
+    }
+}
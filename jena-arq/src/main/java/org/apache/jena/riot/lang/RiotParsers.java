@@ -25,8 +25,10 @@ import static org.apache.jena.riot.RDFLanguages.RDFJSON;
 import static org.apache.jena.riot.RDFLanguages.TRIG;
 import static org.apache.jena.riot.RDFLanguages.TURTLE;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 import org.apache.jena.atlas.io.PeekReader;
@@ -36,6 +38,7 @@ import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFLanguages;
 import org.apache.jena.riot.system.*;
 import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizeTextBuilder;
 import org.apache.jena.riot.tokens.TokenizerText;
 import org.apache.jena.sparql.core.Quad;
 
@@ -46,13 +49,35 @@ import org.apache.jena.sparql.core.Quad;
 public class RiotParsers {
     private RiotParsers() {}
 
+    /**
+     * Whether N-Triples, N-Quads, Turtle and TriG from an {@link InputStream} are
+     * tokenized directly from the UTF-8 bytes rather than by decoding to characters
+     * first (see {@link TokenizeTextBuilder#directBytes(boolean)}).
+     */
+    public static boolean UseByteTokenizer = true;
+
+    /** Tokenizer for the Turtle family of syntaxes, from UTF-8 input. */
+    /*package*/ static Tokenizer tokenizer(InputStream input, ErrorHandler errorHandler) {
+        return TokenizerText.create().source(input).directBytes(UseByteTokenizer).errorHandler(errorHandler).build();
+    }
+
+    /** Tokenizer for the Turtle family of syntaxes, from UTF-8 bytes. */
+    /*package*/ static Tokenizer tokenizer(byte[] bytes, int length, ErrorHandler errorHandler) {
+        TokenizeTextBuilder builder = TokenizerText.create().errorHandler(errorHandler);
+        if ( UseByteTokenizer )
+            builder.source(ByteBuffer.wrap(bytes, 0, length));
+        else
+            builder.source(new ByteArrayInputStream(bytes, 0, length));
+        return builder.build();
+    }
+
     /** InputStream input */
     public static LangRIOT createParser(InputStream input, Lang lang, StreamRDF dest, ParserProfile profile) {
         if ( RDFLanguages.sameLang(RDFJSON, lang) ) {
             Tokenizer tokenizer = new TokenizerJSON(PeekReader.makeUTF8(input));
             return createParserRdfJson(tokenizer, dest, profile);
         }
-        Tokenizer tokenizer = TokenizerText.create().source(input).errorHandler(profile.getErrorHandler()).build();
+        Tokenizer tokenizer = tokenizer(input, profile.getErrorHandler());
         if ( RDFLanguages.sameLang(TURTLE, lang) || RDFLanguages.sameLang(N3,  lang) )
             return createParserTurtle(tokenizer, dest, profile);
         if ( RDFLanguages.sameLang(NTRIPLES, lang) )
@@ -135,7 +160,7 @@ public class RiotParsers {
     /** Create an iterator for parsing N-Triples. */
     public static Iterator<Triple> createIteratorNTriples(InputStream input, ParserProfile profile) {
         // LangNTriples supports iterator use.
-        Tokenizer tokenizer = TokenizerText.create().source(input).errorHandler(profile.getErrorHandler()).build();
+        Tokenizer tokenizer = tokenizer(input, profile.getErrorHandler());
         return createParserNTriples(tokenizer, null, profile);
     }
 
@@ -167,7 +192,7 @@ public class RiotParsers {
      */
     public static Iterator<Quad> createIteratorNQuads(InputStream input, ParserProfile profile) {
         // LangNQuads supports iterator use.
-        Tokenizer tokenizer = TokenizerText.create().source(input).errorHandler(profile.getErrorHandler()).build();
+        Tokenizer tokenizer = tokenizer(input, profile.getErrorHandler());
         return createParserNQuads(tokenizer, null,  profile);
     }
 
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.protobuf;
+
+import static org.apache.jena.riot.protobuf.RDFBlocksCodec.*;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RIOT;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.util.Context;
+
+/**
+ * Operations on RDF-Blocks, a binary RDF format for dumps and bulk transfer.
+ * <p>
+ * Rows are grouped into blocks. Each block has a dictionary of the RDF terms
+ * used in it, so a term is written once per block and rows refer to it by number. IRIs
+ * in the dictionary are prefix compressed and a row does not repeat the subject,
+ * predicate or graph of the row before. Blocks can be compressed (LZ4 or deflate). An
+ * index at the end of the file gives the position of each block so that a file can
+ * be read starting at any block, or the blocks decoded in parallel (see
+ * {@link RDFBlocksFile}).
+ * <p>
+ * Blank node labels are kept, as for {@link ProtobufRDF}.
+ *
+ * @see RDFFormat#RDF_BLOCKS
+ */
+public class RDFBlocks {
+
+    /** Default number of rows (triples, quads, prefixes) in a block. */
+    public static final int DftBlockSize = 10_000;
+
+    /** Compression of blocks. */
+    public enum Compression {
+        /** No compression. */
+        NONE(0),
+        /** Deflate (as used by gzip): better compression, slower. */
+        DEFLATE(1),
+        /** LZ4 block compression: fast. */
+        LZ4(2);
+
+        final int code;
+        private Compression(int code) { this.code = code; }
+    }
+
+    /** The block compression for an {@link RDFFormat}. */
+    public static Compression compression(RDFFormat format) {
+        if ( RDFFormat.RDF_BLOCKS_DEFLATE.equals(format) )
+            return Compression.DEFLATE;
+        if ( RDFFormat.RDF_BLOCKS_UNCOMPRESSED.equals(format) )
+            return Compression.NONE;
+        return Compression.LZ4;
+    }
+
+    /** The block size from the context setting {@link RIOT#symRDFBlocksSize}, or the default. */
+    public static int blockSize(Context context) {
+        if ( context == null )
+            return DftBlockSize;
+        return context.getInt(RIOT.symRDFBlocksSize, DftBlockSize);
+    }
+
+    /**
+     * An {@link StreamRDF} that writes to an output stream, with LZ4 compression and
+     * the default block size. Call {@link StreamRDF#start()}...{@link StreamRDF#finish()}.
+     * The output stream is not closed.
+     */
+    public static StreamRDF streamToOutputStream(OutputStream output) {
+        return streamToOutputStream(output, Compression.LZ4, DftBlockSize);
+    }
+
+    /**
+     * An {@link StreamRDF} that writes to an output stream. Call
+     * {@link StreamRDF#start()}...{@link StreamRDF#finish()}. The output stream is not
+     * closed.
+     */
+    public static StreamRDF streamToOutputStream(OutputStream output, Compression compression, int blockSize) {
+        return new StreamRDF2Blocks(output, compression, blockSize);
+    }
+
+    /**
+     * Decode the contents of the file and send to the {@link StreamRDF}.
+     * A filename of "-" is {@code System.in}.
+     * @param filename The file.
+     * @param dest Sink
+     */
+    public static void fileToStream(String filename, StreamRDF dest) {
+        InputStream in = IO.openFileBuffered(filename);
+        inputStreamToStreamRDF(in, dest);
+    }
+
+    /**
+     * Read an input stream and send the rows to the {@link StreamRDF}. The blocks
+     * are read in order; the index is not used.
+     */
+    public static void inputStreamToStreamRDF(InputStream input, StreamRDF stream) {
+        stream.start();
+        try {
+            apply(input, stream);
+        }
+        finally { stream.finish(); }
+    }
+
+    /**
+     * Open a file for reading blocks in any order.
+     * @see RDFBlocksFile
+     */
+    public static RDFBlocksFile open(Path path) {
+        return RDFBlocksFile.open(path);
+    }
+
+    private static void apply(InputStream input, StreamRDF stream) {
+        DataInputStream in = new DataInputStream(IO.ensureBuffered(input));
+        try {
+            readHeader(in);
+            for (;;) {
+                int marker = in.read();
+                if ( marker == -1 || marker == MARK_INDEX )
+                    // No index (truncated output) or the index: the blocks have been read.
+                    return;
+                if ( marker != MARK_BLOCK )
+                    throw error("Expected a block, got byte 0x"+Integer.toHexString(marker));
+                Compression compression = compressionFromCode(in.readByte());
+                in.readInt(); // Rows
+                int rawLength = in.readInt();
+                int length = in.readInt();
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                decodePayload(decompress(compression, bytes, rawLength), stream);
+            }
+        } catch (EOFException ex) {
+            throw error("Unexpected end of input");
+        } catch (IOException ex) { IO.exception(ex); }
+    }
+
+    private static void readHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if ( ! Arrays.equals(MAGIC, magic) )
+            throw error("Not RDF-Blocks");
+        int version = in.readByte();
+        if ( version != VERSION )
+            throw error("Unsupported version: "+version);
+    }
+}
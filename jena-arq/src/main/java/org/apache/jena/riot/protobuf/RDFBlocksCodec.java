@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.protobuf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.google.protobuf.CodedInputStream;
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.BlockLZ4CompressorOutputStream;
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.protobuf.RDFBlocks.Compression;
+import org.apache.jena.riot.protobuf.wire.PB_RDF.RDF_Term;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * The layout of RDF-Blocks.
+ * <pre>
+ *   File    ::= Header Block* Index
+ *   Header  ::= "RDFB" version:byte
+ *   Block   ::= 'B' compression:byte rows:int32 rawLength:int32 length:int32 payload
+ *   Index   ::= 'X' count:int32 (offset:int64 rows:int32)* indexOffset:int64 "RDFB"
+ * </pre>
+ * Block headers and the index are fixed width, big-endian. The payload, after
+ * decompression, is protobuf-style varints and strings:
+ * <pre>
+ *   Payload ::= termCount Term* rowCount Row*
+ *   Term    ::= IRI shared suffix | BNODE label | STRING lex | LANG lex lang | TYPED lex dtId | TERM bytes
+ *   Row     ::= flags [g] [s] [p] o | flags prefix iri | flags base
+ * </pre>
+ * The term dictionary has IRIs first, sorted, each stored as the number of
+ * characters shared with the IRI before it and the rest of the string. The row flags
+ * record when the subject, predicate or graph is the same as in the row before, in
+ * which case it is not written. Other RDF terms (triple terms) are written as
+ * {@link RDF_Term} bytes.
+ * <p>
+ * Blocks do not depend on each other: each can be decoded on its own.
+ */
+class RDFBlocksCodec {
+    static final byte[] MAGIC = { 'R', 'D', 'F', 'B' };
+    static final int VERSION = 1;
+
+    static final int MARK_BLOCK = 'B';
+    static final int MARK_INDEX = 'X';
+    /** Bytes in a block header, including the marker. */
+    static final int BLOCK_HEADER_LEN = 1 + 1 + 4 + 4 + 4;
+    /** Bytes at the end of the file after the index entries. */
+    static final int TRAILER_LEN = 8 + MAGIC.length;
+    /** Bytes for each entry in the index. */
+    static final int INDEX_ENTRY_LEN = 8 + 4;
+
+    // Terms
+    static final int TERM_IRI    = 1;
+    static final int TERM_BNODE  = 2;
+    static final int TERM_STRING = 3;
+    static final int TERM_LANG   = 4;
+    static final int TERM_TYPED  = 5;
+    static final int TERM_OTHER  = 6;
+
+    // Rows: kind in the low two bits.
+    static final int ROW_TRIPLE  = 0;
+    static final int ROW_QUAD    = 1;
+    static final int ROW_PREFIX  = 2;
+    static final int ROW_BASE    = 3;
+    static final int ROW_KIND    = 0x03;
+    static final int SAME_S      = 0x04;
+    static final int SAME_P      = 0x08;
+    static final int SAME_G      = 0x10;
+
+    static RiotProtobufException error(String msg) {
+        return new RiotProtobufException("RDF-Blocks: "+msg);
+    }
+
+    /** Number of leading characters in common, not splitting a surrogate pair. */
+    static int sharedPrefix(String s1, String s2) {
+        int n = Math.min(s1.length(), s2.length());
+        int i = 0;
+        while ( i < n && s1.charAt(i) == s2.charAt(i) )
+            i++;
+        if ( i > 0 && Character.isHighSurrogate(s1.charAt(i-1)) )
+            i--;
+        return i;
+    }
+
+    static byte[] compress(Compression compression, byte[] bytes, int length) {
+        switch(compression) {
+            case NONE :
+                return bytes;
+            case DEFLATE : {
+                Deflater deflater = new Deflater();
+                try {
+                    deflater.setInput(bytes, 0, length);
+                    deflater.finish();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(length/2+64);
+                    byte[] buffer = new byte[8192];
+                    while ( !deflater.finished() ) {
+                        int n = deflater.deflate(buffer);
+                        out.write(buffer, 0, n);
+                    }
+                    return out.toByteArray();
+                } finally { deflater.end(); }
+            }
+            case LZ4 : {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(length/2+64);
+                try ( OutputStream lz4 = new BlockLZ4CompressorOutputStream(out) ) {
+                    lz4.write(bytes, 0, length);
+                } catch (IOException ex) { IO.exception(ex); }
+                return out.toByteArray();
+            }
+        }
+        throw error("Compression: "+compression);
+    }
+
+    static byte[] decompress(Compression compression, byte[] bytes, int rawLength) {
+        switch(compression) {
+            case NONE :
+                return bytes;
+            case DEFLATE : {
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(bytes);
+                    byte[] raw = new byte[rawLength];
+                    int n = 0;
+                    while ( n < rawLength && !inflater.finished() ) {
+                        int x = inflater.inflate(raw, n, rawLength-n);
+                        if ( x == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                            break;
+                        n += x;
+                    }
+                    if ( n != rawLength )
+                        throw error("Short block: expected "+rawLength+" bytes, got "+n);
+                    return raw;
+                } catch (DataFormatException ex) {
+                    throw error("Bad block: "+ex.getMessage());
+                } finally { inflater.end(); }
+            }
+            case LZ4 : {
+                try ( InputStream in = new BlockLZ4CompressorInputStream(new ByteArrayInputStream(bytes)) ) {
+                    byte[] raw = new byte[rawLength];
+                    int n = in.readNBytes(raw, 0, rawLength);
+                    if ( n != rawLength )
+                        throw error("Short block: expected "+rawLength+" bytes, got "+n);
+                    return raw;
+                } catch (IOException ex) {
+                    throw error("Bad block: "+ex.getMessage());
+                }
+            }
+        }
+        throw error("Compression: "+compression);
+    }
+
+    static Compression compressionFromCode(int code) {
+        for ( Compression c : Compression.values() ) {
+            if ( c.code == code )
+                return c;
+        }
+        throw error("Unknown compression: "+code);
+    }
+
+    /** Decode the payload of a block and send the rows to the {@link StreamRDF}. */
+    static void decodePayload(byte[] payload, StreamRDF dest) {
+        try {
+            CodedInputStream in = CodedInputStream.newInstance(payload);
+            in.setSizeLimit(Integer.MAX_VALUE);
+            Node[] terms = decodeTerms(in);
+            int rows = in.readUInt32();
+            Node g = null;
+            Node s = null;
+            Node p = null;
+            for ( int i = 0 ; i < rows ; i++ ) {
+                int flags = in.readRawByte() & 0xFF;
+                switch(flags & ROW_KIND) {
+                    case ROW_TRIPLE : {
+                        if ( (flags & SAME_S) == 0 )
+                            s = term(terms, in.readUInt32());
+                        if ( (flags & SAME_P) == 0 )
+                            p = term(terms, in.readUInt32());
+                        Node o = term(terms, in.readUInt32());
+                        checkRepeat(s, p, null, flags);
+                        dest.triple(Triple.create(s, p, o));
+                        break;
+                    }
+                    case ROW_QUAD : {
+                        if ( (flags & SAME_G) == 0 )
+                            g = term(terms, in.readUInt32());
+                        if ( (flags & SAME_S) == 0 )
+                            s = term(terms, in.readUInt32());
+                        if ( (flags & SAME_P) == 0 )
+                            p = term(terms, in.readUInt32());
+                        Node o = term(terms, in.readUInt32());
+                        checkRepeat(s, p, g, flags);
+                        dest.quad(Quad.create(g, s, p, o));
+                        break;
+                    }
+                    case ROW_PREFIX : {
+                        String prefix = in.readString();
+                        String iri = in.readString();
+                        dest.prefix(prefix, iri);
+                        break;
+                    }
+                    case ROW_BASE :
+                        dest.base(in.readString());
+                        break;
+                }
+            }
+        } catch (IOException ex) {
+            throw error("Bad block: "+ex.getMessage());
+        }
+    }
+
+    private static Node[] decodeTerms(CodedInputStream in) throws IOException {
+        int count = in.readUInt32();
+        Node[] terms = new Node[count];
+        String prevIRI = "";
+        for ( int i = 0 ; i < count ; i++ ) {
+            int kind = in.readRawByte();
+            switch(kind) {
+                case TERM_IRI : {
+                    int shared = in.readUInt32();
+                    if ( shared > prevIRI.length() )
+                        throw error("Bad IRI prefix length");
+                    String iri = prevIRI.substring(0, shared).concat(in.readString());
+                    terms[i] = NodeFactory.createURI(iri);
+                    prevIRI = iri;
+                    break;
+                }
+                case TERM_BNODE :
+                    terms[i] = NodeFactory.createBlankNode(in.readString());
+                    break;
+                case TERM_STRING :
+                    terms[i] = NodeFactory.createLiteral(in.readString());
+                    break;
+                case TERM_LANG : {
+                    String lex = in.readString();
+                    String lang = in.readString();
+                    terms[i] = NodeFactory.createLiteral(lex, lang);
+                    break;
+                }
+                case TERM_TYPED : {
+                    String lex = in.readString();
+                    Node dt = term(terms, in.readUInt32());
+                    if ( dt == null || !dt.isURI() )
+                        throw error("Bad datatype for literal: "+lex);
+                    terms[i] = NodeFactory.createLiteral(lex, NodeFactory.getType(dt.getURI()));
+                    break;
+                }
+                case TERM_OTHER :
+                    terms[i] = ProtobufConvert.convert(RDF_Term.parseFrom(in.readBytes()));
+                    break;
+                default :
+                    throw error("Unknown term kind: "+kind);
+            }
+        }
+        return terms;
+    }
+
+    private static Node term(Node[] terms, int id) {
+        // Forward references (datatypes) are caught as null.
+        if ( id < 0 || id >= terms.length )
+            throw error("Bad term id: "+id);
+        return terms[id];
+    }
+
+    private static void checkRepeat(Node s, Node p, Node g, int flags) {
+        if ( s == null || p == null )
+            throw error("Repeated term with no previous row");
+        if ( (flags & ROW_KIND) == ROW_QUAD && g == null )
+            throw error("Repeated graph with no previous row");
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.protobuf;
+
+import static org.apache.jena.riot.protobuf.RDFBlocksCodec.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jena.atlas.io.IOX;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.protobuf.RDFBlocks.Compression;
+import org.apache.jena.riot.system.EltStreamRDF;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Read an RDF-Blocks file using the index: read from any block, or decode blocks in
+ * parallel. Blocks can be read by several threads at the same time.
+ *
+ * @see RDFBlocks
+ */
+public class RDFBlocksFile implements AutoCloseable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long[] offsets;
+    private final int[] rows;
+
+    /** Open a file and read its index. */
+    public static RDFBlocksFile open(Path path) {
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                return new RDFBlocksFile(path, channel);
+            } catch (RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    private RDFBlocksFile(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        long size = channel.size();
+        ByteBuffer header = read(0, MAGIC.length+1);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if ( ! Arrays.equals(MAGIC, magic) )
+            throw error("Not RDF-Blocks: "+path);
+        int version = header.get();
+        if ( version != VERSION )
+            throw error("Unsupported version: "+version);
+
+        if ( size < MAGIC.length+1+1+4+TRAILER_LEN )
+            throw error("No index: "+path);
+        ByteBuffer trailer = read(size-TRAILER_LEN, TRAILER_LEN);
+        long indexOffset = trailer.getLong();
+        trailer.get(magic);
+        if ( ! Arrays.equals(MAGIC, magic) || indexOffset < 0 || indexOffset > size-TRAILER_LEN-5 )
+            throw error("No index: "+path);
+        ByteBuffer index = read(indexOffset, (int)(size-TRAILER_LEN-indexOffset));
+        if ( index.get() != MARK_INDEX )
+            throw error("Bad index: "+path);
+        int count = index.getInt();
+        if ( count < 0 || index.remaining() != count*INDEX_ENTRY_LEN )
+            throw error("Bad index: "+path);
+        this.offsets = new long[count];
+        this.rows = new int[count];
+        for ( int i = 0 ; i < count ; i++ ) {
+            offsets[i] = index.getLong();
+            rows[i] = index.getInt();
+        }
+    }
+
+    /** Number of blocks. */
+    public int getNumBlocks() {
+        return offsets.length;
+    }
+
+    /** Number of rows (triples, quads, prefixes, base) in a block. */
+    public int getNumRows(int block) {
+        checkBlock(block);
+        return rows[block];
+    }
+
+    /** Number of rows (triples, quads, prefixes, base) in the file. */
+    public long getNumRows() {
+        long x = 0;
+        for ( int r : rows )
+            x += r;
+        return x;
+    }
+
+    /**
+     * Send the rows of a block to a {@link StreamRDF}.
+     * This does not call {@link StreamRDF#start()} or {@link StreamRDF#finish()}.
+     */
+    public void readBlock(int block, StreamRDF dest) {
+        decodePayload(payload(block), dest);
+    }
+
+    /** Send the rows, starting at a block, to a {@link StreamRDF}. */
+    public void read(int fromBlock, StreamRDF dest) {
+        if ( fromBlock != getNumBlocks() )
+            checkBlock(fromBlock);
+        dest.start();
+        try {
+            for ( int i = fromBlock ; i < getNumBlocks() ; i++ )
+                readBlock(i, dest);
+        } finally { dest.finish(); }
+    }
+
+    /**
+     * Decode blocks using several threads, sending the rows to the {@link StreamRDF}
+     * in file order from the calling thread.
+     */
+    public void readParallel(StreamRDF dest, int threads) {
+        if ( threads < 1 )
+            throw new IllegalArgumentException("Threads: "+threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "RDFBlocks");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Bound the number of decoded blocks waiting to be sent.
+        int window = 2*threads;
+        Deque<Future<List<EltStreamRDF>>> pending = new ArrayDeque<>(window);
+        dest.start();
+        try {
+            int next = 0;
+            while ( next < getNumBlocks() || !pending.isEmpty() ) {
+                while ( next < getNumBlocks() && pending.size() < window ) {
+                    int block = next++;
+                    pending.add(executor.submit(()->decodeBlock(block)));
+                }
+                List<EltStreamRDF> elts = get(pending.removeFirst());
+                for ( EltStreamRDF elt : elts )
+                    send(elt, dest);
+            }
+        } finally {
+            executor.shutdownNow();
+            dest.finish();
+        }
+    }
+
+    private List<EltStreamRDF> decodeBlock(int block) {
+        List<EltStreamRDF> elts = new ArrayList<>(rows[block]);
+        decodePayload(payload(block), new StreamRDF() {
+            @Override public void start() {}
+            @Override public void triple(Triple triple) { elts.add(EltStreamRDF.triple(triple)); }
+            @Override public void quad(Quad quad) { elts.add(EltStreamRDF.quad(quad)); }
+            @Override public void base(String base) { elts.add(EltStreamRDF.base(base)); }
+            @Override public void prefix(String prefix, String iri) { elts.add(EltStreamRDF.prefix(prefix, iri)); }
+            @Override public void finish() {}
+        });
+        return elts;
+    }
+
+    private static List<EltStreamRDF> get(Future<List<EltStreamRDF>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw error("Interrupted");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause;
+            throw new RiotProtobufException(cause);
+        }
+    }
+
+    private static void send(EltStreamRDF elt, StreamRDF dest) {
+        switch (elt.getType()) {
+            case TRIPLE: dest.triple(elt.triple()); break;
+            case QUAD:   dest.quad(elt.quad()); break;
+            case PREFIX: dest.prefix(elt.prefix(), elt.iri()); break;
+            case BASE:   dest.base(elt.iri()); break;
+            default:     throw error("Unexpected: "+elt);
+        }
+    }
+
+    private byte[] payload(int block) {
+        checkBlock(block);
+        try {
+            ByteBuffer header = read(offsets[block], BLOCK_HEADER_LEN);
+            if ( header.get() != MARK_BLOCK )
+                throw error("Bad block: "+block);
+            Compression compression = compressionFromCode(header.get());
+            header.getInt(); // Rows
+            int rawLength = header.getInt();
+            int length = header.getInt();
+            ByteBuffer bytes = read(offsets[block]+BLOCK_HEADER_LEN, length);
+            return decompress(compression, bytes.array(), rawLength);
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+
+    // Positional read: safe to use from several threads.
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(length);
+        while ( bb.hasRemaining() ) {
+            int n = channel.read(bb, position+bb.position());
+            if ( n < 0 )
+                throw new EOFException(path.toString());
+        }
+        bb.flip();
+        return bb;
+    }
+
+    private void checkBlock(int block) {
+        if ( block < 0 || block >= offsets.length )
+            throw new IndexOutOfBoundsException("Block "+block+" (number of blocks: "+offsets.length+")");
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) { throw IOX.exception(ex); }
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.protobuf;
+
+import static org.apache.jena.riot.protobuf.RDFBlocksCodec.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+import com.google.protobuf.CodedOutputStream;
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.protobuf.RDFBlocks.Compression;
+import org.apache.jena.riot.protobuf.wire.PB_RDF.RDF_Term;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Encode a {@link StreamRDF} as RDF-Blocks. Rows are collected into blocks of
+ * {@code blockSize} rows, each with its own term dictionary; the index of blocks is
+ * written by {@link #finish()}.
+ *
+ * @see RDFBlocks
+ */
+public class StreamRDF2Blocks implements StreamRDF, AutoCloseable
+{
+    private final DataOutputStream output;
+    private final Compression compression;
+    private final int blockSize;
+    private boolean started = false;
+    private boolean finished = false;
+    // Position in the output, for the index.
+    private long position = 0;
+
+    // Index
+    private final List<Long> blockOffsets = new ArrayList<>();
+    private final List<Integer> blockRows = new ArrayList<>();
+
+    // The block being built: terms in first-seen order.
+    private final Map<Node, Integer> termIds = new HashMap<>();
+    private final List<Node> terms = new ArrayList<>();
+    // Rows: kind, g, s, p, o as term ids, or string ids for prefix and base.
+    private int[] rows;
+    private final List<String> strings = new ArrayList<>();
+    private int rowCount = 0;
+
+    private final RDF_Term.Builder termBuilder = RDF_Term.newBuilder();
+
+    public StreamRDF2Blocks(OutputStream output, Compression compression, int blockSize) {
+        if ( blockSize < 1 )
+            throw new IllegalArgumentException("Block size must be at least one: "+blockSize);
+        this.output = new DataOutputStream(IO.ensureBuffered(output));
+        this.compression = Objects.requireNonNull(compression, "Compression");
+        this.blockSize = blockSize;
+        this.rows = new int[5*Math.min(blockSize, 1024)];
+    }
+
+    @Override
+    public void start() {
+        if ( started )
+            return;
+        started = true;
+        try {
+            output.write(MAGIC);
+            output.writeByte(VERSION);
+            position += MAGIC.length + 1;
+        } catch (IOException ex) { IO.exception(ex); }
+    }
+
+    @Override
+    public void finish() {
+        if ( finished )
+            return;
+        start();
+        writeBlock();
+        writeIndex();
+        finished = true;
+        IO.flush(output);
+    }
+
+    @Override
+    public void close() {
+        finish();
+    }
+
+    @Override
+    public void base(String base) {
+        addRow(ROW_BASE, string(base), -1, -1, -1);
+    }
+
+    @Override
+    public void prefix(String prefix, String iri) {
+        addRow(ROW_PREFIX, string(prefix), string(iri), -1, -1);
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        addRow(ROW_TRIPLE, -1, id(triple.getSubject()), id(triple.getPredicate()), id(triple.getObject()));
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        if ( quad.getGraph() == null ) {
+            triple(quad.asTriple());
+            return;
+        }
+        addRow(ROW_QUAD, id(quad.getGraph()), id(quad.getSubject()), id(quad.getPredicate()), id(quad.getObject()));
+    }
+
+    private int string(String string) {
+        strings.add(string);
+        return strings.size()-1;
+    }
+
+    private int id(Node node) {
+        Integer x = termIds.get(node);
+        if ( x != null )
+            return x;
+        if ( node.isLiteral() ) {
+            // The datatype is a dictionary entry.
+            RDFDatatype dt = node.getLiteralDatatype();
+            if ( isTyped(node) )
+                id(NodeFactory.createURI(dt.getURI()));
+        }
+        int id = terms.size();
+        terms.add(node);
+        termIds.put(node, id);
+        return id;
+    }
+
+    private static boolean isTyped(Node literal) {
+        if ( ! literal.getLiteralLanguage().isEmpty() )
+            return false;
+        String dt = literal.getLiteralDatatypeURI();
+        return dt != null && ! dt.equals(XSDDatatype.XSDstring.getURI());
+    }
+
+    private void addRow(int kind, int g, int s, int p, int o) {
+        start();
+        int idx = 5*rowCount;
+        if ( idx + 5 > rows.length )
+            rows = Arrays.copyOf(rows, 2*rows.length);
+        rows[idx] = kind;
+        rows[idx+1] = g;
+        rows[idx+2] = s;
+        rows[idx+3] = p;
+        rows[idx+4] = o;
+        rowCount++;
+        if ( rowCount >= blockSize )
+            writeBlock();
+    }
+
+    private void writeBlock() {
+        if ( rowCount == 0 )
+            return;
+        try {
+            byte[] payload = encodePayload();
+            int rawLength = payload.length;
+            Compression blockCompression = compression;
+            byte[] bytes = compress(compression, payload, rawLength);
+            if ( bytes.length >= rawLength ) {
+                // Did not help.
+                blockCompression = Compression.NONE;
+                bytes = payload;
+            }
+            blockOffsets.add(position);
+            blockRows.add(rowCount);
+            output.writeByte(MARK_BLOCK);
+            output.writeByte(blockCompression.code);
+            output.writeInt(rowCount);
+            output.writeInt(rawLength);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+            position += BLOCK_HEADER_LEN + bytes.length;
+        } catch (IOException ex) { IO.exception(ex); }
+        termIds.clear();
+        terms.clear();
+        strings.clear();
+        rowCount = 0;
+    }
+
+    private byte[] encodePayload() throws IOException {
+        // Sort the dictionary: IRIs first, in order, so that they share prefixes.
+        // The sort is stable so other terms keep the order they were first seen in.
+        int numTerms = terms.size();
+        Integer[] order = new Integer[numTerms];
+        for ( int i = 0 ; i < numTerms ; i++ )
+            order[i] = i;
+        Arrays.sort(order, (i1, i2) -> {
+            Node n1 = terms.get(i1);
+            Node n2 = terms.get(i2);
+            if ( n1.isURI() && n2.isURI() )
+                return n1.getURI().compareTo(n2.getURI());
+            return Integer.compare(rank(n1), rank(n2));
+        });
+        int[] remap = new int[numTerms];
+        for ( int i = 0 ; i < numTerms ; i++ )
+            remap[order[i]] = i;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16*1024);
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        out.writeUInt32NoTag(numTerms);
+        String prevIRI = "";
+        for ( int i = 0 ; i < numTerms ; i++ ) {
+            Node n = terms.get(order[i]);
+            if ( n.isURI() ) {
+                String iri = n.getURI();
+                int shared = sharedPrefix(prevIRI, iri);
+                out.writeRawByte(TERM_IRI);
+                out.writeUInt32NoTag(shared);
+                out.writeStringNoTag(iri.substring(shared));
+                prevIRI = iri;
+            } else if ( n.isBlank() ) {
+                out.writeRawByte(TERM_BNODE);
+                out.writeStringNoTag(n.getBlankNodeLabel());
+            } else if ( n.isLiteral() ) {
+                String lang = n.getLiteralLanguage();
+                if ( ! lang.isEmpty() ) {
+                    out.writeRawByte(TERM_LANG);
+                    out.writeStringNoTag(n.getLiteralLexicalForm());
+                    out.writeStringNoTag(lang);
+                } else if ( isTyped(n) ) {
+                    int dtId = termIds.get(NodeFactory.createURI(n.getLiteralDatatypeURI()));
+                    out.writeRawByte(TERM_TYPED);
+                    out.writeStringNoTag(n.getLiteralLexicalForm());
+                    out.writeUInt32NoTag(remap[dtId]);
+                } else {
+                    out.writeRawByte(TERM_STRING);
+                    out.writeStringNoTag(n.getLiteralLexicalForm());
+                }
+            } else {
+                termBuilder.clear();
+                RDF_Term term = ProtobufConvert.toProtobuf(n, termBuilder, false);
+                out.writeRawByte(TERM_OTHER);
+                out.writeByteArrayNoTag(term.toByteArray());
+            }
+        }
+
+        out.writeUInt32NoTag(rowCount);
+        int prevG = -1;
+        int prevS = -1;
+        int prevP = -1;
+        for ( int r = 0 ; r < rowCount ; r++ ) {
+            int idx = 5*r;
+            int kind = rows[idx];
+            switch(kind) {
+                case ROW_TRIPLE :
+                case ROW_QUAD : {
+                    int g = ( kind == ROW_QUAD ) ? remap[rows[idx+1]] : -1;
+                    int s = remap[rows[idx+2]];
+                    int p = remap[rows[idx+3]];
+                    int o = remap[rows[idx+4]];
+                    int flags = kind;
+                    if ( kind == ROW_QUAD && g == prevG )
+                        flags |= SAME_G;
+                    if ( s == prevS )
+                        flags |= SAME_S;
+                    if ( p == prevP )
+                        flags |= SAME_P;
+                    out.writeRawByte(flags);
+                    if ( kind == ROW_QUAD && g != prevG )
+                        out.writeUInt32NoTag(g);
+                    if ( s != prevS )
+                        out.writeUInt32NoTag(s);
+                    if ( p != prevP )
+                        out.writeUInt32NoTag(p);
+                    out.writeUInt32NoTag(o);
+                    if ( kind == ROW_QUAD )
+                        prevG = g;
+                    prevS = s;
+                    prevP = p;
+                    break;
+                }
+                case ROW_PREFIX :
+                    out.writeRawByte(kind);
+                    out.writeStringNoTag(strings.get(rows[idx+1]));
+                    out.writeStringNoTag(strings.get(rows[idx+2]));
+                    break;
+                case ROW_BASE :
+                    out.writeRawByte(kind);
+                    out.writeStringNoTag(strings.get(rows[idx+1]));
+                    break;
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int rank(Node n) {
+        if ( n.isURI() )
+            return 0;
+        if ( n.isBlank() )
+            return 1;
+        if ( n.isLiteral() )
+            return 2;
+        return 3;
+    }
+
+    private void writeIndex() {
+        try {
+            long indexOffset = position;
+            output.writeByte(MARK_INDEX);
+            output.writeInt(blockOffsets.size());
+            for ( int i = 0 ; i < blockOffsets.size() ; i++ ) {
+                output.writeLong(blockOffsets.get(i));
+                output.writeInt(blockRows.get(i));
+            }
+            output.writeLong(indexOffset);
+            output.write(MAGIC);
+            position += 1 + 4 + blockOffsets.size()*INDEX_ENTRY_LEN + TRAILER_LEN;
+        } catch (IOException ex) { IO.exception(ex); }
+    }
+}
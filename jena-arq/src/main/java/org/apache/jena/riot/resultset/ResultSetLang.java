@@ -52,6 +52,12 @@ public class ResultSetLang {
                      .addFileExtensions("srp")
                      .build();
 
+    /** Columnar SPARQL results, for bulk transfer. */
+    public static final Lang RS_Columnar = LangBuilder.create("SPARQL-Results-Columnar", WebContent.contentTypeResultsColumnar)
+                     .addAltNames("SRCOL")
+                     .addFileExtensions("srcol")
+                     .build();
+
     public static final Lang RS_Text = LangBuilder.create("SPARQL-Results-Text", WebContent.contentTypeTextPlain)
                      .addFileExtensions("txt")
                      .build();
@@ -68,6 +74,7 @@ public class ResultSetLang {
         RDFLanguages.register(RS_CSV);
         RDFLanguages.register(RS_TSV);
         RDFLanguages.register(RS_Thrift);
+        RDFLanguages.register(RS_Columnar);
         // Not output-only text.
         RDFLanguages.register(RS_None);
 
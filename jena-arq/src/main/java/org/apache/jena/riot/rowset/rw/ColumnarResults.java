@@ -0,0 +1,446 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.rowset.rw;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.protobuf.ProtobufConvert;
+import org.apache.jena.riot.protobuf.wire.PB_RDF.RDF_Term;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.apache.jena.sparql.resultset.ResultSetException;
+
+/**
+ * Columnar SPARQL results.
+ * <pre>
+ *   Results ::= "SRCF" version:byte varCount varName* Batch* 'E'
+ *   Batch   ::= 'B' rows Column*          -- One column per variable
+ *   Column  ::= UNBOUND
+ *             | INTEGER bitmap value*     -- Bound rows only, zigzag delta
+ *             | DICT reset:byte newTermCount Term* id*   -- id per row, 0 for unbound
+ *   Term    ::= IRI shared suffix | BNODE label | STRING lex | LANG lex lang | TYPED lex datatype | TERM bytes
+ * </pre>
+ * Numbers are protobuf varints and strings are protobuf strings.
+ * <p>
+ * Each column has a dictionary of terms that is carried from batch to batch: a
+ * batch adds the terms not seen before in that column, and a row is the number of its
+ * term in the dictionary. IRIs are written as the number of characters in common with
+ * the IRI added to the dictionary before it and the rest of the string. When a
+ * dictionary has {@link #MaxDictSize} terms, it is cleared before the next batch.
+ * A column of canonical {@code xsd:integer} values that fit in 64 bits is written
+ * as numbers, without the dictionary.
+ * <p>
+ * Blank node labels are kept.
+ */
+class ColumnarResults {
+    static final byte[] MAGIC = { 'S', 'R', 'C', 'F' };
+    static final int VERSION = 1;
+
+    static final int MARK_BATCH = 'B';
+    static final int MARK_END = 'E';
+
+    // Column encodings.
+    static final int COL_UNBOUND = 0;
+    static final int COL_INTEGER = 1;
+    static final int COL_DICT    = 2;
+
+    // Terms
+    static final int TERM_IRI    = 1;
+    static final int TERM_BNODE  = 2;
+    static final int TERM_STRING = 3;
+    static final int TERM_LANG   = 4;
+    static final int TERM_TYPED  = 5;
+    static final int TERM_OTHER  = 6;
+
+    /** Default number of rows in a batch. */
+    static final int DftBatchSize = 10_000;
+    /** Size of a column dictionary at which it is cleared. */
+    static final int MaxDictSize = 100_000;
+
+    private static final String XSD_INTEGER = XSDDatatype.XSDinteger.getURI();
+
+    static ResultSetException error(String msg) {
+        return new ResultSetException("Columnar results: "+msg);
+    }
+
+    // ---- Write
+
+    /** Write the {@link RowSet}. The output stream is flushed, not closed. */
+    static void write(OutputStream output, RowSet rowSet, int batchSize) {
+        List<Var> vars = rowSet.getResultVars();
+        CodedOutputStream out = CodedOutputStream.newInstance(output, 64*1024);
+        try {
+            out.writeRawBytes(MAGIC);
+            out.writeRawByte(VERSION);
+            out.writeUInt32NoTag(vars.size());
+            for ( Var v : vars )
+                out.writeStringNoTag(v.getVarName());
+            ColumnWriter[] columns = new ColumnWriter[vars.size()];
+            for ( int i = 0 ; i < columns.length ; i++ )
+                columns[i] = new ColumnWriter();
+
+            Node[] values = new Node[batchSize];
+            Binding[] batch = new Binding[batchSize];
+            while ( rowSet.hasNext() ) {
+                int rows = 0;
+                while ( rows < batchSize && rowSet.hasNext() )
+                    batch[rows++] = rowSet.next();
+                out.writeRawByte(MARK_BATCH);
+                out.writeUInt32NoTag(rows);
+                for ( int c = 0 ; c < columns.length ; c++ ) {
+                    Var v = vars.get(c);
+                    for ( int r = 0 ; r < rows ; r++ )
+                        values[r] = batch[r].get(v);
+                    columns[c].write(out, values, rows);
+                }
+                Arrays.fill(batch, 0, rows, null);
+            }
+            out.writeRawByte(MARK_END);
+            out.flush();
+        } catch (IOException ex) { IO.exception(ex); }
+        IO.flush(output);
+    }
+
+    /** Per-column state for writing. */
+    private static class ColumnWriter {
+        private final Map<Node, Integer> ids = new HashMap<>();
+        private final List<Node> newTerms = new ArrayList<>();
+        private final RDF_Term.Builder termBuilder = RDF_Term.newBuilder();
+        private String prevIRI = "";
+
+        void write(CodedOutputStream out, Node[] values, int rows) throws IOException {
+            boolean allUnbound = true;
+            boolean allIntegers = true;
+            for ( int r = 0 ; r < rows ; r++ ) {
+                Node n = values[r];
+                if ( n == null )
+                    continue;
+                allUnbound = false;
+                if ( allIntegers && !isInteger(n) )
+                    allIntegers = false;
+            }
+            if ( allUnbound ) {
+                out.writeRawByte(COL_UNBOUND);
+                return;
+            }
+            if ( allIntegers ) {
+                writeIntegers(out, values, rows);
+                return;
+            }
+            writeDict(out, values, rows);
+        }
+
+        private static void writeIntegers(CodedOutputStream out, Node[] values, int rows) throws IOException {
+            out.writeRawByte(COL_INTEGER);
+            byte[] bitmap = new byte[(rows+7)/8];
+            for ( int r = 0 ; r < rows ; r++ ) {
+                if ( values[r] != null )
+                    bitmap[r>>3] |= 1 << (r&7);
+            }
+            out.writeRawBytes(bitmap);
+            long prev = 0;
+            for ( int r = 0 ; r < rows ; r++ ) {
+                if ( values[r] == null )
+                    continue;
+                long x = Long.parseLong(values[r].getLiteralLexicalForm());
+                out.writeSInt64NoTag(x - prev);
+                prev = x;
+            }
+        }
+
+        private void writeDict(CodedOutputStream out, Node[] values, int rows) throws IOException {
+            boolean reset = ids.size() >= MaxDictSize;
+            if ( reset ) {
+                ids.clear();
+                prevIRI = "";
+            }
+            newTerms.clear();
+            for ( int r = 0 ; r < rows ; r++ ) {
+                Node n = values[r];
+                if ( n != null && !ids.containsKey(n) ) {
+                    ids.put(n, ids.size());
+                    newTerms.add(n);
+                }
+            }
+            out.writeRawByte(COL_DICT);
+            out.writeRawByte(reset ? 1 : 0);
+            out.writeUInt32NoTag(newTerms.size());
+            for ( Node n : newTerms )
+                writeTerm(out, n);
+            for ( int r = 0 ; r < rows ; r++ ) {
+                Node n = values[r];
+                out.writeUInt32NoTag(n == null ? 0 : ids.get(n)+1);
+            }
+        }
+
+        private void writeTerm(CodedOutputStream out, Node n) throws IOException {
+            if ( n.isURI() ) {
+                String iri = n.getURI();
+                int shared = sharedPrefix(prevIRI, iri);
+                out.writeRawByte(TERM_IRI);
+                out.writeUInt32NoTag(shared);
+                out.writeStringNoTag(iri.substring(shared));
+                prevIRI = iri;
+            } else if ( n.isBlank() ) {
+                out.writeRawByte(TERM_BNODE);
+                out.writeStringNoTag(n.getBlankNodeLabel());
+            } else if ( n.isLiteral() ) {
+                String lang = n.getLiteralLanguage();
+                if ( ! lang.isEmpty() ) {
+                    out.writeRawByte(TERM_LANG);
+                    out.writeStringNoTag(n.getLiteralLexicalForm());
+                    out.writeStringNoTag(lang);
+                } else if ( XSDDatatype.XSDstring.getURI().equals(n.getLiteralDatatypeURI()) ) {
+                    out.writeRawByte(TERM_STRING);
+                    out.writeStringNoTag(n.getLiteralLexicalForm());
+                } else {
+                    out.writeRawByte(TERM_TYPED);
+                    out.writeStringNoTag(n.getLiteralLexicalForm());
+                    out.writeStringNoTag(n.getLiteralDatatypeURI());
+                }
+            } else {
+                termBuilder.clear();
+                RDF_Term term = ProtobufConvert.toProtobuf(n, termBuilder, false);
+                out.writeRawByte(TERM_OTHER);
+                out.writeByteArrayNoTag(term.toByteArray());
+            }
+        }
+    }
+
+    /** An {@code xsd:integer} with a canonical lexical form that fits in a long. */
+    static boolean isInteger(Node n) {
+        if ( !n.isLiteral() || !XSD_INTEGER.equals(n.getLiteralDatatypeURI()) )
+            return false;
+        String lex = n.getLiteralLexicalForm();
+        int len = lex.length();
+        int start = ( len > 0 && lex.charAt(0) == '-' ) ? 1 : 0;
+        if ( len == start || len - start > 19 )
+            return false;
+        // No leading zeros, no "-0".
+        if ( lex.charAt(start) == '0' && ( len - start > 1 || start == 1 ) )
+            return false;
+        for ( int i = start ; i < len ; i++ ) {
+            char ch = lex.charAt(i);
+            if ( ch < '0' || ch > '9' )
+                return false;
+        }
+        if ( len - start < 19 )
+            return true;
+        try {
+            Long.parseLong(lex);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /** Number of leading characters in common, not splitting a surrogate pair. */
+    static int sharedPrefix(String s1, String s2) {
+        int n = Math.min(s1.length(), s2.length());
+        int i = 0;
+        while ( i < n && s1.charAt(i) == s2.charAt(i) )
+            i++;
+        if ( i > 0 && Character.isHighSurrogate(s1.charAt(i-1)) )
+            i--;
+        return i;
+    }
+
+    // ---- Read
+
+    /** A {@link RowSet} that decodes batches as the rows are needed. */
+    static RowSet read(InputStream input) {
+        CodedInputStream in = CodedInputStream.newInstance(input);
+        try {
+            byte[] magic = in.readRawBytes(MAGIC.length);
+            if ( ! Arrays.equals(MAGIC, magic) )
+                throw error("Not columnar results");
+            int version = in.readRawByte();
+            if ( version != VERSION )
+                throw error("Unsupported version: "+version);
+            int varCount = in.readUInt32();
+            List<Var> vars = new ArrayList<>(varCount);
+            for ( int i = 0 ; i < varCount ; i++ )
+                vars.add(Var.alloc(in.readString()));
+            return RowSetStream.create(vars, new BatchIterator(in, vars));
+        } catch (IOException ex) {
+            throw error(ex.getMessage());
+        }
+    }
+
+    private static class BatchIterator implements Iterator<Binding> {
+        private final CodedInputStream in;
+        private final List<Var> vars;
+        private final ColumnReader[] columns;
+        private final BindingBuilder builder = Binding.builder();
+        private Node[][] values = null;
+        private int rows = 0;
+        private int idx = 0;
+        private boolean finished = false;
+
+        BatchIterator(CodedInputStream in, List<Var> vars) {
+            this.in = in;
+            this.vars = vars;
+            this.columns = new ColumnReader[vars.size()];
+            for ( int i = 0 ; i < columns.length ; i++ )
+                columns[i] = new ColumnReader();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( idx < rows )
+                return true;
+            if ( finished )
+                return false;
+            readBatch();
+            return idx < rows;
+        }
+
+        @Override
+        public Binding next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException();
+            builder.reset();
+            for ( int c = 0 ; c < columns.length ; c++ ) {
+                Node n = values[c][idx];
+                if ( n != null )
+                    builder.add(vars.get(c), n);
+            }
+            idx++;
+            return builder.build();
+        }
+
+        private void readBatch() {
+            try {
+                // Skip empty batches.
+                do {
+                    // The size limit applies to the bytes read since the last reset.
+                    in.resetSizeCounter();
+                    int marker = in.isAtEnd() ? -1 : in.readRawByte();
+                    if ( marker == MARK_END ) {
+                        finished = true;
+                        rows = 0;
+                        idx = 0;
+                        return;
+                    }
+                    if ( marker != MARK_BATCH )
+                        throw error(marker == -1 ? "Unexpected end of input" : "Expected a batch, got byte 0x"+Integer.toHexString(marker&0xFF));
+                    rows = in.readUInt32();
+                    idx = 0;
+                    if ( values == null || values.length == 0 || values[0].length < rows )
+                        values = new Node[columns.length][rows];
+                    for ( int c = 0 ; c < columns.length ; c++ )
+                        columns[c].read(in, values[c], rows);
+                } while ( rows == 0 );
+            } catch (IOException ex) {
+                throw error(ex.getMessage());
+            }
+        }
+    }
+
+    /** Per-column state for reading. */
+    private static class ColumnReader {
+        private final List<Node> dict = new ArrayList<>();
+        private String prevIRI = "";
+
+        void read(CodedInputStream in, Node[] values, int rows) throws IOException {
+            int encoding = in.readRawByte();
+            switch (encoding) {
+                case COL_UNBOUND :
+                    Arrays.fill(values, 0, rows, null);
+                    return;
+                case COL_INTEGER : {
+                    byte[] bitmap = in.readRawBytes((rows+7)/8);
+                    long prev = 0;
+                    for ( int r = 0 ; r < rows ; r++ ) {
+                        if ( (bitmap[r>>3] & (1 << (r&7))) == 0 ) {
+                            values[r] = null;
+                            continue;
+                        }
+                        long x = prev + in.readSInt64();
+                        values[r] = NodeFactory.createLiteral(Long.toString(x), XSDDatatype.XSDinteger);
+                        prev = x;
+                    }
+                    return;
+                }
+                case COL_DICT : {
+                    if ( in.readRawByte() != 0 ) {
+                        dict.clear();
+                        prevIRI = "";
+                    }
+                    int newTerms = in.readUInt32();
+                    for ( int i = 0 ; i < newTerms ; i++ )
+                        dict.add(readTerm(in));
+                    for ( int r = 0 ; r < rows ; r++ ) {
+                        int id = in.readUInt32();
+                        if ( id < 0 || id > dict.size() )
+                            throw error("Bad term id: "+id);
+                        values[r] = ( id == 0 ) ? null : dict.get(id-1);
+                    }
+                    return;
+                }
+                default :
+                    throw error("Unknown column encoding: "+encoding);
+            }
+        }
+
+        private Node readTerm(CodedInputStream in) throws IOException {
+            int kind = in.readRawByte();
+            switch (kind) {
+                case TERM_IRI : {
+                    int shared = in.readUInt32();
+                    if ( shared < 0 || shared > prevIRI.length() )
+                        throw error("Bad IRI prefix length");
+                    String iri = prevIRI.substring(0, shared).concat(in.readString());
+                    prevIRI = iri;
+                    return NodeFactory.createURI(iri);
+                }
+                case TERM_BNODE :
+                    return NodeFactory.createBlankNode(in.readString());
+                case TERM_STRING :
+                    return NodeFactory.createLiteral(in.readString());
+                case TERM_LANG : {
+                    String lex = in.readString();
+                    String lang = in.readString();
+                    return NodeFactory.createLiteral(lex, lang);
+                }
+                case TERM_TYPED : {
+                    String lex = in.readString();
+                    String datatype = in.readString();
+                    return NodeFactory.createLiteral(lex, NodeFactory.getType(datatype));
+                }
+                case TERM_OTHER :
+                    return ProtobufConvert.convert(RDF_Term.parseFrom(in.readBytes()));
+                default :
+                    throw error("Unknown term kind: "+kind);
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.rowset.rw;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.lib.Chars;
+
+/**
+ * UTF-8 JSON output to an {@link OutputStream}, encoding directly into a byte
+ * buffer that is written out when full. Buffers are reused across writers.
+ * <p>
+ * Strings are escaped as {@link org.apache.jena.atlas.json.io.JSWriter#outputQuotedString}
+ * does, using a table for ASCII and Latin-1 characters.
+ */
+class JSONBytesOutput implements AutoCloseable {
+    static final int BufferSize = 64*1024;
+    private static final int PoolSize = 16;
+    private static final BlockingQueue<byte[]> pool = new ArrayBlockingQueue<>(PoolSize);
+
+    // Escape sequences for characters below 0xA0; null for no escape.
+    private static final byte[][] escapes = new byte[0xA0][];
+    static {
+        for ( int ch = 0 ; ch < escapes.length ; ch++ ) {
+            if ( ch < ' ' || ch >= 0x7F )
+                escapes[ch] = unicodeEscape(ch);
+        }
+        escapes['"']  = ascii("\\\"");
+        escapes['\\'] = ascii("\\\\");
+        escapes['\b'] = ascii("\\b");
+        escapes['\f'] = ascii("\\f");
+        escapes['\n'] = ascii("\\n");
+        escapes['\r'] = ascii("\\r");
+        escapes['\t'] = ascii("\\t");
+    }
+
+    private static byte[] unicodeEscape(int ch) {
+        return ascii("\\u"+Chars.hexDigitsUC[(ch>>12)&0xF]+Chars.hexDigitsUC[(ch>>8)&0xF]
+                          +Chars.hexDigitsUC[(ch>>4)&0xF]+Chars.hexDigitsUC[ch&0xF]);
+    }
+
+    static byte[] ascii(String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int idx = 0;
+
+    JSONBytesOutput(OutputStream out) {
+        this.out = out;
+        byte[] b = pool.poll();
+        this.buffer = ( b != null ) ? b : new byte[BufferSize];
+    }
+
+    /** Write bytes (already encoded). */
+    void write(byte[] bytes) {
+        int len = bytes.length;
+        if ( idx + len > buffer.length ) {
+            flushBuffer();
+            if ( len > buffer.length ) {
+                writeDirect(bytes, 0, len);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, idx, len);
+        idx += len;
+    }
+
+    /** Write a character that is known to be ASCII. */
+    void write(char ch) {
+        if ( idx == buffer.length )
+            flushBuffer();
+        buffer[idx++] = (byte)ch;
+    }
+
+    /** Newline and indentation. */
+    void newline(int indent) {
+        if ( idx + indent + 1 > buffer.length )
+            flushBuffer();
+        buffer[idx++] = '\n';
+        for ( int i = 0 ; i < indent ; i++ )
+            buffer[idx++] = ' ';
+    }
+
+    /** Write a JSON string, in quotes, with escapes. */
+    void writeQuoted(String string) {
+        write('"');
+        int len = string.length();
+        for ( int i = 0 ; i < len ; i++ ) {
+            char ch = string.charAt(i);
+            // Worst case is a 6 byte escape.
+            if ( idx + 6 > buffer.length )
+                flushBuffer();
+            if ( ch < 0x80 ) {
+                byte[] esc = escapes[ch];
+                if ( esc != null ) {
+                    writeEsc(esc);
+                    continue;
+                }
+                if ( ch == '/' && i > 0 && string.charAt(i-1) == '<' ) {
+                    // Avoid "</" which confuses HTML.
+                    buffer[idx++] = '\\';
+                    buffer[idx++] = '/';
+                    continue;
+                }
+                buffer[idx++] = (byte)ch;
+            } else if ( ch < 0x800 ) {
+                if ( ch < 0xA0 ) {
+                    writeEsc(escapes[ch]);
+                    continue;
+                }
+                buffer[idx++] = (byte)(0xC0 | (ch >> 6));
+                buffer[idx++] = (byte)(0x80 | (ch & 0x3F));
+            } else if ( ch >= 0x2000 && ch < 0x2100 ) {
+                writeEsc(unicodeEscape(ch));
+            } else if ( Character.isSurrogate(ch) ) {
+                if ( Character.isHighSurrogate(ch) && i+1 < len && Character.isLowSurrogate(string.charAt(i+1)) ) {
+                    int cp = Character.toCodePoint(ch, string.charAt(i+1));
+                    i++;
+                    buffer[idx++] = (byte)(0xF0 | (cp >> 18));
+                    buffer[idx++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                    buffer[idx++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                    buffer[idx++] = (byte)(0x80 | (cp & 0x3F));
+                } else {
+                    // Unpaired surrogate: as the UTF-8 charset encoder.
+                    buffer[idx++] = '?';
+                }
+            } else {
+                buffer[idx++] = (byte)(0xE0 | (ch >> 12));
+                buffer[idx++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+                buffer[idx++] = (byte)(0x80 | (ch & 0x3F));
+            }
+        }
+        write('"');
+    }
+
+    /**
+     * Make space for {@code n} bytes, writing out the buffer if necessary, and
+     * return whether {@code n} bytes can be written without the buffer being
+     * written out.
+     */
+    boolean reserve(int n) {
+        if ( idx + n > buffer.length )
+            flushBuffer();
+        return n <= buffer.length;
+    }
+
+    /** Maximum number of bytes {@link #writeQuoted} writes for a string. */
+    static int maxQuotedLength(String string) {
+        return 6*string.length()+2;
+    }
+
+    /** Current position in the buffer. */
+    int position() {
+        return idx;
+    }
+
+    /** Copy of the bytes from a {@link #position()} to the current position. */
+    byte[] bytesFrom(int start) {
+        return Arrays.copyOfRange(buffer, start, idx);
+    }
+
+    private void writeEsc(byte[] esc) {
+        for ( byte b : esc )
+            buffer[idx++] = b;
+    }
+
+    private void flushBuffer() {
+        if ( idx == 0 )
+            return;
+        writeDirect(buffer, 0, idx);
+        idx = 0;
+    }
+
+    private void writeDirect(byte[] bytes, int start, int len) {
+        try {
+            out.write(bytes, start, len);
+        } catch (IOException ex) { IO.exception(ex); }
+    }
+
+    /** Write out any buffered bytes and flush the output stream. */
+    void flush() {
+        flushBuffer();
+        IO.flush(out);
+    }
+
+    /** Flush, and return the buffer for reuse. The output stream is not closed. */
+    @Override
+    public void close() {
+        if ( buffer == null )
+            return;
+        try {
+            flush();
+        } finally {
+            pool.offer(buffer);
+            buffer = null;
+        }
+    }
+}
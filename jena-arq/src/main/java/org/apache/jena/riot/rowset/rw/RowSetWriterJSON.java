@@ -18,15 +18,19 @@
 
 package org.apache.jena.riot.rowset.rw;
 
+import static org.apache.jena.riot.rowset.rw.JSONBytesOutput.ascii;
 import static org.apache.jena.riot.rowset.rw.JSONResultsKW.*;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import org.apache.jena.atlas.io.IO;
-import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.atlas.json.io.JSWriter;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.graph.Node;
@@ -82,38 +86,58 @@ public class RowSetWriterJSON implements RowSetWriter {
 
     @Override
     public void write(OutputStream outStream, RowSet rowSet, Context context) {
-        IndentedWriter out = new IndentedWriter(outStream);
-        try {
+        try ( JSONBytesOutput out = new JSONBytesOutput(outStream) ) {
             ResultSetWriterTableJSON x = new ResultSetWriterTableJSON(out, context);
             x.write(rowSet);
         }
-        finally {
-            IO.flush(out);
-        }
     }
 
     // Create once per write call.
     // This holds the state of the writing of one ResultSet.
+    //
+    // The layout is fixed and the same as writing with an IndentedWriter with
+    // MainIndent = 2, one line per variable binding. Output is encoded straight
+    // to UTF-8 bytes. The encoded form of IRIs and of the start of typed
+    // literals are cached for the response.
     static class ResultSetWriterTableJSON {
-        private final NodeToLabel    labels;
-        private final  IndentedWriter out;
-        /** Control whether the type/literal/fileds all go on one line. */
-        private static final boolean MultiLineValues   = false;
-        /** Control whether variables in header are one per line (minor). */
-        private static final boolean MultiLineVarNames = false;
-
-        private static final int MainIndent = 2 ;
-        private static final int VarIndent = 2 ;
-        private static final int OuterIndent = Math.min(2, MainIndent);
-
-        private ResultSetWriterTableJSON(OutputStream outStream, Context context) {
-            this(new IndentedWriter(outStream), context);
-        }
-
-        private ResultSetWriterTableJSON(IndentedWriter indentedOut, Context context) {
-            out = indentedOut;
-            out.setUnitIndent(MainIndent);
-
+        /** Maximum number of IRIs with a cached encoded form. */
+        private static final int IriCacheSize = 10_000;
+
+        private static final byte[] HEADER_START   = ascii("{ "+quote(kHead)+": {\n    "+quote(kVars)+": [ ");
+        private static final byte[] HEADER_END     = ascii(" ]\n  } ,\n  "+quote(kResults)+": {\n    "+quote(kBindings)+": [\n");
+        private static final byte[] FOOTER         = ascii("    ]\n  }\n}\n");
+        private static final byte[] ROW_START      = ascii("      { ");
+        private static final byte[] ROW_END        = ascii("\n      }");
+        private static final byte[] ROW_SEP        = ascii(" ,\n");
+        private static final byte[] NO_ROWS        = ascii("      \n");
+        private static final byte[] VAR_SEP        = ascii(" , ");
+        private static final byte[] FIELD_SEP      = ascii(" ,");
+        private static final byte[] KEY_END        = ascii(": ");
+
+        private static final byte[] URI_START      = ascii("{ "+quote(kType)+": "+quote(kUri)+" , "+quote(kValue)+": ");
+        private static final byte[] BNODE_START    = ascii("{ "+quote(kType)+": "+quote(kBnode)+" , "+quote(kValue)+": ");
+        private static final byte[] LITERAL_START  = ascii("{ "+quote(kType)+": "+quote(kLiteral)+" , ");
+        private static final byte[] TYPED_START    = ascii("{ "+quote(kType)+": "+quote(kLiteral)+" , "+quote(kDatatype)+": ");
+        private static final byte[] LANG_START     = ascii(quote(kXmlLang)+": ");
+        private static final byte[] VALUE_START    = ascii(quote(kValue)+": ");
+        private static final byte[] VALUE_END      = ascii(" }");
+        private static final byte[] UNKNOWN        = ascii("{  }");
+
+        private static final byte[] TRIPLE_TYPE    = ascii(quote(kType)+": "+quote(kTriple)+" , ");
+        private static final byte[] TRIPLE_VALUE   = ascii(quote(kValue)+": {");
+        private static final byte[] TRIPLE_S       = ascii(quote(kSubject)+":  ");
+        private static final byte[] TRIPLE_P       = ascii(quote(kPredicate)+": ");
+        private static final byte[] TRIPLE_O       = ascii(quote(kObject)+":   ");
+
+        private final NodeToLabel     labels;
+        private final JSONBytesOutput out;
+        // Encoded forms, for this response.
+        private final Map<Var, byte[]>    varKeys   = new HashMap<>();
+        private final Map<String, byte[]> iris      = new HashMap<>();
+        private final Map<String, byte[]> datatypes = new HashMap<>();
+
+        private ResultSetWriterTableJSON(JSONBytesOutput out, Context context) {
+            this.out = out;
             boolean outputGraphBNodeLabels = (context != null) && context.isTrue(ARQ.outputGraphBNodeLabels);
             labels = outputGraphBNodeLabels
                 ? SyntaxLabels.createNodeToLabelAsGiven()
@@ -121,289 +145,192 @@ public class RowSetWriterJSON implements RowSetWriter {
         }
 
         private void write(RowSet rowSet) {
-            print(out, "{");
-            out.incIndent(OuterIndent);
-            //incIndent(out);
             writeHeader(rowSet);
-            println(out, " ,");
             writeRows(rowSet);
-            out.decIndent(OuterIndent);
-            println(out, "}");      // top level {}
+            out.write(FOOTER);
         }
 
+        //  "vars": [  ... ]
+        private void writeHeader(RowSet rowSet) {
+            out.write(HEADER_START);
+            for ( Iterator<Var> iter = rowSet.getResultVars().iterator() ; iter.hasNext() ; ) {
+                // As given: the header is not escaped.
+                String varname = iter.next().getVarName();
+                out.write('"');
+                out.write(varname.getBytes(StandardCharsets.UTF_8));
+                out.write('"');
+                if ( iter.hasNext() )
+                    out.write(VAR_SEP);
+            }
+            out.write(HEADER_END);
+        }
 
         private void writeRows(RowSet rowSet) {
-            println(out, quoteName(kResults), ": {");
-            incIndent(out);
-            println(out, quoteName(kBindings), ": [");
-            incIndent(out);
-
+            List<Var> vars = rowSet.getResultVars();
             boolean firstRow = true;
             for ( ; rowSet.hasNext() ; ) {
                 Binding binding = rowSet.next();
                 if ( !firstRow )
-                    println(out, " ,");
-                writeRow(out, rowSet, binding);
+                    out.write(ROW_SEP);
+                writeRow(vars, binding);
                 firstRow = false;
             }
-            println(out);
-            decIndent(out);
-            println(out, "]");      // bindings
-            decIndent(out);
-            println(out, "}");      // results
-            //decIndent(out);
-        }
-
-        // Write policy - write objects, leave point of output just after the closing "}"
-
-        private void writeHeader(RowSet rs) {
-            println(out, quoteName(kHead),": {");
-            incIndent(out);
-            writeHeaderLink(out, rs);
-            writeHeaderVars(out, rs);
-            decIndent(out);
-            print(out, "}");
-        }
-
-        private static void writeHeaderLink(IndentedWriter out, RowSet rs) {
-            // ---- link
-            // out.println("\"link\": [] ,") ;
-        }
-
-        //  "var": [  ... ]
-        private static void writeHeaderVars(IndentedWriter out, RowSet rs) {
-            // On one line.
-            print(out, quoteName(kVars), ": [ ");
-            if ( MultiLineVarNames )
-                println(out);
-            incIndent(out);
-            for ( Iterator<Var> iter = rs.getResultVars().iterator() ; iter.hasNext() ; ) {
-                String varname = iter.next().getVarName();
-                print(out, "\"", varname, "\"");
-                if ( iter.hasNext() )
-                    print(out, " , ");
-                if ( MultiLineVarNames )
-                    println(out);
-            }
-            decIndent(out);
-            println(out, " ]");
+            if ( firstRow )
+                out.write(NO_ROWS);
+            else
+                out.newline(0);
         }
 
-        private void writeRow(IndentedWriter out, RowSet rowSet, Binding binding) {
-            print(out, "{ ");
-            //incIndent(out);
-            out.incIndent(VarIndent);
+        private void writeRow(List<Var> vars, Binding binding) {
+            out.write(ROW_START);
             boolean firstInRow = true;
             // Print in the order seen in the header.
-            for ( Iterator<Var> iter = rowSet.getResultVars().iterator() ; iter.hasNext() ; ) {
-                Var var = iter.next();
+            for ( Var var : vars ) {
                 Node value = binding.get(var);
                 if ( value == null )
                     continue;
                 if ( ! firstInRow )
-                    print(out, " ,");
-                writeVarValue(out, var, value, firstInRow);
+                    out.write(FIELD_SEP);
+                writeVarValue(var, value);
                 firstInRow = false;
             }
-
-            if ( false ) {
-                // Print "missing" variables.
-                // If the header is right, this should not be necessary.
-                for ( Iterator<Var> vars = binding.vars() ; vars.hasNext() ; ) {
-                    Var var = vars.next();
-                    if ( ! rowSet.getResultVars().contains(var) ) {
-                        Node value = binding.get(var);
-                        if ( ! firstInRow )
-                            println(out, " ,");
-                        writeVarValue(out, var, value, firstInRow);
-                        firstInRow = false;
-                    }
-                }
-            }
-            println(out);
-            out.decIndent(VarIndent);
-            //decIndent(out);
-            print(out, "}");
+            out.write(ROW_END);
         }
 
         /* Write one JSON member (key, value pair in a JSON object)
          * i.e.    "var": { ... term ... }
          * Separating comma handled by caller writeRow
          */
-        private void writeVarValue(IndentedWriter out, Var var, Node value, boolean firstInRow) {
-            if ( value == null )
-                // Skip if no value.
-                return;
-            println(out);
-            // Do not use quoteName - varName may not be JSON-safe as a bare name.
-            print(out, quote(var.getVarName()), ": ");
-            writeValue(out, value, MultiLineValues);
+        private void writeVarValue(Var var, Node value) {
+            out.newline(8);
+            byte[] key = varKeys.get(var);
+            if ( key != null )
+                out.write(key);
+            else {
+                // Do not assume the varName is JSON-safe.
+                key = encode(var.getVarName(), null, KEY_END);
+                if ( key != null )
+                    varKeys.put(var, key);
+            }
+            writeValue(value, 8);
             // No newline - allow for " ,"
         }
 
-        private void writeValue(IndentedWriter out, Node value, boolean multiLine) {
-            if ( multiLine || value.isNodeTriple() )
-                println(out, "{");
-            else
-                print(out, "{ ");
-            incIndent(out);
-            // Explicit unbound
-            // if ( value == null )
-            //     writeValueUnbound(out) ;
-            // else
-            if ( value.isLiteral() )
-                writeValueLiteral(out, value, multiLine);
-            else if ( value.isURI() )
-                writeValueURI(out, value, multiLine);
+        // Write a value, starting part way along a line with the given indent.
+        private void writeValue(Node value, int indent) {
+            if ( value.isURI() )
+                writeValueURI(value);
+            else if ( value.isLiteral() )
+                writeValueLiteral(value);
             else if ( value.isBlank() )
-                writeValueBlankNode(out, value, multiLine);
+                writeValueBlankNode(value);
             else if ( value.isNodeTriple() )
-                writeValueNodeTriple(out, value, multiLine);
+                writeValueNodeTriple(value, indent);
             else if ( value.isNodeGraph() )
-                writeValueNodeGraph(out, value, multiLine);
-            else
+                throw new UnsupportedOperationException("Graph terms");
+            else {
                 Log.warn(RowSetWriterJSON.class, "Unknown RDFNode type in result set: " + value.getClass());
-            if ( multiLine || value.isNodeTriple()) // OR triple
-                println(out) ;
-            else
-                print(out, " ");
-            decIndent(out);
-            print(out, "}");
+                out.write(UNKNOWN);
+            }
         }
 
-        // On entry to writeTerm : ready to start the "type" field.
-
-        private void writeValueUnbound(IndentedWriter out, boolean multiLine) {
-            print(out, quoteName(kType), ": ", quote(kUnbound), " , ") ;
-            if ( MultiLineValues )
-                println(out) ;
-            print(out, quoteName(kValue), ": null") ;
+        private void writeValueURI(Node resource) {
+            String uri = resource.getURI();
+            byte[] bytes = iris.get(uri);
+            if ( bytes != null ) {
+                out.write(bytes);
+                return;
+            }
+            if ( iris.size() >= IriCacheSize ) {
+                out.write(URI_START);
+                out.writeQuoted(uri);
+                out.write(VALUE_END);
+                return;
+            }
+            bytes = encode(uri, URI_START, VALUE_END);
+            if ( bytes != null )
+                iris.put(uri, bytes);
         }
 
-        private void writeValueLiteral(IndentedWriter out, Node literal, boolean multiLine) {
-            String datatype = literal.getLiteralDatatypeURI();
-            String lang = literal.getLiteralLanguage();
-
+        private void writeValueLiteral(Node literal) {
             if ( Util.isSimpleString(literal) || Util.isLangString(literal) ) {
-                print(out, quoteName(kType), ": ", quote(kLiteral), " , ");
-                if ( multiLine )
-                    println(out);
-
+                out.write(LITERAL_START);
+                String lang = literal.getLiteralLanguage();
                 if ( lang != null && !lang.equals("") ) {
-                    print(out, quoteName(kXmlLang), ": ", quote(lang), " , ");
-                    if ( multiLine )
-                        println(out);
+                    out.write(LANG_START);
+                    out.writeQuoted(lang);
+                    out.write(VAR_SEP);
                 }
             } else {
-                print(out, quoteName(kType), ": ", quote(kLiteral), " , ");
-                if ( MultiLineValues )
-                    println(out);
-
-                print(out, quoteName(kDatatype), ": ", quote(datatype), " , ");
-                if ( multiLine )
-                    println(out);
+                // "type" and "datatype"
+                String datatype = literal.getLiteralDatatypeURI();
+                byte[] bytes = datatypes.get(datatype);
+                if ( bytes != null )
+                    out.write(bytes);
+                else {
+                    bytes = encode(datatype, TYPED_START, VAR_SEP);
+                    if ( bytes != null )
+                        datatypes.put(datatype, bytes);
+                }
             }
-
-            print(out, quoteName(kValue), ": ", quote(literal.getLiteralLexicalForm()));
+            out.write(VALUE_START);
+            out.writeQuoted(literal.getLiteralLexicalForm());
+            out.write(VALUE_END);
         }
 
-        private void writeValueBlankNode(IndentedWriter out, Node resource, boolean multiLine) {
+        private void writeValueBlankNode(Node resource) {
             String label = labels.get(null, resource);
             // Comes with leading "_:"
             label = label.substring(2);
-
-            print(out, quoteName(kType), ": ", quote(kBnode), " , ");
-            if ( multiLine )
-                println(out);
-            print(out, quoteName(kValue), ": ", quote(label));
-        }
-
-        private void writeValueURI(IndentedWriter out, Node resource, boolean multiLine) {
-            print(out, quoteName(kType), ": ", quote(kUri), " , ");
-            if ( multiLine )
-                println(out);
-            print(out, quoteName(kValue), ": ", quote(resource.getURI()));
-            return;
+            out.write(BNODE_START);
+            out.writeQuoted(label);
+            out.write(VALUE_END);
         }
 
-        private void writeValueNodeTriple(IndentedWriter out, Node value, boolean multiLine) {
+        private void writeValueNodeTriple(Node value, int indent) {
             Triple triple = value.getTriple();
-            print(out, quoteName(kType), ": ", quote(kTriple), " , ");
-            println(out);
-
-            //if ( multiLineValues )
-            // println(out);
-            print(out, quoteName(kValue), ": ");
-
-            // Allow for different multiline choice for triple components
-            boolean multiLineInnerValue = multiLine;
-
-            // Start of triple object.
-            // ----
-            println(out, "{");
-            incIndent(out);
-
-            // ---
-            print(out, quoteName(kSubject), ": ");
-            print(out, " ");
-
-            writeValue(out, triple.getSubject(), multiLineInnerValue);
-            println(out, " ,");
-
-            print(out, quoteName(kPredicate), ": ");
-            writeValue(out, triple.getPredicate(), multiLineInnerValue);
-            println(out, " ,");
-
-            print(out, quoteName(kObject), ": ");
-            print(out, "  ");
-            writeValue(out, triple.getObject(), multiLineInnerValue);
-            // End of triple object.
-            decIndent(out);
-            println(out);
-            print(out, "}");
-            // ----
-            return;
+            out.write('{');
+            out.newline(indent+2);
+            out.write(TRIPLE_TYPE);
+            out.newline(indent+2);
+            out.write(TRIPLE_VALUE);
+            out.newline(indent+4);
+            out.write(TRIPLE_S);
+            writeValue(triple.getSubject(), indent+4);
+            out.write(FIELD_SEP);
+            out.newline(indent+4);
+            out.write(TRIPLE_P);
+            writeValue(triple.getPredicate(), indent+4);
+            out.write(FIELD_SEP);
+            out.newline(indent+4);
+            out.write(TRIPLE_O);
+            writeValue(triple.getObject(), indent+4);
+            out.newline(indent+2);
+            out.write('}');
+            out.newline(indent);
+            out.write('}');
         }
 
-        private void writeValueNodeGraph(IndentedWriter out, Node value, boolean multiLine) {
-            throw new UnsupportedOperationException("Graph terms");
+        /**
+         * Write {@code before}, the string quoted, and {@code after}, and return the
+         * bytes written for reuse, or null if they did not fit in the output buffer.
+         */
+        private byte[] encode(String string, byte[] before, byte[] after) {
+            int length = ( before == null ? 0 : before.length ) + JSONBytesOutput.maxQuotedLength(string) + after.length;
+            boolean contiguous = out.reserve(length);
+            int start = out.position();
+            if ( before != null )
+                out.write(before);
+            out.writeQuoted(string);
+            out.write(after);
+            if ( contiguous )
+                return out.bytesFrom(start);
+            // Too large for the buffer - not cached.
+            return null;
         }
 
         private static String quote(String string) {
-            // Scope for efficiency improvement.
             return JSWriter.outputQuotedString(string);
         }
-
-        // Quote a name (known to be JSON-safe)
-        // Never the RHS of a member entry (for example "false")
-        // Some (the Java JSON code for one) JSON parsers accept an unquoted
-        // string as a name of a name/value pair.
-
-        private static String quoteName(String string) {
-            // All calls to quoteName are builtin keywords which are already safe.
-            // but need the "" added.
-            //return "\""+string+"\"";
-            return quote(string);
-        }
-
-        // Intercept all operations - development assistance.
-
-        private static void incIndent(IndentedWriter out) {
-            out.incIndent();
-        }
-
-        private static void decIndent(IndentedWriter out) {
-            out.decIndent();
-        }
-
-        private static void print(IndentedWriter out, String... strings) {
-            for ( String s : strings )
-                out.print(s);
-        }
-
-        private static void println(IndentedWriter out, String... strings) {
-            print(out, strings);
-            out.println();
-        }
     }
 }
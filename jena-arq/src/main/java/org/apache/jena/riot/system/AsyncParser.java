@@ -21,9 +21,16 @@ package org.apache.jena.riot.system;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -59,6 +66,11 @@ import org.slf4j.LoggerFactory;
  * Using the {@link AsyncParserBuilder} gives control over the chunk size such that initial latency
  * can be reduced at the cost of possibly decreasing the overall throughput.
  * <p>
+ * Several sources can be parsed concurrently on a pool of threads
+ * ({@link AsyncParserBuilder#setParallelism(int)}), with the output in source order
+ * or as it is produced ({@link AsyncParserBuilder#setOrdered(boolean)}).
+ * {@link AsyncParserMetrics} records queue depth, stall times and throughput.
+ * <p>
  * Closing the returned {@link ClosableIterator}s terminates the parsing
  * process and closes the involved resources.
  */
@@ -241,19 +253,19 @@ public class AsyncParser {
         return x.quad();
     };
 
-    // Iterator that stops when an end marker is seen.
-    static <X> IteratorCloseable<X> blockingIterator(Runnable closeAction, BlockingQueue<X> queue, Predicate<X> endTest) {
+    // Iterator that stops when the end of the parse run is seen.
+    static IteratorCloseable<List<EltStreamRDF>> blockingIterator(ParseRun run) {
         return new IteratorSlotted<>() {
             boolean ended = false;
 
             @Override
-            protected X moveToNext() {
+            protected List<EltStreamRDF> moveToNext() {
                 try {
-                    X x = null;
+                    List<EltStreamRDF> x = null;
                     if (!ended) {
-                        x = queue.take();
+                        x = run.take();
                     }
-                    if ( endTest.test(x) ) {
+                    if ( x == END ) {
                         ended = true;
                         return null;
                     }
@@ -271,7 +283,7 @@ public class AsyncParser {
 
             @Override
             protected void closeIterator() {
-                closeAction.run();
+                run.close();
             }
         };
     }
@@ -302,6 +314,7 @@ public class AsyncParser {
         private BlockingQueue<List<EltStreamRDF>> queue;
         private int chunkSize;
         private Predicate<EltStreamRDF> prematureDispatch;
+        private AsyncParserMetrics metrics;
 
         // Destination resources are initialized upon calling run();
         private EltStreamBatcher<EltStreamRDF> batcher;
@@ -309,11 +322,13 @@ public class AsyncParser {
         private AtomicInteger destinationState = new AtomicInteger(RUNNING);
         private boolean errorEncountered = false;
 
-        public Task(List<RDFParserBuilder> sources, BlockingQueue<List<EltStreamRDF>> queue, int chunkSize, Predicate<EltStreamRDF> prematureDispatch, Logger logger) {
+        public Task(List<RDFParserBuilder> sources, BlockingQueue<List<EltStreamRDF>> queue, int chunkSize,
+                    Predicate<EltStreamRDF> prematureDispatch, AsyncParserMetrics metrics, Logger logger) {
             this.sources = sources;
             this.queue = queue;
             this.chunkSize = chunkSize;
             this.prematureDispatch = prematureDispatch;
+            this.metrics = metrics;
             this.logger = logger;
         }
 
@@ -347,7 +362,16 @@ public class AsyncParser {
             Consumer<List<EltStreamRDF>> destination = batch -> {
                 if (destinationState.get() == RUNNING) {
                     try {
-                        queue.put(batch);
+                        if ( batch == END )
+                            queue.put(batch);
+                        else if ( queue.offer(batch) )
+                            metrics.produced(batch.size(), 0);
+                        else {
+                            // Queue full - the consumer is not keeping up.
+                            long start = System.nanoTime();
+                            queue.put(batch);
+                            metrics.produced(batch.size(), System.nanoTime() - start);
+                        }
                     } catch (InterruptedException ex) {
                         // After interrupt we may be in ABORTING state - therefore
                         // check whether to transition into ABORT state
@@ -386,6 +410,7 @@ public class AsyncParser {
         }
 
         private void parse(RDFParserBuilder parser) {
+            metrics.sourceStarted();
             try {
                 // If an error occured then all parser are invoked anyway because any
                 // resources they own need yet to be closed.
@@ -424,6 +449,8 @@ public class AsyncParser {
                     batcher.accept(elt);
                     errorEncountered = true;
                 }
+            } finally {
+                metrics.sourceFinished();
             }
         }
 
@@ -475,37 +502,170 @@ public class AsyncParser {
         }
     }
 
-    /** Returns a runnable for stopping the parse process */
-    static Runnable startParserThread(
+    /**
+     * Start parsing. With a parallelism of one, there is one parser thread that
+     * parses the sources in order. Otherwise, each source is parsed by a task on a
+     * pool of {@code parallelism} threads.
+     * <p>
+     * When ordered, each source has its own queue and the consumer reads the
+     * queues in source order. Only the source being read and the next
+     * {@code parallelism-1} sources are parsed at any one time. When unordered,
+     * all tasks share one queue and chunks are delivered as they are produced.
+     */
+    static ParseRun startParsing(
             Logger logger, List<RDFParserBuilder> sources,
-            BlockingQueue<List<EltStreamRDF>> queue,
+            int queueSize,
             int chunkSize,
             Predicate<EltStreamRDF> prematureDispatch,
-            boolean daemonMode) {
-
-        Task task = new Task(sources, queue, chunkSize, prematureDispatch, logger);
-        // Ensures runnable has started.
-        // ThreadLib.async(task) does not ensure runnable has started.
-        Thread parserThread = new Thread(task, "AsyncParser");
-        parserThread.setDaemon(daemonMode);
-        parserThread.start();
-        return () -> {
-            task.abort();
-
-            // Interrupt the parsing thread
-            // Note that InputStreams and ByteChannels may close themselves
-            // when interrupted while reading
-            parserThread.interrupt();
+            boolean daemonMode,
+            int parallelism,
+            boolean ordered,
+            AsyncParserMetrics metrics) {
+        ParseRun run = new ParseRun(logger, sources, queueSize, chunkSize, prematureDispatch, daemonMode, parallelism, ordered, metrics);
+        run.start();
+        return run;
+    }
+
+    /** The parser tasks and queue(s) of one parse run. */
+    static class ParseRun {
+        private final Logger logger;
+        private final List<List<RDFParserBuilder>> units;
+        private final int chunkSize;
+        private final Predicate<EltStreamRDF> prematureDispatch;
+        private final int parallelism;
+        private final boolean ordered;
+        private final AsyncParserMetrics metrics;
+        private final ExecutorService executor;
+        private final List<BlockingQueue<List<EltStreamRDF>>> queues;
+        private final List<Task> tasks = Collections.synchronizedList(new ArrayList<>());
+
+        // Consumer state.
+        // Ordered: the unit being read. Unordered: the number of units that have ended.
+        private int current = 0;
+        // Ordered: the next unit to submit.
+        private int nextUnit = 0;
+
+        private ParseRun(Logger logger, List<RDFParserBuilder> sources, int queueSize, int chunkSize,
+                         Predicate<EltStreamRDF> prematureDispatch, boolean daemonMode, int parallelism,
+                         boolean ordered, AsyncParserMetrics metrics) {
+            if ( parallelism < 1 )
+                throw new IllegalArgumentException("Parallelism must be at least one: "+parallelism);
+            this.logger = logger;
+            this.chunkSize = chunkSize;
+            this.prematureDispatch = prematureDispatch;
+            this.metrics = metrics;
+            if ( parallelism == 1 || sources.size() <= 1 ) {
+                // One parser thread for all the sources.
+                this.units = List.of(sources);
+                this.parallelism = 1;
+                this.ordered = true;
+            } else {
+                this.units = sources.stream().map(List::of).collect(Collectors.toList());
+                this.parallelism = Math.min(parallelism, sources.size());
+                this.ordered = ordered;
+            }
+            int numQueues = this.ordered ? units.size() : 1;
+            this.queues = new ArrayList<>(numQueues);
+            for ( int i = 0 ; i < numQueues ; i++ )
+                queues.add(new ArrayBlockingQueue<>(queueSize));
+            this.executor = Executors.newFixedThreadPool(this.parallelism, threadFactory(this.parallelism == 1, daemonMode));
+        }
+
+        private static ThreadFactory threadFactory(boolean single, boolean daemonMode) {
+            AtomicInteger counter = new AtomicInteger(0);
+            return runnable -> {
+                String name = single ? "AsyncParser" : "AsyncParser-"+counter.incrementAndGet();
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(daemonMode);
+                return thread;
+            };
+        }
+
+        private void start() {
+            metrics.start();
+            if ( ordered ) {
+                for ( int i = 0 ; i < parallelism ; i++ )
+                    submitNext();
+            } else {
+                for ( int i = 0 ; i < units.size() ; i++ )
+                    submit(i, queues.get(0));
+            }
+        }
 
+        private void submitNext() {
+            if ( nextUnit < units.size() ) {
+                submit(nextUnit, queues.get(nextUnit));
+                nextUnit++;
+            }
+        }
+
+        private void submit(int idx, BlockingQueue<List<EltStreamRDF>> queue) {
+            Task task = new Task(units.get(idx), queue, chunkSize, prematureDispatch, metrics, logger);
+            tasks.add(task);
             try {
-                // Wait for the thread to terminate so that all is clean when we return from close()
+                executor.execute(task);
+            } catch (RejectedExecutionException ex) {
+                // Closed.
+                queue.offer(END);
+            }
+        }
+
+        /**
+         * Take the next chunk, waiting if necessary. Returns {@link AsyncParser#END}
+         * when all the sources have been parsed.
+         */
+        List<EltStreamRDF> take() throws InterruptedException {
+            for (;;) {
+                if ( current >= units.size() ) {
+                    metrics.finish();
+                    return END;
+                }
+                BlockingQueue<List<EltStreamRDF>> queue = queues.get(ordered ? current : 0);
+                long stall = 0;
+                List<EltStreamRDF> batch = queue.poll();
+                if ( batch == null ) {
+                    // Queue empty - the parsers are not keeping up.
+                    long start = System.nanoTime();
+                    batch = queue.take();
+                    stall = System.nanoTime() - start;
+                }
+                if ( batch == END ) {
+                    if ( ordered ) {
+                        // Release the queue.
+                        queues.set(current, null);
+                        submitNext();
+                    }
+                    current++;
+                    continue;
+                }
+                metrics.consumed(batch.size(), stall);
+                return batch;
+            }
+        }
+
+        /** Stop parsing and wait for the parser threads to finish. */
+        void close() {
+            synchronized(tasks) {
+                tasks.forEach(Task::abort);
+            }
+            // Interrupt the parsing threads.
+            // Note that InputStreams and ByteChannels may close themselves
+            // when interrupted while reading.
+            // Tasks that have not started are not run.
+            executor.shutdownNow();
+            try {
+                // Wait for the threads to terminate so that all is clean when we return from close()
                 // Note: Some AsyncParser unit tests assert that the number of threads
-                //  before and after parsing match up (within tolerance) - so joining is essential.
-                parserThread.join();
-            } catch (Exception e) {
+                //  before and after parsing match up (within tolerance) - so waiting is essential.
+                while ( !executor.awaitTermination(1, TimeUnit.SECONDS) ) {
+                    FmtLog.debug(logger, "Waiting for parser threads to finish");
+                }
+            } catch (InterruptedException e) {
                 throw new RuntimeException(e);
+            } finally {
+                metrics.finish();
             }
-        };
+        }
     }
 
     private static void dispatch(EltStreamRDF elt, StreamRDF stream) {
@@ -520,13 +680,13 @@ public class AsyncParser {
     }
 
     /** Receiver. Take chunks off the queue and send to the output StreamRDF. */
-    static void receiver(Runnable closeAction, Logger LOG2, BlockingQueue<List<EltStreamRDF>> queue, StreamRDF output) {
+    static void receiver(ParseRun run, Logger LOG2, StreamRDF output) {
         // -- Receiver thread
         int count = 0;
         // Receive.
         try {
             for(;;) {
-                List<EltStreamRDF> batch = queue.take();
+                List<EltStreamRDF> batch = run.take();
                 if ( batch == END ) {
                     FmtLog.debug(LOG2, "Receive: END (%,d)", count);
                     break;
@@ -540,8 +700,8 @@ public class AsyncParser {
             FmtLog.error(LOG2, e, "Interrupted");
         } finally {
             // The close action not only stops the parser but also waits
-            // for its thread to finish
-            closeAction.run();
+            // for its threads to finish
+            run.close();
         }
     }
 
@@ -21,8 +21,6 @@ package org.apache.jena.riot.system;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -44,6 +42,9 @@ public class AsyncParserBuilder {
     private boolean daemonMode;
     private Predicate<EltStreamRDF> prematureDispatch;
     private List<RDFParserBuilder> sources;
+    private int parallelism;
+    private boolean ordered;
+    private AsyncParserMetrics metrics;
 
     public AsyncParserBuilder() {
         this.chunkSize = dftChunkSize;
@@ -51,6 +52,9 @@ public class AsyncParserBuilder {
         this.daemonMode = true;
         this.prematureDispatch = null;
         this.sources = Collections.emptyList();
+        this.parallelism = 1;
+        this.ordered = true;
+        this.metrics = null;
     }
 
     public AsyncParserBuilder(List<RDFParserBuilder> sources) {
@@ -97,6 +101,49 @@ public class AsyncParserBuilder {
         return this;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * The number of sources parsed at the same time, each on its own thread.
+     * The default is 1: one parser thread parses the sources one after another.
+     * <p>
+     * The queue size applies to each source when ordered (see {@link #setOrdered(boolean)})
+     * and to all sources together when unordered.
+     */
+    public AsyncParserBuilder setParallelism(int parallelism) {
+        if ( parallelism < 1 )
+            throw new IllegalArgumentException("Parallelism must be at least one: "+parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Whether the output of parallel parsing is in the order of the sources (the default).
+     * When ordered, a source that is ahead of the one being read stops when its queue is full.
+     * When unordered, chunks from different sources are interleaved as they are produced.
+     * Prefixes and base declarations are delivered with the chunks of their source.
+     */
+    public AsyncParserBuilder setOrdered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    public AsyncParserMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Record counters for queue depth, stall times and throughput in {@code metrics}. */
+    public AsyncParserBuilder setMetrics(AsyncParserMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     /** Set a custom dispatch (flush) policy: When the predicate returns true for an element then that element and
      * any gathered data is dispatched immediately. Before dispatch a check is made whether parsing has been
      * (concurrently) aborted. */
@@ -130,9 +177,8 @@ public class AsyncParserBuilder {
     private IteratorCloseable<EltStreamRDF> asyncParseElements() {
         Objects.requireNonNull(sources);
 
-        BlockingQueue<List<EltStreamRDF>> queue = new ArrayBlockingQueue<>(queueSize);
-        Runnable closeAction = AsyncParser.startParserThread(AsyncParser.LOG, sources, queue, chunkSize, prematureDispatch, daemonMode);
-        IteratorCloseable<List<EltStreamRDF>> blocks = AsyncParser.blockingIterator(closeAction, queue, x -> x == AsyncParser.END);
+        AsyncParser.ParseRun run = startParsing(AsyncParser.LOG);
+        IteratorCloseable<List<EltStreamRDF>> blocks = AsyncParser.blockingIterator(run);
 
         IteratorCloseable<EltStreamRDF> elements = (IteratorCloseable<EltStreamRDF>)Iter.flatMap(blocks, x->x.iterator());
         return elements;
@@ -166,10 +212,15 @@ public class AsyncParserBuilder {
         // Receiver
         Logger LOG2 = AsyncParser.LOG;
 
-        BlockingQueue<List<EltStreamRDF>> queue = new ArrayBlockingQueue<>(queueSize);
-        Runnable closeAction = AsyncParser.startParserThread(LOG1, sources, queue, chunkSize, prematureDispatch, daemonMode);
-        AsyncParser.receiver(closeAction, LOG2, queue, output);
+        AsyncParser.ParseRun run = startParsing(LOG1);
+        AsyncParser.receiver(run, LOG2, output);
+
+        return run::close;
+    }
 
-        return closeAction;
+    private AsyncParser.ParseRun startParsing(Logger logger) {
+        AsyncParserMetrics runMetrics = ( metrics != null ) ? metrics : new AsyncParserMetrics();
+        return AsyncParser.startParsing(logger, sources, queueSize, chunkSize, prematureDispatch, daemonMode,
+                                        parallelism, ordered, runMetrics);
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for an {@link AsyncParser} run, for tuning the chunk size, queue size and
+ * number of parser threads. The counters can be read while parsing is in progress.
+ * <p>
+ * A producer (parser thread) stalls when the queue is full: the consumer is not
+ * keeping up. The consumer stalls when the queue is empty: the parsers are not
+ * keeping up.
+ *
+ * @see AsyncParserBuilder#setMetrics(AsyncParserMetrics)
+ */
+public class AsyncParserMetrics {
+    private final LongAdder sourcesStarted     = new LongAdder();
+    private final LongAdder sourcesFinished    = new LongAdder();
+    private final LongAdder chunksProduced     = new LongAdder();
+    private final LongAdder elementsProduced   = new LongAdder();
+    private final LongAdder producerStallNanos = new LongAdder();
+    private final LongAdder chunksConsumed     = new LongAdder();
+    private final LongAdder elementsConsumed   = new LongAdder();
+    private final LongAdder consumerStallNanos = new LongAdder();
+    private volatile long startNanos = -1;
+    private volatile long finishNanos = -1;
+
+    public AsyncParserMetrics() {}
+
+    // ---- Recording
+
+    void start() {
+        startNanos = System.nanoTime();
+        finishNanos = -1;
+    }
+
+    void finish() {
+        if ( finishNanos < 0 )
+            finishNanos = System.nanoTime();
+    }
+
+    void sourceStarted()  { sourcesStarted.increment(); }
+    void sourceFinished() { sourcesFinished.increment(); }
+
+    void produced(int chunkSize, long stallNanos) {
+        chunksProduced.increment();
+        elementsProduced.add(chunkSize);
+        producerStallNanos.add(stallNanos);
+    }
+
+    void consumed(int chunkSize, long stallNanos) {
+        chunksConsumed.increment();
+        elementsConsumed.add(chunkSize);
+        consumerStallNanos.add(stallNanos);
+    }
+
+    // ---- Access
+
+    /** Number of sources that parsers have started on. */
+    public long getSourcesStarted()     { return sourcesStarted.sum(); }
+
+    /** Number of sources that parsers have finished. */
+    public long getSourcesFinished()    { return sourcesFinished.sum(); }
+
+    /** Number of chunks put on the queue(s) by the parsers. */
+    public long getChunksProduced()     { return chunksProduced.sum(); }
+
+    /** Number of elements (triples, quads, prefixes, ...) put on the queue(s) by the parsers. */
+    public long getElementsProduced()   { return elementsProduced.sum(); }
+
+    /** Number of chunks taken from the queue(s) by the consumer. */
+    public long getChunksConsumed()     { return chunksConsumed.sum(); }
+
+    /** Number of elements taken from the queue(s) by the consumer. */
+    public long getElementsConsumed()   { return elementsConsumed.sum(); }
+
+    /** Number of chunks waiting in the queue(s). */
+    public long getQueueDepth() {
+        return Math.max(0, getChunksProduced() - getChunksConsumed());
+    }
+
+    /** Total time, over all parser threads, spent waiting for space in a queue. */
+    public long getProducerStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(producerStallNanos.sum());
+    }
+
+    /** Total time the consumer spent waiting for a chunk. */
+    public long getConsumerStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(consumerStallNanos.sum());
+    }
+
+    /** Time since the start of parsing, until the end if parsing has finished. */
+    public long getElapsedMillis() {
+        long start = startNanos;
+        if ( start < 0 )
+            return 0;
+        long finish = finishNanos;
+        long end = ( finish < 0 ) ? System.nanoTime() : finish;
+        return TimeUnit.NANOSECONDS.toMillis(end - start);
+    }
+
+    /** Elements delivered to the consumer per second. */
+    public double getThroughput() {
+        long elapsed = getElapsedMillis();
+        if ( elapsed == 0 )
+            return 0;
+        return getElementsConsumed() * 1000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Sources: %d/%d, Elements: %,d/%,d, Chunks: %,d/%,d, Queue: %d, Stall (ms): producer=%,d consumer=%,d, Elapsed (ms): %,d, Throughput: %,.0f/s",
+                             getSourcesFinished(), getSourcesStarted(),
+                             getElementsConsumed(), getElementsProduced(),
+                             getChunksConsumed(), getChunksProduced(),
+                             getQueueDepth(),
+                             getProducerStallMillis(), getConsumerStallMillis(),
+                             getElapsedMillis(), getThroughput());
+    }
+}
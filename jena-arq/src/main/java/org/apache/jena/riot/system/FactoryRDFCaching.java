@@ -18,25 +18,24 @@
 
 package org.apache.jena.riot.system;
 
-import java.util.concurrent.ExecutionException ;
-
-import org.apache.jena.ext.com.google.common.cache.Cache ;
 import org.apache.jena.atlas.lib.cache.CacheInfo ;
 import org.apache.jena.datatypes.RDFDatatype ;
 import org.apache.jena.datatypes.xsd.XSDDatatype ;
-import org.apache.jena.ext.com.google.common.cache.CacheBuilder ;
-import org.apache.jena.ext.com.google.common.cache.CacheStats ;
 import org.apache.jena.graph.Node ;
-import org.apache.jena.riot.RiotException ;
+import org.apache.jena.graph.NodeInterner ;
 import org.apache.jena.riot.lang.LabelToNode ;
 import org.apache.jena.sparql.graph.NodeConst ;
 
-/** Adds some caching of created nodes - the caching is tuned to RIOT parser usage */
+/**
+ * Adds some caching of created nodes - the caching is tuned to RIOT parser usage.
+ * IRIs are shared through the process-wide {@link NodeInterner} so they are carried
+ * across parser runs; if that is disabled, this factory has its own pool.
+ */
 public class FactoryRDFCaching extends FactoryRDFStd {
+    /** Size of the pool if the process-wide {@link NodeInterner} is disabled. */
     public static final int DftNodeCacheSize = 5000 ;
 
-    // Control the setup - for one thread; start size = 50% of full size, no stats
-    private final Cache<String, Node> cache ;
+    private final NodeInterner nodeInterner ;
 
     public FactoryRDFCaching() {
         this(DftNodeCacheSize, SyntaxLabels.createLabelToNode());
@@ -44,26 +43,16 @@ public class FactoryRDFCaching extends FactoryRDFStd {
 
     public FactoryRDFCaching(int cacheSize, LabelToNode labelMapping) {
         super(labelMapping) ;
-        cache = setCache(cacheSize) ;
-    }
-
-    private Cache<String, Node> setCache(int cacheSize) {
-        return CacheBuilder.newBuilder()
-            .maximumSize(cacheSize)
-            .initialCapacity(cacheSize/2)
-            //.recordStats()
-            .concurrencyLevel(1)
-            .build() ;
+        NodeInterner global = NodeInterner.get() ;
+        nodeInterner = ( global.getSize() > 0 ) ? global : NodeInterner.create(cacheSize, false) ;
     }
 
     @Override
     public Node createURI(String uriStr) {
-        try {
-            return cache.get(uriStr, ()->RiotLib.createIRIorBNode(uriStr)) ;
-        }
-        catch (ExecutionException e) {
-            throw new RiotException("Execution exception filling cache <"+uriStr+">", e) ;
-        }
+        // <_:...> may be a blank node. Only IRIs go in the pool.
+        if ( RiotLib.isBNodeIRI(uriStr) )
+            return RiotLib.createIRIorBNode(uriStr) ;
+        return nodeInterner.createURI(uriStr) ;
     }
 
     // A few constants
@@ -102,10 +91,6 @@ public class FactoryRDFCaching extends FactoryRDFStd {
 //    }
 
     public CacheInfo stats() {
-        CacheStats stats = cache.stats() ;
-        if ( stats.missCount() == 0 && stats.hitCount() == 0 )
-            // Stats not enabled - all counts zero.
-            return null ;
-        return new CacheInfo(DftNodeCacheSize, stats) ;
+        return nodeInterner.stats() ;
     }
 }
@@ -31,11 +31,13 @@ import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.riot.* ;
 import org.apache.jena.riot.protobuf.ProtobufRDF;
+import org.apache.jena.riot.protobuf.RDFBlocks;
 import org.apache.jena.riot.thrift.ThriftRDF;
 import org.apache.jena.riot.writer.StreamWriterTriX ;
 import org.apache.jena.riot.writer.WriterStreamRDFBlocks ;
 import org.apache.jena.riot.writer.WriterStreamRDFFlat ;
 import org.apache.jena.riot.writer.WriterStreamRDFPlain ;
+import org.apache.jena.riot.writer.WriterStreamRDFPretty ;
 import org.apache.jena.sparql.core.DatasetGraph ;
 import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.sparql.util.Context;
@@ -58,6 +60,13 @@ public class StreamRDFWriter {
         }
     } ;
 
+    private static StreamRDFWriterFactory streamWriterFactoryPretty = new StreamRDFWriterFactory() {
+        @Override
+        public StreamRDF create(OutputStream output, RDFFormat format, Context context) {
+            return new WriterStreamRDFPretty(output, context) ;
+        }
+    } ;
+
     private static StreamRDFWriterFactory streamWriterFactoryFlat = new StreamRDFWriterFactory() {
         @Override
         public StreamRDF create(OutputStream output, RDFFormat format, Context context) {
@@ -89,6 +98,13 @@ public class StreamRDFWriter {
         }
     } ;
 
+    private static StreamRDFWriterFactory streamWriterFactoryRDFBlocks = new StreamRDFWriterFactory() {
+        @Override
+        public StreamRDF create(OutputStream output, RDFFormat format, Context context) {
+            return RDFBlocks.streamToOutputStream(output, RDFBlocks.compression(format), RDFBlocks.blockSize(context)) ;
+        }
+    } ;
+
     private static StreamRDFWriterFactory streamWriterFactoryThrift = new StreamRDFWriterFactory() {
         @Override
         public StreamRDF create(OutputStream output, RDFFormat format, Context context) {
@@ -142,6 +158,7 @@ public class StreamRDFWriter {
         register(Lang.NQUADS,       RDFFormat.NQUADS) ;
         register(Lang.RDFPROTO,     RDFFormat.RDF_PROTO) ;
         register(Lang.RDFTHRIFT,    RDFFormat.RDF_THRIFT) ;
+        register(Lang.RDFBLOCKS,    RDFFormat.RDF_BLOCKS) ;
         register(Lang.TRIX,         RDFFormat.TRIX) ;
         register(Lang.RDFNULL,      RDFFormat.RDFNULL) ;
 
@@ -149,6 +166,8 @@ public class StreamRDFWriter {
         register(RDFFormat.TURTLE_FLAT,     streamWriterFactoryFlat) ;
         register(RDFFormat.TRIG_BLOCKS,     streamWriterFactoryBlocks) ;
         register(RDFFormat.TRIG_FLAT,       streamWriterFactoryFlat) ;
+        register(RDFFormat.TURTLE_STREAMING, streamWriterFactoryPretty) ;
+        register(RDFFormat.TRIG_STREAMING,  streamWriterFactoryPretty) ;
 
         register(RDFFormat.NTRIPLES,        streamWriterFactoryTriplesQuads) ;
         register(RDFFormat.NTRIPLES_UTF8,   streamWriterFactoryTriplesQuads) ;
@@ -164,6 +183,10 @@ public class StreamRDFWriter {
         register(RDFFormat.RDF_THRIFT,          streamWriterFactoryThrift) ;
         register(RDFFormat.RDF_THRIFT_VALUES,   streamWriterFactoryThrift) ;
 
+        register(RDFFormat.RDF_BLOCKS,              streamWriterFactoryRDFBlocks) ;
+        register(RDFFormat.RDF_BLOCKS_DEFLATE,      streamWriterFactoryRDFBlocks) ;
+        register(RDFFormat.RDF_BLOCKS_UNCOMPRESSED, streamWriterFactoryRDFBlocks) ;
+
         register(RDFFormat.TRIX,            streamWriterFactoryTriX) ;
         register(RDFFormat.RDFNULL,         streamWriterFactoryNull) ;
     }
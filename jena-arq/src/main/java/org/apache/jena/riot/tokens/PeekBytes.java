@@ -0,0 +1,379 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.tokens;
+
+import static org.apache.jena.atlas.lib.Chars.EOF;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.io.PeekCharSource;
+import org.apache.jena.atlas.io.PeekReader;
+import org.apache.jena.atlas.lib.Chars;
+
+/**
+ * Read UTF-8 bytes as characters, with the same operations and line, column and
+ * position counting as {@link PeekReader}, together with operations for
+ * {@link TokenizerText} to read an ASCII token directly from the bytes.
+ * <p>
+ * Characters outside the basic plane are returned as two UTF-16 surrogates.
+ * Malformed UTF-8 becomes U+FFFD, the Unicode replacement character, as it
+ * does for the {@code InputStreamReader} used by {@link PeekReader#makeUTF8}.
+ */
+final class PeekBytes implements PeekCharSource {
+    private static final int BUFFER_SIZE = 128*1024;
+
+    // Source of more bytes, if any.
+    private final InputStream input;
+    private final ByteBuffer source;
+
+    // Bytes not yet read are buf[pos, limit)
+    private byte[] buf;
+    private int pos;
+    private int limit;
+
+    // Second half of a surrogate pair.
+    private int lowSurrogate = -1;
+    // [0] is the oldest.
+    private char[] pushbackChars = new char[10];
+    private int idxPushback = -1;
+
+    private long posn = 0;
+    private long colNum = PeekReader.INIT_COL;
+    private long lineNum = PeekReader.INIT_LINE;
+
+    static PeekBytes make(InputStream input) {
+        PeekBytes peekBytes = new PeekBytes(input, null, new byte[BUFFER_SIZE], 0, 0);
+        peekBytes.skipBOM();
+        return peekBytes;
+    }
+
+    static PeekBytes make(ByteBuffer bytes) {
+        PeekBytes peekBytes;
+        if ( bytes.hasArray() ) {
+            int start = bytes.arrayOffset()+bytes.position();
+            peekBytes = new PeekBytes(null, null, bytes.array(), start, bytes.arrayOffset()+bytes.limit());
+        } else
+            peekBytes = new PeekBytes(null, bytes.duplicate(), new byte[Math.min(BUFFER_SIZE, Math.max(bytes.remaining(), 16))], 0, 0);
+        peekBytes.skipBOM();
+        return peekBytes;
+    }
+
+    private PeekBytes(InputStream input, ByteBuffer source, byte[] buf, int pos, int limit) {
+        this.input = input;
+        this.source = source;
+        this.buf = buf;
+        this.pos = pos;
+        this.limit = limit;
+    }
+
+    private void skipBOM() {
+        if ( ensure(3) >= 3 && buf[pos] == (byte)0xEF && buf[pos+1] == (byte)0xBB && buf[pos+2] == (byte)0xBF )
+            pos += 3;
+    }
+
+    @Override
+    public long getLineNum() {
+        return lineNum;
+    }
+
+    @Override
+    public long getColNum() {
+        return colNum;
+    }
+
+    @Override
+    public long getPosition() {
+        return posn;
+    }
+
+    @Override
+    public int peekChar() {
+        if ( idxPushback >= 0 )
+            return pushbackChars[idxPushback];
+        if ( lowSurrogate >= 0 )
+            return lowSurrogate;
+        if ( pos >= limit && ! fill() )
+            return EOF;
+        int b = buf[pos];
+        if ( b >= 0 )
+            return b;
+        int cp = decode(false);
+        return Character.isBmpCodePoint(cp) ? cp : Character.highSurrogate(cp);
+    }
+
+    @Override
+    public int readChar() {
+        if ( idxPushback >= 0 )
+            return pushbackChars[idxPushback--];
+        int ch;
+        if ( lowSurrogate >= 0 ) {
+            ch = lowSurrogate;
+            lowSurrogate = -1;
+        } else {
+            if ( pos >= limit && ! fill() )
+                return EOF;
+            ch = buf[pos];
+            if ( ch >= 0 )
+                pos++;
+            else {
+                int cp = decode(true);
+                if ( Character.isBmpCodePoint(cp) )
+                    ch = cp;
+                else {
+                    ch = Character.highSurrogate(cp);
+                    lowSurrogate = Character.lowSurrogate(cp);
+                }
+            }
+        }
+        posn++;
+        if ( ch == '\n' ) {
+            lineNum++;
+            colNum = PeekReader.INIT_COL;
+        } else
+            colNum++;
+        return ch;
+    }
+
+    @Override
+    public void pushbackChar(int ch) {
+        if ( ch == EOF )
+            IO.exception("Illegal character to push back: " + ch);
+        if ( idxPushback+1 >= pushbackChars.length ) {
+            char[] pushbackChars2 = new char[pushbackChars.length * 2];
+            System.arraycopy(pushbackChars, 0, pushbackChars2, 0, pushbackChars.length);
+            pushbackChars = pushbackChars2;
+        }
+        idxPushback++;
+        pushbackChars[idxPushback] = (char)ch;
+    }
+
+    @Override
+    public boolean eof() {
+        return peekChar() == EOF;
+    }
+
+    @Override
+    public void close() {
+        if ( input != null )
+            IO.close(input);
+    }
+
+    // ---- Token fast paths.
+    // These return null, having read nothing, if the token is not all ASCII or
+    // needs the character level checks and escape processing of the tokenizer.
+
+    /**
+     * Read the rest of an IRI, after the {@code <}, and the closing {@code >}.
+     * No escapes and only ASCII characters that need no warning.
+     */
+    String readIRIASCII() {
+        if ( ! direct() )
+            return null;
+        for ( int i = pos ; ; i++ ) {
+            if ( i >= limit ) {
+                int start = pos;
+                boolean more = fill();
+                i -= start-pos;
+                if ( ! more )
+                    return null;
+            }
+            byte b = buf[i];
+            if ( b == '>' )
+                return take(i, 1);
+            if ( ! isIRIChar(b) )
+                return null;
+        }
+    }
+
+    /**
+     * Read the rest of a single quoted string, after the quote, and the closing
+     * quote. No escapes, no newlines and only ASCII characters.
+     */
+    String readStringASCII(int quoteChar) {
+        if ( ! direct() )
+            return null;
+        for ( int i = pos ; ; i++ ) {
+            if ( i >= limit ) {
+                int start = pos;
+                boolean more = fill();
+                i -= start-pos;
+                if ( ! more )
+                    return null;
+            }
+            byte b = buf[i];
+            if ( b == quoteChar )
+                return take(i, 1);
+            if ( b < 0 || b == '\n' || b == '\\' )
+                return null;
+        }
+    }
+
+    /**
+     * Read a blank node label, after the {@code _:}. Only ASCII characters. A final
+     * {@code .} is not part of the label and is not read.
+     */
+    String readBlankNodeLabelASCII() {
+        if ( ! direct() || ensure(1) < 1 || ! isLabelStartChar(buf[pos]) )
+            return null;
+        int i = pos+1;
+        for ( ; ; i++ ) {
+            if ( i >= limit ) {
+                int start = pos;
+                boolean more = fill();
+                i -= start-pos;
+                if ( ! more )
+                    break;
+            }
+            byte b = buf[i];
+            if ( b < 0 )
+                return null;
+            if ( ! isLabelChar(b) && b != '.' )
+                break;
+        }
+        // As TokenizerText, which puts back one DOT.
+        if ( buf[i-1] == '.' )
+            i--;
+        return take(i, 0);
+    }
+
+    // Reading directly from the bytes is possible.
+    private boolean direct() {
+        return idxPushback < 0 && lowSurrogate < 0;
+    }
+
+    // Token is buf[pos, end) and skip 'extra' bytes after it.
+    // Only for ASCII without newlines.
+    private String take(int end, int extra) {
+        int len = end-pos;
+        String str = new String(buf, pos, len, StandardCharsets.ISO_8859_1);
+        pos = end+extra;
+        posn += len+extra;
+        colNum += len+extra;
+        return str;
+    }
+
+    // [^#x00-#x20<>"{}|^`\]
+    private static boolean isIRIChar(byte b) {
+        if ( b <= 0x20 )
+            // Includes non-ASCII.
+            return false;
+        switch (b) {
+            case '<': case '>': case '"': case '{': case '}':
+            case '|': case '^': case '`': case '\\':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    // (PN_CHARS_U | [0-9]) for ASCII
+    private static boolean isLabelStartChar(byte b) {
+        return ( b >= 'a' && b <= 'z' ) || ( b >= 'A' && b <= 'Z' ) || ( b >= '0' && b <= '9' ) || b == '_';
+    }
+
+    // PN_CHARS for ASCII
+    private static boolean isLabelChar(byte b) {
+        return isLabelStartChar(b) || b == '-';
+    }
+
+    // ---- Bytes
+
+    /** Try to have n bytes available. Return the number of bytes available. */
+    private int ensure(int n) {
+        while ( limit-pos < n ) {
+            if ( ! fill() )
+                break;
+        }
+        return limit-pos;
+    }
+
+    /**
+     * Read more bytes. The unread bytes are moved to the start of the buffer; the
+     * buffer grows if full. Return false at the end of the input.
+     */
+    private boolean fill() {
+        if ( input == null && source == null )
+            return false;
+        int remaining = limit-pos;
+        if ( pos > 0 ) {
+            System.arraycopy(buf, pos, buf, 0, remaining);
+            pos = 0;
+            limit = remaining;
+        }
+        if ( limit == buf.length ) {
+            byte[] buf2 = new byte[buf.length*2];
+            System.arraycopy(buf, 0, buf2, 0, limit);
+            buf = buf2;
+        }
+        int n;
+        if ( source != null ) {
+            n = Math.min(source.remaining(), buf.length-limit);
+            source.get(buf, limit, n);
+        } else {
+            try {
+                n = input.read(buf, limit, buf.length-limit);
+            } catch (IOException ex) { IO.exception(ex); return false; }
+        }
+        if ( n <= 0 )
+            return false;
+        limit += n;
+        return true;
+    }
+
+    /** Decode a multibyte UTF-8 sequence starting at pos, which is available. */
+    private int decode(boolean consume) {
+        int b0 = buf[pos] & 0xFF;
+        int len;
+        int cp;
+        int min;
+        if ( b0 >= 0xC2 && b0 <= 0xDF ) {
+            len = 2; cp = b0 & 0x1F; min = 0x80;
+        } else if ( b0 >= 0xE0 && b0 <= 0xEF ) {
+            len = 3; cp = b0 & 0x0F; min = 0x800;
+        } else if ( b0 >= 0xF0 && b0 <= 0xF4 ) {
+            len = 4; cp = b0 & 0x07; min = 0x10000;
+        } else {
+            // Continuation byte or illegal lead byte.
+            if ( consume )
+                pos++;
+            return Chars.REPLACEMENT;
+        }
+        int avail = ensure(len);
+        int i = 1;
+        for ( ; i < len && i < avail ; i++ ) {
+            int b = buf[pos+i] & 0xFF;
+            if ( (b & 0xC0) != 0x80 )
+                break;
+            cp = (cp << 6) | (b & 0x3F);
+        }
+        if ( i < len || cp < min || cp > Character.MAX_CODE_POINT || Character.isSurrogate((char)cp) && cp <= 0xFFFF ) {
+            // Malformed : replace the bytes read so far.
+            if ( consume )
+                pos += i;
+            return Chars.REPLACEMENT;
+        }
+        if ( consume )
+            pos += len;
+        return cp;
+    }
+}
@@ -20,7 +20,9 @@ package org.apache.jena.riot.tokens;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 
+import org.apache.jena.atlas.io.PeekCharSource;
 import org.apache.jena.atlas.io.PeekReader;
 import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.riot.SysRIOT;
@@ -36,9 +38,11 @@ public class TokenizeTextBuilder {
     private InputStream  input        = null;
     private Reader       reader       = null;
     private String       string       = null;
+    private ByteBuffer   bytes        = null;
 
     private boolean      lineMode     = false;
     private boolean      utf8         = true;
+    private boolean      directBytes  = false;
     private ErrorHandler errorHandler = null;
 
     TokenizeTextBuilder() {}
@@ -48,6 +52,7 @@ public class TokenizeTextBuilder {
         this.input = null;
         this.reader = null;
         this.string = null;
+        this.bytes = null;
     }
 
     public TokenizeTextBuilder source(InputStream input) {
@@ -68,6 +73,17 @@ public class TokenizeTextBuilder {
         return this;
     }
 
+    /**
+     * UTF-8 bytes, from the position to the limit, read directly as for
+     * {@link #directBytes(boolean)}. The bytes of a heap buffer are used directly;
+     * the buffer must not be changed while the tokenizer is in use.
+     */
+    public TokenizeTextBuilder source(ByteBuffer bytes) {
+        clearInput();
+        this.bytes = bytes;
+        return this;
+    }
+
     public TokenizeTextBuilder fromString(String string) {
         clearInput();
         this.string = string;
@@ -84,6 +100,16 @@ public class TokenizeTextBuilder {
         return this;
     }
 
+    /**
+     * Read a UTF-8 {@code InputStream} as bytes, not through a character decoder.
+     * IRIs, strings and blank node labels that are all ASCII are then taken directly
+     * from the bytes. Malformed UTF-8 becomes U+FFFD, the Unicode replacement character.
+     */
+    public TokenizeTextBuilder directBytes(boolean directBytes) {
+        this.directBytes = directBytes;
+        return this;
+    }
+
     public TokenizeTextBuilder errorHandler(ErrorHandler errorHandler) {
         this.errorHandler = errorHandler;
         return this;
@@ -113,12 +139,17 @@ public class TokenizeTextBuilder {
 
     public Tokenizer build() {
         ErrorHandler errHandler = (errorHandler != null) ? errorHandler : errorHandlerDft();
-        int x = countNotNulls(peekReader, input, reader, string);
+        int x = countNotNulls(peekReader, input, reader, string, bytes);
         if ( x > 1 )
             throw new InternalErrorException("Too many data sources");
-        PeekReader pr;
+        PeekCharSource pr;
         if ( input != null ) {
-            pr = utf8 ? PeekReader.makeUTF8(input) : PeekReader.makeASCII(input);
+            if ( ! utf8 )
+                pr = PeekReader.makeASCII(input);
+            else
+                pr = directBytes ? PeekBytes.make(input) : PeekReader.makeUTF8(input);
+        } else if ( bytes != null ) {
+            pr = PeekBytes.make(bytes);
         } else if ( string != null ) {
             pr = PeekReader.readString(string);
         } else if ( reader != null ) {
@@ -26,7 +26,7 @@ import java.util.Objects;
 
 import org.apache.jena.atlas.AtlasException;
 import org.apache.jena.atlas.io.IO;
-import org.apache.jena.atlas.io.PeekReader;
+import org.apache.jena.atlas.io.PeekCharSource;
 import org.apache.jena.atlas.lib.Chars;
 import org.apache.jena.riot.RiotParseException;
 import org.apache.jena.riot.system.ErrorHandler;
@@ -36,6 +36,11 @@ import org.apache.jena.sparql.ARQInternalErrorException;
 /**
  * Tokenizer for the Turtle family of syntaxes.
  * Supports addition tokens.
+ * <p>
+ * When reading UTF-8 bytes directly ({@link TokenizeTextBuilder#source(java.nio.ByteBuffer)},
+ * {@link TokenizeTextBuilder#directBytes(boolean)}), IRIs, strings and blank node labels
+ * that are all ASCII are taken as a slice of the input bytes. Other tokens, and those
+ * with escapes or non-ASCII characters, are read character by character.
  */
 public final class TokenizerText implements Tokenizer
 {
@@ -53,7 +58,9 @@ public final class TokenizerText implements Tokenizer
 
     private Token token = null;
     private final StringBuilder stringBuilder = new StringBuilder(200);
-    private final PeekReader reader;
+    private final PeekCharSource reader;
+    // Set when reading UTF-8 bytes directly, for the ASCII token fast paths.
+    private final PeekBytes bytes;
     // Whether whitespace between tokens includes newlines (in various forms).
     private final boolean lineMode;
     private boolean finished = false;
@@ -66,12 +73,13 @@ public final class TokenizerText implements Tokenizer
 
     public static Tokenizer fromString(String string) { return create().fromString(string).build(); }
 
-    /*package*/ static TokenizerText internal(PeekReader reader, boolean lineMode, ErrorHandler errorHandler) {
+    /*package*/ static TokenizerText internal(PeekCharSource reader, boolean lineMode, ErrorHandler errorHandler) {
         return new TokenizerText(reader, lineMode, errorHandler);
     }
 
-    private TokenizerText(PeekReader reader, boolean lineMode, ErrorHandler errorHandler) {
-        this.reader = Objects.requireNonNull(reader, "PeekReader");
+    private TokenizerText(PeekCharSource reader, boolean lineMode, ErrorHandler errorHandler) {
+        this.reader = Objects.requireNonNull(reader, "PeekCharSource");
+        this.bytes = (reader instanceof PeekBytes) ? (PeekBytes)reader : null;
         this.lineMode = lineMode;
         this.errorHandler = Objects.requireNonNull(errorHandler, "ErrorHandler");
     }
@@ -194,7 +202,8 @@ public final class TokenizerText implements Tokenizer
             reader.readChar();
             int chPeek = reader.peekChar();
             if ( chPeek != '<' ) {
-                token.setImage(readIRI());
+                String iri = ( bytes != null ) ? bytes.readIRIASCII() : null;
+                token.setImage(iri != null ? iri : readIRI());
                 token.setType(TokenType.IRI);
                 if ( Checking )
                     checkURI(token.getImage());
@@ -239,7 +248,8 @@ public final class TokenizerText implements Tokenizer
                 }
             } else {
                 // One quote character.
-                token.setImage(readString(ch, ch));
+                String str = ( bytes != null ) ? bytes.readStringASCII(ch) : null;
+                token.setImage(str != null ? str : readString(ch, ch));
                 // Record exactly what form of STRING was seen.
                 StringType st = (ch == CH_QUOTE1) ? StringType.STRING1 : StringType.STRING2;
                 token.setStringType(st);
@@ -298,7 +308,8 @@ public final class TokenizerText implements Tokenizer
             int ch2 = reader.peekChar();
             if ( ch2 == CH_COLON ) {
                 reader.readChar();
-                token.setImage(readBlankNodeLabel());
+                String label = ( bytes != null ) ? bytes.readBlankNodeLabelASCII() : null;
+                token.setImage(label != null ? label : readBlankNodeLabel());
                 token.setType(TokenType.BNODE);
                 if ( Checking ) checkBlankNode(token.getImage());
                 return token;
@@ -1023,7 +1034,7 @@ public final class TokenizerText implements Tokenizer
             token.setType(TokenType.INTEGER);
     }
 
-    private void readHex(PeekReader reader, StringBuilder sb) {
+    private void readHex(PeekCharSource reader, StringBuilder sb) {
         // Just after the 0x, which are in sb
         int x = 0;
         for (;;) {
@@ -37,8 +37,8 @@ import org.apache.jena.sparql.util.Context;
 
 /**
  * Core engine for output of triples / quads that is streaming. It covers Turtle and
- * TriG "{@link WriterStreamRDFFlat flat}" and "{@link WriterStreamRDFBlocks blocks}"
- * variants.
+ * TriG "{@link WriterStreamRDFFlat flat}", "{@link WriterStreamRDFBlocks blocks}"
+ * and "{@link WriterStreamRDFPretty streaming}" variants.
  * <p>
  * It handles prefixes and base and node formats which is controlled by a {@link NodeFormatterTTL}.
  * <p>
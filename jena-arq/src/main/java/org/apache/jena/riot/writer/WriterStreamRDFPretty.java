@@ -0,0 +1,535 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.writer;
+
+import static org.apache.jena.riot.writer.WriterConst.RDF_First;
+import static org.apache.jena.riot.writer.WriterConst.RDF_Nil;
+import static org.apache.jena.riot.writer.WriterConst.RDF_Rest;
+import static org.apache.jena.riot.writer.WriterConst.RDF_type;
+
+import java.io.OutputStream ;
+import java.io.Writer ;
+import java.util.* ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.Pair ;
+import org.apache.jena.atlas.logging.Log ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.RIOT ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.util.Context;
+
+/**
+ * Streaming pretty output of triples / quads: predicate-object lists, blank nodes
+ * written inline as {@code [ ... ]} and RDF collections written as {@code ( ... )}.
+ * <p>
+ * The input should be grouped by subject (e.g. from an SPO index). Subject blocks
+ * are held back in a window of at most {@link RIOT#symTurtleStreamingWindow} triples
+ * (default {@value #DftWindowSize}) so that a blank node object and its own
+ * triples can be brought together.
+ * <p>
+ * A blank node is only written inline when it is known to be the object of exactly
+ * one triple, all its triples are in the window at the time and it is not a graph
+ * name. When writing a graph or dataset, this is checked against the data
+ * ({@link #forGraph}, {@link #forDataset}). For a stream, nothing is known about
+ * later triples, so blank nodes are written with labels unless
+ * {@link RIOT#symTurtleStreamingInline} is set, which means the caller promises
+ * that all the triples of a blank node, and all the triples that refer to it, are
+ * within a window's distance of each other. If that promise is broken, a
+ * reference to a blank node that has already been written inline is logged as a
+ * warning and the output is a different graph.
+ * <p>
+ * Memory use is bounded by the window size and the largest subject block, not
+ * the size of the data.
+ * <p>
+ * If fed quads and triples, the output is valid TriG.
+ * If fed only triples, the output is valid Turtle.
+ */
+public class WriterStreamRDFPretty extends WriterStreamRDFBlocks
+{
+    /** Default number of triples held back looking for blank nodes and lists to write inline. */
+    public static final int DftWindowSize = 10_000 ;
+
+    // Blank nodes nested deeper than this are written with a label.
+    private static final int MAX_DEPTH = 64 ;
+
+    private static class Block {
+        final Pair<Node, Node> key ;
+        final Node graph ;
+        final Node subject ;
+        final List<Triple> triples ;
+        Block(Node graph, Node subject, List<Triple> triples) {
+            this.key = Pair.create(graph, subject) ;
+            this.graph = graph ;
+            this.subject = subject ;
+            this.triples = triples ;
+        }
+    }
+
+    /**
+     * Whether a blank node can be written inline: it is the object of exactly one
+     * triple or quad, it is the subject of {@code subjectTriples} triples or quads,
+     * and it is not used as a graph name.
+     */
+    @FunctionalInterface
+    interface InlineCheck {
+        boolean singleUse(Node bnode, int subjectTriples) ;
+    }
+
+    private static final InlineCheck NEVER  = (n, count) -> false ;
+    private static final InlineCheck WINDOW = (n, count) -> true ;
+
+    private final int windowSize ;
+    private final InlineCheck inlineCheck ;
+    // Blocks not yet written, in arrival order, keyed by (graph, subject).
+    // The graph is null for triples.
+    private final Map<Pair<Node, Node>, Block> pending = new LinkedHashMap<>() ;
+    private int pendingTriples = 0 ;
+    // Blank nodes in pending blocks: the number of triples with the blank node as
+    // object and a block with such a triple; the number of blocks with the blank node
+    // as subject or as graph name.
+    private final Map<Node, Integer> refCount = new HashMap<>() ;
+    private final Map<Node, Block> referrer = new HashMap<>() ;
+    private final Map<Node, Integer> otherUses = new HashMap<>() ;
+    // Recently written blank nodes - bounded.
+    private final Set<Node> labelled ;
+    private final Set<Node> inlined ;
+    // Blank nodes being written, for cycles.
+    private final Set<Node> path = new HashSet<>() ;
+    // Graph of the block being written.
+    private Node currentGraph = null ;
+
+    public WriterStreamRDFPretty(OutputStream output, Context context) {
+        super(output, context) ;
+        this.windowSize = windowSize(context) ;
+        this.inlineCheck = streamCheck(context) ;
+        this.labelled = boundedSet(windowSize) ;
+        this.inlined = boundedSet(windowSize) ;
+    }
+
+    public WriterStreamRDFPretty(Writer output, Context context) {
+        super(output, context) ;
+        this.windowSize = windowSize(context) ;
+        this.inlineCheck = streamCheck(context) ;
+        this.labelled = boundedSet(windowSize) ;
+        this.inlined = boundedSet(windowSize) ;
+    }
+
+    public WriterStreamRDFPretty(IndentedWriter output, Context context) {
+        this(output, context, streamCheck(context)) ;
+    }
+
+    private WriterStreamRDFPretty(IndentedWriter output, Context context, InlineCheck inlineCheck) {
+        super(output, context) ;
+        this.windowSize = windowSize(context) ;
+        this.inlineCheck = inlineCheck ;
+        this.labelled = boundedSet(windowSize) ;
+        this.inlined = boundedSet(windowSize) ;
+    }
+
+    /** A writer for the triples of a graph, which writes a blank node inline only if it is used once in the graph. */
+    public static WriterStreamRDFPretty forGraph(IndentedWriter output, Context context, Graph graph) {
+        InlineCheck check = (n, count) ->
+            count(graph.find(Node.ANY, Node.ANY, n), 1) == 1
+            && count(graph.find(n, Node.ANY, Node.ANY), count) == count ;
+        return new WriterStreamRDFPretty(output, context, check) ;
+    }
+
+    /** A writer for the quads of a dataset, which writes a blank node inline only if it is used once in the dataset. */
+    public static WriterStreamRDFPretty forDataset(IndentedWriter output, Context context, DatasetGraph dsg) {
+        InlineCheck check = (n, count) ->
+            count(dsg.find(Node.ANY, Node.ANY, Node.ANY, n), 1) == 1
+            && count(dsg.find(Node.ANY, n, Node.ANY, Node.ANY), count) == count
+            && count(dsg.find(n, Node.ANY, Node.ANY, Node.ANY), 0) == 0 ;
+        return new WriterStreamRDFPretty(output, context, check) ;
+    }
+
+    /** Count the items of an iterator, stopping after {@code limit + 1}. */
+    private static int count(Iterator<?> iter, int limit) {
+        try {
+            int x = 0 ;
+            while ( x <= limit && iter.hasNext() ) {
+                iter.next() ;
+                x++ ;
+            }
+            return x ;
+        } finally { Iter.close(iter) ; }
+    }
+
+    private static int windowSize(Context context) {
+        if ( context == null )
+            return DftWindowSize ;
+        return context.getInt(RIOT.symTurtleStreamingWindow, DftWindowSize) ;
+    }
+
+    private static InlineCheck streamCheck(Context context) {
+        if ( context != null && context.isTrue(RIOT.symTurtleStreamingInline) )
+            return WINDOW ;
+        return NEVER ;
+    }
+
+    private static Set<Node> boundedSet(int size) {
+        int max = Math.max(size, 16) ;
+        return Collections.newSetFromMap(new LinkedHashMap<Node, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Node, Boolean> eldest) {
+                return size() > max ;
+            }
+        }) ;
+    }
+
+    // ---- Input
+
+    @Override
+    protected void printBatchTriples(Node s, List<Triple> triples) {
+        add(null, s, triples) ;
+    }
+
+    @Override
+    protected void printBatchQuads(Node g, Node s, List<Quad> quads) {
+        if ( g == null )
+            g = Quad.defaultGraphNodeGenerated ;
+        List<Triple> triples = new ArrayList<>(quads.size()) ;
+        for ( Quad quad : quads )
+            triples.add(quad.asTriple()) ;
+        add(g, s, triples) ;
+    }
+
+    @Override
+    protected void finalizeRun() {
+        flushWindow() ;
+        super.finalizeRun() ;
+    }
+
+    private void add(Node g, Node s, List<Triple> triples) {
+        checkNotInlined(s) ;
+        Block block = pending.get(Pair.create(g, s)) ;
+        if ( block == null ) {
+            // The batch list is reused by the caller.
+            block = new Block(g, s, new ArrayList<>(triples)) ;
+            pending.put(block.key, block) ;
+            use(s, 1) ;
+            if ( g != null ) {
+                checkNotInlined(g) ;
+                use(g, 1) ;
+            }
+        } else
+            block.triples.addAll(triples) ;
+        pendingTriples += triples.size() ;
+        for ( Triple t : triples ) {
+            Node o = t.getObject() ;
+            if ( o.isBlank() ) {
+                checkNotInlined(o) ;
+                refCount.merge(o, 1, Integer::sum) ;
+                referrer.put(o, block) ;
+            }
+        }
+        while ( pendingTriples > windowSize && !pending.isEmpty() )
+            writeOldest() ;
+    }
+
+    private void checkNotInlined(Node n) {
+        if ( n.isBlank() && inlined.contains(n) )
+            Log.warn(this, "Blank node already written inline: "+n) ;
+    }
+
+    // ---- Window
+
+    private void flushWindow() {
+        while ( !pending.isEmpty() )
+            writeOldest() ;
+    }
+
+    /**
+     * Write the oldest pending block, or, if that will be written inline, the
+     * block that it will be written inside.
+     */
+    private void writeOldest() {
+        Block block = pending.values().iterator().next() ;
+        Set<Block> visited = new HashSet<>() ;
+        visited.add(block) ;
+        for ( ;; ) {
+            Node s = block.subject ;
+            if ( !s.isBlank() || labelled.contains(s) || refs(s) != 1 || uses(s) != 1
+                 || !inlineCheck.singleUse(s, block.triples.size()) )
+                break ;
+            Block outer = referrer.get(s) ;
+            if ( outer == null || !pending.containsKey(outer.key) || !Objects.equals(outer.graph, block.graph) || !visited.add(outer) )
+                // Referrer written, in another graph, or a cycle.
+                break ;
+            block = outer ;
+        }
+        writeTopLevel(block) ;
+    }
+
+    private int refs(Node n) {
+        return refCount.getOrDefault(n, 0) ;
+    }
+
+    private int uses(Node n) {
+        return otherUses.getOrDefault(n, 0) ;
+    }
+
+    private void use(Node n, int delta) {
+        if ( !n.isBlank() )
+            return ;
+        int x = uses(n) + delta ;
+        if ( x <= 0 )
+            otherUses.remove(n) ;
+        else
+            otherUses.put(n, x) ;
+    }
+
+    /** Remove a block from the window. */
+    private void take(Block block) {
+        pending.remove(block.key) ;
+        pendingTriples -= block.triples.size() ;
+        use(block.subject, -1) ;
+        if ( block.graph != null )
+            use(block.graph, -1) ;
+        for ( Triple t : block.triples ) {
+            Node o = t.getObject() ;
+            if ( o.isBlank() ) {
+                int x = refs(o) - 1 ;
+                if ( x <= 0 ) {
+                    refCount.remove(o) ;
+                    referrer.remove(o) ;
+                } else
+                    refCount.put(o, x) ;
+            }
+        }
+    }
+
+    /**
+     * Whether a blank node object of a block being written can be written inline.
+     * The block has been taken from the window, so there must be no other pending
+     * references.
+     */
+    private boolean canInline(Node n) {
+        return canInline(n, 0) ;
+    }
+
+    // The blank node is the subject of just one pending block, in the current
+    // graph, and is not used as a graph name.
+    private boolean canInline(Node n, int otherRefs) {
+        if ( !n.isBlank() || path.size() >= MAX_DEPTH || path.contains(n) || labelled.contains(n)
+             || refs(n) != otherRefs || uses(n) != 1 )
+            return false ;
+        Block block = pending.get(Pair.create(currentGraph, n)) ;
+        return block != null && inlineCheck.singleUse(n, block.triples.size()) ;
+    }
+
+    // ---- Output
+
+    private void writeTopLevel(Block block) {
+        take(block) ;
+        Node g = block.graph ;
+        currentGraph = g ;
+        if ( g == null ) {
+            endGraph(null) ;
+            startBlock() ;
+        } else if ( Objects.equals(g, lastGraph) ) {
+            out.println(" .") ;
+        } else {
+            endGraph(g) ;
+            startGraph(g) ;
+        }
+        Node s = block.subject ;
+        // A later triple may refer to a blank node subject or graph name so it is
+        // written with a label.
+        if ( s.isBlank() )
+            labelled.add(s) ;
+        if ( g != null && g.isBlank() )
+            labelled.add(g) ;
+        path.add(s) ;
+        outputNode(s) ;
+        if ( out.getCol() > LONG_SUBJECT )
+            out.println() ;
+        else
+            out.print(' ', GAP_S_P) ;
+        out.incIndent(INDENT_PREDICATE) ;
+        out.pad() ;
+        writePredicateObjectList(block.triples) ;
+        out.decIndent(INDENT_PREDICATE) ;
+        path.remove(s) ;
+        if ( g == null ) {
+            out.println(" .") ;
+            lastGraph = null ;
+        } else {
+            lastGraph = g ;
+            lastSubject = s ;
+        }
+    }
+
+    private void startBlock() {
+        // Any output so far? prefixes or a previous graph.
+        if ( out.getRow() > 1 )
+            out.println() ;
+    }
+
+    private void writePredicateObjectList(List<Triple> triples) {
+        // rdf:type first, then other predicates in order of first appearance.
+        Map<Node, List<Node>> groups = new LinkedHashMap<>() ;
+        for ( Triple t : triples ) {
+            if ( RDF_type.equals(t.getPredicate()) ) {
+                groups.put(RDF_type, new ArrayList<>()) ;
+                break ;
+            }
+        }
+        for ( Triple t : triples )
+            groups.computeIfAbsent(t.getPredicate(), p->new ArrayList<>()).add(t.getObject()) ;
+
+        boolean writeKeyWordType = countPrefixesForRDF <= 0 ;
+        int predicateMaxWidth = Widths.calcWidth(pMap, baseURI, groups.keySet(), MIN_PREDICATE, LONG_PREDICATE, writeKeyWordType) ;
+        boolean first = true ;
+        for ( Map.Entry<Node, List<Node>> e : groups.entrySet() ) {
+            if ( !first )
+                out.println(" ;") ;
+            first = false ;
+            int col = out.getCol() ;
+            printProperty(e.getKey()) ;
+            if ( out.getCol() - col > LONG_PREDICATE )
+                out.println() ;
+            else {
+                out.pad(predicateMaxWidth) ;
+                out.print(' ', GAP_P_O) ;
+            }
+            boolean firstObject = true ;
+            for ( Node o : e.getValue() ) {
+                if ( !firstObject )
+                    out.print(" , ") ;
+                firstObject = false ;
+                writeObject(o) ;
+            }
+        }
+    }
+
+    private void writeObject(Node o) {
+        if ( RDF_Nil.equals(o) ) {
+            out.print("()") ;
+            return ;
+        }
+        if ( canInline(o) ) {
+            List<Node> elements = listElements(o) ;
+            if ( elements != null ) {
+                writeList(o, elements) ;
+                return ;
+            }
+            Block block = pending.get(Pair.create(currentGraph, o)) ;
+            take(block) ;
+            path.add(o) ;
+            writeNested(block) ;
+            path.remove(o) ;
+            inlined.add(o) ;
+            return ;
+        }
+        if ( o.isBlank() )
+            labelled.add(o) ;
+        outputNode(o) ;
+    }
+
+    // [ :p :o ] or multi-line.
+    private void writeNested(Block block) {
+        List<Triple> triples = block.triples ;
+        if ( triples.size() == 1 && !canInline(triples.get(0).getObject()) ) {
+            out.print("[ ") ;
+            out.incIndent(2) ;
+            writePredicateObjectList(triples) ;
+            out.decIndent(2) ;
+            out.print(" ]") ;
+            return ;
+        }
+        int indent0 = out.getAbsoluteIndent() ;
+        out.setAbsoluteIndent(out.getCol()) ;
+        out.print("[ ") ;
+        out.incIndent(2) ;
+        writePredicateObjectList(triples) ;
+        out.decIndent(2) ;
+        out.println() ;
+        out.print("]") ;
+        out.setAbsoluteIndent(indent0) ;
+    }
+
+    /**
+     * The elements of the RDF collection starting at {@code head} if all the cells
+     * are in the window and can be written inline, else null.
+     */
+    private List<Node> listElements(Node head) {
+        List<Node> elements = new ArrayList<>() ;
+        Set<Node> cells = new HashSet<>() ;
+        Node cell = head ;
+        while ( !RDF_Nil.equals(cell) ) {
+            // Later cells are referenced by the rdf:rest of the previous cell.
+            int otherRefs = cell.equals(head) ? 0 : 1 ;
+            if ( !cells.add(cell) || !canInline(cell, otherRefs) )
+                return null ;
+            Block block = pending.get(Pair.create(currentGraph, cell)) ;
+            if ( block.triples.size() != 2 )
+                return null ;
+            Node first = null ;
+            Node rest = null ;
+            for ( Triple t : block.triples ) {
+                if ( RDF_First.equals(t.getPredicate()) )
+                    first = t.getObject() ;
+                else if ( RDF_Rest.equals(t.getPredicate()) )
+                    rest = t.getObject() ;
+            }
+            if ( first == null || rest == null )
+                return null ;
+            elements.add(first) ;
+            cell = rest ;
+        }
+        // A cell as a list element is not anonymous.
+        for ( Node n : elements ) {
+            if ( cells.contains(n) )
+                return null ;
+        }
+        return elements ;
+    }
+
+    private void writeList(Node head, List<Node> elements) {
+        // Take all the cells first so that an element cannot be a cell.
+        Node cell = head ;
+        List<Node> cells = new ArrayList<>() ;
+        while ( !RDF_Nil.equals(cell) ) {
+            Block block = pending.get(Pair.create(currentGraph, cell)) ;
+            take(block) ;
+            cells.add(cell) ;
+            Node next = null ;
+            for ( Triple t : block.triples ) {
+                if ( RDF_Rest.equals(t.getPredicate()) )
+                    next = t.getObject() ;
+            }
+            cell = next ;
+        }
+        path.addAll(cells) ;
+        out.print("(") ;
+        for ( Node n : elements ) {
+            out.print(" ") ;
+            writeObject(n) ;
+        }
+        out.print(" )") ;
+        path.removeAll(cells) ;
+        inlined.addAll(cells) ;
+    }
+}
@@ -66,6 +66,15 @@ public class ExecutionContext implements FunctionEnv
         this.activeGraph = activeGraph;
     }
 
+    /**
+     * Clone for use in another thread: the same context, dataset, active graph,
+     * executor and cancel signal, with iterator tracking of its own because
+     * tracking is not thread-safe.
+     */
+    public static ExecutionContext copyForThread(ExecutionContext other) {
+        return new ExecutionContext(other.context, other.activeGraph, other.dataset, other.executor, other.cancelSignal);
+    }
+
     /** Setup with defaults of global settings */
     public ExecutionContext(DatasetGraph dataset) {
         this(dataset, QC.getFactory(ARQ.getContext()));
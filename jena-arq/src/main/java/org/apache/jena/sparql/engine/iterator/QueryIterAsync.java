@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QueryExecException;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.serializer.SerializationContext;
+
+/**
+ * A QueryIterator that is evaluated by a thread from a shared, bounded pool.
+ * Evaluation starts when the iterator is created; results are passed to the
+ * consumer through a bounded queue.
+ * <p>
+ * If no pool thread has started the evaluation by the time the consumer asks for
+ * the first result, the consumer evaluates the iterator itself. A consumer never
+ * waits for work that has no thread.
+ * <p>
+ * The worker has its own {@link ExecutionContext}, with the same context, dataset and
+ * cancel signal ({@link ExecutionContext#copyForThread}). A transaction of its own
+ * would usually be a different view of the data from the caller's transaction, so the
+ * worker only starts one through a {@link ReadFork}, which checks that the views are the
+ * same. If the view has changed, the consumer evaluates the iterator itself. The caller
+ * must only use this class when the data can be read from another thread, see
+ * {@link #canRunAsync}, or when the evaluation does not read the dataset.
+ */
+public class QueryIterAsync extends QueryIter
+{
+    private static final int QueueSize = 1000;
+    private static final long PollMillis = 100;
+    private static final Object EndMarker = new Object();
+    // The worker could not start: the consumer evaluates the source.
+    private static final Object LocalMarker = new Object();
+
+    private static final int Pending = 0;
+    private static final int Worker = 1;
+    private static final int Local = 2;
+
+    private static final ThreadLocal<Boolean> inWorker = ThreadLocal.withInitial(()->false);
+    private static ExecutorService executor = null;
+    private static final List<ReadFork> readForks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Starting, in a pool thread, a read transaction that has the same view of the data
+     * as the read transaction of the thread that created the {@code QueryIterAsync}.
+     */
+    public interface ReadFork {
+        /** Whether this {@code ReadFork} is for the dataset. */
+        public boolean accept(DatasetGraph dsg);
+
+        /**
+         * Called by the thread in the transaction. Return a description of the view of
+         * the data of the transaction, or null if it can not be shared.
+         */
+        public Object view(DatasetGraph dsg);
+
+        /**
+         * Called by the pool thread. Start a read transaction with the view of the data
+         * from {@link #view}. Return false, and do not start a transaction, if that view is
+         * no longer available.
+         */
+        public boolean begin(DatasetGraph dsg, Object view);
+    }
+
+    /** Register a {@link ReadFork}. */
+    public static void addReadFork(ReadFork readFork) {
+        readForks.add(readFork);
+    }
+
+    /** Unregister a {@link ReadFork}. */
+    public static void removeReadFork(ReadFork readFork) {
+        readForks.remove(readFork);
+    }
+
+    private static ReadFork findReadFork(DatasetGraph dsg) {
+        for ( ReadFork readFork : readForks ) {
+            if ( readFork.accept(dsg) )
+                return readFork;
+        }
+        return null;
+    }
+
+    private final Function<ExecutionContext, QueryIterator> source;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QueueSize);
+    private final AtomicInteger state = new AtomicInteger(Pending);
+    private final Future<?> future;
+    // Set if the worker starts its own read transaction.
+    private final ReadFork readFork;
+    private final Object view;
+    private volatile boolean stopped = false;
+    private volatile boolean cancelled = false;
+    private volatile QueryIterator workerIterator = null;
+    // Set if the consumer evaluates the source itself.
+    private volatile QueryIterator localIterator = null;
+    private Binding slot = null;
+    private boolean ended = false;
+
+    /** Whether the current thread is evaluating a {@code QueryIterAsync}. */
+    public static boolean isWorkerThread() {
+        return inWorker.get();
+    }
+
+    /**
+     * Whether a dataset can be read by a pool thread on behalf of the current thread.
+     * That is the case if the dataset is not in a transaction, or if it is in a read
+     * transaction of a dataset that does not have isolated transactions, where a
+     * read transaction is a lock that stops writers (see
+     * {@link DatasetGraph#supportsTransactionAbort}). Datasets with isolated
+     * transactions, such as TDB2 and the in-memory transactional dataset, give each
+     * transaction its own view of the data, which another thread can only share through
+     * a {@link ReadFork}.
+     */
+    public static boolean canRunAsync(DatasetGraph dsg) {
+        if ( dsg == null || ! dsg.isInTransaction() )
+            return true;
+        if ( dsg.transactionMode() != ReadWrite.READ )
+            return false;
+        if ( ! dsg.supportsTransactionAbort() )
+            return true;
+        ReadFork readFork = findReadFork(dsg);
+        return readFork != null && readFork.view(dsg) != null;
+    }
+
+    /**
+     * Start evaluating {@code source} in another thread. The function is called with the
+     * {@link ExecutionContext} to use, which is not {@code execCxt} if the evaluation
+     * happens in a pool thread.
+     */
+    public QueryIterAsync(Function<ExecutionContext, QueryIterator> source, ExecutionContext execCxt) {
+        this(source, execCxt, true);
+    }
+
+    /**
+     * Start evaluating {@code source} in another thread. If {@code readsDataset} is
+     * false, the evaluation does not touch the dataset of {@code execCxt} (for example,
+     * a {@code SERVICE} call) and the worker does not need a transaction.
+     */
+    public QueryIterAsync(Function<ExecutionContext, QueryIterator> source, ExecutionContext execCxt, boolean readsDataset) {
+        super(execCxt);
+        this.source = source;
+        DatasetGraph dsg = execCxt.getDataset();
+        ReadFork fork = null;
+        Object forkView = null;
+        if ( readsDataset && dsg != null && dsg.isInTransaction() && dsg.supportsTransactionAbort() ) {
+            fork = findReadFork(dsg);
+            forkView = ( fork == null ) ? null : fork.view(dsg);
+        }
+        this.readFork = ( forkView == null ) ? null : fork;
+        this.view = forkView;
+        this.future = executor().submit(()->run(execCxt));
+    }
+
+    private static synchronized ExecutorService executor() {
+        if ( executor == null ) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            AtomicInteger counter = new AtomicInteger(0);
+            ThreadFactory threadFactory = r -> {
+                Thread thread = new Thread(r, "ARQ-parallel-"+counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            executor = Executors.newFixedThreadPool(threads, threadFactory);
+        }
+        return executor;
+    }
+
+    private void run(ExecutionContext execCxt) {
+        if ( stopped || ! state.compareAndSet(Pending, Worker) )
+            return;
+        DatasetGraph dsg = execCxt.getDataset();
+        if ( readFork != null && ! readFork.begin(dsg, view) ) {
+            put(LocalMarker);
+            return;
+        }
+        inWorker.set(true);
+        try {
+            ExecutionContext workerCxt = ExecutionContext.copyForThread(execCxt);
+            QueryIterator qIter = source.apply(workerCxt);
+            workerIterator = qIter;
+            try {
+                while ( ! stopped && qIter.hasNext() )
+                    put(qIter.nextBinding());
+            } finally { qIter.close(); }
+            put(EndMarker);
+        } catch (Throwable th) {
+            put(th);
+        } finally {
+            inWorker.set(false);
+            if ( readFork != null )
+                dsg.end();
+        }
+    }
+
+    /** Pass an item to the consumer, unless the consumer has stopped. */
+    private void put(Object item) {
+        try {
+            while ( ! stopped ) {
+                if ( queue.offer(item, PollMillis, TimeUnit.MILLISECONDS) )
+                    return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        if ( slot != null )
+            return true;
+        if ( ended )
+            return false;
+        if ( localIterator == null && state.get() == Pending && state.compareAndSet(Pending, Local) )
+            localIterator = source.apply(getExecContext());
+        if ( localIterator != null ) {
+            if ( ! localIterator.hasNext() ) {
+                ended = true;
+                return false;
+            }
+            slot = localIterator.nextBinding();
+            return true;
+        }
+        Object item = take();
+        if ( item == LocalMarker ) {
+            localIterator = source.apply(getExecContext());
+            return hasNextBinding();
+        }
+        if ( item == EndMarker ) {
+            ended = true;
+            return false;
+        }
+        if ( item instanceof Throwable ) {
+            ended = true;
+            if ( item instanceof RuntimeException )
+                throw (RuntimeException)item;
+            if ( item instanceof Error )
+                throw (Error)item;
+            throw new QueryExecException((Throwable)item);
+        }
+        slot = (Binding)item;
+        return true;
+    }
+
+    private Object take() {
+        try {
+            for ( ;; ) {
+                Object item = queue.poll(PollMillis, TimeUnit.MILLISECONDS);
+                if ( item != null )
+                    return item;
+                if ( cancelled )
+                    throw new QueryCancelledException();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new QueryCancelledException();
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        Binding b = slot;
+        slot = null;
+        return b;
+    }
+
+    @Override
+    protected void closeIterator() {
+        stopped = true;
+        future.cancel(false);
+        if ( localIterator != null )
+            localIterator.close();
+        queue.clear();
+    }
+
+    @Override
+    protected void requestCancel() {
+        cancelled = true;
+        QueryIterator qIter = ( localIterator != null ) ? localIterator : workerIterator;
+        if ( qIter != null )
+            qIter.cancel();
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt) {
+        out.print(Lib.className(this));
+    }
+}
@@ -18,10 +18,14 @@
 
 package org.apache.jena.sparql.engine.join;
 
+import java.util.BitSet ;
 import java.util.Iterator ;
 import java.util.List ;
 
+import org.apache.jena.atlas.data.DataBag ;
 import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.ARQException ;
 import org.apache.jena.sparql.algebra.Algebra ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
@@ -34,6 +38,12 @@ import org.apache.jena.sparql.engine.iterator.QueryIterPeek ;
  *  
  * This code materializes one input into the probe table
  * then hash joins the other input from the stream side.
+ * <p>
+ * If {@link ARQ#spillToDiskThreshold} is set and the probe side has more rows than
+ * the threshold, the join switches to a partitioned ("grace") hash join: both
+ * inputs are divided by hash of the join key into temporary files (see
+ * {@link HashPartitions}) and each partition is joined in turn, with a probe table
+ * for just that partition. 
  */
 
 public abstract class AbstractIterHashJoin extends QueryIter2 {
@@ -44,14 +54,26 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     // See also stats in the probe table.
     
     protected final JoinKey               joinKey ;
-    protected final HashProbeTable        hashTable ;
+    // The probe table, or the probe table for the current partition.
+    protected HashProbeTable              hashTable ;
 
-    private QueryIterator               iterStream ;
+    private final QueryIterator         streamInput ;
+    private Iterator<Binding>           iterStream ;
     private Binding                     rowStream       = null ;
     private Iterator<Binding>           iterCurrent ;
     private boolean                     yielded ;       // Flag to note when current probe causes a result. 
     // Hanlde any "post join" additions.
     private Iterator<Binding>           iterTail        = null ;
+
+    // Partitioned hash join.
+    private long                        memThreshold    = Long.MAX_VALUE ;      // Default "off" value.
+    private HashPartitions              partitions      = null ;
+    private int                         partition       = 0 ;
+    // Stream rows with no join key value are compared with the probe table of each
+    // partition in turn; record whether each yielded a result.
+    private boolean                     streamNoKey     = false ;
+    private int                         streamNoKeyIdx  = 0 ;
+    private BitSet                      streamNoKeyYielded = null ;
     
     enum Phase { INIT, HASH , STREAM, TRAILER, DONE }
     Phase state = Phase.INIT ;
@@ -74,8 +96,14 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
             probeIter = pProbe ;
             streamIter = pStream ;
         }
+        if ( execCxt != null ) {
+            memThreshold = execCxt.getContext().getLong(ARQ.spillToDiskThreshold, memThreshold) ;
+            if ( memThreshold < 0 )
+                throw new ARQException("Bad spillToDiskThreshold: "+memThreshold) ;
+        }
         
         this.joinKey = joinKey ;
+        this.streamInput = streamIter ;
         this.iterStream = streamIter ;
         this.hashTable = new HashProbeTable(joinKey) ;
         this.iterCurrent = null ;
@@ -85,15 +113,74 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         
     private void buildHashTable(QueryIterator iter1) {
         state = Phase.HASH ;
-        for (; iter1.hasNext();) {
-            Binding row1 = iter1.next() ;
-            s_countProbe ++ ;
-            hashTable.put(row1) ;
+        DataBag<Binding> overflow = null ;
+        try {
+            for (; iter1.hasNext();) {
+                Binding row1 = iter1.next() ;
+                s_countProbe ++ ;
+                if ( overflow != null ) {
+                    overflow.add(row1) ;
+                    continue ;
+                }
+                hashTable.put(row1) ;
+                if ( s_countProbe > memThreshold ) {
+                    // Too large : write the probe side to disk.
+                    overflow = HashPartitions.newBag(memThreshold) ;
+                    overflow.addAll(hashTable.values()) ;
+                    hashTable.clear() ;
+                }
+            }
+            iter1.close() ;
+            if ( overflow != null )
+                partition(overflow) ;
+        } finally {
+            if ( overflow != null )
+                overflow.close() ;
         }
-        iter1.close() ;
         state = Phase.STREAM ;
     }
 
+    /** Divide both sides into partitions, then start on the first partition. */
+    private void partition(DataBag<Binding> probeRows) {
+        partitions = new HashPartitions(joinKey, s_countProbe, memThreshold) ;
+        probeRows.forEach(partitions::addProbe) ;
+        streamInput.forEachRemaining(partitions::addStream) ;
+        streamInput.close() ;
+        streamNoKeyYielded = new BitSet() ;
+        startPartition(0) ;
+    }
+
+    private void startPartition(int idx) {
+        partition = idx ;
+        hashTable.clear() ;
+        hashTable = partitions.probeTable(idx) ;
+        iterStream = partitions.stream(idx) ;
+        streamNoKey = false ;
+    }
+
+    /** Next row from the stream side, or null at the end of the current partition. */ 
+    private Binding nextStreamRow() {
+        if ( iterStream.hasNext() )
+            return iterStream.next() ;
+        if ( partitions == null || streamNoKey )
+            return null ;
+        // Then the stream rows with no join key value.
+        Iter.close(iterStream) ;
+        streamNoKey = true ;
+        streamNoKeyIdx = -1 ;
+        iterStream = partitions.streamNoKey() ;
+        return nextStreamRow() ;
+    }
+
+    private Iterator<Binding> candidates(Binding row) {
+        if ( ! streamNoKey )
+            return hashTable.getCandidates(row) ;
+        // The probe side rows with no join key value are in every partition; 
+        // only compare with them once.
+        streamNoKeyIdx++ ;
+        return hashTable.getCandidates(row, partition == 0) ;
+    }
+
     @Override
     protected boolean hasNextBinding() {
         if ( isFinished() ) 
@@ -120,36 +207,52 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         // probe hashed table for the current stream row.     
         // iterStream is the stream of incoming rows.
         
-        switch ( state ) {
-            case DONE : return null ;
-            case HASH : 
-            case INIT :
-                throw new IllegalStateException() ;
-            case TRAILER :
-                return doOneTail() ;
-            case STREAM :
+        for(;;) {
+            switch ( state ) {
+                case DONE : return null ;
+                case HASH : 
+                case INIT :
+                    throw new IllegalStateException() ;
+                case TRAILER : {
+                    Binding b = doOneTail() ;
+                    if ( b != null || state == Phase.DONE )
+                        return b ;
+                    // Next partition.
+                    continue ;
+                }
+                case STREAM :
+            }
+            Binding b = doOneStream() ;
+            if ( b != null )
+                return b ;
         }
-        
+    }
+
+    /** A result from the stream side, or null if the stream has finished. */  
+    private Binding doOneStream() {
         for(;;) {
             // Ensure we are processing a row. 
             while ( iterCurrent == null ) {
                 // Move on to the next row from the right.
-                if ( ! iterStream.hasNext() ) {
-                    state = Phase.TRAILER ;
-                    iterTail = joinFinished() ;
-                    if ( iterTail != null )
-                        return doOneTail() ;
+                rowStream = nextStreamRow() ;
+                if ( rowStream == null ) {
+                    streamFinished() ;
                     return null ;
                 }
-                rowStream = iterStream.next() ;
                 s_countScan ++ ;
-                iterCurrent = hashTable.getCandidates(rowStream) ;
+                iterCurrent = candidates(rowStream) ;
                 yielded = false ;
             }
             
             // Emit one row using the rightRow and the current matched left rows. 
             if ( ! iterCurrent.hasNext() ) {
                 iterCurrent = null ;
+                if ( streamNoKey ) {
+                    // Decided after all the partitions.
+                    if ( yielded )
+                        streamNoKeyYielded.set(streamNoKeyIdx) ;
+                    continue ;
+                }
                 if ( ! yielded ) {
                     Binding b = noYieldedRows(rowStream) ;
                     if ( b != null ) {
@@ -177,19 +280,51 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
                 return r2 ;
             }
         }
-    }    
-    
+    }
+
+    /** End of the stream for the probe table : set up the trailer. */ 
+    private void streamFinished() {
+        Iter.close(iterStream) ;
+        state = Phase.TRAILER ;
+        iterTail = partitionFinished() ;
+        if ( partitions != null && partition+1 < partitions.size() )
+            return ;
+        if ( partitions != null && partitions.hasStreamNoKey() )
+            iterTail = concat(iterTail, streamNoKeyNoYield()) ;
+        iterTail = concat(iterTail, joinFinished()) ;
+    }
+
+    private static Iterator<Binding> concat(Iterator<Binding> iter1, Iterator<Binding> iter2) {
+        if ( iter1 == null )
+            return iter2 ;
+        if ( iter2 == null )
+            return iter1 ;
+        return Iter.concat(iter1, iter2) ;
+    }
+
+    /** Stream rows with no join key value that did not match any probe row in any partition. */
+    private Iterator<Binding> streamNoKeyNoYield() {
+        Iterator<Binding> iter = partitions.streamNoKey() ;
+        int[] idx = { 0 } ;
+        return Iter.iter(iter).map(row -> streamNoKeyYielded.get(idx[0]++) ? null : noYieldedRows(row)).removeNulls() ;
+    }
     
     private Binding doOneTail() {
         // Only in TRAILING
-        if ( iterTail.hasNext() ) {
+        if ( iterTail != null && iterTail.hasNext() ) {
             s_countResults ++ ;
             s_trailerResults ++ ;
             return iterTail.next() ;
         }
+        Iter.close(iterTail) ;
+        iterTail = null ;
+        if ( partitions != null && partition+1 < partitions.size() ) {
+            startPartition(partition+1) ;
+            state = Phase.STREAM ;
+            return null ;
+        }
         state = Phase.DONE ;
         // Completely finished now.
-        iterTail = null ;
         return null ;
     }
     
@@ -210,6 +345,17 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
      */
     protected abstract Binding noYieldedRows(Binding rowStream) ;
 
+    /**
+     * Signal the end of the stream for the current probe table, before the
+     * next partition of a partitioned hash join is loaded. This is called once,
+     * before {@link #joinFinished}, if the join is not partitioned.
+     * Rows of the probe table with a value for the join key will not be seen again.
+     * @return Iterator or null
+     */
+    protected Iterator<Binding> partitionFinished() {
+        return null ;
+    }
+
     /**
      * Signal the end of the hash join.
      * Outer joins can now add any "no matched" results.
@@ -221,19 +367,22 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     protected void closeSubIterator() {
         if ( JoinLib.JOIN_EXPLAIN ) {
             String x = String.format(
-                         "HashJoin: LHS=%d RHS=%d Results=%d RightMisses=%d MaxBucket=%d NoKeyBucket=%d",
+                         "HashJoin: LHS=%d RHS=%d Results=%d RightMisses=%d MaxBucket=%d NoKeyBucket=%d Partitions=%d",
                          s_countProbe, s_countScan, s_countResults, 
-                         hashTable.s_countScanMiss, hashTable.s_maxBucketSize, hashTable.s_noKeyBucketSize) ;
+                         hashTable.s_countScanMiss, hashTable.s_maxBucketSize, hashTable.s_noKeyBucketSize,
+                         (partitions == null) ? 0 : partitions.size()) ;
             System.out.println(x) ;
         }
         // In case it's a peek iterator.
-        iterStream.close() ;
+        streamInput.close() ;
+        Iter.close(iterStream) ;
+        Iter.close(iterTail) ;
         hashTable.clear(); 
+        if ( partitions != null )
+            partitions.close() ;
     }
 
     @Override
     protected void requestSubCancel() 
     { }
 }
-
-
@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.sparql.engine.join;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.data.BagFactory;
+import org.apache.jena.atlas.data.DataBag;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.system.SerializationFactoryFinder;
+
+/**
+ * The partitions of a hash join that does not fit in memory (a "grace" hash join).
+ * Rows of both sides are divided by the hash of the join key so that rows that may
+ * join are in the same partition; the partitions are held in {@link DataBag DataBags}
+ * which write to disk. Each partition of the probe side is then small enough to be
+ * loaded as a {@link HashProbeTable}.
+ * <p>
+ * Rows of the probe side with no value for the join key are candidates for every row
+ * of the stream side. They are kept in memory and put in every probe table. Rows of the
+ * stream side with no value for the join key are kept in a separate bag.
+ */
+class HashPartitions {
+    // Upper limit on the number of temporary files for one side.
+    private static final int MaxPartitions = 256;
+
+    private final JoinKey                joinKey;
+    private final long                   threshold;
+    private final List<DataBag<Binding>> probeBags;
+    private final List<DataBag<Binding>> streamBags;
+    private final List<Binding>          noKeyProbe = new ArrayList<>();
+    private final DataBag<Binding>       noKeyStream;
+
+    /**
+     * Create partitions for a probe side of {@code probeSize} rows so that each
+     * partition is, on average, below {@code threshold} rows.
+     */
+    HashPartitions(JoinKey joinKey, long probeSize, long threshold) {
+        this.joinKey = joinKey;
+        this.threshold = threshold;
+        long n = probeSize / Math.max(threshold, 1) + 1;
+        int numPartitions = (int)Math.min(MaxPartitions, Math.max(2, n));
+        // Each bag holds a share of the threshold in memory before writing to disk.
+        long bagThreshold = threshold / numPartitions;
+        this.probeBags = new ArrayList<>(numPartitions);
+        this.streamBags = new ArrayList<>(numPartitions);
+        for ( int i = 0 ; i < numPartitions ; i++ ) {
+            probeBags.add(newBag(bagThreshold));
+            streamBags.add(newBag(bagThreshold));
+        }
+        this.noKeyStream = newBag(threshold);
+    }
+
+    /** A bag for rows that writes to disk after {@code threshold} rows. */
+    static DataBag<Binding> newBag(long threshold) {
+        return BagFactory.newDefaultBag(ThresholdPolicyFactory.count(threshold),
+                                        SerializationFactoryFinder.bindingSerializationFactory());
+    }
+
+    int size() {
+        return probeBags.size();
+    }
+
+    void addProbe(Binding row) {
+        Object hash = JoinLib.hash(joinKey, row);
+        if ( hash == JoinLib.noKeyHash ) {
+            noKeyProbe.add(row);
+            return;
+        }
+        probeBags.get(partition(hash)).add(row);
+    }
+
+    void addStream(Binding row) {
+        Object hash = JoinLib.hash(joinKey, row);
+        if ( hash == JoinLib.noKeyHash ) {
+            noKeyStream.add(row);
+            return;
+        }
+        streamBags.get(partition(hash)).add(row);
+    }
+
+    private int partition(Object hash) {
+        int h = hash.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, probeBags.size());
+    }
+
+    /** Load the probe table for partition {@code idx}. */
+    HashProbeTable probeTable(int idx) {
+        HashProbeTable table = new HashProbeTable(joinKey);
+        Iterator<Binding> iter = iterator(probeBags.get(idx));
+        try {
+            iter.forEachRemaining(table::put);
+        } finally { Iter.close(iter); }
+        noKeyProbe.forEach(table::put);
+        // Release the disk space as early as possible.
+        probeBags.get(idx).close();
+        return table;
+    }
+
+    /** The stream side rows of partition {@code idx}. */
+    Iterator<Binding> stream(int idx) {
+        return iterator(streamBags.get(idx));
+    }
+
+    /** The stream side rows with no value for the join key. */
+    Iterator<Binding> streamNoKey() {
+        return iterator(noKeyStream);
+    }
+
+    boolean hasStreamNoKey() {
+        return noKeyStream.size() > 0;
+    }
+
+    private static Iterator<Binding> iterator(DataBag<Binding> bag) {
+        // A bag that has written to disk but had no rows added has no file.
+        if ( bag.size() == 0 )
+            return Iter.nullIterator();
+        return bag.iterator();
+    }
+
+    void close() {
+        probeBags.forEach(DataBag::close);
+        streamBags.forEach(DataBag::close);
+        noKeyStream.close();
+    }
+
+    @Override
+    public String toString() {
+        return "HashPartitions: partitions="+probeBags.size()+" threshold="+threshold+" noKeyProbe="+noKeyProbe.size();
+    }
+}
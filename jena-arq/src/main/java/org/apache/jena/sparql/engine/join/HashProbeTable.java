@@ -57,6 +57,14 @@ class HashProbeTable {
     }
 
     public Iterator<Binding> getCandidates(Binding row) {
+        return getCandidates(row, true);
+    }
+
+    /**
+     * Candidates for {@code row}; the rows with no value for the join key are
+     * included if {@code includeNoKey} is true.
+     */
+    /*package*/ Iterator<Binding> getCandidates(Binding row, boolean includeNoKey) {
         Iterator<Binding> iter = null;
         Object longHash = JoinLib.hash(joinKey, row);
         if ( longHash == JoinLib.noKeyHash )
@@ -71,9 +79,9 @@ class HashProbeTable {
             }
         }
         // And the rows with no common hash key
-        if ( noKeyBucket != null )
+        if ( includeNoKey && noKeyBucket != null )
             iter = Iter.concat(iter, noKeyBucket.iterator());
-        return iter;
+        return ( iter == null ) ? Iter.nullIterator() : iter;
     }
 
     public void stats() {
@@ -110,6 +118,11 @@ class HashProbeTable {
                            noKeyBucket.iterator()) ;
     }
     
+    /** The rows with a value for the join key. */
+    public Iterator<Binding> keyedValues() {
+        return buckets.values().iterator();
+    }
+
     public void clear() {
         buckets.clear();
     }
@@ -101,9 +101,23 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
         return null;
     }
     
+    // The rows of the probe table with a value for the join key are not seen again:
+    // the unmatched ones can be added now.
+    @Override
+    protected Iterator<Binding> partitionFinished() {
+        Set<Binding> hits = leftHits ;
+        // Keep the hits for the rows with no join key value.
+        leftHits = new HashSet<>() ;
+        for ( Binding b : hashTable.getNoKey$() ) {
+            if ( hits.contains(b) )
+                leftHits.add(b) ;
+        }
+        return Iter.filter(hashTable.keyedValues(), b-> ! hits.contains(b) ) ;
+    }
+
     @Override
     protected QueryIterator joinFinished() {
-        Iterator<Binding> iter = Iter.filter(hashTable.values(), b-> ! leftHits.contains(b) )  ;
+        Iterator<Binding> iter = Iter.filter(hashTable.getNoKey$().iterator(), b-> ! leftHits.contains(b) )  ;
         return QueryIterPlainWrapper.create(iter, getExecContext()) ;
     }
 }
@@ -19,6 +19,7 @@
 package org.apache.jena.sparql.engine.main;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -43,6 +44,7 @@ import org.apache.jena.sparql.engine.join.Join;
 import org.apache.jena.sparql.engine.main.iterator.QueryIterGraph;
 import org.apache.jena.sparql.engine.main.iterator.QueryIterOptionalIndex;
 import org.apache.jena.sparql.engine.main.iterator.QueryIterUnion;
+import org.apache.jena.sparql.engine.main.iterator.QueryIterUnionParallel;
 import org.apache.jena.sparql.expr.Expr;
 import org.apache.jena.sparql.expr.ExprList;
 import org.apache.jena.sparql.procedure.ProcEval;
@@ -210,8 +212,11 @@ public class OpExecutor {
             QueryIterator qIter = Join.join(left, right, execCxt);
             return qIter;
         }
+        // Start the right hand side first so it runs alongside the left.
+        QueryIterator right = parallel(opJoin.getRight()) ? async(opJoin.getRight()) : null;
         QueryIterator left = exec(opJoin.getLeft(), input);
-        QueryIterator right = exec(opJoin.getRight(), root());
+        if ( right == null )
+            right = exec(opJoin.getRight(), root());
         // Join key.
         QueryIterator qIter = Join.join(left, right, execCxt);
         return qIter;
@@ -219,6 +224,17 @@ public class OpExecutor {
 
     // Pass iterator from one step directly into the next.
     protected QueryIterator execute(OpSequence opSequence, QueryIterator input) {
+        if ( input.isJoinIdentity() && parallel(opSequence.getElements()) && independent(opSequence.getElements()) ) {
+            // Nothing flows from one step to the next: evaluate the steps
+            // concurrently and take the cross product.
+            input.close();
+            QueryIterator qIter = null;
+            for ( Op sub : opSequence.getElements() ) {
+                QueryIterator qIterSub = async(sub);
+                qIter = ( qIter == null ) ? qIterSub : Join.join(qIter, qIterSub, execCxt);
+            }
+            return qIter;
+        }
         QueryIterator qIter = input;
         for ( Iterator<Op> iter = opSequence.iterator() ; iter.hasNext() ; ) {
             Op sub = iter.next();
@@ -273,6 +289,8 @@ public class OpExecutor {
 
     protected QueryIterator execute(OpUnion opUnion, QueryIterator input) {
         List<Op> x = flattenUnion(opUnion);
+        if ( parallel(x) )
+            return new QueryIterUnionParallel(input, x, execCxt);
         QueryIterator cIter = new QueryIterUnion(input, x, execCxt);
         return cIter;
     }
@@ -458,6 +476,52 @@ public class OpExecutor {
         return createRootQueryIterator(execCxt);
     }
 
+    /**
+     * Whether {@code op} is evaluated concurrently with other parts of the query (see
+     * {@link ARQ#parallelExecution}). A {@code SERVICE} does not read the dataset and
+     * can always be evaluated in another thread. Otherwise, pool threads read the data
+     * on behalf of this thread, which needs a dataset that allows it
+     * ({@link QueryIterAsync#canRunAsync}). There is no nested parallel evaluation.
+     */
+    protected boolean parallel(Op op) {
+        if ( ! execCxt.getContext().isTrue(ARQ.parallelExecution) )
+            return false;
+        if ( QueryIterAsync.isWorkerThread() )
+            return false;
+        return ! readsDataset(op) || QueryIterAsync.canRunAsync(execCxt.getDataset());
+    }
+
+    /** Whether all of the ops are evaluated concurrently, see {@link #parallel(Op)}. */
+    protected boolean parallel(List<Op> ops) {
+        for ( Op op : ops ) {
+            if ( ! parallel(op) )
+                return false;
+        }
+        return true;
+    }
+
+    /** Evaluate {@code op}, starting from the root, in another thread. */
+    protected QueryIterator async(Op op) {
+        return new QueryIterAsync(cxt -> QC.execute(op, QueryIterRoot.create(cxt), cxt), execCxt, readsDataset(op));
+    }
+
+    private static boolean readsDataset(Op op) {
+        return ! ( op instanceof OpService );
+    }
+
+    /** Whether no variable is mentioned by more than one of the ops. */
+    private static boolean independent(List<Op> ops) {
+        Set<Var> seen = new HashSet<>();
+        for ( Op op : ops ) {
+            for ( Var v : OpVars.mentionedVars(op) ) {
+                if ( seen.contains(v) )
+                    return false;
+            }
+            OpVars.mentionedVars(op, seen);
+        }
+        return true;
+    }
+
     // Use this to debug evaluation
     // Example:
     // input = debug(input) ;
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.main.iterator;
+
+import java.util.List;
+
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.op.OpService;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIterAsync;
+import org.apache.jena.sparql.engine.iterator.QueryIterConcat;
+import org.apache.jena.sparql.engine.iterator.QueryIterSingleton;
+import org.apache.jena.sparql.engine.main.QC;
+
+/**
+ * Union where, for each input binding, the sub stages are evaluated concurrently
+ * (see {@link QueryIterAsync}). The results are in the same order as {@link QueryIterUnion}.
+ */
+public class QueryIterUnionParallel extends QueryIterUnion
+{
+    public QueryIterUnionParallel(QueryIterator input, List<Op> subOps, ExecutionContext context) {
+        super(input, subOps, context);
+    }
+
+    @Override
+    protected QueryIterator nextStage(Binding binding) {
+        // No nested parallel evaluation.
+        if ( QueryIterAsync.isWorkerThread() )
+            return super.nextStage(binding);
+        QueryIterConcat unionQIter = new QueryIterConcat(getExecContext());
+        for ( Op subOp : subOps ) {
+            Op op = QC.substitute(subOp, binding);
+            boolean readsDataset = ! ( op instanceof OpService );
+            QueryIterator qIter = new QueryIterAsync(cxt -> QC.execute(op, QueryIterSingleton.create(binding, cxt), cxt), getExecContext(), readsDataset);
+            unionQIter.add(qIter);
+        }
+        return unionQIter;
+    }
+}
@@ -49,7 +49,8 @@ import org.apache.jena.http.HttpLib;
 import org.apache.jena.query.*;
 import org.apache.jena.riot.*;
 import org.apache.jena.riot.resultset.ResultSetLang;
-import org.apache.jena.riot.resultset.ResultSetReaderRegistry;
+import org.apache.jena.riot.rowset.RowSetReader;
+import org.apache.jena.riot.rowset.RowSetReaderRegistry;
 import org.apache.jena.riot.web.HttpNames;
 import org.apache.jena.sparql.ARQException;
 import org.apache.jena.sparql.core.DatasetGraph;
@@ -195,7 +196,7 @@ public class QueryExecHTTP implements QueryExec {
         // Map to lang, with pragmatic alternatives.
         Lang lang = WebContent.contentTypeToLangResultSet(actualContentType);
         boolean unknownLang = lang == null;
-        boolean unsupportedFormat = !unknownLang && !ResultSetReaderRegistry.isRegistered(lang);
+        boolean unsupportedFormat = !unknownLang && !RowSetReaderRegistry.isRegistered(lang);
         if ( unknownLang || unsupportedFormat ) {
             String errorTerm = unknownLang ? "recognized" : "supported";
             String errorMsg = String.format("Endpoint returned Content-Type: %s which is not %s for SELECT queries",
@@ -203,10 +204,10 @@ public class QueryExecHTTP implements QueryExec {
             raiseException(errorMsg, request, response, in);
         }
 
-        // This returns a streaming result set for some formats.
+        // The readers return a streaming row set: rows are parsed as they are used.
         // Do not close the InputStream at this point.
-        ResultSet result = ResultSetMgr.read(in, lang);
-        return RowSet.adapt(result);
+        RowSetReader reader = RowSetReaderRegistry.getFactory(lang).create(lang);
+        return reader.read(in, context);
     }
 
     @Override
@@ -42,6 +42,7 @@ import org.apache.jena.sparql.algebra.op.OpService ;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.Rename;
+import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.http.HttpParams;
 import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
 import org.apache.jena.sparql.engine.iterator.QueryIter;
@@ -66,6 +67,7 @@ public class Service {
 
     public static final Symbol serviceParams            = ARQ.serviceParams;
     public static final Symbol httpServiceAllowed       = ARQ.httpServiceAllowed;
+    public static final Symbol httpServiceStreaming     = ARQ.httpServiceStreaming;
 //    //public static final Symbol httpQueryCompression    = ARQ.httpQueryCompression;
     public static final Symbol httpQueryClient          = ARQ.httpQueryClient;
     public static final Symbol httpServiceSendMode      = ARQ.httpServiceSendMode;
@@ -197,9 +199,16 @@ public class Service {
                 .sendMode(querySendMode)
                 .build();
         try {
-            // Detach from the network stream.
-            RowSet rowSet = qExec.select().materialize();
-            QueryIterator qIter = QueryIterPlainWrapper.create(rowSet);
+            QueryIterator qIter;
+            if ( silent || context.isFalse(httpServiceStreaming) ) {
+                // Detach from the network stream.
+                RowSet rowSet = qExec.select().materialize();
+                qExec.close();
+                qIter = QueryIterPlainWrapper.create(rowSet);
+            } else {
+                // Read results as they are needed.
+                qIter = new QueryIterServiceStream(qExec.select(), qExec);
+            }
             if (requiresRemapping)
                 qIter = QueryIter.map(qIter, varMapping);
             return qIter;
@@ -208,6 +217,51 @@ public class Service {
         }
     }
 
+    /**
+     * Results from a remote endpoint, read as needed. Closing the iterator closes the HTTP connection.
+     * HTTP errors while reading are reported as {@link QueryExceptionHTTP}, as for the request.
+     */
+    /*package*/ static class QueryIterServiceStream extends QueryIterPlainWrapper {
+        private final QueryExecHTTP qExec;
+
+        QueryIterServiceStream(RowSet rowSet, QueryExecHTTP qExec) {
+            super(rowSet);
+            this.qExec = qExec;
+        }
+
+        @Override
+        protected boolean hasNextBinding() {
+            try {
+                return super.hasNextBinding();
+            } catch (HttpException ex) {
+                throw QueryExceptionHTTP.rewrap(ex);
+            }
+        }
+
+        @Override
+        protected Binding moveToNextBinding() {
+            try {
+                return super.moveToNextBinding();
+            } catch (HttpException ex) {
+                throw QueryExceptionHTTP.rewrap(ex);
+            }
+        }
+
+        @Override
+        protected void closeIterator() {
+            try {
+                super.closeIterator();
+            } finally {
+                qExec.close();
+            }
+        }
+
+        @Override
+        protected void requestCancel() {
+            qExec.abort();
+        }
+    }
+
     private static HttpClient chooseHttpClient(String serviceURL, Context context) {
         // [QExec] Done in HttpLib?
         // -- RegistryHttpClient : preferred way to set a custom HttpClient
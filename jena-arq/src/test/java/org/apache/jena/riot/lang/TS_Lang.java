@@ -35,6 +35,8 @@ import org.junit.runners.Suite ;
     , TestTurtleTerms.class
     , TestLangNTriples.class
     , TestLangNQuads.class
+    , TestParserNTuplesParallel.class
+    , TestParserTurtleParallel.class
     , TestLangTurtle.class
     , TestLangTrig.class
     , TestLangRdfJson.class
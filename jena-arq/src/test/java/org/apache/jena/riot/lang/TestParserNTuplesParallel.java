@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.riot.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.*;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.Test;
+
+public class TestParserNTuplesParallel {
+
+    private static String dataNT(int n) {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < n ; i++ ) {
+            sb.append("<http://example/s"+(i%17)+"> <http://example/p> \"value "+i+"\" .\n");
+            if ( i % 5 == 0 )
+                sb.append("# Comment\n");
+            // Blank nodes used across the input.
+            sb.append("_:b"+(i%13)+" <http://example/q> <http://example/o"+i+"> .\n");
+        }
+        return sb.toString();
+    }
+
+    private static String dataNQ(int n) {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < n ; i++ ) {
+            sb.append("<http://example/s"+(i%17)+"> <http://example/p> \"value "+i+"\" <http://example/g"+(i%3)+"> .\n");
+            sb.append("_:b"+(i%13)+" <http://example/q> \""+i+"\" .\n");
+        }
+        return sb.toString();
+    }
+
+    private static List<Triple> parseTriples(String data, int chunkSize, boolean ordered) {
+        List<Triple> triples = new ArrayList<>();
+        StreamRDF dest = new StreamRDFBase() {
+            @Override public void triple(Triple triple) { triples.add(triple); }
+        };
+        parse(Lang.NTRIPLES, data, chunkSize, ordered, dest);
+        return triples;
+    }
+
+    private static void parse(Lang lang, String data, int chunkSize, boolean ordered, StreamRDF dest) {
+        FactoryRDF factory = ParserNTuplesParallel.factoryForThreads(RiotLib.factoryRDF(LabelToNode.createUseLabelAsGiven()));
+        ErrorHandler errorHandler = ErrorHandlerFactory.errorHandlerStrictNoLogging;
+        ParserNTuplesParallel parser =
+            new ParserNTuplesParallel(lang, eh -> RiotLib.createParserProfile(factory, eh, false), errorHandler, 4, ordered, chunkSize);
+        parser.parse(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), dest);
+    }
+
+    private static List<Triple> parseSerial(String data) {
+        List<Triple> triples = new ArrayList<>();
+        RDFParser.fromString(data).lang(Lang.NTRIPLES).labelToNode(LabelToNode.createUseLabelAsGiven())
+            .parse(new StreamRDFBase() {
+                @Override public void triple(Triple triple) { triples.add(triple); }
+            });
+        return triples;
+    }
+
+    @Test public void parallel_nt_ordered_1() {
+        String data = dataNT(1000);
+        List<Triple> expected = parseSerial(data);
+        // Small blocks.
+        assertEquals(expected, parseTriples(data, 100, true));
+    }
+
+    @Test public void parallel_nt_ordered_2() {
+        String data = dataNT(1000);
+        List<Triple> expected = parseSerial(data);
+        // One block.
+        assertEquals(expected, parseTriples(data, 1024*1024, true));
+    }
+
+    @Test public void parallel_nt_ordered_3() {
+        // Lines longer than the block size.
+        String data = dataNT(200);
+        List<Triple> expected = parseSerial(data);
+        assertEquals(expected, parseTriples(data, 10, true));
+    }
+
+    @Test public void parallel_nt_ordered_4() {
+        // No final newline.
+        String data = "<http://example/s> <http://example/p> \"1\" .\n<http://example/s> <http://example/p> \"2\" .";
+        List<Triple> expected = parseSerial(data);
+        assertEquals(expected, parseTriples(data, 16, true));
+    }
+
+    @Test public void parallel_nt_unordered() {
+        String data = dataNT(1000);
+        List<Triple> expected = parseSerial(data);
+        List<Triple> triples = parseTriples(data, 100, false);
+        assertEquals(expected.size(), triples.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(triples));
+    }
+
+    @Test public void parallel_nq() {
+        String data = dataNQ(500);
+        List<Quad> expected = new ArrayList<>();
+        RDFParser.fromString(data).lang(Lang.NQUADS).labelToNode(LabelToNode.createUseLabelAsGiven())
+            .parse(new StreamRDFBase() {
+                @Override public void quad(Quad quad) { expected.add(quad); }
+            });
+        List<Quad> quads = new ArrayList<>();
+        parse(Lang.NQUADS, data, 200, true, new StreamRDFBase() {
+            @Override public void quad(Quad quad) { quads.add(quad); }
+        });
+        assertEquals(expected, quads);
+    }
+
+    @Test public void parallel_error_line() {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 1 ; i < 100 ; i++ )
+            sb.append("<http://example/s> <http://example/p> \""+i+"\" .\n");
+        // Line 100
+        sb.append("<http://example/s> <http://example/p> .\n");
+        sb.append("<http://example/s> <http://example/p> \"101\" .\n");
+        try {
+            parseTriples(sb.toString(), 64, true);
+            fail("Expected parse exception");
+        } catch (RiotException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("line: 100,"));
+        }
+    }
+
+    @Test public void parallel_builder_blanknodes() {
+        // The same blank node label in different blocks is the same blank node.
+        String data = dataNT(5000);
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        Graph graph1 = GraphFactory.createDefaultGraph();
+        RDFParser.source(new ByteArrayInputStream(bytes)).lang(Lang.NTRIPLES).parallel(4).parse(graph1);
+        Graph graph2 = RDFParser.fromString(data).lang(Lang.NTRIPLES).toGraph();
+        assertEquals(graph2.size(), graph1.size());
+        assertTrue(graph1.isIsomorphicWith(graph2));
+    }
+
+    @Test public void parallel_builder_nq() {
+        String data = dataNQ(2000);
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        DatasetGraph dsg1 = DatasetGraphFactory.create();
+        RDFParser.source(new ByteArrayInputStream(bytes)).lang(Lang.NQUADS).parallel(3, false).parse(dsg1);
+        DatasetGraph dsg2 = RDFParser.fromString(data).lang(Lang.NQUADS).toDatasetGraph();
+        assertEquals(Iter.count(dsg2.find()), Iter.count(dsg1.find()));
+    }
+}
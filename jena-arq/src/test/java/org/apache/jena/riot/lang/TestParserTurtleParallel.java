@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.*;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.junit.Test;
+
+public class TestParserTurtleParallel {
+
+    private static String dataTTL(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("@prefix : <http://example/> .\n");
+        sb.append("PREFIX ns: <http://example/ns#>\n");
+        for ( int i = 0 ; i < n ; i++ ) {
+            sb.append(":s"+(i%17)+" :p \"value . "+i+"\" ; ns:q 1.5, "+i+" . # Comment .\n");
+            // Blank nodes used across the input.
+            sb.append("_:b"+(i%13)+" :q [ :r <http://example/o"+i+"> ; :r ( 1 2.5 \"a . b\" ) ] .\n");
+            if ( i % 7 == 0 )
+                sb.append(":s.x"+i+" ns:q \"\"\"Long\n . string \"\" . \\\"\"\"\" .\n");
+            if ( i % 11 == 0 )
+                sb.append("<<:s :p :o>> :q 'x . y' .\n");
+            if ( i % 50 == 0 ) {
+                // Change the prefixes and base.
+                sb.append("@prefix ns: <http://example/ns"+i+"#> .\n");
+                sb.append("BASE <http://example/base"+i+"/>\n");
+                sb.append("<s> <p> <#o> .\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<Triple> parseTriples(String data, int chunkSize, boolean ordered) {
+        List<Triple> triples = new ArrayList<>();
+        StreamRDF dest = new StreamRDFBase() {
+            @Override public void triple(Triple triple) { triples.add(triple); }
+        };
+        parse(data, chunkSize, ordered, dest);
+        return triples;
+    }
+
+    private static void parse(String data, int chunkSize, boolean ordered, StreamRDF dest) {
+        FactoryRDF factory = ParserNTuplesParallel.factoryForThreads(RiotLib.factoryRDF(LabelToNode.createUseLabelAsGiven()));
+        ErrorHandler errorHandler = ErrorHandlerFactory.errorHandlerStrictNoLogging;
+        ParserTurtleParallel parser =
+            new ParserTurtleParallel(eh -> RiotLib.createParserProfile(factory, eh, false), errorHandler, 4, ordered, chunkSize);
+        parser.parse(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), dest);
+    }
+
+    private static List<Triple> parseSerial(String data) {
+        List<Triple> triples = new ArrayList<>();
+        RDFParser.fromString(data).lang(Lang.TURTLE).labelToNode(LabelToNode.createUseLabelAsGiven())
+            .parse(new StreamRDFBase() {
+                @Override public void triple(Triple triple) { triples.add(triple); }
+            });
+        return triples;
+    }
+
+    // Anonymous blank nodes are allocated in a different order.
+    private static void check(List<Triple> expected, List<Triple> triples, boolean ordered) {
+        assertEquals(expected.size(), triples.size());
+        Graph graph1 = GraphFactory.createDefaultGraph();
+        expected.forEach(graph1::add);
+        Graph graph2 = GraphFactory.createDefaultGraph();
+        triples.forEach(graph2::add);
+        assertTrue(graph1.isIsomorphicWith(graph2));
+        if ( ordered )
+            assertEquals(noBlankNodes(expected), noBlankNodes(triples));
+    }
+
+    private static List<Triple> noBlankNodes(List<Triple> triples) {
+        List<Triple> x = new ArrayList<>();
+        for ( Triple t : triples ) {
+            if ( ! t.getSubject().isBlank() && ! t.getObject().isBlank() )
+                x.add(t);
+        }
+        return x;
+    }
+
+    @Test public void parallel_ttl_ordered_1() {
+        String data = dataTTL(500);
+        List<Triple> expected = parseSerial(data);
+        // Small blocks.
+        check(expected, parseTriples(data, 200, true), true);
+    }
+
+    @Test public void parallel_ttl_ordered_2() {
+        String data = dataTTL(500);
+        List<Triple> expected = parseSerial(data);
+        // One block.
+        check(expected, parseTriples(data, 1024*1024, true), true);
+    }
+
+    @Test public void parallel_ttl_ordered_3() {
+        // Statements longer than the block size.
+        String data = dataTTL(100);
+        List<Triple> expected = parseSerial(data);
+        check(expected, parseTriples(data, 40, true), true);
+    }
+
+    @Test public void parallel_ttl_ordered_4() {
+        // No final newline.
+        String data = "PREFIX : <http://example/>\n:s :p 1 .\n:s :p 2.";
+        List<Triple> expected = parseSerial(data);
+        assertEquals(expected, parseTriples(data, 16, true));
+    }
+
+    @Test public void parallel_ttl_unordered() {
+        String data = dataTTL(500);
+        List<Triple> expected = parseSerial(data);
+        check(expected, parseTriples(data, 200, false), false);
+    }
+
+    @Test public void parallel_ttl_unsplittable() {
+        // A statement longer than several blocks: the rest is parsed on one thread.
+        String data = "PREFIX : <http://example/>\n:s :p 1 .\n:s :p \""+"abc . ".repeat(100)+"\" .\n:s :p 2 .\n";
+        List<Triple> expected = parseSerial(data);
+        assertEquals(expected, parseTriples(data, 32, true));
+    }
+
+    @Test public void parallel_ttl_prefixes() {
+        String data = "PREFIX : <http://example/>\n:s :p 1 .\n@prefix : <http://example/2/> .\n:s :p 2 .\n";
+        List<String> events = new ArrayList<>();
+        parse(data, 16, true, new StreamRDFBase() {
+            @Override public void triple(Triple triple) { events.add(triple.getSubject().getURI()); }
+            @Override public void prefix(String prefix, String iri) { events.add(prefix+"="+iri); }
+        });
+        assertEquals(List.of("=http://example/", "http://example/s", "=http://example/2/", "http://example/2/s"), events);
+    }
+
+    @Test public void parallel_ttl_error_line() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        for ( int i = 2 ; i < 100 ; i++ )
+            sb.append(":s :p \""+i+"\" .\n");
+        // Line 100
+        sb.append(":s :p .\n");
+        sb.append(":s :p \"101\" .\n");
+        try {
+            parseTriples(sb.toString(), 64, true);
+            fail("Expected parse exception");
+        } catch (RiotException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("line: 100,"));
+        }
+    }
+
+    @Test public void parallel_ttl_scan() {
+        // Incomplete long string at the end.
+        String data = "@prefix : <http://example/> .\n:s :p \"a. b\" , [ :q 1 . ] . :s :p '''.\n. ";
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        ParserTurtleParallel.Scan scan = ParserTurtleParallel.scan(bytes, bytes.length);
+        assertEquals(1, scan.directives.size());
+        assertEquals(data.indexOf("] .")+3, scan.boundary);
+        assertFalse(scan.unsafe);
+    }
+
+    @Test public void parallel_ttl_scan_unsafe() {
+        byte[] bytes = ":s :p 1 .\n:s :p <http://example/\n> .\n:s :p 2 .\n".getBytes(StandardCharsets.UTF_8);
+        ParserTurtleParallel.Scan scan = ParserTurtleParallel.scan(bytes, bytes.length);
+        assertEquals(9, scan.boundary);
+        assertTrue(scan.unsafe);
+    }
+
+    @Test public void parallel_builder_ttl() {
+        String data = dataTTL(2000);
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        Graph graph1 = GraphFactory.createDefaultGraph();
+        RDFParser.source(new ByteArrayInputStream(bytes)).lang(Lang.TURTLE).parallel(4).parse(graph1);
+        Graph graph2 = RDFParser.fromString(data).lang(Lang.TURTLE).toGraph();
+        assertEquals(graph2.size(), graph1.size());
+        assertTrue(graph1.isIsomorphicWith(graph2));
+        assertEquals(graph2.getPrefixMapping().getNsPrefixMap(), graph1.getPrefixMapping().getNsPrefixMap());
+    }
+}
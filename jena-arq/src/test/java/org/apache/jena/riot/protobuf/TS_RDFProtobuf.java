@@ -27,6 +27,7 @@ import org.junit.runners.Suite ;
     , TestProtobufSetup.class
     , TestProtobufStreamRDF.class
     , TestProtobufResultSet.class
+    , TestRDFBlocks.class
 //    , TestProtobufPatch.class
 } )
 
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.protobuf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RDFWriter;
+import org.apache.jena.riot.RIOT;
+import org.apache.jena.riot.protobuf.RDFBlocks.Compression;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.sse.SSE;
+import org.junit.Test;
+
+public class TestRDFBlocks {
+
+    static String gs = StrUtils.strjoinNL(
+        "(prefix ((: <http://example/>))",
+        "  (graph",
+        "    (_:a :p 123) ",
+        "    (_:a :p 'foo'@en) ",
+        "    (_:a :q 'foo') ",
+        "    (_:b :p '456.5'^^<http://example/datatype>) ",
+        "    (:s :p <http://example/s>) ",
+        "    (:s :p <http://example/😀>) ",
+        "    (:s :p <http://example/😁>) ",
+        "    (:s :q <<_:a :p :o>>) ",
+        "  ))") ;
+
+    static Graph graph = SSE.parseGraph(gs) ;
+
+    static String dgs = StrUtils.strjoinNL(
+        "(dataset",
+        "  (graph (:s1 :p _:a) (:s2 :p _:a))" ,
+        "  (graph :g  (:s1 :p _:a) (:s1 :p 1) (:s1 :q 2))" ,
+        "  (graph _:a (:s2 :p _:a))" ,
+        ")" ) ;
+
+    static DatasetGraph datasetGraph = SSE.parseDatasetGraph(dgs) ;
+
+    private static byte[] write(Compression compression, int blockSize, Graph graph) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDF stream = RDFBlocks.streamToOutputStream(out, compression, blockSize);
+        StreamRDFOps.graphToStream(graph, stream);
+        return out.toByteArray();
+    }
+
+    private static Graph read(byte[] bytes) {
+        Graph g2 = GraphFactory.createDefaultGraph();
+        RDFBlocks.inputStreamToStreamRDF(new ByteArrayInputStream(bytes), StreamRDFLib.graph(g2));
+        return g2;
+    }
+
+    // Same terms, including blank node labels.
+    private static void sameTriples(Graph expected, Graph actual) {
+        assertEquals(expected.size(), actual.size());
+        expected.find().forEachRemaining(t -> assertTrue("Missing: "+t, actual.contains(t)));
+    }
+
+    private static void testGraph(Compression compression, int blockSize) {
+        byte[] bytes = write(compression, blockSize, graph);
+        sameTriples(graph, read(bytes));
+    }
+
+    @Test public void blocks_graph_01() { testGraph(Compression.LZ4, RDFBlocks.DftBlockSize); }
+    @Test public void blocks_graph_02() { testGraph(Compression.DEFLATE, RDFBlocks.DftBlockSize); }
+    @Test public void blocks_graph_03() { testGraph(Compression.NONE, RDFBlocks.DftBlockSize); }
+    @Test public void blocks_graph_04() { testGraph(Compression.LZ4, 1); }
+    @Test public void blocks_graph_05() { testGraph(Compression.DEFLATE, 3); }
+
+    @Test public void blocks_graph_empty() {
+        Graph empty = GraphFactory.createDefaultGraph();
+        byte[] bytes = write(Compression.LZ4, 10, empty);
+        assertEquals(0, read(bytes).size());
+    }
+
+    @Test public void blocks_dataset_01() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFWriter.source(datasetGraph).format(RDFFormat.RDF_BLOCKS).set(RIOT.symRDFBlocksSize, 2).output(out);
+        DatasetGraph dsg2 = DatasetGraphFactory.createTxnMem();
+        RDFParser.source(new ByteArrayInputStream(out.toByteArray())).lang(Lang.RDFBLOCKS).parse(dsg2);
+        List<Quad> expected = new ArrayList<>();
+        datasetGraph.find().forEachRemaining(expected::add);
+        assertEquals(expected.size(), dsg2.stream().count());
+        for ( Quad q : expected )
+            assertTrue("Missing: "+q, dsg2.contains(q));
+    }
+
+    @Test public void blocks_prefixes_01() {
+        Graph g = GraphFactory.createDefaultGraph();
+        GraphUtil.addInto(g, graph);
+        g.getPrefixMapping().setNsPrefix("", "http://example/");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, g, RDFFormat.RDF_BLOCKS);
+        Graph g2 = GraphFactory.createDefaultGraph();
+        RDFParser.source(new ByteArrayInputStream(out.toByteArray())).lang(Lang.RDFBLOCKS).parse(g2);
+        assertEquals("http://example/", g2.getPrefixMapping().getNsPrefixURI(""));
+        sameTriples(graph, g2);
+    }
+
+    @Test public void blocks_smaller_01() {
+        // Repeated terms are written once per block.
+        Graph g = GraphFactory.createDefaultGraph();
+        for ( int i = 0 ; i < 1000 ; i++ )
+            g.add(Triple.create(NodeFactory.createURI("http://example/subject/"+(i/10)),
+                                NodeFactory.createURI("http://example/predicate/"+(i%3)),
+                                NodeFactory.createURI("http://example/object/"+i)));
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+        RDFDataMgr.write(out1, g, RDFFormat.RDF_PROTO);
+        byte[] bytes = write(Compression.NONE, RDFBlocks.DftBlockSize, g);
+        assertTrue(bytes.length < out1.size()/2);
+        sameTriples(g, read(bytes));
+    }
+
+    @Test public void blocks_bad_01() {
+        byte[] bytes = write(Compression.LZ4, 10, graph);
+        bytes[0] = 'X';
+        try {
+            read(bytes);
+            fail("Expected an exception");
+        } catch (RiotProtobufException ex) {}
+    }
+
+    @Test public void blocks_bad_02() {
+        byte[] bytes = write(Compression.NONE, 100, graph);
+        // Truncate inside the first block.
+        byte[] bytes2 = new byte[20];
+        System.arraycopy(bytes, 0, bytes2, 0, bytes2.length);
+        try {
+            read(bytes2);
+            fail("Expected an exception");
+        } catch (RiotProtobufException ex) {}
+    }
+
+    private static List<Triple> data(int n) {
+        List<Triple> triples = new ArrayList<>();
+        for ( int i = 0 ; i < n ; i++ )
+            triples.add(Triple.create(NodeFactory.createURI("http://example/s"+i),
+                                      NodeFactory.createURI("http://example/p"),
+                                      NodeFactory.createLiteral("value "+i)));
+        return triples;
+    }
+
+    private static Path writeFile(List<Triple> triples, int blockSize) throws IOException {
+        Path path = Files.createTempFile("rdf-blocks", ".rdfb");
+        path.toFile().deleteOnExit();
+        try ( OutputStream out = Files.newOutputStream(path) ) {
+            StreamRDF stream = RDFBlocks.streamToOutputStream(out, Compression.LZ4, blockSize);
+            stream.start();
+            triples.forEach(stream::triple);
+            stream.finish();
+        }
+        return path;
+    }
+
+    private static StreamRDF collect(List<Triple> triples) {
+        return new StreamRDFBase() {
+            @Override public void triple(Triple triple) { triples.add(triple); }
+        };
+    }
+
+    @Test public void blocks_file_01() throws IOException {
+        List<Triple> triples = data(1005);
+        Path path = writeFile(triples, 100);
+        try ( RDFBlocksFile file = RDFBlocks.open(path) ) {
+            assertEquals(11, file.getNumBlocks());
+            assertEquals(100, file.getNumRows(0));
+            assertEquals(5, file.getNumRows(10));
+            assertEquals(1005, file.getNumRows());
+
+            List<Triple> all = new ArrayList<>();
+            file.read(0, collect(all));
+            assertEquals(triples, all);
+
+            // From a block.
+            List<Triple> fromBlock = new ArrayList<>();
+            file.read(10, collect(fromBlock));
+            assertEquals(triples.subList(1000, 1005), fromBlock);
+
+            List<Triple> block = new ArrayList<>();
+            file.readBlock(3, collect(block));
+            assertEquals(triples.subList(300, 400), block);
+        }
+    }
+
+    @Test public void blocks_file_parallel_01() throws IOException {
+        List<Triple> triples = data(10_000);
+        Path path = writeFile(triples, 250);
+        try ( RDFBlocksFile file = RDFBlocks.open(path) ) {
+            List<Triple> results = new ArrayList<>();
+            file.readParallel(collect(results), 4);
+            // In file order.
+            assertEquals(triples, results);
+        }
+    }
+
+    @Test public void blocks_file_stream_01() throws IOException {
+        // The sequential reader reads a file with an index.
+        List<Triple> triples = data(500);
+        Path path = writeFile(triples, 64);
+        Graph g2 = GraphFactory.createDefaultGraph();
+        RDFParser.source(path).parse(g2);
+        assertEquals(500, g2.size());
+        triples.forEach(t -> assertTrue(g2.contains(t)));
+    }
+}
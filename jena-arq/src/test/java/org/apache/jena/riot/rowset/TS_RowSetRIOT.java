@@ -18,14 +18,20 @@
 
 package org.apache.jena.riot.rowset;
 
+import org.apache.jena.riot.rowset.rw.TestRowSetColumnar;
+import org.apache.jena.riot.rowset.rw.TestRowSetReaderStreaming;
 import org.apache.jena.riot.rowset.rw.TestRowSetWriterCSV;
+import org.apache.jena.riot.rowset.rw.TestRowSetWriterJSON;
 import org.apache.jena.riot.rowset.rw.TestRowSetWriterTSV;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
+    TestRowSetColumnar.class,
+    TestRowSetReaderStreaming.class,
     TestRowSetWriterCSV.class,
+    TestRowSetWriterJSON.class,
     TestRowSetWriterTSV.class
 })
 
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.rowset.rw;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.riot.rowset.RowSetWriterRegistry;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.apache.jena.sparql.resultset.ResultSetException;
+import org.apache.jena.sparql.sse.SSE;
+import org.junit.Test;
+
+public class TestRowSetColumnar {
+
+    private static final Var x = Var.alloc("x");
+    private static final Var y = Var.alloc("y");
+
+    private static byte[] write(List<Binding> rows, int batchSize) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarResults.write(out, RowSetStream.create(List.of(x, y), rows.iterator()), batchSize);
+        return out.toByteArray();
+    }
+
+    private static List<Binding> read(byte[] bytes) {
+        RowSet rowSet = ColumnarResults.read(new ByteArrayInputStream(bytes));
+        assertEquals(List.of(x, y), rowSet.getResultVars());
+        List<Binding> results = new ArrayList<>();
+        rowSet.forEachRemaining(results::add);
+        return results;
+    }
+
+    private static void roundTrip(List<Binding> rows, int batchSize) {
+        assertEquals(rows, read(write(rows, batchSize)));
+    }
+
+    private static Binding row(Node nx, Node ny) {
+        BindingBuilder builder = Binding.builder();
+        if ( nx != null )
+            builder.add(x, nx);
+        if ( ny != null )
+            builder.add(y, ny);
+        return builder.build();
+    }
+
+    private static Node integer(String lex) {
+        return NodeFactory.createLiteral(lex, XSDDatatype.XSDinteger);
+    }
+
+    @Test public void columnar_terms() {
+        List<Binding> rows = List.of(
+            row(SSE.parseNode("<http://example/s>"), SSE.parseNode("'abc'")),
+            row(SSE.parseNode("<http://example/😀>"), SSE.parseNode("'abc'@en")),
+            row(SSE.parseNode("_:b0"), SSE.parseNode("'1.5'^^<http://www.w3.org/2001/XMLSchema#decimal>")),
+            row(SSE.parseNode("<<<http://example/s> <http://example/p> 'o'>>"), null),
+            row(null, null),
+            row(SSE.parseNode("<http://example/s>"), SSE.parseNode("'abc'")));
+        roundTrip(rows, 10);
+        roundTrip(rows, 2);
+        roundTrip(rows, 1);
+    }
+
+    @Test public void columnar_integers() {
+        List<Binding> rows = List.of(
+            row(integer("0"), integer("-1")),
+            row(integer(Long.toString(Long.MAX_VALUE)), integer(Long.toString(Long.MIN_VALUE))),
+            row(null, integer("123")),
+            row(integer("-5"), null));
+        roundTrip(rows, 10);
+        roundTrip(rows, 3);
+    }
+
+    @Test public void columnar_integers_not_canonical() {
+        // Written as terms, not numbers.
+        List<Binding> rows = List.of(
+            row(integer("007"), integer("+1")),
+            row(integer("-0"), integer("99999999999999999999")));
+        roundTrip(rows, 10);
+        assertFalse(ColumnarResults.isInteger(integer("007")));
+        assertFalse(ColumnarResults.isInteger(integer("-0")));
+        assertFalse(ColumnarResults.isInteger(integer("9223372036854775808")));
+        assertTrue(ColumnarResults.isInteger(integer("9223372036854775807")));
+    }
+
+    @Test public void columnar_empty() {
+        assertEquals(List.of(), read(write(List.of(), 10)));
+    }
+
+    @Test public void columnar_dictionary_reset() {
+        List<Binding> rows = new ArrayList<>();
+        int N = ColumnarResults.MaxDictSize + 1000;
+        for ( int i = 0 ; i < N ; i++ )
+            rows.add(row(NodeFactory.createURI("http://example/s"+i), NodeFactory.createLiteral("v"+(i%7))));
+        roundTrip(rows, 5000);
+    }
+
+    @Test public void columnar_smaller() {
+        List<Binding> rows = new ArrayList<>();
+        for ( int i = 0 ; i < 10_000 ; i++ )
+            rows.add(row(NodeFactory.createURI("http://example/subject/"+(i%100)), integer(Integer.toString(i))));
+        byte[] bytes = write(rows, ColumnarResults.DftBatchSize);
+        ByteArrayOutputStream tsv = new ByteArrayOutputStream();
+        RowSetWriterRegistry.getFactory(ResultSetLang.RS_TSV).create(ResultSetLang.RS_TSV)
+            .write(tsv, RowSetStream.create(List.of(x, y), rows.iterator()), null);
+        assertTrue(bytes.length < tsv.size()/4);
+        assertEquals(rows, read(bytes));
+    }
+
+    @Test public void columnar_bad_01() {
+        byte[] bytes = write(List.of(row(integer("1"), null)), 10);
+        bytes[0] = 'X';
+        try {
+            read(bytes);
+            fail("Expected an exception");
+        } catch (ResultSetException ex) {}
+    }
+
+    @Test public void columnar_bad_02() {
+        byte[] bytes = write(List.of(row(integer("1"), null)), 10);
+        // No end marker.
+        byte[] bytes2 = new byte[bytes.length-1];
+        System.arraycopy(bytes, 0, bytes2, 0, bytes2.length);
+        try {
+            read(bytes2);
+            fail("Expected an exception");
+        } catch (ResultSetException ex) {}
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.rowset.rw;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntFunction;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.riot.rowset.RowSetReaderRegistry;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.exec.RowSet;
+import org.junit.Test;
+
+/** Result set readers parse rows as they are needed, not all the input first. */
+public class TestRowSetReaderStreaming {
+
+    private static final int Rows = 1_000_000;
+
+    /** Input generated as it is read, counting the bytes read. */
+    static class GeneratedInput extends InputStream {
+        private final IntFunction<String> row;
+        private final String footer;
+        private byte[] current;
+        private int idx = 0;
+        private int rowNum = 0;
+        private boolean finished = false;
+        long bytesRead = 0;
+
+        GeneratedInput(String header, IntFunction<String> row, String footer) {
+            this.row = row;
+            this.footer = footer;
+            this.current = bytes(header);
+        }
+
+        private static byte[] bytes(String string) {
+            return string.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            while ( idx == current.length ) {
+                if ( finished )
+                    return -1;
+                idx = 0;
+                if ( rowNum < Rows )
+                    current = bytes(row.apply(rowNum++));
+                else {
+                    current = bytes(footer);
+                    finished = true;
+                }
+            }
+            bytesRead++;
+            return current[idx++] & 0xFF;
+        }
+    }
+
+    private static void test(Lang lang, GeneratedInput input, Node expected) {
+        RowSet rowSet = RowSetReaderRegistry.getFactory(lang).create(lang).read(input, null);
+        Var x = Var.alloc("x");
+        Binding b = null;
+        for ( int i = 0 ; i < 10 ; i++ ) {
+            assertTrue(rowSet.hasNext());
+            b = rowSet.next();
+        }
+        assertEquals(expected, b.get(x));
+        // Bounded by buffering in the parsers, not the size of the input.
+        assertTrue("Bytes read: "+input.bytesRead, input.bytesRead < 1024*1024);
+        rowSet.close();
+    }
+
+    @Test public void streaming_xml() {
+        GeneratedInput input = new GeneratedInput(
+            "<?xml version=\"1.0\"?>\n<sparql xmlns=\"http://www.w3.org/2005/sparql-results#\">\n<head><variable name=\"x\"/></head>\n<results>\n",
+            i -> "<result><binding name=\"x\"><uri>http://example/"+i+"</uri></binding></result>\n",
+            "</results>\n</sparql>\n");
+        test(ResultSetLang.RS_XML, input, NodeFactory.createURI("http://example/9"));
+    }
+
+    @Test public void streaming_json() {
+        GeneratedInput input = new GeneratedInput(
+            "{ \"head\": { \"vars\": [ \"x\" ] } , \"results\": { \"bindings\": [\n",
+            i -> (i == 0 ? "" : ",\n")+"{ \"x\": { \"type\": \"uri\" , \"value\": \"http://example/"+i+"\" } }",
+            "\n] } }\n");
+        test(ResultSetLang.RS_JSON, input, NodeFactory.createURI("http://example/9"));
+    }
+
+    @Test public void streaming_csv() {
+        GeneratedInput input = new GeneratedInput("x\r\n", i -> "value "+i+"\r\n", "");
+        test(ResultSetLang.RS_CSV, input, NodeFactory.createLiteral("value 9"));
+    }
+
+    @Test public void streaming_tsv() {
+        GeneratedInput input = new GeneratedInput("?x\n", i -> "<http://example/"+i+">\n", "");
+        test(ResultSetLang.RS_TSV, input, NodeFactory.createURI("http://example/9"));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.rowset.rw;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.json.io.JSWriter;
+import org.apache.jena.atlas.lib.StrUtils;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.riot.rowset.RowSetWriter;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.exec.RowSet;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.sparql.sse.SSE;
+import org.junit.Test;
+
+public class TestRowSetWriterJSON {
+
+    private static String write(RowSet rowSet) {
+        RowSetWriter writer = RowSetWriterJSON.factory.create(ResultSetLang.RS_JSON);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(out, rowSet, null);
+        return out.toString(UTF_8);
+    }
+
+    private static RowSet rowSet(String tableStr) {
+        return SSE.parseTable(tableStr).toRowSet();
+    }
+
+    @Test
+    public void testFactory() {
+        RowSetWriter writer = RowSetWriterJSON.factory.create(ResultSetLang.RS_JSON);
+        assertNotNull(writer);
+    }
+
+    @Test
+    public void json_write_01() {
+        String x = write(rowSet("(table (vars ?x ?y) (row (?x <http://example/a>) (?y 'abc'@en)) (row (?y 1)) (row))"));
+        String expected = StrUtils.strjoinNL(
+            "{ \"head\": {",
+            "    \"vars\": [ \"x\" , \"y\" ]",
+            "  } ,",
+            "  \"results\": {",
+            "    \"bindings\": [",
+            "      { ",
+            "        \"x\": { \"type\": \"uri\" , \"value\": \"http://example/a\" } ,",
+            "        \"y\": { \"type\": \"literal\" , \"xml:lang\": \"en\" , \"value\": \"abc\" }",
+            "      } ,",
+            "      { ",
+            "        \"y\": { \"type\": \"literal\" , \"datatype\": \"http://www.w3.org/2001/XMLSchema#integer\" , \"value\": \"1\" }",
+            "      } ,",
+            "      { ",
+            "      }",
+            "    ]",
+            "  }",
+            "}",
+            "");
+        assertEquals(expected, x);
+    }
+
+    @Test
+    public void json_write_02() {
+        String x = write(rowSet("(table (vars ?x))"));
+        String expected = StrUtils.strjoinNL(
+            "{ \"head\": {",
+            "    \"vars\": [ \"x\" ]",
+            "  } ,",
+            "  \"results\": {",
+            "    \"bindings\": [",
+            "      ",
+            "    ]",
+            "  }",
+            "}",
+            "");
+        assertEquals(expected, x);
+    }
+
+    @Test
+    public void json_write_triple_term() {
+        String x = write(rowSet("(table (vars ?x) (row (?x <<<http://example/s> <http://example/p> 'o'>>)))"));
+        String expected = StrUtils.strjoinNL(
+            "        \"x\": {",
+            "          \"type\": \"triple\" , ",
+            "          \"value\": {",
+            "            \"subject\":  { \"type\": \"uri\" , \"value\": \"http://example/s\" } ,",
+            "            \"predicate\": { \"type\": \"uri\" , \"value\": \"http://example/p\" } ,",
+            "            \"object\":   { \"type\": \"literal\" , \"value\": \"o\" }",
+            "          }",
+            "        }");
+        assertTrue(x, x.contains(expected));
+    }
+
+    // Escapes are the same as JSWriter.
+    private static void testEscapes(String string) {
+        Var var = Var.alloc("v");
+        Binding b = BindingFactory.binding(var, NodeFactory.createLiteral(string));
+        String x = write(RowSetStream.create(List.of(var), List.of(b).iterator()));
+        String expected = "\"value\": "+JSWriter.outputQuotedString(string)+" }";
+        assertTrue(x, x.contains(expected));
+    }
+
+    @Test public void json_escape_01() { testEscapes("a\"b\\c"); }
+    @Test public void json_escape_02() { testEscapes("</script> a/b"); }
+    @Test public void json_escape_03() { testEscapes("\b\f\n\r\t\u0001\u001F\u007F\u0085\u009F"); }
+    @Test public void json_escape_04() { testEscapes("\u00A0\u00E9\u0800\u2000\u2028\u20FF\u2100\uFFFD"); }
+    @Test public void json_escape_05() { testEscapes("\uD83D\uDE00 emoji"); }
+
+    @Test
+    public void json_write_large() {
+        // More than the output buffer, repeated and distinct IRIs, a long literal.
+        Var s = Var.alloc("s");
+        Var o = Var.alloc("o");
+        List<Binding> rows = new ArrayList<>();
+        String longString = "x".repeat(100_000)+"\"é";
+        for ( int i = 0 ; i < 20_000 ; i++ ) {
+            Node subj = NodeFactory.createURI("http://example/s"+(i%3 == 0 ? i : 0));
+            Node obj = ( i % 5000 == 0 )
+                ? NodeFactory.createLiteral(longString)
+                : NodeFactory.createLiteral("value "+i, "en");
+            rows.add(BindingFactory.binding(s, subj, o, obj));
+        }
+        String x = write(RowSetStream.create(List.of(s, o), rows.iterator()));
+        RowSet rs1 = RowSetStream.create(List.of(s, o), rows.iterator());
+        RowSet rs2 = RowSet.adapt(ResultSetMgr.read(new ByteArrayInputStream(x.getBytes(UTF_8)), ResultSetLang.RS_JSON));
+        assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+    }
+}
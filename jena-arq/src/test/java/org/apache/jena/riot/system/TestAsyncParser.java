@@ -31,6 +31,8 @@ import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
@@ -98,6 +100,95 @@ public class TestAsyncParser {
         assertEquals(0, graph.size());
     }
 
+    private static List<RDFParserBuilder> sources(int numSources, int numTriples) {
+        List<RDFParserBuilder> sources = new ArrayList<>();
+        for ( int i = 0 ; i < numSources ; i++ ) {
+            StringBuilder sb = new StringBuilder();
+            for ( int j = 0 ; j < numTriples ; j++ )
+                sb.append("<urn:example:s"+i+"> <urn:example:p> \"o"+j+"\" .\n");
+            sources.add(RDFParser.fromString(sb.toString()).lang(Lang.NT));
+        }
+        return sources;
+    }
+
+    @Test
+    public void parallel_1() {
+        // Ordered: same as one parser thread.
+        List<Triple> expected = AsyncParser.ofSources(sources(10, 100)).setChunkSize(7).streamTriples().collect(Collectors.toList());
+        List<Triple> actual = AsyncParser.ofSources(sources(10, 100)).setChunkSize(7).setQueueSize(2)
+                .setParallelism(4).streamTriples().collect(Collectors.toList());
+        assertEquals(1000, expected.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void parallel_2() {
+        // Unordered: same triples, and the triples of each source are in order.
+        List<Triple> expected = AsyncParser.ofSources(sources(10, 100)).streamTriples().collect(Collectors.toList());
+        List<Triple> actual = AsyncParser.ofSources(sources(10, 100)).setChunkSize(7).setQueueSize(2)
+                .setParallelism(4).setOrdered(false).streamTriples().collect(Collectors.toList());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+        assertEquals(expected.size(), actual.size());
+        for ( int i = 0 ; i < 10 ; i++ ) {
+            String s = "urn:example:s"+i;
+            List<Triple> x1 = expected.stream().filter(t->t.getSubject().getURI().equals(s)).collect(Collectors.toList());
+            List<Triple> x2 = actual.stream().filter(t->t.getSubject().getURI().equals(s)).collect(Collectors.toList());
+            assertEquals(x1, x2);
+        }
+    }
+
+    @Test
+    public void parallel_3() {
+        Graph graph = GraphFactory.createDefaultGraph();
+        AsyncParser.ofSources(sources(5, 10)).setParallelism(3).setOrdered(false).asyncParseSources(StreamRDFLib.graph(graph));
+        assertEquals(50, graph.size());
+    }
+
+    @Test(expected = RiotException.class)
+    public void parallel_4() {
+        List<RDFParserBuilder> sources = new ArrayList<>(sources(5, 10));
+        sources.add(2, RDFParser.fromString("<urn:example:s> <urn:example:p>").lang(Lang.NT).errorHandler(ErrorHandlerFactory.errorHandlerNoLogging));
+        AsyncParser.ofSources(sources).setParallelism(3).streamTriples().count();
+    }
+
+    @Test
+    public void parallel_metrics_1() {
+        AsyncParserMetrics metrics = new AsyncParserMetrics();
+        long count = AsyncParser.ofSources(sources(10, 100)).setChunkSize(10).setParallelism(3).setMetrics(metrics)
+                .streamTriples().count();
+        assertEquals(1000, count);
+        assertEquals(10, metrics.getSourcesStarted());
+        assertEquals(10, metrics.getSourcesFinished());
+        assertEquals(1000, metrics.getElementsProduced());
+        assertEquals(1000, metrics.getElementsConsumed());
+        assertEquals(100, metrics.getChunksConsumed());
+        assertEquals(0, metrics.getQueueDepth());
+    }
+
+    /** Closing a parallel parse early does not leave threads behind. */
+    @Test
+    public void parallel_cancel_1() {
+        int beforeThreadCount = ManagementFactory.getThreadMXBean().getThreadCount();
+        for (int i = 0; i < 20; ++i) {
+            List<RDFParserBuilder> sources = List.of(
+                RDFParser.source(openInfiniteNtStream()).lang(Lang.NT),
+                RDFParser.source(openInfiniteNtStream()).lang(Lang.NT),
+                RDFParser.source(openInfiniteNtStream()).lang(Lang.NT));
+            IteratorCloseable<Triple> iter = AsyncParser.ofSources(sources).setChunkSize(10).setQueueSize(2)
+                                                        .setParallelism(2).setOrdered(i % 2 == 0).asyncParseTriples();
+            try {
+                iter.next();
+            } finally {
+                iter.close();
+            }
+        }
+        int afterThreadCount = ManagementFactory.getThreadMXBean().getThreadCount();
+        int threadCountDifference = Math.abs(afterThreadCount - beforeThreadCount);
+        Assert.assertTrue("Cancelling RDF parsing resulted in too many dangling threads ("
+                + threadCountDifference + ")",
+                threadCountDifference <= 5);
+    }
+
     private static void test(String filename) {
         Graph graph1 = GraphFactory.createDefaultGraph();
         Graph graph2 = GraphFactory.createDefaultGraph();
@@ -41,6 +41,17 @@ public class TestFactoryRDFCaching extends TestFactoryRDF {
         Node n3 = factory.createURI("http://test/n1") ;
         assertSame(n1, n3); 
     }
-}
 
+    @Test public void factory_cache_03() {
+        // Shared across factories (parser runs).
+        FactoryRDF factory2 = new FactoryRDFCaching(100, LabelToNode.createUseLabelAsGiven()) ;
+        Node n1 = factory.createURI("http://test/n1") ;
+        Node n2 = factory2.createURI("http://test/n1") ;
+        assertSame(n1, n2);
+    }
 
+    @Test public void factory_cache_04() {
+        Node n1 = factory.createURI("_:b") ;
+        assertTrue(n1.isBlank());
+    }
+}
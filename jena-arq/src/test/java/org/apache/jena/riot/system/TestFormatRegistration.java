@@ -62,6 +62,10 @@ public class TestFormatRegistration
 
         add("TRDF",     x, RDFFormat.RDF_THRIFT, true, true) ;
         add("TRDF",     x, RDFFormat.RDF_THRIFT_VALUES, true, true) ;
+
+        add("RDFB",     x, RDFFormat.RDF_BLOCKS, true, true) ;
+        add("RDFB",     x, RDFFormat.RDF_BLOCKS_DEFLATE, true, true) ;
+        add("RDFB",     x, RDFFormat.RDF_BLOCKS_UNCOMPRESSED, true, true) ;
         return x ;
     }
 
@@ -53,6 +53,7 @@ public class TestLangRegistration
         add("TRIX",     x, Lang.TRIX,       true, true) ;
         add("PB RDF",   x, Lang.RDFPROTO,   true, true) ;
         add("TRDF",     x, Lang.RDFTHRIFT,  true, true) ;
+        add("RDFB",     x, Lang.RDFBLOCKS,  true, true) ;
         return x ;
     }
 
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.tokens;
+
+import static org.apache.jena.riot.system.ErrorHandlerFactory.errorHandlerExceptions;
+import static org.apache.jena.riot.system.ErrorHandlerFactory.errorHandlerSimple;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.system.ErrorHandler;
+import org.apache.jena.riot.system.ErrorHandlerFactory.ErrorHandlerRecorder;
+import org.junit.Test;
+
+/** {@link TokenizerText} reading UTF-8 bytes directly produces the same tokens as reading characters. */
+public class TestTokenizerDirectBytes {
+
+    private static Tokenizer tokenizerText(byte[] bytes) {
+        return TokenizerText.create().source(new ByteArrayInputStream(bytes)).errorHandler(errorHandlerExceptions()).build();
+    }
+
+    private static Tokenizer tokenizerBytes(InputStream input, ErrorHandler errorHandler) {
+        return TokenizerText.create().source(input).directBytes(true).errorHandler(errorHandler).build();
+    }
+
+    private static Tokenizer tokenizerBytes(ByteBuffer bytes, ErrorHandler errorHandler) {
+        return TokenizerText.create().source(bytes).errorHandler(errorHandler).build();
+    }
+
+    private static List<Token> tokens(Tokenizer tokenizer) {
+        List<Token> tokens = new ArrayList<>();
+        while ( tokenizer.hasNext() )
+            tokens.add(tokenizer.next());
+        return tokens;
+    }
+
+    // Compare tokens including subtokens, string type and position.
+    private static void sameTokens(List<Token> expected, List<Token> actual) {
+        assertEquals(expected.size(), actual.size());
+        for ( int i = 0 ; i < expected.size() ; i++ ) {
+            Token t1 = expected.get(i);
+            Token t2 = actual.get(i);
+            assertEquals(t1, t2);
+            assertEquals(t1.getSubToken1(), t2.getSubToken1());
+            assertEquals(t1.getSubToken2(), t2.getSubToken2());
+            assertEquals(t1.getStringType(), t2.getStringType());
+            assertEquals("Line: "+t1, t1.getLine(), t2.getLine());
+        }
+    }
+
+    private static void testSame(String string) {
+        testSame(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void testSame(byte[] bytes) {
+        List<Token> expected = tokens(tokenizerText(bytes));
+        sameTokens(expected, tokens(tokenizerBytes(new ByteArrayInputStream(bytes), errorHandlerExceptions())));
+        sameTokens(expected, tokens(tokenizerBytes(ByteBuffer.wrap(bytes), errorHandlerExceptions())));
+        // Direct buffer.
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        sameTokens(expected, tokens(tokenizerBytes(direct, errorHandlerExceptions())));
+        // Every token crosses a buffer boundary.
+        sameTokens(expected, tokens(tokenizerBytes(new OneByteInputStream(bytes), errorHandlerExceptions())));
+    }
+
+    private static void testBad(String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        try {
+            tokens(tokenizerBytes(new ByteArrayInputStream(bytes), errorHandlerExceptions()));
+            fail("Expected a parse exception: "+string);
+        } catch (RiotParseException ex) {}
+    }
+
+    /** Returns at most one byte for each read. */
+    private static class OneByteInputStream extends InputStream {
+        private final ByteArrayInputStream in;
+        OneByteInputStream(byte[] bytes) { in = new ByteArrayInputStream(bytes); }
+        @Override public int read() { return in.read(); }
+        @Override public int read(byte[] b, int off, int len) { return in.read(b, off, Math.min(len, 1)); }
+    }
+
+    @Test public void tokenizerBytes_iri_1() { testSame("<http://example/abc>"); }
+    @Test public void tokenizerBytes_iri_2() { testSame("<>"); }
+    @Test public void tokenizerBytes_iri_3() { testSame("<http://example/\\u00E9\\U0001F600>"); }
+    @Test public void tokenizerBytes_iri_4() { testSame("<http://example/é/ü>"); }
+    @Test public void tokenizerBytes_iri_5() { testSame("<<<a>>>"); }
+
+    @Test public void tokenizerBytes_string_1() { testSame("'abc' \"def\" '' \"\""); }
+    @Test public void tokenizerBytes_string_2() { testSame("'a\\'b\\n\\u0041' \"\\t\\\"\""); }
+    @Test public void tokenizerBytes_string_3() { testSame("\"café\" '中文' \"😀\""); }
+    @Test public void tokenizerBytes_string_4() { testSame("'''a\n'b''c''' \"\"\"x\ny\"\"\""); }
+    @Test public void tokenizerBytes_string_5() { testSame("\"a\rb\""); }
+
+    @Test public void tokenizerBytes_literal_1() { testSame("'abc'@en-GB 'abc'^^<http://example/dt> 'x' ^^ xsd:string"); }
+
+    @Test public void tokenizerBytes_bnode_1() { testSame("_:b0 _:abc-def_1 _:a.b _:a.."); }
+    @Test public void tokenizerBytes_bnode_2() { testSame("_:b0._:b1 ._:éx _:x·y."); }
+    @Test public void tokenizerBytes_bnode_3() { testSame("_:b"); }
+
+    @Test public void tokenizerBytes_pname_1() { testSame("@prefix : <http://example/> . :a ex:b ex:c.d. ex: a true"); }
+    @Test public void tokenizerBytes_pname_2() { testSame("ex:a%20b ex:a\\.b ex:été"); }
+
+    @Test public void tokenizerBytes_number_1() { testSame("1 -2 +3 1.5 .5 1e10 1.0E-3 0x1F 12."); }
+
+    @Test public void tokenizerBytes_symbols_1() { testSame("( ) [ ] { } {| |} << >> ; , . = * ! & |"); }
+
+    @Test public void tokenizerBytes_comment_1() { testSame("# Comment\n<a> # Comment\r\n<b> .#\n"); }
+
+    @Test public void tokenizerBytes_ntriples_1() {
+        testSame("<http://example/s> <http://example/p> \"o\" .\n"+
+                 "_:b1 <http://example/p> \"o\"@en <http://example/g> .\n"+
+                 "<http://example/s> <http://example/p> \"1\"^^<http://www.w3.org/2001/XMLSchema#integer> .\n");
+    }
+
+    @Test public void tokenizerBytes_bom_1() {
+        testSame("﻿<http://example/s> <http://example/p> 'o' .");
+    }
+
+    @Test public void tokenizerBytes_bad_utf8_1() {
+        // Malformed UTF-8 becomes the replacement character, with a warning.
+        byte[] bytes = { '"', 'a', (byte)0xC3, 'b', '"' };
+        ErrorHandlerRecorder errorHandler = new ErrorHandlerRecorder(errorHandlerSimple());
+        Tokenizer tokenizer = tokenizerBytes(new ByteArrayInputStream(bytes), errorHandler);
+        Token token = tokenizer.next();
+        assertEquals("a�b", token.getImage());
+        assertEquals(1, errorHandler.getWarningCount());
+        assertFalse(tokenizer.hasNext());
+    }
+
+    @Test public void tokenizerBytes_long_token_1() {
+        // Longer than the buffer.
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < 200_000 ; i++ )
+            sb.append((char)('a'+i%26));
+        testSame("<http://example/"+sb+"> \""+sb+"\" _:"+sb);
+    }
+
+    @Test public void tokenizerBytes_position_1() {
+        Tokenizer tokenizer = tokenizerBytes(ByteBuffer.wrap("<a>\n  'b' _:c".getBytes(StandardCharsets.UTF_8)), errorHandlerExceptions());
+        Token token = tokenizer.next();
+        assertEquals(1, token.getLine());
+        assertEquals(1, token.getColumn());
+        token = tokenizer.next();
+        assertEquals(2, token.getLine());
+        assertEquals(3, token.getColumn());
+        token = tokenizer.next();
+        assertEquals(2, token.getLine());
+        assertEquals(7, token.getColumn());
+        assertTrue(tokenizer.eof());
+    }
+
+    @Test public void tokenizerBytes_bad_1() { testBad("<http://example/"); }
+    @Test public void tokenizerBytes_bad_2() { testBad("<http://example/\nabc>"); }
+    @Test public void tokenizerBytes_bad_3() { testBad("'abc"); }
+    @Test public void tokenizerBytes_bad_4() { testBad("'ab\nc'"); }
+    @Test public void tokenizerBytes_bad_5() { testBad("_:"); }
+    @Test public void tokenizerBytes_bad_6() { testBad("<a b>"); }
+}
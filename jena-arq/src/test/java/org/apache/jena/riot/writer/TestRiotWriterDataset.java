@@ -46,6 +46,7 @@ public class TestRiotWriterDataset extends AbstractWriterTest
             , { RDFFormat.TRIG_PRETTY }
             , { RDFFormat.TRIG_BLOCKS }
             , { RDFFormat.TRIG_FLAT }
+            , { RDFFormat.TRIG_STREAMING }
             , { RDFFormat.JSONLD }
             , { RDFFormat.JSONLD_PRETTY }
             , { RDFFormat.JSONLD_FLAT }
@@ -56,6 +57,9 @@ public class TestRiotWriterDataset extends AbstractWriterTest
             , { RDFFormat.RDF_PROTO_VALUES }
             , { RDFFormat.RDF_THRIFT }
             , { RDFFormat.RDF_THRIFT_VALUES }
+            , { RDFFormat.RDF_BLOCKS }
+            , { RDFFormat.RDF_BLOCKS_DEFLATE }
+            , { RDFFormat.RDF_BLOCKS_UNCOMPRESSED }
             , { RDFFormat.TRIX }
         });
     }
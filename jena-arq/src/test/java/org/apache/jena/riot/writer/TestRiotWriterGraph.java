@@ -51,6 +51,7 @@ public class TestRiotWriterGraph extends AbstractWriterTest
             , { RDFFormat.TURTLE_PRETTY }
             , { RDFFormat.TURTLE_BLOCKS }
             , { RDFFormat.TURTLE_FLAT }
+            , { RDFFormat.TURTLE_STREAMING }
             , { RDFFormat.RDFXML }
             , { RDFFormat.RDFXML_PRETTY }
             , { RDFFormat.RDFXML_PLAIN }
@@ -73,6 +74,7 @@ public class TestRiotWriterGraph extends AbstractWriterTest
             , { RDFFormat.TRIG_PRETTY }
             , { RDFFormat.TRIG_BLOCKS }
             , { RDFFormat.TRIG_FLAT }
+            , { RDFFormat.TRIG_STREAMING }
             , { RDFFormat.NQUADS_UTF8}
             , { RDFFormat.NQUADS_ASCII}
             , { RDFFormat.NQUADS}
@@ -81,6 +83,9 @@ public class TestRiotWriterGraph extends AbstractWriterTest
             , { RDFFormat.RDF_PROTO_VALUES }
             , { RDFFormat.RDF_THRIFT }
             , { RDFFormat.RDF_THRIFT_VALUES }
+            , { RDFFormat.RDF_BLOCKS }
+            , { RDFFormat.RDF_BLOCKS_DEFLATE }
+            , { RDFFormat.RDF_BLOCKS_UNCOMPRESSED }
 
             , { RDFFormat.TRIX }
         });
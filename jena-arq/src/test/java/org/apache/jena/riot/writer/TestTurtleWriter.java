@@ -29,6 +29,8 @@ import org.apache.jena.atlas.lib.Bytes;
 import org.apache.jena.rdf.model.Model ;
 import org.apache.jena.rdf.model.ModelFactory ;
 import org.apache.jena.riot.*;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.apache.jena.sparql.util.Context;
 import org.junit.Assert ;
 import org.junit.Test ;
@@ -99,6 +101,12 @@ public class TestTurtleWriter {
     @Test
     public void bnode_cycles_08() { blankNodeLang(cycle2, RDFFormat.TURTLE_PRETTY) ; }
 
+    @Test
+    public void bnode_cycles_09() { blankNodeLang(cycle1, RDFFormat.TURTLE_STREAMING) ; }
+
+    @Test
+    public void bnode_cycles_10() { blankNodeLang(cycle2, RDFFormat.TURTLE_STREAMING) ; }
+
     @Test
     public void bnode_cycles() {
         Model m = RDFDataMgr.loadModel("testing/DAWG-Final/construct/data-ident.ttl");
@@ -168,5 +176,123 @@ public class TestTurtleWriter {
             return result;
         } catch (IOException ex) { IO.exception(ex); return null;}
     }
-}
 
+    // Streaming pretty writer.
+    static String nested = String.join("\n",
+        "PREFIX : <http://example/>",
+        ":s :p [ :q 1 ; :r [ :q 2 ] ] ; :list ( 1 [ :q 3 ] ( 4 5 ) ) ; :empty () .",
+        ":s :p :o1 , :o2 .",
+        "_:b :p _:b .",
+        "_:x :p 1 . :a :p _:x . :b :p _:x .",
+        "[] :p 6 .",
+        "") ;
+
+    static String nestedTree = String.join("\n",
+        "PREFIX : <http://example/>",
+        ":s :p [ :q 1 ; :r [ :q 2 ] ] ; :list ( 1 [ :q 3 ] ( 4 5 ) ) ; :empty () .",
+        "[] :p [ :q 6 ] .",
+        "") ;
+
+    private static String streamingRoundTrip(Model m, Context cxt) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        RDFWriter.create(m).format(RDFFormat.TURTLE_STREAMING).context(cxt).output(output);
+        String result = Bytes.bytes2string(output.toByteArray());
+        Model m2 = ModelFactory.createDefaultModel();
+        RDFParser.fromString(result).lang(Lang.TTL).parse(m2);
+        Assert.assertTrue(result, m.isIsomorphicWith(m2));
+        return result;
+    }
+
+    @Test
+    public void streaming_01() {
+        Model m = ModelFactory.createDefaultModel();
+        RDFParser.fromString(nested).lang(Lang.TTL).parse(m);
+        String result = streamingRoundTrip(m, null);
+        Assert.assertTrue(result, result.contains("( 4 5 )"));
+        Assert.assertTrue(result, result.contains("[ :q  2 ]"));
+        Assert.assertTrue(result, result.contains(" , "));
+    }
+
+    @Test
+    public void streaming_02() {
+        // Window too small to bring the blank nodes together.
+        // Blank nodes used more than once must be within the window so only use tree-shaped data.
+        Model m = ModelFactory.createDefaultModel();
+        RDFParser.fromString(nestedTree).lang(Lang.TTL).parse(m);
+        Context cxt = RIOT.getContext().copy();
+        cxt.set(RIOT.symTurtleStreamingWindow, 1);
+        streamingRoundTrip(m, cxt);
+    }
+
+    @Test
+    public void streaming_03() {
+        // Stream, sorted by subject, with a list longer than the window.
+        StringBuilder sb = new StringBuilder("PREFIX : <http://example/> :s :p (");
+        for ( int i = 0 ; i < 100 ; i++ )
+            sb.append(" "+i);
+        sb.append(" ) .");
+        Model m = ModelFactory.createDefaultModel();
+        RDFParser.fromString(sb.toString()).lang(Lang.TTL).parse(m);
+        Context cxt = RIOT.getContext().copy();
+        cxt.set(RIOT.symTurtleStreamingWindow, 50);
+        streamingRoundTrip(m, cxt);
+        String result = streamingRoundTrip(m, null);
+        Assert.assertTrue(result, result.contains("( 0 1 2 "));
+    }
+
+    // Blank node used twice, far apart, window 5.
+    private static String farApart() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<http://example/a0> <http://example/p> _:x .\n");
+        sb.append("_:x <http://example/q> \"1\" .\n");
+        for ( int i = 0 ; i < 49 ; i++ )
+            sb.append("<http://example/f"+i+"> <http://example/p> \""+i+"\" .\n");
+        sb.append("<http://example/z> <http://example/p> _:x .\n");
+        return sb.toString();
+    }
+
+    private static String streamOutput(String ntriples, Context cxt) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StreamRDF stream = StreamRDFWriter.getWriterStream(output, RDFFormat.TURTLE_STREAMING, cxt);
+        stream.start();
+        RDFParser.fromString(ntriples).lang(Lang.NT).parse(stream);
+        stream.finish();
+        return Bytes.bytes2string(output.toByteArray());
+    }
+
+    @Test
+    public void streaming_04() {
+        // Graph: the blank node is used twice so it is not written inline.
+        Model m = ModelFactory.createDefaultModel();
+        RDFParser.fromString(farApart()).lang(Lang.NT).parse(m);
+        Context cxt = RIOT.getContext().copy();
+        cxt.set(RIOT.symTurtleStreamingWindow, 5);
+        String result = streamingRoundTrip(m, cxt);
+        Assert.assertFalse(result, result.contains("["));
+    }
+
+    @Test
+    public void streaming_05() {
+        // Stream: blank nodes are not written inline by default.
+        String data = farApart();
+        Context cxt = RIOT.getContext().copy();
+        cxt.set(RIOT.symTurtleStreamingWindow, 5);
+        String result = streamOutput(data, cxt);
+        Assert.assertFalse(result, result.contains("["));
+        Model m1 = ModelFactory.createDefaultModel();
+        RDFParser.fromString(data).lang(Lang.NT).parse(m1);
+        Model m2 = ModelFactory.createDefaultModel();
+        RDFParser.fromString(result).lang(Lang.TTL).parse(m2);
+        Assert.assertTrue(result, m1.isIsomorphicWith(m2));
+    }
+
+    @Test
+    public void streaming_06() {
+        // Stream: inline if asked to.
+        String data = "<http://example/s> <http://example/p> _:x .\n_:x <http://example/q> \"1\" .\n";
+        Context cxt = RIOT.getContext().copy();
+        cxt.set(RIOT.symTurtleStreamingInline, true);
+        String result = streamOutput(data, cxt);
+        Assert.assertTrue(result, result.contains("[ "));
+    }
+}
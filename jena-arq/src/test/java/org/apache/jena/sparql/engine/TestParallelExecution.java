@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.ARQConstants;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterAsync;
+import org.apache.jena.sparql.engine.iterator.QueryIterRoot;
+import org.apache.jena.sparql.engine.iterator.QueryIterSingleton;
+import org.apache.jena.sparql.engine.main.QC;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.sparql.service.ServiceExecutorRegistry;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.system.ThreadAction;
+import org.apache.jena.system.ThreadTxn;
+import org.apache.jena.system.Txn;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Check that parallel evaluation gives the same results as sequential evaluation. */
+public class TestParallelExecution {
+    private static Dataset datasetTxn = null;
+    private static Dataset datasetGeneral = null;
+
+    @BeforeClass
+    public static void beforeClass() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        for ( int i = 0 ; i < 200 ; i++ ) {
+            sb.append(String.format(":s%d :p :o%d .\n", i, i % 7));
+            sb.append(String.format(":s%d :q %d .\n", i, i % 5));
+            sb.append(String.format(":o%d :label \"label%d\" .\n", i % 7, i % 7));
+            sb.append(String.format("GRAPH :g%d { :s%d :r %d }\n", i % 3, i, i));
+        }
+        String data = sb.toString();
+        datasetTxn = DatasetFactory.createTxnMem();
+        Txn.executeWrite(datasetTxn, ()->RDFParser.fromString(data).lang(Lang.TRIG).parse(datasetTxn));
+        datasetGeneral = DatasetFactory.create();
+        RDFParser.fromString(data).lang(Lang.TRIG).parse(datasetGeneral);
+    }
+
+    @Test public void union_01() { test("SELECT * { { ?s :p ?o } UNION { ?s :q ?v } }"); }
+
+    @Test public void union_02() { test("SELECT * { { ?s :p ?o } UNION { ?s :q ?v } UNION { ?o :label ?l } UNION { GRAPH ?g { ?s :r ?v } } }"); }
+
+    @Test public void union_03() { test("SELECT * { ?s :p :o1 { ?s :q ?v } UNION { ?s :p ?o } }"); }
+
+    @Test public void union_04() { test("SELECT * { { ?s :p ?o } UNION { ?s :q ?v } } LIMIT 5"); }
+
+    @Test public void union_05() { test("SELECT * { { ?s :p ?o } UNION { { ?s :q ?v } UNION { ?s :nothing ?v } } }"); }
+
+    @Test public void union_06() { test("SELECT (count(*) AS ?c) { { ?s :p ?o } UNION { ?s :q ?v } }"); }
+
+    @Test public void join_01() { test("SELECT * { { ?s :p ?o } { SELECT ?o (count(*) AS ?c) { ?x :p ?o } GROUP BY ?o } }"); }
+
+    @Test public void join_02() { test("SELECT * { { ?s :p ?o OPTIONAL { ?o :label ?l } } { ?s :q ?v } }"); }
+
+    @Test public void sequence_01() { test("SELECT * { ?s :p :o1 . ?x :q 3 }"); }
+
+    @Test public void sequence_02() { test("SELECT * { ?s :p :o1 . ?x :q 3 . ?o :label ?l }"); }
+
+    @Test public void sequence_03() { test("SELECT * { ?s :p ?o . ?s :q ?v FILTER(?v > 2) }"); }
+
+    // BIND evaluation error in a branch.
+    @Test public void union_07() { test("SELECT * { { ?s :p ?o } UNION { BIND(1/0 AS ?x) } }"); }
+
+    @Test public void isolation_01() {
+        // A commit made after the query's transaction started is not seen.
+        Dataset dataset = DatasetFactory.createTxnMem();
+        String qs = "PREFIX : <http://example/> SELECT * { { ?s :p ?o } UNION { ?s :q ?o } }";
+        dataset.executeRead(()->{
+            ThreadAction writer = ThreadTxn.threadTxnWrite(dataset, ()->{
+                dataset.asDatasetGraph().add(SSE.parseQuad("(_ :s1 :p 1)"));
+                dataset.asDatasetGraph().add(SSE.parseQuad("(_ :s2 :q 2)"));
+            });
+            writer.run();
+            Query query = QueryFactory.create(qs);
+            assertEquals(0, exec(dataset, query, true).size());
+        });
+        dataset.executeRead(()->assertEquals(2, exec(dataset, QueryFactory.create(qs), true).size()));
+    }
+
+    @Test public void isolation_02() {
+        assertTrue(QueryIterAsync.canRunAsync(datasetGeneral.asDatasetGraph()));
+        assertTrue(QueryIterAsync.canRunAsync(datasetTxn.asDatasetGraph()));
+        datasetTxn.executeRead(()->assertFalse(QueryIterAsync.canRunAsync(datasetTxn.asDatasetGraph())));
+    }
+
+    @Test public void service_01() {
+        // A SERVICE does not read the dataset: it is evaluated by a pool thread
+        // even in a transaction of a dataset with isolated transactions.
+        AtomicReference<String> threadName = new AtomicReference<>();
+        ServiceExecutorRegistry registry = new ServiceExecutorRegistry().add((opExec, original, binding, c) -> {
+            threadName.set(Thread.currentThread().getName());
+            return QueryIterSingleton.create(BindingFactory.binding(Var.alloc("z"), NodeFactory.createLiteral("x")), c);
+        });
+        Context cxt = ARQ.getContext().copy();
+        cxt.set(ARQ.parallelExecution, true);
+        ServiceExecutorRegistry.set(cxt, registry);
+        DatasetGraph dsg = datasetTxn.asDatasetGraph();
+        Op op = SSE.parseOp("(join (bgp (?s <http://example/p> <http://example/o1>)) (service <http://example/service> (bgp (?x ?y ?z))))");
+        dsg.executeRead(()->{
+            assertFalse(QueryIterAsync.canRunAsync(dsg));
+            ExecutionContext execCxt = new ExecutionContext(cxt, dsg.getDefaultGraph(), dsg, QC.getFactory(cxt));
+            QueryIterator qIter = QC.execute(op, QueryIterRoot.create(execCxt), execCxt);
+            try {
+                assertEquals(29, Iter.count(qIter));
+            } finally { qIter.close(); }
+        });
+        assertTrue(threadName.get(), threadName.get().startsWith("ARQ-parallel-"));
+    }
+
+    @Test public void cancel_01() {
+        // The worker has the cancel signal of the query.
+        AtomicBoolean signal = new AtomicBoolean(false);
+        Context cxt = ARQ.getContext().copy();
+        cxt.set(ARQConstants.symCancelQuery, signal);
+        DatasetGraph dsg = datasetGeneral.asDatasetGraph();
+        ExecutionContext execCxt = new ExecutionContext(cxt, dsg.getDefaultGraph(), dsg, QC.getFactory(cxt));
+        AtomicReference<AtomicBoolean> seen = new AtomicReference<>();
+        QueryIterator qIter = new QueryIterAsync(c -> {
+            seen.set(c.getCancelSignal());
+            return QueryIterRoot.create(c);
+        }, execCxt);
+        assertTrue(qIter.hasNext());
+        qIter.close();
+        assertSame(signal, seen.get());
+    }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create("PREFIX : <http://example/>\n" + queryString);
+        datasetTxn.executeRead(()->test(datasetTxn, query));
+        test(datasetGeneral, query);
+    }
+
+    private static void test(Dataset dataset, Query query) {
+        ResultSetRewindable rs1 = exec(dataset, query, false);
+        ResultSetRewindable rs2 = exec(dataset, query, true);
+        assertEquals(rs1.size(), rs2.size());
+        if ( query.hasLimit() )
+            return;
+        assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+    }
+
+    private static ResultSetRewindable exec(Dataset dataset, Query query, boolean parallel) {
+        try ( QueryExecution qExec = QueryExecution.dataset(dataset).query(query).set(ARQ.parallelExecution, parallel).build() ) {
+            return qExec.execSelect().rewindable();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.exec.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.web.HttpException;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.apache.jena.sparql.exec.RowSetStream;
+import org.junit.Test;
+
+/** Streamed SERVICE results. No network access: the rows are local. */
+public class TestServiceStream {
+
+    // An HTTP error while reading the results is reported as it is for the request.
+    @Test public void serviceStream_error() {
+        Iterator<Binding> rows = new Iterator<Binding>() {
+            private int count = 0;
+            @Override
+            public boolean hasNext() {
+                if ( count == 2 )
+                    throw new HttpException("Connection reset");
+                return true;
+            }
+            @Override
+            public Binding next() {
+                count++;
+                return BindingFactory.binding();
+            }
+        };
+        QueryExecHTTP qExec = QueryExecHTTP.newBuilder().endpoint("http://example/sparql").query("SELECT * {}").build();
+        QueryIterator qIter = new Service.QueryIterServiceStream(RowSetStream.create(List.of(), rows), qExec);
+        try {
+            qIter.next();
+            qIter.next();
+            qIter.hasNext();
+            fail("No exception");
+        } catch (QueryExceptionHTTP ex) {
+            assertEquals(-1, ex.getStatusCode());
+            assertTrue(ex.getMessage().contains("Connection reset"));
+        } finally {
+            qIter.close();
+        }
+    }
+}
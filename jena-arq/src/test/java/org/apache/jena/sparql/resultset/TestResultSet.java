@@ -35,6 +35,7 @@ import org.apache.jena.graph.NodeFactory ;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.Model ;
 import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
 import org.apache.jena.riot.resultset.ResultSetLang;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.QueryIterator ;
@@ -574,6 +575,18 @@ public class TestResultSet
         preserve_bnodes(ResultSetLang.RS_Thrift, ARQ.getContext(), true);
     }
 
+    @Test public void preserve_bnodes_4() {
+        preserve_bnodes(ResultSetLang.RS_Columnar, cxt, true);
+        preserve_bnodes(ResultSetLang.RS_Columnar, ARQ.getContext(), true);
+    }
+
+    @Test public void columnar_file_extension() {
+        assertTrue(RDFLanguages.filenameToLang("results.srcol") == ResultSetLang.RS_Columnar);
+        assertTrue(ResultsFormat.guessSyntax("results.srcol") == ResultsFormat.FMT_RS_COLUMNAR);
+        // Not a format-specific extension.
+        assertFalse(RDFLanguages.filenameToLang("results.src") == ResultSetLang.RS_Columnar);
+    }
+
     private static void preserve_bnodes(Lang sparqlresultlang, Context cxt, boolean same) {
         ResultSetRewindable rs1 = make(StrUtils.strjoinNL(rs1$)) ;
         ByteArrayOutputStream x = new ByteArrayOutputStream();
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.io;
+
+import java.io.Closeable;
+
+/**
+ * Parsing-centric source of characters: one character lookahead, pushback, and line,
+ * column and position counting.
+ * @see PeekReader
+ */
+public interface PeekCharSource extends Closeable {
+
+    public long getLineNum();
+
+    public long getColNum();
+
+    public long getPosition();
+
+    /** The next character, without reading it, or EOF. */
+    public int peekChar();
+
+    /** Read the next character, or EOF. */
+    public int readChar();
+
+    /**
+     * Push back a character : does not alter underlying position, line or
+     * column counts
+     */
+    public void pushbackChar(int ch);
+
+    public boolean eof();
+}
@@ -31,7 +31,7 @@ import org.apache.jena.atlas.lib.Chars;
  * @see PeekInputStream
  */
 
-public final class PeekReader extends Reader {
+public final class PeekReader extends Reader implements PeekCharSource {
     // Remember to apply fixes to PeekInputStream as well.
 
     // Buffering is done by a CharStream - does it make difference?
@@ -129,19 +129,23 @@ public final class PeekReader extends Reader {
         this.posn = 0;
     }
 
+    @Override
     public long getLineNum() {
         return lineNum;
     }
 
+    @Override
     public long getColNum() {
         return colNum;
     }
 
+    @Override
     public long getPosition() {
         return posn;
     }
 
     // ---- Do not access currChar except with peekChar/setCurrChar.
+    @Override
     public final int peekChar() {
         if ( idxPushback >= 0 )
             return pushbackChars[idxPushback];
@@ -157,6 +161,7 @@ public final class PeekReader extends Reader {
         currChar = ch;
     }
 
+    @Override
     public final int readChar() {
         return nextChar();
     }
@@ -165,6 +170,7 @@ public final class PeekReader extends Reader {
      * push back a character : does not alter underlying position, line or
      * column counts
      */
+    @Override
     public final void pushbackChar(int ch) {
         unreadChar(ch);
     }
@@ -198,6 +204,7 @@ public final class PeekReader extends Reader {
         return len;
     }
 
+    @Override
     public final boolean eof() {
         return peekChar() == EOF;
     }
@@ -31,6 +31,17 @@ public class CacheFactory {
         return new CacheGuava<>(maxSize) ;
     }
 
+    /**
+     * Create a cache which has space for up to a certain number of objects,
+     * for use by many threads. Lookups do not lock; replacement is CLOCK
+     * within segments of the cache. The cache returns null for a cache miss.
+     *
+     * @see CacheStriped
+     */
+    public static <Key, Value> Cache<Key, Value> createStripedCache(int maxSize) {
+        return new CacheStriped<>(maxSize) ;
+    }
+
     /** Create a null cache */
     public static <Key, Value> Cache<Key, Value> createNullCache() {
         return new Cache0<>() ;
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.lib.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.logging.Log;
+
+/**
+ * A concurrent cache, split into segments by key hash, each with CLOCK
+ * (second chance) replacement.
+ * <p>
+ * Reads do not take a lock: a lookup is a {@link ConcurrentHashMap} get and
+ * setting the "referenced" bit of the entry. Updates lock the segment of the key
+ * only. Unlike an LRU cache, a hit does not reorder anything so readers do not
+ * contend with each other.
+ * <p>
+ * Counts of hits, misses and evictions are kept; see {@link #stats()}.
+ */
+final public class CacheStriped<K, V> implements Cache<K, V> {
+
+    private static final int MaxSegments = 16;
+
+    private final Segment<K, V>[] segments;
+    private final int mask;
+    private final int maxSize;
+    private BiConsumer<K, V> dropHandler = null;
+
+    private final LongAdder hits      = new LongAdder();
+    private final LongAdder misses    = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static class Entry<K, V> {
+        final K key;
+        volatile V value;
+        volatile boolean referenced = false;
+        // Position in the segment clock. Only accessed with the segment lock held.
+        int slot;
+
+        Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static class Segment<K, V> {
+        final ConcurrentHashMap<K, Entry<K, V>> map;
+        final Entry<K, V>[] clock;
+        int count = 0;
+        int hand = 0;
+
+        @SuppressWarnings("unchecked")
+        Segment(int capacity) {
+            this.map = new ConcurrentHashMap<>(capacity);
+            this.clock = (Entry<K, V>[])new Entry<?,?>[capacity];
+        }
+    }
+
+    /** Create a cache with space for {@code size} entries. */
+    public CacheStriped(int size) {
+        this(size, numSegments(size));
+    }
+
+    /**
+     * Create a cache with space for {@code size} entries, split into
+     * {@code numSegments} segments. The number of segments is rounded down to a power of two.
+     */
+    public CacheStriped(int size, int numSegments) {
+        if ( size <= 0 )
+            throw new IllegalArgumentException("Cache size must be positive: "+size);
+        int n = 1;
+        // Every segment has at least one slot.
+        while ( 2*n <= numSegments && 2*n <= size )
+            n = 2*n;
+        @SuppressWarnings("unchecked")
+        Segment<K, V>[] x = (Segment<K, V>[])new Segment<?,?>[n];
+        segments = x;
+        // Spread the capacity; the first (size % n) segments have one more slot.
+        for ( int i = 0 ; i < n ; i++ )
+            segments[i] = new Segment<>(size / n + (i < size % n ? 1 : 0));
+        this.mask = n - 1;
+        this.maxSize = size;
+    }
+
+    private static int numSegments(int size) {
+        // At least a few hundred entries per segment.
+        int n = size / 256;
+        return Math.max(1, Math.min(MaxSegments, n));
+    }
+
+    private Segment<K, V> segment(Object key) {
+        int h = key.hashCode();
+        h = h ^ (h >>> 16);
+        return segments[h & mask];
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return segment(key).map.containsKey(key);
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        Entry<K, V> e = segment(key).map.get(key);
+        if ( e == null ) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        // Avoid a write to shared memory if already set.
+        if ( !e.referenced )
+            e.referenced = true;
+        return e.value;
+    }
+
+    @Override
+    public V getOrFill(K key, Callable<V> callable) {
+        V value = getIfPresent(key);
+        if ( value != null )
+            return value;
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            Entry<K, V> e = segment.map.get(key);
+            if ( e != null )
+                return e.value;
+            try {
+                value = callable.call();
+            } catch (Exception ex) {
+                Log.warn(CacheStriped.class, "Exception filling cache", ex);
+                return null;
+            }
+            if ( value != null )
+                put(segment, key, value);
+            return value;
+        }
+    }
+
+    @Override
+    public void put(K key, V thing) {
+        if ( thing == null ) {
+            remove(key);
+            return;
+        }
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            put(segment, key, thing);
+        }
+    }
+
+    // Segment lock held.
+    private void put(Segment<K, V> segment, K key, V value) {
+        Entry<K, V> e = segment.map.get(key);
+        if ( e != null ) {
+            e.value = value;
+            e.referenced = true;
+            return;
+        }
+        e = new Entry<>(key, value);
+        if ( segment.count < segment.clock.length ) {
+            e.slot = segment.count;
+            segment.clock[segment.count++] = e;
+        } else {
+            // Full. Advance the hand, clearing referenced bits, until an
+            // unreferenced entry is found.
+            Entry<K, V>[] clock = segment.clock;
+            for (;;) {
+                Entry<K, V> victim = clock[segment.hand];
+                if ( victim.referenced ) {
+                    victim.referenced = false;
+                    segment.hand = (segment.hand + 1) % clock.length;
+                    continue;
+                }
+                segment.map.remove(victim.key);
+                evictions.increment();
+                if ( dropHandler != null )
+                    dropHandler.accept(victim.key, victim.value);
+                e.slot = segment.hand;
+                clock[segment.hand] = e;
+                segment.hand = (segment.hand + 1) % clock.length;
+                break;
+            }
+        }
+        segment.map.put(key, e);
+    }
+
+    @Override
+    public void remove(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            Entry<K, V> e = segment.map.remove(key);
+            if ( e == null )
+                return;
+            // Move the last entry into the gap.
+            int last = --segment.count;
+            Entry<K, V> moved = segment.clock[last];
+            segment.clock[e.slot] = moved;
+            moved.slot = e.slot;
+            segment.clock[last] = null;
+            if ( segment.hand >= segment.count )
+                segment.hand = 0;
+        }
+    }
+
+    @Override
+    public Iterator<K> keys() {
+        List<Iterator<K>> iterators = new ArrayList<>(segments.length);
+        for ( Segment<K, V> segment : segments )
+            iterators.add(segment.map.keySet().iterator());
+        return Iter.flatMap(iterators.iterator(), iter -> iter);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for ( Segment<K, V> segment : segments ) {
+            if ( !segment.map.isEmpty() )
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for ( Segment<K, V> segment : segments ) {
+            synchronized (segment) {
+                segment.map.clear();
+                Arrays.fill(segment.clock, null);
+                segment.count = 0;
+                segment.hand = 0;
+            }
+        }
+    }
+
+    @Override
+    public long size() {
+        long x = 0;
+        for ( Segment<K, V> segment : segments )
+            x += segment.map.mappingCount();
+        return x;
+    }
+
+    @Override
+    public void setDropHandler(BiConsumer<K, V> dropHandler) {
+        this.dropHandler = dropHandler;
+    }
+
+    /** Number of lookups that found an entry. */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /** Number of lookups that did not find an entry. */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /** Number of entries removed to make space for new ones. */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public CacheInfo stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        long requests = h + m;
+        double hitRate = ( requests == 0 ) ? 1.0 : (double)h / requests;
+        return new CacheInfo(maxSize, requests, h, m, hitRate, evictions.sum());
+    }
+}
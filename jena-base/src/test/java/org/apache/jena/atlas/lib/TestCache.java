@@ -59,6 +59,16 @@ public class TestCache
         }
     ;
 
+    private static CacheMaker<Integer, Integer> striped =
+        new CacheMaker<Integer, Integer>()
+        {
+        @Override
+        public Cache<Integer, Integer> make(int size) { return CacheFactory.createStripedCache(size) ; }
+        @Override
+        public String name() { return "Striped" ; }
+        }
+    ;
+
     @Parameters
     public static Collection<Object[]> cacheMakers()
     {
@@ -69,6 +79,9 @@ public class TestCache
             , { standard , 10 }
             , { standard , 2 }
             , { standard , 1 }
+            , { striped , 10 }
+            , { striped , 2 }
+            , { striped , 1 }
         } ) ; 
     }
 
@@ -19,10 +19,15 @@
 package org.apache.jena.atlas.lib;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.concurrent.Callable ;
 
+import org.apache.jena.atlas.lib.cache.CacheInfo ;
+import org.apache.jena.atlas.lib.cache.CacheStriped ;
+
 import org.junit.Test ;
 
 // Non-parameterized tests
@@ -79,5 +84,56 @@ public class TestCache2
         assertEquals("10", str1) ;
     }
 
+    // Striped cache
+    @Test public void cacheStriped_1()
+    {
+        CacheStriped<Integer, String> cache = new CacheStriped<>(100, 4) ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            cache.put(i, Integer.toString(i)) ;
+        assertTrue(cache.size() <= 100) ;
+        assertEquals(1000 - cache.size(), cache.evictionCount()) ;
+    }
+
+    @Test public void cacheStriped_2()
+    {
+        CacheStriped<Integer, String> cache = new CacheStriped<>(10) ;
+        cache.put(1, "1") ;
+        cache.getIfPresent(1) ;
+        cache.getIfPresent(2) ;
+        cache.getOrFill(3, getter(3)) ;
+        cache.getOrFill(3, getter(3)) ;
+        assertEquals(2, cache.hitCount()) ;
+        assertEquals(2, cache.missCount()) ;
+        CacheInfo info = cache.stats() ;
+        assertEquals(4, info.requests) ;
+        assertEquals(0, info.evictions) ;
+    }
+
+    // A referenced entry survives one sweep of the clock.
+    @Test public void cacheStriped_3()
+    {
+        CacheStriped<Integer, String> cache = new CacheStriped<>(2, 1) ;
+        cache.put(1, "1") ;
+        cache.put(2, "2") ;
+        cache.getIfPresent(1) ;
+        cache.put(3, "3") ;
+        assertTrue(cache.containsKey(1)) ;
+        assertFalse(cache.containsKey(2)) ;
+        assertTrue(cache.containsKey(3)) ;
+    }
 
+    @Test public void cacheStriped_4()
+    {
+        CacheStriped<Integer, String> cache = new CacheStriped<>(3, 1) ;
+        cache.put(1, "1") ;
+        cache.put(2, "2") ;
+        cache.put(3, "3") ;
+        cache.remove(1) ;
+        assertEquals(2, cache.size()) ;
+        cache.put(4, "4") ;
+        cache.put(5, "5") ;
+        assertEquals(3, cache.size()) ;
+        assertEquals(1, cache.evictionCount()) ;
+        assertEquals("5", cache.getIfPresent(5)) ;
+    }
 }
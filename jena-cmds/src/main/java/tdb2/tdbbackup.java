@@ -19,6 +19,7 @@
 package tdb2;
 
 import arq.cmdline.ModLangOutput ;
+import org.apache.jena.riot.RDFFormat ;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.sys.DatabaseOps;
 import tdb2.cmdline.CmdTDB;
@@ -49,7 +50,10 @@ public class tdbbackup extends CmdTDB
     protected void exec()
     {
         DatasetGraphSwitchable dsg = getDatabaseContainer();
-        String fn = DatabaseOps.backup(dsg);
+        RDFFormat format = modLangOutput.getOutputStreamFormat() ;
+        if ( format == null )
+            format = RDFFormat.NQUADS ;
+        String fn = DatabaseOps.backup(dsg, format);
         System.out.println("Backup written to "+fn);
     }
 }
@@ -61,10 +61,10 @@ public class NodeFactory {
         return new Node_Literal( lit ) ;
     }
 
-    /** make a URI node with the specified URIref string */
+    /** make a URI node with the specified URIref string; the node may be shared (see {@link NodeInterner}) */
     public static Node createURI(String uri) {
         Objects.requireNonNull(uri, "Argument to NodeFactory.createURI is null") ;
-        return new Node_URI(uri) ;
+        return NodeInterner.get().createURI(uri) ;
     }
 
     /** make a variable node with a given name */
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.graph;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.apache.jena.JenaRuntime;
+import org.apache.jena.atlas.lib.cache.CacheInfo;
+import org.apache.jena.atlas.lib.cache.CacheStriped;
+
+/**
+ * A bounded, thread-safe pool of nodes so that equal nodes are the same Java
+ * object. There is one process-wide pool, {@link #get()}, used by
+ * {@link NodeFactory#createURI(String)}, the RIOT parsers and the TDB2 node table
+ * cache, so nodes for the same IRI are shared between parser runs, queries and
+ * the database.
+ * <p>
+ * The pool holds IRIs and, optionally, literals with a short lexical form. When
+ * full, entries are dropped (CLOCK replacement, see {@link CacheStriped}); an
+ * interned node is a node that was equal at the time, not a guarantee of identity.
+ * <p>
+ * The size of the process-wide pool is set by the system property
+ * {@code jena.nodeInterner.size} (0 for no pool) and interning of literals by
+ * {@code jena.nodeInterner.literals}.
+ */
+public class NodeInterner {
+    /** Default number of nodes in the process-wide pool. */
+    public static final int DftSize = 100_000;
+    /** Longest lexical form of a literal that is interned. */
+    public static final int MaxLiteralLength = 40;
+
+    private static final NodeInterner noPool = new NodeInterner(0, false);
+
+    private static volatile NodeInterner global = createGlobal();
+
+    private static NodeInterner createGlobal() {
+        int size = Integer.parseInt(JenaRuntime.getSystemProperty("jena.nodeInterner.size", Integer.toString(DftSize)));
+        boolean literals = Boolean.parseBoolean(JenaRuntime.getSystemProperty("jena.nodeInterner.literals", "false"));
+        return create(size, literals);
+    }
+
+    /** The process-wide pool. */
+    public static NodeInterner get() {
+        return global;
+    }
+
+    /** Replace the process-wide pool. Nodes already shared are not affected. */
+    public static void set(NodeInterner nodeInterner) {
+        global = Objects.requireNonNull(nodeInterner, "NodeInterner");
+    }
+
+    /**
+     * Create a pool of up to {@code size} nodes. If {@code size} is zero, there is no
+     * pool and nodes are returned as given.
+     */
+    public static NodeInterner create(int size, boolean literals) {
+        if ( size < 0 )
+            throw new IllegalArgumentException("Negative size: "+size);
+        if ( size == 0 )
+            return noPool;
+        return new NodeInterner(size, literals);
+    }
+
+    // Keys are the IRI string for IRIs and the node for literals.
+    private final CacheStriped<Object, Node> cache;
+    private final int size;
+    private final boolean literals;
+
+    private NodeInterner(int size, boolean literals) {
+        this.cache = ( size == 0 ) ? null : new CacheStriped<>(size);
+        this.size = size;
+        this.literals = literals;
+    }
+
+    /** The node for an IRI, from the pool or a new one. */
+    public Node createURI(String uri) {
+        return createURI(uri, Node_URI::new);
+    }
+
+    /**
+     * The node for an IRI, from the pool or by calling {@code maker}, which must
+     * return a URI node for {@code uri}.
+     */
+    public Node createURI(String uri, Function<String, Node> maker) {
+        if ( cache == null )
+            return maker.apply(uri);
+        Node node = cache.getOrFill(uri, ()->maker.apply(uri));
+        // The cache does not pass on exceptions: call again to report the problem.
+        return ( node != null ) ? node : maker.apply(uri);
+    }
+
+    /**
+     * Return the pooled node equal to {@code node}, adding {@code node} to the pool if
+     * there is none. Nodes that are not pooled are returned unchanged.
+     */
+    public Node intern(Node node) {
+        if ( cache == null || node == null )
+            return node;
+        if ( node.isURI() )
+            return createURI(node.getURI(), x->node);
+        if ( literals && node.isLiteral() && node.getLiteralLexicalForm().length() <= MaxLiteralLength ) {
+            Node x = cache.getOrFill(node, ()->node);
+            return ( x != null ) ? x : node;
+        }
+        return node;
+    }
+
+    /** Maximum number of nodes in the pool. 0 means there is no pool. */
+    public int getSize() {
+        return size;
+    }
+
+    /** Whether literals are pooled. */
+    public boolean internsLiterals() {
+        return cache != null && literals;
+    }
+
+    /** Statistics, or null if there is no pool. */
+    public CacheInfo stats() {
+        return ( cache == null ) ? null : cache.stats();
+    }
+
+    /** Remove all nodes from the pool. */
+    public void clear() {
+        if ( cache != null )
+            cache.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "NodeInterner[size="+getSize()+(internsLiterals() ? ", literals" : "")+"]";
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.graph.test;
+
+import static org.junit.Assert.*;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.NodeInterner;
+import org.junit.Test;
+
+public class TestNodeInterner {
+
+    @Test public void interner_uri_1() {
+        NodeInterner interner = NodeInterner.create(100, false);
+        Node n1 = interner.createURI("http://example/a");
+        Node n2 = interner.createURI(new String("http://example/a"));
+        assertSame(n1, n2);
+        assertNotSame(n1, interner.createURI("http://example/b"));
+    }
+
+    @Test public void interner_uri_2() {
+        NodeInterner interner = NodeInterner.create(100, false);
+        Node n1 = NodeFactory.createBlankNode();
+        Node n2 = interner.createURI("http://example/a", x->n1);
+        assertSame(n1, n2);
+        Node n3 = interner.intern(n1);
+        assertSame(n1, n3);
+    }
+
+    @Test public void interner_intern_1() {
+        NodeInterner interner = NodeInterner.create(100, false);
+        Node n1 = interner.createURI("http://example/a");
+        Node n2 = interner.intern(NodeFactory.createURI("http://example/a"));
+        assertSame(n1, n2);
+    }
+
+    @Test public void interner_literal_1() {
+        NodeInterner interner = NodeInterner.create(100, false);
+        Node lit1 = NodeFactory.createLiteral("abc");
+        Node lit2 = NodeFactory.createLiteral("abc");
+        assertSame(lit1, interner.intern(lit1));
+        assertSame(lit2, interner.intern(lit2));
+    }
+
+    @Test public void interner_literal_2() {
+        NodeInterner interner = NodeInterner.create(100, true);
+        Node lit1 = NodeFactory.createLiteral("abc");
+        Node lit2 = NodeFactory.createLiteral("abc");
+        Node lit3 = NodeFactory.createLiteral("abc", "en");
+        Node lit4 = NodeFactory.createLiteral("abc", XSDDatatype.XSDstring);
+        assertSame(lit1, interner.intern(lit1));
+        assertSame(lit1, interner.intern(lit2));
+        assertSame(lit3, interner.intern(lit3));
+        // Same term (RDF 1.1).
+        assertSame(lit1, interner.intern(lit4));
+    }
+
+    @Test public void interner_literal_3() {
+        NodeInterner interner = NodeInterner.create(100, true);
+        String str = "0123456789012345678901234567890123456789_long";
+        Node lit1 = NodeFactory.createLiteral(str);
+        Node lit2 = NodeFactory.createLiteral(str);
+        assertSame(lit1, interner.intern(lit1));
+        assertSame(lit2, interner.intern(lit2));
+    }
+
+    @Test public void interner_bounded_1() {
+        NodeInterner interner = NodeInterner.create(100, false);
+        for ( int i = 0 ; i < 1000 ; i++ )
+            interner.createURI("http://example/"+i);
+        assertTrue(interner.stats().evictions > 0);
+        Node n = interner.createURI("http://example/1");
+        assertEquals("http://example/1", n.getURI());
+    }
+
+    @Test public void interner_none_1() {
+        NodeInterner interner = NodeInterner.create(0, true);
+        assertEquals(0, interner.getSize());
+        Node n1 = interner.createURI("http://example/a");
+        Node n2 = interner.createURI("http://example/a");
+        assertEquals(n1, n2);
+        assertNotSame(n1, n2);
+        assertNull(interner.stats());
+    }
+
+    @Test public void interner_global_1() {
+        NodeInterner global = NodeInterner.get();
+        try {
+            NodeInterner.set(NodeInterner.create(100, false));
+            Node n1 = NodeFactory.createURI("http://example/a");
+            Node n2 = NodeFactory.createURI("http://example/a");
+            assertSame(n1, n2);
+        } finally {
+            NodeInterner.set(global);
+        }
+    }
+}
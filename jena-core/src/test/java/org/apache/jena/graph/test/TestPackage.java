@@ -56,6 +56,7 @@ public class TestPackage extends TestSuite {
         addTestSuite( TestGraphEvents.class );
         addTestSuite( TestGraphBaseToString.class );
         addTest( new JUnit4TestAdapter(TestNodeExtras.class) );
+        addTest( new JUnit4TestAdapter(TestNodeInterner.class) );
 
         // Has to be in a different package.
         addTest( new JUnit4TestAdapter(TestGraphUtil.class) );
@@ -27,7 +27,13 @@ import org.apache.jena.atlas.lib.CacheFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Caching block manager - this is an LRU cache */
+/**
+ * Caching block manager - this is an LRU cache.
+ * <p>
+ * With a write cache, blocks can be written by a background thread (see
+ * {@link BlockWriteBack}): writes, and blocks spilled from the write cache,
+ * are queued, and written in block id order, and {@link #sync} waits for them.
+ */
 public class BlockMgrCache extends BlockMgrSync {
     // Actually, this is two cache one on the read blocks and one on the write
     // blocks.
@@ -42,6 +48,9 @@ public class BlockMgrCache extends BlockMgrSync {
     // Delayed dirty writes. May be present, may not.
     private final Cache<Long, Block> writeCache;
 
+    // Background writes. May be present, may not.
+    private final BlockWriteBack     writeBack;
+
     // Also enable the logging level.
     public static boolean            globalLogging  = false;
     private boolean                  logging        = false;
@@ -51,21 +60,32 @@ public class BlockMgrCache extends BlockMgrSync {
     long                             cacheWriteHits = 0;
 
     static BlockMgr create(int readSlots, int writeSlots, final BlockMgr blockMgr) {
+        return create(readSlots, writeSlots, 0, blockMgr);
+    }
+
+    /**
+     * Create a cache; if {@code writeBackBytes} is greater than zero and there is a
+     * write cache, blocks are written in the background with at most that many bytes
+     * waiting. The wrapped {@code BlockMgr} must allow reads during a write.
+     */
+    static BlockMgr create(int readSlots, int writeSlots, long writeBackBytes, final BlockMgr blockMgr) {
         if ( readSlots < 0 && writeSlots < 0 )
             return blockMgr;
-        return new BlockMgrCache(readSlots, writeSlots, blockMgr);
+        return new BlockMgrCache(readSlots, writeSlots, writeBackBytes, blockMgr);
     }
 
-    private BlockMgrCache(int readSlots, int writeSlots, final BlockMgr blockMgr) {
+    private BlockMgrCache(int readSlots, int writeSlots, long writeBackBytes, final BlockMgr blockMgr) {
         super(blockMgr);
         // Caches are related so we can't use a Getter for cache management.
         if ( readSlots < -1 )
             readCache = CacheFactory.createNullCache();
         else
             readCache = CacheFactory.createCache(readSlots);
-        if ( writeSlots <= 0 )
+        if ( writeSlots <= 0 ) {
             writeCache = null;
-        else {
+            writeBack = null;
+        } else {
+            writeBack = ( writeBackBytes > 0 ) ? new BlockWriteBack(blockMgr, writeBackBytes) : null;
             writeCache = CacheFactory.createCache(writeSlots);
             writeCache.setDropHandler((id, block) -> {
                 // We're inside a synchronized operation at this point.
@@ -76,7 +96,7 @@ public class BlockMgrCache extends BlockMgrSync {
                 }
                 // Force the block to be writtern
                 // by sending it to the wrapped BlockMgr
-                BlockMgrCache.super.write(block);
+                writeThrough(block);
             });
         }
     }
@@ -99,6 +119,8 @@ public class BlockMgrCache extends BlockMgrSync {
                 removals.add(x);
         });
         removals.forEach(writeCache::remove);
+        if ( writeBack != null )
+            writeBack.discardFrom(boundary);
         super.resetAlloc(boundary);
     }
 
@@ -128,7 +150,9 @@ public class BlockMgrCache extends BlockMgrSync {
 
         cacheMisses++;
         log("Miss/r: %d", id);
-        blk = super.getRead(id);
+        blk = writeBackRead(id, true);
+        if ( blk == null )
+            blk = super.getRead(id);
         readCache.put(id, blk);
         return blk;
     }
@@ -160,7 +184,9 @@ public class BlockMgrCache extends BlockMgrSync {
         cacheMisses++;
         log("Miss/w: %d", id);
         // Pass operation to wrapper.
-        blk = super.getWrite(id);
+        blk = writeBackRead(id, false);
+        if ( blk == null )
+            blk = super.getWrite(id);
         if ( writeCache != null )
             writeCache.put(id, blk);
         return blk;
@@ -179,7 +205,7 @@ public class BlockMgrCache extends BlockMgrSync {
     @Override
     synchronized public void write(Block block) {
         writeCache(block);
-        super.write(block);
+        writeThrough(block);
     }
 
     @Override
@@ -187,6 +213,9 @@ public class BlockMgrCache extends BlockMgrSync {
         Long id = block.getId();
         // It can be a read block (by the transaction), now being written for
         // real (enacting a transaction).
+        // Any queued write of the block is now out of date.
+        if ( writeBack != null )
+            writeBack.cancel(id);
         super.overwrite(block);
         // Keep read cache up-to-date.
         // Must at least expel the read block (which is not the overwrite
@@ -194,6 +223,24 @@ public class BlockMgrCache extends BlockMgrSync {
         readCache.put(id, block);
     }
 
+    /** Write to the wrapped BlockMgr, now or in the background. */
+    private void writeThrough(Block block) {
+        if ( writeBack != null )
+            writeBack.write(block);
+        else
+            super.write(block);
+    }
+
+    /** A block that is waiting to be written in the background, or null. */
+    private Block writeBackRead(long id, boolean readOnly) {
+        if ( writeBack == null )
+            return null;
+        Block blk = writeBack.get(id);
+        if ( blk != null )
+            blk.setReadOnly(readOnly);
+        return blk;
+    }
+
     private void writeCache(Block block) {
         Long id = block.getId();
         log("WriteCache : %d", id);
@@ -234,6 +281,8 @@ public class BlockMgrCache extends BlockMgrSync {
         if ( writeCache != null )
             log("close (" + writeCache.size() + " blocks)");
         syncFlush();
+        if ( writeBack != null )
+            writeBack.close();
         super.close();
     }
 
@@ -301,6 +350,9 @@ public class BlockMgrCache extends BlockMgrSync {
             Long id = ids[i];
             expelEntry(id);
         }
+        // Wait for the background writes, including blocks spilled earlier.
+        if ( writeBack != null && writeBack.flush() )
+            didSync = true;
         if ( didSync )
             super.sync();
         return didSync;
@@ -316,7 +368,7 @@ public class BlockMgrCache extends BlockMgrSync {
         }
         log("Expel (write cache): %d", id);
         // This pushes the block to the BlockMgr being cached.
-        super.write(block);
+        writeThrough(block);
         writeCache.remove(id);
 
         // Move it into the readCache because it's often read after writing
@@ -103,7 +103,8 @@ public class BlockMgrFactory {
     public static BlockMgr createStdFile(String filename, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
         BlockAccess file = new BlockAccessDirect(filename, blockSize);
         BlockMgr blockMgr = wrapFileAccess(file, blockSize);
-        blockMgr = addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize);
+        // Writes of direct file blocks can be done in the background.
+        blockMgr = BlockMgrCache.create(readBlockCacheSize, writeBlockCacheSize, SystemIndex.BlockWriteBackSize, blockMgr);
         return track(blockMgr);
     }
 
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background write-back of blocks for {@link BlockMgrCache}.
+ * <p>
+ * Blocks to be written are copied and queued. A dedicated thread takes all the
+ * queued blocks, in block id order, and writes them to the wrapped
+ * {@link BlockMgr}. Writes of the same block that are queued at the same time are
+ * coalesced into one write. The bytes queued or being written are limited:
+ * {@link #write} waits when the limit is reached.
+ * <p>
+ * Until a block has been written, {@link #get} returns its contents. The caller
+ * (the {@link BlockMgrCache}) must call {@link #flush} before syncing the wrapped
+ * {@link BlockMgr}. The wrapped {@link BlockMgr} is called from the write-back
+ * thread at the same time as the caller uses it for reading other blocks, so it
+ * must support concurrent positioned reads and writes (such as
+ * {@link BlockMgrFileAccess} with a {@link org.apache.jena.dboe.base.file.BlockAccessDirect}).
+ */
+/*package*/ class BlockWriteBack {
+    private static final AtomicInteger counter = new AtomicInteger(0);
+
+    private final BlockMgr blockMgr;
+    private final long maxBytes;
+    private final Object lock = new Object();
+
+    // Guarded by "lock".
+    // Copies of blocks waiting to be written.
+    private final TreeMap<Long, Block> pending = new TreeMap<>();
+    // Copies of blocks being written by the write-back thread.
+    private final Map<Long, Block> inFlight = new HashMap<>();
+    private long outstandingBytes = 0;
+    private RuntimeException failure = null;
+    private boolean closed = false;
+    private Thread thread = null;
+
+    /*package*/ BlockWriteBack(BlockMgr blockMgr, long maxBytes) {
+        this.blockMgr = blockMgr;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Queue a copy of the block to be written, waiting if too many bytes are outstanding. */
+    /*package*/ void write(Block block) {
+        Block copy = block.replicate();
+        copy.setReadOnly(false);
+        int size = copy.getByteBuffer().capacity();
+        synchronized(lock) {
+            checkFailure();
+            if ( closed )
+                throw new BlockException("Write-back closed");
+            if ( thread == null )
+                start();
+            while ( outstandingBytes + size > maxBytes && outstandingBytes > 0 && failure == null )
+                await();
+            checkFailure();
+            Block previous = pending.put(copy.getId(), copy);
+            if ( previous != null )
+                outstandingBytes -= previous.getByteBuffer().capacity();
+            outstandingBytes += size;
+            lock.notifyAll();
+        }
+    }
+
+    /** A copy of the latest contents of a block that has not been written yet, or null. */
+    /*package*/ Block get(long id) {
+        synchronized(lock) {
+            Block block = pending.get(id);
+            if ( block == null )
+                block = inFlight.get(id);
+            return ( block == null ) ? null : block.replicate();
+        }
+    }
+
+    /** Do not write a block, and wait if it is being written. */
+    /*package*/ void cancel(long id) {
+        synchronized(lock) {
+            Block block = pending.remove(id);
+            if ( block != null )
+                outstandingBytes -= block.getByteBuffer().capacity();
+            while ( inFlight.containsKey(id) && failure == null )
+                await();
+            lock.notifyAll();
+        }
+    }
+
+    /** Do not write blocks with ids at or above the boundary, and wait for any writes in progress. */
+    /*package*/ void discardFrom(long boundary) {
+        synchronized(lock) {
+            Map<Long, Block> tail = pending.tailMap(boundary, true);
+            for ( Block block : tail.values() )
+                outstandingBytes -= block.getByteBuffer().capacity();
+            tail.clear();
+            while ( ! inFlight.isEmpty() && failure == null )
+                await();
+            lock.notifyAll();
+        }
+    }
+
+    /** Wait until all queued blocks have been written. Return whether there were any. */
+    /*package*/ boolean flush() {
+        synchronized(lock) {
+            boolean outstanding = outstandingBytes > 0;
+            while ( outstandingBytes > 0 && failure == null )
+                await();
+            checkFailure();
+            return outstanding;
+        }
+    }
+
+    /** Write all queued blocks and stop the write-back thread. */
+    /*package*/ void close() {
+        Thread t;
+        synchronized(lock) {
+            if ( closed )
+                return;
+            while ( outstandingBytes > 0 && failure == null )
+                await();
+            closed = true;
+            lock.notifyAll();
+            t = thread;
+        }
+        if ( t != null ) {
+            try { t.join(); }
+            catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+        }
+        synchronized(lock) {
+            checkFailure();
+        }
+    }
+
+    private void start() {
+        String label = blockMgr.getLabel();
+        thread = new Thread(this::run, "BlockWriteBack-"+counter.incrementAndGet()+( label == null ? "" : "-"+label ));
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        List<Block> batch = new ArrayList<>();
+        for (;;) {
+            synchronized(lock) {
+                while ( pending.isEmpty() && ! closed )
+                    await();
+                if ( pending.isEmpty() )
+                    return;
+                // In block id order.
+                batch.addAll(pending.values());
+                inFlight.putAll(pending);
+                pending.clear();
+            }
+            RuntimeException ex = null;
+            int written = 0;
+            try {
+                for ( Block block : batch ) {
+                    blockMgr.write(block);
+                    written += block.getByteBuffer().capacity();
+                }
+            } catch (RuntimeException ex2) {
+                ex = ex2;
+            }
+            synchronized(lock) {
+                if ( ex != null ) {
+                    failure = ex;
+                    pending.clear();
+                    outstandingBytes = 0;
+                } else
+                    outstandingBytes -= written;
+                inFlight.clear();
+                lock.notifyAll();
+                if ( ex != null )
+                    return;
+            }
+            batch.clear();
+        }
+    }
+
+    private void await() {
+        try { lock.wait(); }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BlockException("Interrupted", ex);
+        }
+    }
+
+    private void checkFailure() {
+        if ( failure != null )
+            throw new BlockException("Write-back failed", failure);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.buffer;
+
+import static java.lang.String.format;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.jena.dboe.base.record.RecordFactory;
+
+/**
+ * Prefix compression of the records of a {@link RecordBuffer}.
+ * <p>
+ * The records of a {@link RecordBuffer} are sorted, so a record usually shares
+ * leading bytes with the record before it; for records of NodeIds, that is often
+ * the first NodeId and most of the second. Each record is encoded as one byte,
+ * the number of bytes it shares with the previous record, followed by the rest
+ * of its bytes. The first record shares no bytes.
+ * <p>
+ * The encoded length of a record is at most {@link #maxEntryLength}; records
+ * longer than 255 bytes can not be encoded. Deleting a record does not make the
+ * encoding of the others longer.
+ */
+public final class RecordBufferCodec {
+    private RecordBufferCodec() {}
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /** Longest record (in bytes) that can be encoded. */
+    public static final int MaxRecordLength = 255;
+
+    /** The maximum number of bytes for one encoded record. */
+    public static int maxEntryLength(int recordLength) {
+        return recordLength + 1;
+    }
+
+    /**
+     * Whether records from this factory can be encoded in {@code space} bytes
+     * with enough records to a page: at least twice as many records as bytes for
+     * one record, so that either half of a full page has room for one more record.
+     */
+    public static boolean canEncode(RecordFactory factory, int space) {
+        int recLen = factory.recordLength();
+        if ( recLen > MaxRecordLength )
+            return false;
+        int entry = maxEntryLength(recLen);
+        return space / entry >= 2 * entry;
+    }
+
+    /** The number of bytes to encode the records of the buffer. */
+    public static int encodedLength(RecordBuffer rb) {
+        int len = 0;
+        for ( int i = 0 ; i < rb.numSlot ; i++ )
+            len += entryLength(rb, i);
+        return len;
+    }
+
+    /** The number of bytes to encode the record at {@code idx}, after the record before it. */
+    public static int entryLength(RecordBuffer rb, int idx) {
+        byte[] bytes = array(rb);
+        int base = rb.bb.arrayOffset();
+        int len = rb.slotLen;
+        int at = base + idx * len;
+        int shared = ( idx == 0 ) ? 0 : shared(bytes, at - len, at, len);
+        return 1 + len - shared;
+    }
+
+    /**
+     * Encode the records of the buffer into {@code dst}, starting at {@code offset}.
+     * Return the number of bytes written.
+     * @throws BufferException if the encoded records do not fit.
+     */
+    public static int encode(RecordBuffer rb, ByteBuffer dst, int offset) {
+        byte[] bytes = array(rb);
+        int base = rb.bb.arrayOffset();
+        int len = rb.slotLen;
+        // Encode into an array then copy with one call: the destination is
+        // usually a direct or memory mapped buffer.
+        byte[] encoded = new byte[dst.capacity() - offset];
+        int x = 0;
+        for ( int i = 0 ; i < rb.numSlot ; i++ ) {
+            int at = base + i * len;
+            int shared = ( i == 0 ) ? 0 : shared(bytes, at - len, at, len);
+            if ( x + 1 + len - shared > encoded.length )
+                throw new BufferException(format("Encoded records do not fit: %d records, %d bytes",
+                                                 rb.numSlot, encoded.length));
+            encoded[x++] = (byte)shared;
+            System.arraycopy(bytes, at + shared, encoded, x, len - shared);
+            x += len - shared;
+        }
+        ByteBuffer out = dst.duplicate();
+        out.clear();
+        out.position(offset);
+        out.put(encoded, 0, x);
+        return x;
+    }
+
+    /**
+     * Decode {@code count} records from {@code src}, starting at {@code offset},
+     * into the buffer, replacing its contents.
+     */
+    public static void decode(ByteBuffer src, int offset, int count, RecordBuffer rb) {
+        if ( count < 0 || count > rb.maxSlot )
+            throw new BufferException(format("Bad record count: %d (max %d)", count, rb.maxSlot));
+        byte[] bytes = array(rb);
+        int base = rb.bb.arrayOffset();
+        int len = rb.slotLen;
+        ByteBuffer in = src.duplicate();
+        in.clear();
+        in.position(offset);
+        byte[] encoded = new byte[in.remaining()];
+        in.get(encoded);
+        int x = 0;
+        for ( int i = 0 ; i < count ; i++ ) {
+            int at = base + i * len;
+            int shared = ( x < encoded.length ) ? encoded[x++] & 0xFF : -1;
+            if ( shared < 0 || shared > len || ( i == 0 && shared != 0 ) || x + len - shared > encoded.length )
+                throw new BufferException(format("Bad encoded record %d: shared=%d", i, shared));
+            if ( shared > 0 )
+                System.arraycopy(bytes, at - len, bytes, at, shared);
+            System.arraycopy(encoded, x, bytes, at + shared, len - shared);
+            x += len - shared;
+        }
+        rb.numSlot = count;
+    }
+
+    private static int shared(byte[] bytes, int prev, int at, int len) {
+        int limit = Math.min(len, MaxRecordLength);
+        int i = 0;
+        // Eight bytes at a time.
+        for ( ; i + Long.BYTES <= limit ; i += Long.BYTES ) {
+            long x = (long)LONGS.get(bytes, prev + i) ^ (long)LONGS.get(bytes, at + i);
+            if ( x != 0 )
+                return i + Long.numberOfLeadingZeros(x) / Byte.SIZE;
+        }
+        while ( i < limit && bytes[prev + i] == bytes[at + i] )
+            i++;
+        return i;
+    }
+
+    private static byte[] array(RecordBuffer rb) {
+        if ( !rb.bb.hasArray() )
+            throw new BufferException("RecordBuffer is not backed by an array");
+        return rb.bb.array();
+    }
+}
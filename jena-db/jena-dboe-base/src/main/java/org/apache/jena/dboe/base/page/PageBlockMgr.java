@@ -50,12 +50,28 @@ public class PageBlockMgr<T extends Page> implements Closeable
 
     /** Allocate a new thing */
     public T create(BlockType bType) {
-        Block block = blockMgr.allocate(-1);
+        Block block = allocateBlock();
         block.setModified(true);
         T page = pageFactory.createFromBlock(block, bType);
         return page;
     }
 
+    /** Allocate the block for a new page. */
+    protected Block allocateBlock() {
+        return blockMgr.allocate(-1);
+    }
+
+    /**
+     * Use an existing block, that is no longer used for any page, as the block
+     * for a new page.
+     */
+    protected Block reuseBlock(long id) {
+        Block block = blockMgr.getWrite(id);
+        block.setReadOnly(false);
+        block.getByteBuffer().position(0);
+        return block;
+    }
+
     /**
      * Fetch a block for reading.
      * @param id Block to fetch
@@ -171,7 +187,7 @@ public class PageBlockMgr<T extends Page> implements Closeable
         Block block = page.getBackingBlock();
         block.getByteBuffer().rewind();
 
-        Block block2 =  blockMgr.allocate(-1);
+        Block block2 =  allocateBlock();
         block2.getByteBuffer().put(block.getByteBuffer());
         block2.getByteBuffer().rewind();
         block2.setReadOnly(false);
@@ -52,6 +52,9 @@ public final class RecordBufferPage extends RecordBufferPageBase
 
     @Override
     protected void _reset(Block block) {
+        // A compressed page keeps its records: the block has not been written yet.
+        if ( isCompressed() )
+            return;
         // TODO -- should this be format?
         // Print this
         super.rebuild(block, this.getCount());
@@ -66,21 +69,33 @@ public final class RecordBufferPage extends RecordBufferPageBase
     public static int calcBlockSize(RecordFactory factory, int maxRec)
     { return RecordBufferPageBase.calcBlockSize(factory, maxRec, FIELD_LENGTH); }
 
+    /** Whether compressed pages of this block size are in fact compressed. */
+    public static boolean isCompressible(RecordFactory factory, int blkSize)
+    { return RecordBufferPageBase.isCompressible(factory, blkSize, FIELD_LENGTH); }
+
     /** The construction methods */
     public static RecordBufferPage createBlank(Block block,RecordFactory factory) {
+        return createBlank(block, factory, false);
+    }
+
+    public static RecordBufferPage createBlank(Block block, RecordFactory factory, boolean compressed) {
         int count = 0;
         int linkId = NO_ID;
-        return new RecordBufferPage(block, factory, count, linkId);
+        return new RecordBufferPage(block, factory, count, linkId, compressed);
     }
 
     public static RecordBufferPage format(Block block, RecordFactory factory) {
+        return format(block, factory, false);
+    }
+
+    public static RecordBufferPage format(Block block, RecordFactory factory, boolean compressed) {
         int count = block.getByteBuffer().getInt(COUNT);
         int linkId = block.getByteBuffer().getInt(LINK);
-        return new RecordBufferPage(block, factory, count, linkId);
+        return new RecordBufferPage(block, factory, count, linkId, compressed);
     }
 
-    private RecordBufferPage(Block block, RecordFactory factory, int count, int linkId) {
-        super(block, FIELD_LENGTH, factory, count);
+    private RecordBufferPage(Block block, RecordFactory factory, int count, int linkId, boolean compressed) {
+        super(block, FIELD_LENGTH, factory, count, compressed);
         this.link = linkId;
     }
 
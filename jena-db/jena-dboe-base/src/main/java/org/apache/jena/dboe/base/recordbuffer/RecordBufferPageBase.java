@@ -21,8 +21,11 @@ package org.apache.jena.dboe.base.recordbuffer;
 import java.nio.ByteBuffer;
 
 import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.dboe.base.StorageException;
 import org.apache.jena.dboe.base.block.Block;
+import org.apache.jena.dboe.base.buffer.BufferException;
 import org.apache.jena.dboe.base.buffer.RecordBuffer;
+import org.apache.jena.dboe.base.buffer.RecordBufferCodec;
 import org.apache.jena.dboe.base.page.PageBase;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.sys.SysDB;
@@ -31,6 +34,12 @@ import org.apache.jena.dboe.sys.SysDB;
  * The on-disk form of a block of a single RecordBuffer
  * (i.e. this is not part of a BTree/BPlusTree branch node).
  * This must be compatible with B+Tree records nodes and hashbuckets.
+ * <p>
+ * A compressed page holds its records in a {@link RecordBuffer} of its own,
+ * decoded from the block when the page is made, and encoded into the block (see
+ * {@link RecordBufferCodec}) by {@link #encodeRecords}. The number of records
+ * varies with how well they compress so use {@link #isFull} and
+ * {@link #isMinSize}, not the count, to decide whether a page has room.
  */
 
 public abstract class RecordBufferPageBase extends PageBase // implements Page
@@ -39,12 +48,15 @@ public abstract class RecordBufferPageBase extends PageBase // implements Page
     final public static int     COUNT        = 0;
     // Length due to this class - subclasses may use more overhead.
     final private static int    FIELD_LENGTH = SysDB.SizeOfInt;
+    // Maximum records in a compressed page, as a multiple of the uncompressed maximum.
+    final private static int    CompressedMaxFactor = 4;
 
     protected final int         headerLength;
 
     // Interface: "Page" - id, byteBuffer, count
     protected RecordBuffer      recBuff;
     private final RecordFactory factory;
+    private final boolean       compressed;
 
     // private int offset; // Bytes of overhead.
 
@@ -62,11 +74,24 @@ public abstract class RecordBufferPageBase extends PageBase // implements Page
         return FIELD_LENGTH + headerOffset;
     }
 
+    /**
+     * Whether pages of blocks of this size, for records from this factory, are
+     * compressed when compression is asked for. Small blocks are not compressed.
+     */
+    public static boolean isCompressible(RecordFactory factory, int blkSize, int headerOffset) {
+        return RecordBufferCodec.canEncode(factory, blkSize - totalOffset(headerOffset));
+    }
+
     protected RecordBufferPageBase(Block block, int offset, RecordFactory factory, int count) {
+        this(block, offset, factory, count, false);
+    }
+
+    protected RecordBufferPageBase(Block block, int offset, RecordFactory factory, int count, boolean compressed) {
         // This code knows the alignment of the records in the ByteBuffer.
         super(block);
         this.headerLength = FIELD_LENGTH + offset; // NB +4 for the count field
         this.factory = factory;
+        this.compressed = compressed && RecordBufferCodec.canEncode(factory, spaceLength(block));
         rebuild(block, count);
     }
 
@@ -75,7 +100,67 @@ public abstract class RecordBufferPageBase extends PageBase // implements Page
         bb.clear();
         bb.position(headerLength);
         bb = bb.slice();
-        this.recBuff = new RecordBuffer(bb, factory, count);
+        if ( compressed ) {
+            int maxRec = CompressedMaxFactor * (bb.capacity() / factory.recordLength());
+            this.recBuff = new RecordBuffer(factory, maxRec);
+            RecordBufferCodec.decode(bb, 0, count, recBuff);
+        } else
+            this.recBuff = new RecordBuffer(bb, factory, count);
+    }
+
+    /** Write the records into the block, if the page is compressed. */
+    public void encodeRecords() {
+        if ( ! compressed )
+            return;
+        try {
+            RecordBufferCodec.encode(recBuff, getBackingBlock().getByteBuffer(), headerLength);
+        } catch (BufferException ex) {
+            throw new StorageException("Page "+getId()+": "+ex.getMessage(), ex);
+        }
+    }
+
+    public final boolean isCompressed() {
+        return compressed;
+    }
+
+    /** Whether there may not be room for another record. */
+    public boolean isFull() {
+        if ( recBuff.isFull() )
+            return true;
+        if ( ! compressed )
+            return false;
+        int space = getRecordSpace();
+        int entry = RecordBufferCodec.maxEntryLength(factory.recordLength());
+        // Room even if nothing compresses.
+        if ( (recBuff.size() + 1) * entry <= space )
+            return false;
+        return RecordBufferCodec.encodedLength(recBuff) + entry > space;
+    }
+
+    /**
+     * Whether the page is at most half full. Two such pages can be merged, and a
+     * record can be moved into one.
+     */
+    public boolean isMinSize() {
+        // If of max length 5 (i.e. odd), min size is 2. Integer division works.
+        if ( recBuff.size() > recBuff.maxSize() / 2 )
+            return false;
+        if ( ! compressed )
+            return true;
+        int half = getRecordSpace() / 2;
+        int entry = RecordBufferCodec.maxEntryLength(factory.recordLength());
+        if ( (recBuff.size() + 1) * entry <= half )
+            return true;
+        return RecordBufferCodec.encodedLength(recBuff) + entry <= half;
+    }
+
+    /** Bytes in the block for records. */
+    public final int getRecordSpace() {
+        return spaceLength(getBackingBlock());
+    }
+
+    private int spaceLength(Block block) {
+        return block.getByteBuffer().capacity() - headerLength;
     }
 
     public final RecordBuffer getRecordBuffer() {
@@ -63,6 +63,9 @@ public class SystemIndex
     /** Size of read block cache (32 bit systems only).  Increase JVM size as necessary. Per file. */
     public static final int BlockReadCacheSize      = intValue("BlockReadCacheSize", 10*1000);
 
+    /** Bytes of blocks that can be waiting for the background write-back of the delayed-write block cache (per file). 0 means write in the caller. */
+    public static final int BlockWriteBackSize      = intValue("BlockWriteBackSize", 16*1024*1024);
+
     private static int intValue(String name, int dft) { return dft; }
 
     public static void setNullOut(boolean nullOut)
@@ -26,6 +26,7 @@ import org.junit.runners.Suite;
     TestBlockMgrMem.class
     , TestBlockMgrDirect.class
     , TestBlockMgrMapped.class
+    , TestBlockMgrWriteBack.class
     , TestBlockMgrTracked.class
 })
 
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.block;
+
+import static org.apache.jena.atlas.lib.ByteBufferLib.fill;
+
+import java.nio.ByteBuffer;
+
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.ConfigTestDBOE;
+import org.apache.jena.dboe.base.file.BlockAccess;
+import org.apache.jena.dboe.base.file.BlockAccessDirect;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestBlockMgrWriteBack extends AbstractTestBlockMgr
+{
+    static final String filename = ConfigTestDBOE.getTestingDir()+"/block-mgr-writeback";
+
+    @BeforeClass static public void remove1() { FileOps.delete(filename); }
+    @AfterClass  static public void remove2() { FileOps.delete(filename); }
+
+    @Override
+    protected BlockMgr make() {
+        // Small caches, at most two blocks waiting to be written.
+        FileOps.delete(filename);
+        BlockAccess file = new BlockAccessDirect(filename, BlkSize);
+        BlockMgr mgr = new BlockMgrFileAccess(file, BlkSize);
+        return BlockMgrCache.create(3, 3, 2*BlkSize, mgr);
+    }
+
+    private static BlockMgr reopen() {
+        return BlockMgrFactory.createStdFileNoCache(filename, BlkSize);
+    }
+
+    private long[] writeBlocks(int N, int round) {
+        long[] ids = new long[N];
+        for ( int i = 0 ; i < N ; i++ ) {
+            Block block = ( round == 0 ) ? blockMgr.allocate(BlkSize) : blockMgr.getWrite(i);
+            fill(block.getByteBuffer(), (byte)(i+round));
+            ids[i] = block.getId();
+            blockMgr.write(block);
+            blockMgr.release(block);
+        }
+        return ids;
+    }
+
+    @Test public void writeBack01() {
+        // Many more blocks than the caches.
+        int N = 50;
+        long[] ids = writeBlocks(N, 0);
+        for ( int i = 0 ; i < N ; i++ ) {
+            Block block = blockMgr.getRead(ids[i]);
+            contains(block.getByteBuffer(), (byte)i);
+            blockMgr.release(block);
+        }
+    }
+
+    @Test public void writeBack02() {
+        // Written to the file by sync.
+        int N = 20;
+        long[] ids = writeBlocks(N, 0);
+        writeBlocks(N, 1);
+        blockMgr.sync();
+        BlockMgr mgr2 = reopen();
+        for ( int i = 0 ; i < N ; i++ ) {
+            Block block = mgr2.getRead(ids[i]);
+            contains(block.getByteBuffer(), (byte)(i+1));
+        }
+        mgr2.close();
+    }
+
+    @Test public void writeBack03() {
+        // Rewrites of a block: the last one is kept.
+        Block block = blockMgr.allocate(BlkSize);
+        long id = block.getId();
+        for ( int i = 0 ; i < 10 ; i++ ) {
+            fill(block.getByteBuffer(), (byte)i);
+            blockMgr.write(block);
+        }
+        blockMgr.release(block);
+        // Push it out of the write cache.
+        writeBlocks(10, 0);
+        Block block2 = blockMgr.getRead(id);
+        contains(block2.getByteBuffer(), (byte)9);
+        blockMgr.sync();
+        BlockMgr mgr2 = reopen();
+        contains(mgr2.getRead(id).getByteBuffer(), (byte)9);
+        mgr2.close();
+    }
+
+    @Test public void writeBack04() {
+        // Overwrite replaces a queued write.
+        Block block = blockMgr.allocate(BlkSize);
+        long id = block.getId();
+        fill(block.getByteBuffer(), (byte)1);
+        blockMgr.write(block);
+        blockMgr.release(block);
+        // Spilled from the write cache.
+        writeBlocks(10, 0);
+        Block block2 = new Block(id, ByteBuffer.allocate(BlkSize));
+        fill(block2.getByteBuffer(), (byte)2);
+        blockMgr.overwrite(block2);
+        blockMgr.sync();
+        contains(blockMgr.getRead(id).getByteBuffer(), (byte)2);
+        BlockMgr mgr2 = reopen();
+        contains(mgr2.getRead(id).getByteBuffer(), (byte)2);
+        mgr2.close();
+    }
+}
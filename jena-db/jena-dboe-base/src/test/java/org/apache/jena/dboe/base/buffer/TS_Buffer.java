@@ -25,6 +25,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses( {
     TestRecordBuffer.class
     , TestPtrBuffer.class
+    , TestRecordBufferCodec.class
 })
 
 public class TS_Buffer
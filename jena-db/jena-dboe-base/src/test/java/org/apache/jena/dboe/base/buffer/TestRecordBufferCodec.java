@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.base.buffer;
+
+import static org.apache.jena.dboe.test.RecordLib.intToRecord;
+
+import java.nio.ByteBuffer;
+
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.test.RecordLib;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRecordBufferCodec extends Assert
+{
+    static RecordFactory recordFactory = new RecordFactory(RecordLib.TestRecordLength, 0);
+    // Like a triple index: three 8 byte ids.
+    static RecordFactory tripleFactory = new RecordFactory(24, 0);
+
+    @Test public void recBufferCodec01() {
+        RecordBuffer rb = new RecordBuffer(recordFactory, 10);
+        assertEquals(0, RecordBufferCodec.encodedLength(rb));
+        roundTrip(rb, recordFactory);
+    }
+
+    @Test public void recBufferCodec02() {
+        RecordBuffer rb = new RecordBuffer(recordFactory, 10);
+        rb.add(intToRecord(0x01020304));
+        rb.add(intToRecord(0x01020305));
+        rb.add(intToRecord(0x01030000));
+        rb.add(intToRecord(0x02000000));
+        // 1+4, then shared 3, 1, 0.
+        assertEquals(5, RecordBufferCodec.entryLength(rb, 0));
+        assertEquals(2, RecordBufferCodec.entryLength(rb, 1));
+        assertEquals(4, RecordBufferCodec.entryLength(rb, 2));
+        assertEquals(5, RecordBufferCodec.entryLength(rb, 3));
+        assertEquals(16, RecordBufferCodec.encodedLength(rb));
+        roundTrip(rb, recordFactory);
+    }
+
+    @Test public void recBufferCodec03() {
+        // Sorted triples, many with the same subject.
+        RecordBuffer rb = new RecordBuffer(tripleFactory, 100);
+        for ( int i = 0 ; i < 100 ; i++ )
+            rb.add(triple(1000 + i / 10, 20 + (i % 10) / 5, 5000 + i));
+        int encoded = RecordBufferCodec.encodedLength(rb);
+        assertTrue("Encoded length: "+encoded, encoded < 100 * 24 / 4);
+        roundTrip(rb, tripleFactory);
+    }
+
+    @Test public void recBufferCodec04() {
+        // Deleting a record does not make the encoding longer.
+        RecordBuffer rb = new RecordBuffer(tripleFactory, 50);
+        for ( int i = 0 ; i < 50 ; i++ )
+            rb.add(triple(i / 7, i / 3, i * 257));
+        while ( rb.size() > 0 ) {
+            int before = RecordBufferCodec.encodedLength(rb);
+            rb.remove(rb.size() / 2);
+            assertTrue(RecordBufferCodec.encodedLength(rb) <= before);
+            roundTrip(rb, tripleFactory);
+        }
+    }
+
+    @Test(expected=BufferException.class)
+    public void recBufferCodec05() {
+        RecordBuffer rb = new RecordBuffer(recordFactory, 10);
+        for ( int i = 0 ; i < 10 ; i++ )
+            rb.add(intToRecord(i * 0x01010101));
+        RecordBufferCodec.encode(rb, ByteBuffer.allocate(20), 0);
+    }
+
+    @Test public void recBufferCodec06() {
+        assertTrue(RecordBufferCodec.canEncode(tripleFactory, 8192 - 8));
+        assertFalse(RecordBufferCodec.canEncode(tripleFactory, 1024 - 8));
+        assertFalse(RecordBufferCodec.canEncode(new RecordFactory(256, 0), 1024 * 1024));
+    }
+
+    private static Record triple(long s, long p, long o) {
+        byte[] b = new byte[24];
+        Bytes.setLong(s, b, 0);
+        Bytes.setLong(p, b, 8);
+        Bytes.setLong(o, b, 16);
+        return tripleFactory.create(b);
+    }
+
+    private static void roundTrip(RecordBuffer rb, RecordFactory factory) {
+        int offset = 8;
+        ByteBuffer bb = ByteBuffer.allocate(offset + RecordBufferCodec.encodedLength(rb));
+        int len = RecordBufferCodec.encode(rb, bb, offset);
+        assertEquals(RecordBufferCodec.encodedLength(rb), len);
+
+        // Not empty beforehand.
+        RecordBuffer rb2 = new RecordBuffer(factory, rb.maxSize());
+        rb2.add(factory.create());
+        RecordBufferCodec.decode(bb, offset, rb.size(), rb2);
+        assertEquals(rb.size(), rb2.size());
+        for ( int i = 0 ; i < rb.size() ; i++ )
+            assertEquals(0, Record.compareByKeyValue(rb.get(i), rb2.get(i)));
+    }
+}
@@ -331,6 +331,40 @@ public final class BPTreeNode extends BPTreePage
 //        return id;
 //    }
 
+    /**
+     * Keys of internal nodes that are strictly between {@code minRec} and {@code maxRec}
+     * (either may be null, meaning no limit), in order. The keys are from the highest
+     * level of the tree with at least {@code n} such keys, or from the lowest level of
+     * internal nodes if no level has that many.
+     */
+    static List<Record> splitKeys(BPTreeNode root, Record minRec, Record maxRec, int n) {
+        List<BPTreeNode> level = List.of(root);
+        for ( ;; ) {
+            List<Record> keys = new ArrayList<>();
+            for ( BPTreeNode node : level ) {
+                for ( int i = 0 ; i < node.getCount() ; i++ ) {
+                    Record key = node.records.get(i);
+                    if ( minRec != null && Record.keyLE(key, minRec) )
+                        continue;
+                    if ( maxRec != null && Record.keyGE(key, maxRec) )
+                        continue;
+                    keys.add(key);
+                }
+            }
+            if ( keys.size() >= n || level.get(0).isLeaf() )
+                return keys;
+            List<BPTreeNode> nextLevel = new ArrayList<>();
+            for ( BPTreeNode node : level ) {
+                Iterator<BPTreePage> iter = node.iterator(minRec, maxRec);
+                if ( iter != null )
+                    iter.forEachRemaining(page -> nextLevel.add((BPTreeNode)page));
+            }
+            if ( nextLevel.isEmpty() )
+                return keys;
+            level = nextLevel;
+        }
+    }
+
     final static Record minRecord(BPTreeNode root) {
         AccessPath path = new AccessPath(root);
         return root.internalMinRecord(path);
@@ -433,6 +467,7 @@ public final class BPTreeNode extends BPTreePage
             Block oldBlock = block;
             boolean b = bpTree.getNodeManager().promoteDuplicate(this);
             if ( b ) {
+                bpTree.staleNodeBlock(oldBlock.getId().intValue());
                 bpTree.getNodeManager().getBlockMgr().release(oldBlock);
             }
             return b;
@@ -443,7 +478,10 @@ public final class BPTreeNode extends BPTreePage
     final void release()        { bpTree.getNodeManager().release(this); }
 
     @Override
-    final void free()           { bpTree.getNodeManager().free(this); }
+    final void free() {
+        bpTree.staleNodeBlock(getId());
+        bpTree.getNodeManager().free(this);
+    }
 
     // ============ SEARCH
 
@@ -971,7 +1009,9 @@ public final class BPTreeNode extends BPTreePage
                 // (it's already there, with its value).
                 // Size is N+N and max could be odd so N+N and N+N+1 are
                 // possible.
-                if ( left.getCount() + 1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
+                // Compressed record blocks are full by bytes, not count.
+                if ( ! bpTree.getParams().isCompressedRecords() &&
+                     left.getCount() + 1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
                     BPT.error("Inconsistent data node size: %d/%d", left.getCount(), left.getMaxSize());
             } else if ( !left.isFull() ) {
                 // If not two data blocks, the left side should now be full
@@ -38,8 +38,17 @@ public final class BPTreeNodeMgr extends PageBlockMgr<BPTreeNode>
     // Only "public" for external very low level tools in development to access this class.
     // Assume package access.
 
+    private final BPlusTree bpTree;
+
     public BPTreeNodeMgr(BPlusTree bpTree, BlockMgr blockMgr) {
         super(new Block2BPTreeNode(bpTree), blockMgr);
+        this.bpTree = bpTree;
+    }
+
+    @Override
+    protected Block allocateBlock() {
+        int id = bpTree.recycledNodeBlock();
+        return ( id < 0 ) ? super.allocateBlock() : reuseBlock(id);
     }
 
     /** Allocate space for a fresh node. */
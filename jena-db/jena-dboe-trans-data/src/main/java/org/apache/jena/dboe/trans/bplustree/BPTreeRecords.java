@@ -92,7 +92,7 @@ public final class BPTreeRecords extends BPTreePage {
 
     @Override
     public boolean isFull() {
-        return (rBuff.size() >= rBuff.maxSize());
+        return rBuffPage.isFull();
     }
 
     @Override
@@ -103,8 +103,7 @@ public final class BPTreeRecords extends BPTreePage {
     @Override
     public boolean isMinSize() {
         // 50% packing minimum.
-        // If of max length 5 (i.e. odd), min size is 2. Integer division works.
-        return (rBuff.size() <= rBuff.maxSize() / 2);
+        return rBuffPage.isMinSize();
     }
 
     @Override
@@ -135,8 +134,10 @@ public final class BPTreeRecords extends BPTreePage {
         } else {
             Block oldBlock = getBackingBlock();
             boolean b = bprRecordsMgr.promoteDuplicate(this);
-            if ( b )
+            if ( b ) {
+                bpTree.staleRecordsBlock(oldBlock.getId().intValue());
                 bprRecordsMgr.getBlockMgr().release(oldBlock);
+            }
             return b;
         }
 
@@ -149,6 +150,8 @@ public final class BPTreeRecords extends BPTreePage {
 
     @Override
     final public void free() {
+        if ( bpTree != null )
+            bpTree.staleRecordsBlock(getId());
         bprRecordsMgr.free(this);
     }
 
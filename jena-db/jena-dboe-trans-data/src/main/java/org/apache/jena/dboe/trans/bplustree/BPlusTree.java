@@ -19,11 +19,16 @@
 package org.apache.jena.dboe.trans.bplustree;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.jena.atlas.io.IndentedWriter;
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.InternalErrorException;
+import org.apache.jena.dboe.base.buffer.PtrBuffer;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.base.record.RecordMapper;
@@ -128,6 +133,7 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
     private final BPlusTreeParams bpTreeParams;
     private Mode mode = Mode.TRANSACTIONAL;
     private BptTxnState nonTxnState = null;
+    private final BlockRecycler recycler = new BlockRecycler();
 
     // Construction is a two stage process
     //    1/ Create the object, uninitialized
@@ -149,6 +155,7 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         this.stateManager = stateManager;
         this.nodeManager = nodeManager;
         this.recordsMgr = recordsMgr;
+        this.recycler.reset(stateManager.getNodeBlocksLimit(), stateManager.getRecordsBlocksLimit());
     }
 
     private BPTreeNode getRootRead() {
@@ -356,6 +363,115 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         return BPTreeRangeIteratorMapper.create(node, minRec, maxRec, keyLen, mapper);
     }
 
+    /**
+     * Keys that divide the records between {@code minRec} (inclusive) and {@code maxRec}
+     * (exclusive) into ranges of roughly equal size, in order. Either bound may be null,
+     * meaning no limit. The keys are from the internal nodes of the tree; there are at
+     * least {@code n} of them unless the tree is too small. No records are read.
+     * <p>
+     * Iterators for the ranges between the keys may be used in other threads while the
+     * transaction that created them is active.
+     */
+    public List<Record> splitKeys(Record minRec, Record maxRec, int n) {
+        startReadBlkMgr();
+        BPTreeNode root = getRootRead();
+        List<Record> keys = BPTreeNode.splitKeys(root, minRec, maxRec, n);
+        releaseRootRead(root);
+        finishReadBlkMgr();
+        return keys;
+    }
+
+    /**
+     * Make the blocks that are not part of the tree available for reuse, and
+     * reuse blocks from now on.
+     * <p>
+     * Write transactions copy the blocks they change, so earlier versions of
+     * blocks accumulate in the files. This finds the blocks that are not part of
+     * the tree as seen by this transaction by walking the branch nodes of the
+     * tree; the records blocks are not read. The blocks found are reused by
+     * write transactions once all transactions older than this one have
+     * finished. After the first call, blocks that commits replace or free are
+     * also reused.
+     * <p>
+     * This must be called in a read transaction; other transactions may be
+     * active at the same time. Reuse is not recorded on disk: after a restart,
+     * the tree does not reuse blocks until this is called again. Files do not
+     * get shorter.
+     * @return The number of blocks found.
+     */
+    public long reclaim() {
+        if ( ! isTransactional() )
+            throw new BPTreeException("reclaim: Not transactional");
+        checkTxn();
+        if ( isWriteTxn() )
+            throw new BPTreeException("reclaim: Not a read transaction");
+        BptTxnState state = getDataState();
+        recycler.enable();
+        BitSet nodes = new BitSet();
+        BitSet records = new BitSet();
+        startReadBlkMgr();
+        try {
+            markReachable(state.initialroot, nodes, records);
+        } finally { finishReadBlkMgr(); }
+        return recycler.reclaim(state, nodes, records);
+    }
+
+    /** Number of blocks that are available, or will be available, for reuse. */
+    public long getReusableBlocks() {
+        return recycler.getFreeBlocks();
+    }
+
+    private void markReachable(int rootId, BitSet nodes, BitSet records) {
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(rootId);
+        while ( ! stack.isEmpty() ) {
+            int id = stack.pop();
+            nodes.set(id);
+            BPTreeNode node = nodeManager.getRead(id, BPlusTreeParams.UnsetParent);
+            try {
+                PtrBuffer ptrs = node.getPtrBuffer();
+                for ( int i = 0 ; i < ptrs.size() ; i++ ) {
+                    if ( node.isLeaf() )
+                        records.set(ptrs.get(i));
+                    else
+                        stack.push(ptrs.get(i));
+                }
+            } finally { node.release(); }
+        }
+    }
+
+    /** A block for a new node from the blocks that are no longer used, or -1. */
+    /*package*/ int recycledNodeBlock() {
+        if ( ! recycler.isEnabled() || ! isTransactional() || ! isActiveTxn() || ! isWriteTxn() )
+            return -1;
+        int id = recycler.allocNode();
+        if ( id >= 0 )
+            getDataState().reusedNode(id);
+        return id;
+    }
+
+    /** A block for a new records page from the blocks that are no longer used, or -1. */
+    /*package*/ int recycledRecordsBlock() {
+        if ( ! recycler.isEnabled() || ! isTransactional() || ! isActiveTxn() || ! isWriteTxn() )
+            return -1;
+        int id = recycler.allocRecords();
+        if ( id >= 0 )
+            getDataState().reusedRecords(id);
+        return id;
+    }
+
+    /** A node block is replaced or freed in this transaction. */
+    /*package*/ void staleNodeBlock(int id) {
+        if ( recycler.isEnabled() && isTransactional() && isActiveTxn() && isWriteTxn() )
+            getDataState().staleNode(id);
+    }
+
+    /** A records block is replaced or freed in this transaction. */
+    /*package*/ void staleRecordsBlock(int id) {
+        if ( recycler.isEnabled() && isTransactional() && isActiveTxn() && isWriteTxn() )
+            getDataState().staleRecords(id);
+    }
+
     // Internal calls.
     void startReadBlkMgr() {
         nodeManager.startRead();
@@ -494,6 +610,7 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         rootIdx = stateManager.getRoot();
         nodeManager.resetAlloc(stateManager.getNodeBlocksLimit());
         recordsMgr.resetAlloc(stateManager.getRecordsBlocksLimit());
+        recycler.reset(stateManager.getNodeBlocksLimit(), stateManager.getRecordsBlocksLimit());
     }
 
     @Override
@@ -510,9 +627,14 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
     }
 
     private BptTxnState createState() {
-        return new BptTxnState(rootIdx,
-                               nodeManager.allocLimit(),
-                               recordsMgr.allocLimit());
+        // The root and the epoch change together (see _commit).
+        synchronized(recycler) {
+            BptTxnState state = new BptTxnState(rootIdx,
+                                                nodeManager.allocLimit(),
+                                                recordsMgr.allocLimit());
+            recycler.begin(state);
+            return state;
+        }
     }
 
     /* The persistent transactional state of a B+Tree is new root and the
@@ -521,6 +643,7 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
     @Override
     protected BptTxnState _promote(TxnId txnId, BptTxnState oldState) {
         BptTxnState newState = createState();
+        recycler.finish(oldState);
         return newState;
     }
 
@@ -539,7 +662,10 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
     @Override
     protected void _commit(TxnId txnId, BptTxnState state) {
         if ( isWriteTxn() ) {
-            rootIdx = state.getRoot();
+            synchronized(recycler) {
+                rootIdx = state.getRoot();
+                recycler.commit(state, stateManager.getNodeBlocksLimit(), stateManager.getRecordsBlocksLimit());
+            }
             stateManager.sync();
         }
     }
@@ -556,11 +682,14 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
             recordsMgr.resetAlloc(state.boundaryBlocksRecord);
             stateManager.setState(state.initialroot, state.boundaryBlocksNode, state.boundaryBlocksRecord);
             stateManager.sync();
+            recycler.abort(state);
         }
     }
 
     @Override
-    protected void _complete(TxnId txnId, BptTxnState state) {}
+    protected void _complete(TxnId txnId, BptTxnState state) {
+        recycler.finish(state);
+    }
 
     @Override
     protected void _shutdown() {}
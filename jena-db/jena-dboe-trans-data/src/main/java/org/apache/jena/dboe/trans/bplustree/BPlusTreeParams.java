@@ -61,6 +61,9 @@ final public class BPlusTreeParams
     /** Factory for key-only records */
     final RecordFactory keyFactory;
 
+    /** Whether record (leaf) blocks are compressed */
+    final boolean compressedRecords;
+
     // ---- Derived constants.
 
     /** Maximum number of keys per non-leaf block */
@@ -91,13 +94,14 @@ final public class BPlusTreeParams
 
     @Override
     public String toString() {
-        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d",
+        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d%s",
                              order,
                              keyFactory.keyLength() ,
                              recordFactory.valueLength() ,
                              MinRec, MaxRec,
                              MinPtr, MaxPtr,
-                             SplitIndex
+                             SplitIndex,
+                             compressedRecords ? " : compressed" : ""
                              );
     }
 
@@ -125,6 +129,16 @@ final public class BPlusTreeParams
     }
 
     public BPlusTreeParams(int order, RecordFactory factory) {
+        this(order, factory, false);
+    }
+
+    /**
+     * B+Tree parameters; if {@code compressedRecords}, the record blocks of the
+     * B+Tree are stored compressed (see
+     * {@link org.apache.jena.dboe.base.buffer.RecordBufferCodec}). This is fixed
+     * when the B+Tree is created.
+     */
+    public BPlusTreeParams(int order, RecordFactory factory, boolean compressedRecords) {
         // BTrees of order one aren't strictly BTrees
         // Order 1 => Min size = 0 and max size = 2*N-1 = 1.
         // If there is a gap, then the code may be defensive enough
@@ -137,6 +151,7 @@ final public class BPlusTreeParams
         this.order = order;
         recordFactory = factory;
         keyFactory = factory.keyFactory();
+        this.compressedRecords = compressedRecords;
 
         // Derived constants.
         MaxRec  = 2*order-1 + Gap;
@@ -174,6 +189,10 @@ final public class BPlusTreeParams
         return keyFactory;
     }
 
+    public boolean isCompressedRecords() {
+        return compressedRecords;
+    }
+
     public int getCalcBlockSize() {
         return calcBlockSize(order, recordFactory);
     }
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.trans.bplustree;
+
+import java.util.*;
+
+/**
+ * Reuse of the blocks of a transactional {@link BPlusTree} that are no longer
+ * part of the tree for any transaction.
+ * <p>
+ * A write transaction does not change a block that existed when it started; it
+ * changes a copy. After the commit, the old block is not in the tree but may still
+ * be read by transactions that started before the commit. Commits are counted
+ * ("epochs") and each transaction records the epoch it started in. A block that
+ * was replaced or freed by the commit starting epoch E can be reused when all
+ * active transactions started in epoch E or later.
+ * <p>
+ * Replaced and freed blocks are only recorded when recycling is enabled, which
+ * {@link BPlusTree#reclaim} does. The information is only held in memory: blocks
+ * not in use when the database is closed are found again by {@link BPlusTree#reclaim}.
+ */
+final class BlockRecycler {
+    private volatile boolean enabled = false;
+
+    // Guarded by "this".
+    private long epoch = 0;
+    // Epoch -> number of active transactions that started in that epoch.
+    private final TreeMap<Long, Integer> active = new TreeMap<>();
+    private final Space nodes = new Space();
+    private final Space records = new Space();
+    // The lowest active epoch when pending blocks were last released.
+    private long releasedAt = -1;
+    private boolean newPending = false;
+
+    /** Blocks of one block manager. */
+    private static final class Space {
+        // Blocks that can be allocated.
+        final BitSet free = new BitSet();
+        // Blocks that have been free or pending: reclaim does not find them again.
+        final BitSet known = new BitSet();
+        // Blocks waiting for older transactions to finish.
+        final List<Pending> pending = new ArrayList<>();
+        // Allocation limit of the last commit.
+        long limit = 0;
+    }
+
+    /** Blocks that can be reused when all active transactions started at or after the epoch. */
+    private static final class Pending {
+        final long epoch;
+        final int[] ids;
+        final BitSet blocks;
+
+        Pending(long epoch, int[] ids, BitSet blocks) {
+            this.epoch = epoch;
+            this.ids = ids;
+            this.blocks = blocks;
+        }
+    }
+
+    boolean isEnabled()     { return enabled; }
+
+    void enable()           { enabled = true; }
+
+    /** Set the allocation limits of the committed tree. */
+    synchronized void reset(long nodeLimit, long recordsLimit) {
+        nodes.limit = nodeLimit;
+        records.limit = recordsLimit;
+    }
+
+    /** Record the start of a transaction. */
+    synchronized void begin(BptTxnState state) {
+        state.epoch = epoch;
+        state.epochNodeLimit = nodes.limit;
+        state.epochRecordsLimit = records.limit;
+        state.registered = true;
+        active.merge(epoch, 1, Integer::sum);
+    }
+
+    /** Record the end of a transaction. It is safe to call this more than once. */
+    synchronized void finish(BptTxnState state) {
+        if ( ! state.registered )
+            return;
+        state.registered = false;
+        active.computeIfPresent(state.epoch, (e, n) -> n == 1 ? null : n - 1);
+    }
+
+    /** A block to reuse for a node, or -1. */
+    synchronized int allocNode() {
+        return alloc(nodes);
+    }
+
+    /** A block to reuse for a records page, or -1. */
+    synchronized int allocRecords() {
+        return alloc(records);
+    }
+
+    private int alloc(Space space) {
+        if ( ! enabled )
+            return -1;
+        if ( space.free.isEmpty() )
+            release();
+        // Lowest first: this keeps the tree towards the start of the file.
+        int id = space.free.nextSetBit(0);
+        if ( id >= 0 )
+            space.free.clear(id);
+        return id;
+    }
+
+    /** A write transaction has committed. The blocks it replaced or freed are pending. */
+    synchronized void commit(BptTxnState state, long nodeLimit, long recordsLimit) {
+        epoch++;
+        nodes.limit = nodeLimit;
+        records.limit = recordsLimit;
+        if ( state.staleNodes != null )
+            addPending(nodes, epoch, state.staleNodes.stream().toArray(), null);
+        if ( state.staleRecords != null )
+            addPending(records, epoch, state.staleRecords.stream().toArray(), null);
+    }
+
+    /** A write transaction has aborted. The blocks it reused are still free. */
+    synchronized void abort(BptTxnState state) {
+        if ( state.reusedNodes != null )
+            nodes.free.or(state.reusedNodes);
+        if ( state.reusedRecords != null )
+            records.free.or(state.reusedRecords);
+    }
+
+    /**
+     * Add the blocks, below the allocation limits of the transaction's epoch,
+     * that are not reachable in the transaction and not already known.
+     * Return the number of blocks added.
+     */
+    synchronized long reclaim(BptTxnState state, BitSet reachableNodes, BitSet reachableRecords) {
+        long n = reclaim(nodes, state.epoch, state.epochNodeLimit, reachableNodes);
+        n += reclaim(records, state.epoch, state.epochRecordsLimit, reachableRecords);
+        return n;
+    }
+
+    private long reclaim(Space space, long startEpoch, long limit, BitSet reachable) {
+        BitSet unused = new BitSet();
+        unused.set(0, (int)limit);
+        unused.andNot(reachable);
+        unused.andNot(space.known);
+        if ( unused.isEmpty() )
+            return 0;
+        addPending(space, startEpoch, null, unused);
+        return unused.cardinality();
+    }
+
+    private void addPending(Space space, long pendingEpoch, int[] ids, BitSet blocks) {
+        if ( ids != null ) {
+            if ( ids.length == 0 )
+                return;
+            for ( int id : ids )
+                space.known.set(id);
+        } else
+            space.known.or(blocks);
+        space.pending.add(new Pending(pendingEpoch, ids, blocks));
+        newPending = true;
+    }
+
+    /** Move pending blocks that no active transaction can reach to the free blocks. */
+    private void release() {
+        long lowest = active.isEmpty() ? epoch : active.firstKey();
+        if ( lowest == releasedAt && ! newPending )
+            return;
+        releasedAt = lowest;
+        newPending = false;
+        release(nodes, lowest);
+        release(records, lowest);
+    }
+
+    private static void release(Space space, long lowest) {
+        Iterator<Pending> iter = space.pending.iterator();
+        while ( iter.hasNext() ) {
+            Pending p = iter.next();
+            if ( p.epoch > lowest )
+                continue;
+            if ( p.ids != null ) {
+                for ( int id : p.ids )
+                    space.free.set(id);
+            } else
+                space.free.or(p.blocks);
+            iter.remove();
+        }
+    }
+
+    /** Number of blocks that are free or pending. */
+    synchronized long getFreeBlocks() {
+        return count(nodes) + count(records);
+    }
+
+    private static long count(Space space) {
+        long n = space.free.cardinality();
+        for ( Pending p : space.pending )
+            n += ( p.ids != null ) ? p.ids.length : p.blocks.cardinality();
+        return n;
+    }
+}
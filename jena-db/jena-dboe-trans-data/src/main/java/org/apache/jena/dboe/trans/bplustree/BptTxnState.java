@@ -18,6 +18,8 @@
 
 package org.apache.jena.dboe.trans.bplustree;
 
+import java.util.BitSet;
+
 /** Transactional state of a {@link BPlusTree} */
 final class BptTxnState {
     final int initialroot;
@@ -29,6 +31,20 @@ final class BptTxnState {
     final long boundaryBlocksNode;
     final long boundaryBlocksRecord;
 
+    // Set by the BlockRecycler: the commit epoch the transaction started in,
+    // with the allocation limits of that commit.
+    long epoch = -1;
+    long epochNodeLimit = 0;
+    long epochRecordsLimit = 0;
+    boolean registered = false;
+
+    // Write transactions: blocks reused from the BlockRecycler, and blocks
+    // replaced or freed. Created when needed.
+    BitSet reusedNodes = null;
+    BitSet reusedRecords = null;
+    BitSet staleNodes = null;
+    BitSet staleRecords = null;
+
     BptTxnState(int initRoot, long boundaryNode, long boundaryRecords) {
         this.initialroot = initRoot;
         this.root = initRoot;
@@ -39,13 +55,37 @@ final class BptTxnState {
     boolean modifiableNodeBlock(int id) {
         if ( BPT.forcePromoteModes )
             return ! BPT.promoteDuplicateNodes;
-        return id >= boundaryBlocksNode;
+        return id >= boundaryBlocksNode || ( reusedNodes != null && reusedNodes.get(id) );
     }
 
     boolean modifiableRecordsBlock(int id) {
         if ( BPT.forcePromoteModes )
             return ! BPT.promoteDuplicateRecords;
-        return id >= boundaryBlocksRecord;
+        return id >= boundaryBlocksRecord || ( reusedRecords != null && reusedRecords.get(id) );
+    }
+
+    void reusedNode(int id) {
+        if ( reusedNodes == null )
+            reusedNodes = new BitSet();
+        reusedNodes.set(id);
+    }
+
+    void reusedRecords(int id) {
+        if ( reusedRecords == null )
+            reusedRecords = new BitSet();
+        reusedRecords.set(id);
+    }
+
+    void staleNode(int id) {
+        if ( staleNodes == null )
+            staleNodes = new BitSet();
+        staleNodes.set(id);
+    }
+
+    void staleRecords(int id) {
+        if ( staleRecords == null )
+            staleRecords = new BitSet();
+        staleRecords.set(id);
     }
 
     @Override
@@ -193,7 +193,8 @@ public class BPlusTreeRewriter {
             if ( debug ) {
                 System.out.printf("Rebalance Data [%s, %s] %d %d\n", id1, id2, x1, x2);
             }
-            for ( int i = page2.getCount(); i < page1.getMaxSize() / 2 ; i++ ) {
+            // Compressed pages may fill (by bytes) first.
+            for ( int i = page2.getCount(); i < page1.getMaxSize() / 2 && !page2.isFull() && page1.getCount() > page2.getCount() ; i++ ) {
                 Record r = page1.getRecordBuffer().getHigh();
                 page1.getRecordBuffer().removeTop();
                 page2.getRecordBuffer().add(0, r);
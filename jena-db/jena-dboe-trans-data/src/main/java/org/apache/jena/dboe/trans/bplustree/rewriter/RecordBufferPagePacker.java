@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import org.apache.jena.dboe.base.buffer.RecordBuffer;
+import org.apache.jena.dboe.base.buffer.RecordBufferCodec;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.recordbuffer.RecordBufferPage;
 import org.apache.jena.dboe.base.recordbuffer.RecordBufferPageMgr;
@@ -63,9 +64,21 @@ class RecordBufferPagePacker implements Iterator<RecordBufferPage> {
             recordBufferPage = rbMgr.create();
 
             RecordBuffer rb = recordBufferPage.getRecordBuffer();
-            while (!rb.isFull() && records.hasNext()) {
-                Record r = records.next();
-                rb.add(r);
+            if ( recordBufferPage.isCompressed() ) {
+                // Fill to the same point as RecordBufferPage.isFull, keeping a running total of the encoded size.
+                int space = recordBufferPage.getRecordSpace();
+                int entry = RecordBufferCodec.maxEntryLength(rbMgr.getRecordFactory().recordLength());
+                int encoded = 0;
+                while (!rb.isFull() && encoded + entry <= space && records.hasNext()) {
+                    Record r = records.next();
+                    rb.add(r);
+                    encoded += RecordBufferCodec.entryLength(rb, rb.size() - 1);
+                }
+            } else {
+                while (!rb.isFull() && records.hasNext()) {
+                    Record r = records.next();
+                    rb.add(r);
+                }
             }
             if ( !records.hasNext() )
                 records = null;
@@ -30,9 +30,12 @@ import org.junit.runners.Suite;
     TestBPlusTreeIndexNonTxn.class,
     TestBPlusTreeNonTxn.class,
     TestBPTreeModes.class,
+    TestBPlusTreeSplitKeys.class,
+    TestBPlusTreeCompressed.class,
 
     // Transactional tests
     TestBPlusTreeTxn.class,
+    TestBPlusTreeReclaim.class,
 
     // Rewriter
     TestBPlusTreeRewriterNonTxn.class
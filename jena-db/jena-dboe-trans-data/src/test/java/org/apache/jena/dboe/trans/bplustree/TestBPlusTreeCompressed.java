@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.trans.bplustree;
+
+import static org.apache.jena.dboe.index.testlib.IndexTestLib.add;
+import static org.apache.jena.dboe.index.testlib.IndexTestLib.randTest;
+import static org.apache.jena.dboe.test.RecordLib.intToRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.lib.Bytes;
+import org.apache.jena.dboe.base.block.BlockMgr;
+import org.apache.jena.dboe.base.block.BlockMgrFactory;
+import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.base.file.FileFactory;
+import org.apache.jena.dboe.base.file.FileSet;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.testlib.AbstractTestRangeIndex;
+import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.dboe.sys.SystemIndex;
+import org.apache.jena.dboe.test.RecordLib;
+import org.apache.jena.dboe.trans.bplustree.rewriter.BPlusTreeRewriter;
+import org.apache.jena.dboe.trans.bplustree.rewriter.TestBPlusTreeRewriterNonTxn;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** B+Trees with compressed record blocks, in "non-transactional" mode */
+public class TestBPlusTreeCompressed extends AbstractTestRangeIndex {
+    // Small record blocks are not compressed.
+    private static final int MinDataRecords = 16;
+
+    static boolean originalNullOut;
+    @BeforeClass
+    static public void beforeClass() {
+        BPT.CheckingNode = true;
+        originalNullOut = SystemIndex.getNullOut();
+        SystemIndex.setNullOut(true);
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        SystemIndex.setNullOut(originalNullOut);
+    }
+
+    @Override
+    protected BPlusTree makeRangeIndex(int order, int minRecords) {
+        return makeRangeIndex(order, minRecords, true);
+    }
+
+    private static BPlusTree makeRangeIndex(int order, int minRecords, boolean compressed) {
+        BPlusTree bpt = BPlusTreeFactory.makeMem(null, order, Math.max(minRecords, MinDataRecords), RecordLib.TestRecordLength, 0, compressed);
+        bpt.nonTransactional();
+        return bpt;
+    }
+
+    @Test public void compressed_01() {
+        BPlusTree bpt = makeRangeIndex(2, 2);
+        assertTrue(bpt.getParams().isCompressedRecords());
+        add(bpt, 1, 2, 3);
+        BPTreeRecordsMgr mgr = bpt.getRecordsMgr();
+        mgr.startRead();
+        BPTreeRecords page = mgr.getRead(0);
+        assertTrue(page.getRecordBufferPage().isCompressed());
+        mgr.release(page);
+        mgr.finishRead();
+    }
+
+    @Test public void compressed_02() {
+        // Compressed record blocks hold more records.
+        BPlusTree bpt1 = makeRangeIndex(4, MinDataRecords, false);
+        BPlusTree bpt2 = makeRangeIndex(4, MinDataRecords, true);
+        for ( int i = 0 ; i < 2000 ; i++ ) {
+            bpt1.insert(intToRecord(i));
+            bpt2.insert(intToRecord(i));
+        }
+        long blocks1 = bpt1.getRecordsMgr().getBlockMgr().allocLimit();
+        long blocks2 = bpt2.getRecordsMgr().getBlockMgr().allocLimit();
+        // Sequential 4 byte keys take 2 bytes compressed.
+        assertTrue(blocks1+" / "+blocks2, 3 * blocks2 < 2 * blocks1);
+        assertEquals(2000, bpt2.size());
+        bpt2.check();
+    }
+
+    @Test public void compressed_03() {
+        for ( int i = 0 ; i < 10 ; i++ )
+            randTest(makeRangeIndex(3), 99999, 1000);
+    }
+
+    @Test public void compressed_04() {
+        // Keys that compress differently in different parts of the tree.
+        BPlusTree bpt = makeRangeIndex(3, 3);
+        List<Record> records = new ArrayList<>();
+        for ( int i = 0 ; i < 3000 ; i++ )
+            records.add(intToRecord( (i % 2 == 0) ? i : i * 104729 ));
+        records.forEach(bpt::insert);
+        bpt.check();
+        for ( int i = 0 ; i < records.size() ; i += 2 )
+            assertTrue(bpt.delete(records.get(i)));
+        bpt.check();
+        for ( int i = 1 ; i < records.size() ; i += 2 )
+            assertTrue(bpt.contains(records.get(i)));
+        assertEquals(records.size() / 2, bpt.size());
+    }
+
+    @Test public void compressed_rewrite_01() {
+        RecordFactory recordFactory = new RecordFactory(4, 8);
+        BPlusTreeParams bptParams = new BPlusTreeParams(64, recordFactory, true);
+        List<Record> data = new ArrayList<>();
+        for ( int i = 0 ; i < 5000 ; i++ ) {
+            Record record = recordFactory.create();
+            Bytes.setInt(i+1, record.getKey());
+            Bytes.setInt(10*i+1, record.getValue());
+            data.add(record);
+        }
+        FileSet destination = FileSet.mem();
+        BufferChannel rootState = FileFactory.createBufferChannel(destination, Names.extBptState);
+        BlockMgr blkMgr1 = BlockMgrFactory.create(destination, Names.extBptTree, bptParams.getCalcBlockSize(), 10, 10);
+        BlockMgr blkMgr2 = BlockMgrFactory.create(destination, Names.extBptRecords, bptParams.getCalcBlockSize(), 10, 10);
+        BPlusTree bpt = BPlusTreeRewriter.packIntoBPlusTree(data.iterator(), bptParams, recordFactory,
+                                                           rootState, blkMgr1, blkMgr2);
+        bpt.check();
+        TestBPlusTreeRewriterNonTxn.scanComparision(data, bpt);
+        TestBPlusTreeRewriterNonTxn.findComparison(data, bpt);
+        assertEquals(data.size(), bpt.size());
+    }
+}
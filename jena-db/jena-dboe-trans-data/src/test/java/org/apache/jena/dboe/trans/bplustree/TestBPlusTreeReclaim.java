@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.trans.bplustree;
+
+import static org.apache.jena.dboe.test.RecordLib.intToRecord;
+import static org.apache.jena.dboe.test.RecordLib.r;
+import static org.apache.jena.dboe.trans.bplustree.TestBPlusTreeTxn.transactional;
+
+import java.util.*;
+
+import org.apache.jena.dboe.index.testlib.IndexTestLib;
+import org.apache.jena.dboe.test.RecordLib;
+import org.apache.jena.dboe.transaction.Transactional;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.system.ThreadAction;
+import org.apache.jena.system.ThreadTxn;
+import org.apache.jena.system.Txn;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests of reusing the blocks of a transactional B+Tree */
+public class TestBPlusTreeReclaim extends Assert {
+
+    static BPlusTree createBPTree() {
+        return BPlusTreeFactory.makeMem(3, 3, RecordLib.TestRecordLength, 0);
+    }
+
+    private static long blocks(BPlusTree bpt) {
+        return bpt.getNodeManager().allocLimit() + bpt.getRecordsMgr().allocLimit();
+    }
+
+    private static void update(Transactional thing, BPlusTree bpt, int i) {
+        Txn.executeWrite(thing, () -> {
+            bpt.delete(intToRecord(i));
+            bpt.insert(intToRecord(i));
+        });
+    }
+
+    @Test public void reclaim_01() {
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        for ( int i = 0 ; i < 10 ; i++ ) {
+            int x = i;
+            Txn.executeWrite(thing, () -> IndexTestLib.add(bpt, 10 * x, 10 * x + 1, 10 * x + 2));
+        }
+        long n1 = Txn.calculateRead(thing, bpt::reclaim);
+        assertTrue(n1 > 0);
+        assertEquals(n1, bpt.getReusableBlocks());
+        // Already found.
+        long n2 = Txn.calculateRead(thing, bpt::reclaim);
+        assertEquals(0, n2);
+    }
+
+    @Test public void reclaim_02() {
+        // With reuse, repeated updates do not make the tree use more blocks.
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        Txn.executeWrite(thing, () -> {
+            for ( int i = 0 ; i < 200 ; i++ )
+                bpt.insert(intToRecord(i));
+        });
+        Txn.executeRead(thing, bpt::reclaim);
+        for ( int i = 0 ; i < 20 ; i++ )
+            update(thing, bpt, i);
+        long blocks1 = blocks(bpt);
+        for ( int i = 0 ; i < 200 ; i++ )
+            update(thing, bpt, i);
+        long blocks2 = blocks(bpt);
+        assertEquals(blocks1, blocks2);
+        Txn.executeRead(thing, () -> {
+            bpt.check();
+            assertEquals(200, bpt.size());
+        });
+    }
+
+    @Test public void reclaim_03() {
+        // Without reuse, the tree grows.
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        Txn.executeWrite(thing, () -> {
+            for ( int i = 0 ; i < 200 ; i++ )
+                bpt.insert(intToRecord(i));
+        });
+        for ( int i = 0 ; i < 20 ; i++ )
+            update(thing, bpt, i);
+        long blocks1 = blocks(bpt);
+        for ( int i = 0 ; i < 200 ; i++ )
+            update(thing, bpt, i);
+        long blocks2 = blocks(bpt);
+        assertTrue(blocks2 > blocks1);
+    }
+
+    @Test public void reclaim_04() {
+        // A reader keeps the blocks of its view of the tree.
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        Txn.executeWrite(thing, () -> {
+            for ( int i = 0 ; i < 100 ; i++ )
+                bpt.insert(intToRecord(i));
+        });
+        Txn.executeRead(thing, bpt::reclaim);
+
+        ThreadAction reader = ThreadTxn.threadTxnRead(thing, () -> {
+            List<Integer> x = toIntList(bpt.iterator());
+            assertEquals(100, x.size());
+            for ( int i = 0 ; i < 100 ; i++ )
+                assertEquals(i, x.get(i).intValue());
+        });
+
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            int j = i;
+            Txn.executeWrite(thing, () -> {
+                bpt.delete(intToRecord(j));
+                bpt.insert(intToRecord(1000 + j));
+            });
+        }
+        reader.run();
+
+        Txn.executeRead(thing, () -> {
+            bpt.check();
+            assertEquals(100, bpt.size());
+            assertFalse(bpt.contains(intToRecord(0)));
+            assertTrue(bpt.contains(intToRecord(1099)));
+        });
+    }
+
+    @Test public void reclaim_05() {
+        // Abort: reused blocks are free again.
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        Txn.executeWrite(thing, () -> {
+            for ( int i = 0 ; i < 100 ; i++ )
+                bpt.insert(intToRecord(i));
+        });
+        update(thing, bpt, 50);
+        Txn.executeRead(thing, bpt::reclaim);
+        long reusable = bpt.getReusableBlocks();
+        assertTrue(reusable > 0);
+
+        thing.begin(ReadWrite.WRITE);
+        bpt.delete(intToRecord(50));
+        bpt.insert(intToRecord(500));
+        thing.abort();
+        thing.end();
+        assertEquals(reusable, bpt.getReusableBlocks());
+
+        Txn.executeRead(thing, () -> {
+            bpt.check();
+            assertTrue(bpt.contains(intToRecord(50)));
+            assertFalse(bpt.contains(intToRecord(500)));
+            assertEquals(100, bpt.size());
+        });
+    }
+
+    @Test(expected=BPTreeException.class)
+    public void reclaim_06() {
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        Txn.executeWrite(thing, bpt::reclaim);
+    }
+
+    @Test public void reclaim_07() {
+        // Random changes, with readers started along the way.
+        BPlusTree bpt = createBPTree();
+        Transactional thing = transactional(bpt);
+        Random random = new Random(1234);
+        SortedSet<Integer> model = new TreeSet<>();
+        List<ThreadAction> readers = new ArrayList<>();
+        for ( int txn = 0 ; txn < 200 ; txn++ ) {
+            if ( txn == 20 || txn == 120 )
+                Txn.executeRead(thing, bpt::reclaim);
+            if ( txn % 25 == 0 ) {
+                List<Integer> expected = new ArrayList<>(model);
+                readers.add(ThreadTxn.threadTxnRead(thing, () -> {
+                    assertEquals(expected, toIntList(bpt.iterator()));
+                }));
+            }
+            Txn.executeWrite(thing, () -> {
+                for ( int i = 0 ; i < 10 ; i++ ) {
+                    int v = random.nextInt(500);
+                    if ( random.nextBoolean() ) {
+                        bpt.insert(intToRecord(v));
+                        model.add(v);
+                    } else {
+                        bpt.delete(intToRecord(v));
+                        model.remove(v);
+                    }
+                }
+            });
+            if ( txn % 40 == 0 && ! readers.isEmpty() )
+                readers.remove(0).run();
+        }
+        readers.forEach(ThreadAction::run);
+        Txn.executeRead(thing, () -> {
+            bpt.check();
+            assertEquals(new ArrayList<>(model), toIntList(bpt.iterator()));
+        });
+    }
+
+    private static List<Integer> toIntList(Iterator<org.apache.jena.dboe.base.record.Record> iter) {
+        List<Integer> x = new ArrayList<>();
+        iter.forEachRemaining(rec -> x.add(r(rec)));
+        return x;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.trans.bplustree;
+
+import static org.apache.jena.dboe.index.testlib.IndexTestLib.add;
+import static org.apache.jena.dboe.test.RecordLib.r;
+import static org.apache.jena.dboe.test.RecordLib.toIntList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.test.RecordLib;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests of splitting the key range of a B+Tree into parts. */
+public class TestBPlusTreeSplitKeys extends Assert {
+
+    private static BPlusTree create(int N) {
+        BPlusTree bpt = BPlusTreeFactory.makeMem(3, 3, RecordLib.TestRecordLength, 0);
+        bpt.nonTransactional();
+        int[] keys = new int[N];
+        for ( int i = 0 ; i < N ; i++ )
+            keys[i] = 2*i;
+        add(bpt, keys);
+        return bpt;
+    }
+
+    @Test public void split_empty() {
+        BPlusTree bpt = create(0);
+        assertTrue(bpt.splitKeys(null, null, 4).isEmpty());
+        test(bpt, null, null, 4);
+    }
+
+    @Test public void split_small() {
+        BPlusTree bpt = create(3);
+        test(bpt, null, null, 4);
+    }
+
+    @Test public void split_all() {
+        BPlusTree bpt = create(1000);
+        List<Record> keys = bpt.splitKeys(null, null, 10);
+        assertTrue(keys.size() >= 10);
+        test(bpt, null, null, 10);
+    }
+
+    @Test public void split_range_1() {
+        BPlusTree bpt = create(1000);
+        test(bpt, r(100), r(1500), 10);
+    }
+
+    @Test public void split_range_2() {
+        BPlusTree bpt = create(1000);
+        // Bounds not in the tree.
+        test(bpt, r(101), r(103), 10);
+    }
+
+    @Test public void split_range_3() {
+        BPlusTree bpt = create(1000);
+        test(bpt, r(5000), null, 10);
+    }
+
+    /** The keys are in order, in the range, and the parts cover the range. */
+    private static void test(BPlusTree bpt, Record min, Record max, int n) {
+        List<Record> keys = bpt.splitKeys(min, max, n);
+        for ( int i = 0 ; i < keys.size() ; i++ ) {
+            if ( min != null )
+                assertTrue(Record.keyGT(keys.get(i), min));
+            if ( max != null )
+                assertTrue(Record.keyLT(keys.get(i), max));
+            if ( i > 0 )
+                assertTrue(Record.keyLT(keys.get(i-1), keys.get(i)));
+        }
+        List<Integer> expected = toIntList(bpt.iterator(min, max));
+        List<Integer> actual = new ArrayList<>();
+        Record lo = min;
+        for ( Record k : keys ) {
+            actual.addAll(toIntList(bpt.iterator(lo, k)));
+            lo = k;
+        }
+        actual.addAll(toIntList(bpt.iterator(lo, max)));
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.transaction.txn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.dboe.sys.SysDB;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.core.Transactional;
+import org.slf4j.Logger;
+
+/**
+ * Group commit: write actions that are submitted at about the same time are run
+ * in one write transaction, so they share one journal write and one set of syncs
+ * to disk.
+ * <p>
+ * In a {@link TransactionCoordinator}, the commit of a write transaction ends with
+ * the journal sync; the next writer can only start after that, so commits from
+ * different write transactions can not share a sync. Instead, each action is
+ * submitted to a {@code GroupCommit}, and its thread runs the actions that arrive
+ * within a short delay of the first one (up to a maximum number) inside one write
+ * transaction.
+ * <p>
+ * {@link #execute} returns when the transaction with the action has committed,
+ * so the change is as durable as if the action had its own transaction.
+ * {@link #submit} returns immediately, with a future that completes at the commit.
+ * The delay and the batch size trade the latency of each action for fewer syncs:
+ * with a delay of zero, a transaction has the actions that were submitted while
+ * the previous transaction was committing.
+ * <p>
+ * If an action throws an exception, the transaction is aborted, the action's
+ * future completes with the exception, and the other actions of the batch are
+ * run again in a new transaction. Actions should only change the data (no other
+ * side effects) and must not start or finish transactions themselves.
+ */
+public class GroupCommit implements AutoCloseable {
+    private static Logger SysErr = SysDB.errlog;
+    public static final long DftMaxDelayMillis = 1;
+    public static final int DftMaxBatch = 1000;
+    private static final AtomicInteger counter = new AtomicInteger(0);
+
+    private static class Request {
+        final Runnable action;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final long submitted = System.nanoTime();
+        Request(Runnable action) { this.action = action; }
+    }
+
+    // Marks the end of the requests.
+    private static final Request END = new Request(()->{});
+
+    private final Transactional transactional;
+    private final long maxDelayNanos;
+    private final int maxBatch;
+    private final GroupCommitMetrics metrics = new GroupCommitMetrics();
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    // Submitting checks and enqueues under this lock, so that nothing is queued after END.
+    private final Object lock = new Object();
+    private boolean closed = false;
+
+    /** Group commit for {@code transactional} with the default delay and batch size. */
+    public GroupCommit(Transactional transactional) {
+        this(transactional, DftMaxDelayMillis, TimeUnit.MILLISECONDS, DftMaxBatch);
+    }
+
+    /**
+     * Group commit for {@code transactional}.
+     * @param transactional The system for the write transactions.
+     * @param maxDelay How long to wait, after the first action of a transaction, for more actions.
+     * @param unit Units of {@code maxDelay}.
+     * @param maxBatch Maximum number of actions in one transaction.
+     */
+    public GroupCommit(Transactional transactional, long maxDelay, TimeUnit unit, int maxBatch) {
+        if ( maxDelay < 0 )
+            throw new IllegalArgumentException("Negative delay: "+maxDelay);
+        if ( maxBatch < 1 )
+            throw new IllegalArgumentException("Batch size must be at least one: "+maxBatch);
+        this.transactional = transactional;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.maxBatch = maxBatch;
+        this.committer = new Thread(this::run, "GroupCommit-"+counter.incrementAndGet());
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Submit a write action. The future completes when the transaction containing
+     * the action has committed, or exceptionally if the action failed.
+     */
+    public CompletableFuture<Void> submit(Runnable action) {
+        Request request = new Request(action);
+        synchronized(lock) {
+            if ( closed )
+                throw new TransactionException("GroupCommit is closed");
+            queue.add(request);
+        }
+        return request.result;
+    }
+
+    /**
+     * Run a write action and wait until the transaction containing the action has committed.
+     * An exception from the action is thrown by this call.
+     */
+    public void execute(Runnable action) {
+        CompletableFuture<Void> result = submit(action);
+        try {
+            result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransactionException("Interrupted", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause;
+            if ( cause instanceof Error )
+                throw (Error)cause;
+            throw new TransactionException(cause);
+        }
+    }
+
+    public GroupCommitMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Commit the actions already submitted and stop the thread. */
+    @Override
+    public void close() {
+        synchronized(lock) {
+            if ( closed )
+                return;
+            closed = true;
+            queue.add(END);
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        boolean finished = false;
+        while ( ! finished ) {
+            try {
+                Request first = queue.take();
+                if ( first == END )
+                    break;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while ( batch.size() < maxBatch ) {
+                    long wait = deadline - System.nanoTime();
+                    Request request = ( wait > 0 ) ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if ( request == null )
+                        break;
+                    if ( request == END ) {
+                        finished = true;
+                        break;
+                    }
+                    batch.add(request);
+                }
+            } catch (InterruptedException ex) {
+                finished = true;
+            }
+            commitBatch(batch);
+            batch.clear();
+        }
+        // Anything left after an interrupt.
+        synchronized(lock) {
+            closed = true;
+        }
+        List<Request> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(r->r.result.completeExceptionally(new TransactionException("GroupCommit is closed")));
+    }
+
+    /** Run the actions in one transaction; rerun the others if any fails. */
+    private void commitBatch(List<Request> batch) {
+        while ( ! batch.isEmpty() ) {
+            int failed = runBatch(batch);
+            if ( failed < 0 )
+                return;
+            batch.remove(failed);
+            if ( failed > 0 )
+                metrics.rerun(failed);
+        }
+    }
+
+    /** Run a batch and commit, returning -1, or return the index of an action that failed. */
+    private int runBatch(List<Request> batch) {
+        transactional.begin(TxnType.WRITE);
+        try {
+            for ( int i = 0 ; i < batch.size() ; i++ ) {
+                Request request = batch.get(i);
+                try {
+                    request.action.run();
+                } catch (Throwable th) {
+                    transactional.abort();
+                    finish(request, th);
+                    return i;
+                }
+            }
+            long start = System.nanoTime();
+            try {
+                transactional.commit();
+            } catch (Throwable th) {
+                SysErr.warn("GroupCommit: commit failed", th);
+                batch.forEach(r->finish(r, th));
+                batch.clear();
+                return -1;
+            }
+            metrics.committed(batch.size(), System.nanoTime()-start);
+            batch.forEach(r->finish(r, null));
+            return -1;
+        } finally {
+            transactional.end();
+        }
+    }
+
+    private void finish(Request request, Throwable th) {
+        metrics.latency(System.nanoTime()-request.submitted);
+        if ( th == null )
+            request.result.complete(null);
+        else {
+            metrics.failed();
+            request.result.completeExceptionally(th);
+        }
+    }
+}
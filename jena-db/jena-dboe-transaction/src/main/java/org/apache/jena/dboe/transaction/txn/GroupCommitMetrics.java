@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.transaction.txn;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for a {@link GroupCommit}, for tuning the delay and the batch size.
+ * The counters can be read while the group commit is running.
+ * <p>
+ * The latency of an action is the time from when it was submitted to when the
+ * transaction it was in committed, or when the action failed.
+ */
+public class GroupCommitMetrics {
+    private final LongAdder commits            = new LongAdder();
+    private final LongAdder actionsCommitted   = new LongAdder();
+    private final LongAdder actionsFailed      = new LongAdder();
+    private final LongAdder actionsRerun       = new LongAdder();
+    private final LongAdder commitNanos        = new LongAdder();
+    private final LongAdder latencyNanos       = new LongAdder();
+    private final LongAccumulator maxLatency   = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxBatch     = new LongAccumulator(Math::max, 0);
+
+    public GroupCommitMetrics() {}
+
+    // ---- Recording
+
+    void committed(int batchSize, long commitTime) {
+        commits.increment();
+        actionsCommitted.add(batchSize);
+        commitNanos.add(commitTime);
+        maxBatch.accumulate(batchSize);
+    }
+
+    void failed() {
+        actionsFailed.increment();
+    }
+
+    void rerun(int count) {
+        actionsRerun.add(count);
+    }
+
+    void latency(long nanos) {
+        latencyNanos.add(nanos);
+        maxLatency.accumulate(nanos);
+    }
+
+    // ---- Access
+
+    /** Number of write transactions committed. */
+    public long getCommits()            { return commits.sum(); }
+
+    /** Number of actions in committed transactions. */
+    public long getActionsCommitted()   { return actionsCommitted.sum(); }
+
+    /** Number of actions that threw an exception, or were in a transaction that failed to commit. */
+    public long getActionsFailed()      { return actionsFailed.sum(); }
+
+    /** Number of times an action was run again because another action in the batch failed. */
+    public long getActionsRerun()       { return actionsRerun.sum(); }
+
+    /** Largest number of actions in one transaction. */
+    public long getMaxBatchSize()       { return maxBatch.get(); }
+
+    /** Average number of actions in one transaction. */
+    public double getAverageBatchSize() {
+        long n = getCommits();
+        return ( n == 0 ) ? 0 : (double)getActionsCommitted() / n;
+    }
+
+    /** Average time for the commit step, including writing the journal and syncing, in milliseconds. */
+    public double getAverageCommitMillis() {
+        long n = getCommits();
+        return ( n == 0 ) ? 0 : nanosToMillis(commitNanos.sum()) / n;
+    }
+
+    /** Average latency of an action, from submit to commit, in milliseconds. */
+    public double getAverageLatencyMillis() {
+        long n = getActionsCommitted() + getActionsFailed();
+        return ( n == 0 ) ? 0 : nanosToMillis(latencyNanos.sum()) / n;
+    }
+
+    /** Longest latency of an action, from submit to commit, in milliseconds. */
+    public double getMaxLatencyMillis() {
+        return nanosToMillis(maxLatency.get());
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return (double)nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /** Reset all counters to zero */
+    public void reset() {
+        commits.reset();
+        actionsCommitted.reset();
+        actionsFailed.reset();
+        actionsRerun.reset();
+        commitNanos.reset();
+        latencyNanos.reset();
+        maxLatency.reset();
+        maxBatch.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Commits: %,d, Actions: %,d (failed %,d, rerun %,d), Batch: avg=%.1f max=%d, Commit (ms): %.2f, Latency (ms): avg=%.2f max=%.2f",
+                             getCommits(), getActionsCommitted(), getActionsFailed(), getActionsRerun(),
+                             getAverageBatchSize(), getMaxBatchSize(), getAverageCommitMillis(),
+                             getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+}
@@ -207,6 +207,16 @@ public class TransactionCoordinator implements TransactionalSystemControl {
         return externals;
     }
 
+    /**
+     * Return a list of all the {@link TransactionalComponent}s, including externals.
+     * Changing this list has no effect on the TransactionCoordinator.
+     */
+    public List<TransactionalComponent> listComponents() {
+        List<TransactionalComponent> list = new ArrayList<>();
+        components.forEachComponent(list::add);
+        return list;
+    }
+
     public TransactionCoordinator addListener(TransactionListener listener) {
         checkAllowModification();
         listeners.add(listener);
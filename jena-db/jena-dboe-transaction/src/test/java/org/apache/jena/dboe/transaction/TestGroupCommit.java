@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.dboe.transaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.dboe.transaction.txn.GroupCommit;
+import org.apache.jena.dboe.transaction.txn.GroupCommitMetrics;
+import org.apache.jena.dboe.transaction.txn.TransactionException;
+import org.junit.Test;
+
+public class TestGroupCommit extends AbstractTestTxn {
+
+    @Test public void groupCommit_1() {
+        try ( GroupCommit groupCommit = new GroupCommit(unit) ) {
+            groupCommit.execute(counter1::inc);
+            assertEquals(1, counter1.value());
+            groupCommit.execute(counter1::inc);
+            assertEquals(2, counter1.value());
+            assertEquals(2, groupCommit.getMetrics().getActionsCommitted());
+        }
+        checkClear();
+    }
+
+    @Test public void groupCommit_2() throws Exception {
+        // Many actions, fewer transactions.
+        int N = 1000;
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        GroupCommitMetrics metrics;
+        try ( GroupCommit groupCommit = new GroupCommit(unit, 50, TimeUnit.MILLISECONDS, 100) ) {
+            for ( int i = 0 ; i < N ; i++ )
+                results.add(groupCommit.submit(counter1::inc));
+            for ( CompletableFuture<Void> r : results )
+                r.get();
+            metrics = groupCommit.getMetrics();
+        }
+        assertEquals(N, counter1.value());
+        assertEquals(N, metrics.getActionsCommitted());
+        assertEquals(metrics.getCommits(), monitor.counterCommit.sum());
+        assertTrue(metrics.toString(), metrics.getCommits() < N);
+        assertTrue(metrics.getMaxBatchSize() <= 100);
+        checkClear();
+    }
+
+    @Test public void groupCommit_threads() throws Exception {
+        int threads = 4;
+        int N = 250;
+        try ( GroupCommit groupCommit = new GroupCommit(unit, 0, TimeUnit.MILLISECONDS, 1000) ) {
+            List<Thread> workers = new ArrayList<>();
+            for ( int t = 0 ; t < threads ; t++ ) {
+                Thread thread = new Thread(()->{
+                    for ( int i = 0 ; i < N ; i++ )
+                        groupCommit.execute(counter1::inc);
+                });
+                thread.start();
+                workers.add(thread);
+            }
+            for ( Thread thread : workers )
+                thread.join();
+        }
+        assertEquals(threads*N, counter1.value());
+        checkClear();
+    }
+
+    @Test public void groupCommit_failure() throws Exception {
+        // The failed action is not committed, the others are.
+        RuntimeException ex = new RuntimeException("Test");
+        CompletableFuture<Void> r1, r2, r3;
+        GroupCommitMetrics metrics;
+        try ( GroupCommit groupCommit = new GroupCommit(unit, 100, TimeUnit.MILLISECONDS, 10) ) {
+            r1 = groupCommit.submit(counter1::inc);
+            r2 = groupCommit.submit(()->{ counter2.inc(); throw ex; });
+            r3 = groupCommit.submit(counter1::inc);
+            r1.get();
+            r3.get();
+            try {
+                r2.get();
+                fail("Expected an exception");
+            } catch (ExecutionException ex2) {
+                assertEquals(ex, ex2.getCause());
+            }
+            try {
+                groupCommit.execute(()->{ throw ex; });
+                fail("Expected an exception");
+            } catch (RuntimeException ex2) {
+                assertEquals(ex, ex2);
+            }
+            metrics = groupCommit.getMetrics();
+        }
+        assertEquals(2, counter1.value());
+        assertEquals(0, counter2.value());
+        assertEquals(2, metrics.getActionsFailed());
+        assertEquals(2, metrics.getActionsCommitted());
+        checkClear();
+    }
+
+    @Test public void groupCommit_close_submit() throws Exception {
+        // Actions submitted while closing are either refused or committed.
+        for ( int x = 0 ; x < 20 ; x++ ) {
+            GroupCommit groupCommit = new GroupCommit(unit, 0, TimeUnit.MILLISECONDS, 10);
+            List<CompletableFuture<Void>> results = new ArrayList<>();
+            Thread thread = new Thread(()->{
+                try {
+                    for ( ;; )
+                        results.add(groupCommit.submit(counter1::inc));
+                } catch (TransactionException ex) {}
+            });
+            thread.start();
+            Thread.sleep(1);
+            groupCommit.close();
+            thread.join();
+            for ( CompletableFuture<Void> r : results )
+                r.get(10, TimeUnit.SECONDS);
+        }
+        checkClear();
+    }
+
+    @Test(expected=TransactionException.class)
+    public void groupCommit_closed() {
+        GroupCommit groupCommit = new GroupCommit(unit);
+        groupCommit.close();
+        groupCommit.submit(counter1::inc);
+    }
+}
@@ -42,6 +42,7 @@ public class DEF
                                                                           contentTypeJSONLD,
                                                                           contentTypeRDFJSON,
                                                                           contentTypeRDFThrift,
+                                                                          contentTypeRDFBlocks,
 
                                                                           contentTypeTriG,
                                                                           contentTypeTriGAlt1,
@@ -58,7 +59,8 @@ public class DEF
                                                                           contentTypeTriXxml,
                                                                           contentTypeJSONLD,
                                                                           contentTypeRDFJSON,
-                                                                          contentTypeRDFThrift
+                                                                          contentTypeRDFThrift,
+                                                                          contentTypeRDFBlocks
                                                                           );
 
     public static final AcceptList quadsOffer         = AcceptList.create(contentTypeTriG,
@@ -67,7 +69,8 @@ public class DEF
                                                                           contentTypeNQuads,
                                                                           contentTypeNQuadsAlt1,
                                                                           contentTypeTriX,
-                                                                          contentTypeTriXxml
+                                                                          contentTypeTriXxml,
+                                                                          contentTypeRDFBlocks
                                                                           );
 
     // Offer for SELECT
@@ -79,6 +82,7 @@ public class DEF
                                                                           contentTypeResultsXML,
                                                                           contentTypeXML,
                                                                           contentTypeResultsThrift,
+                                                                          contentTypeResultsColumnar,
                                                                           contentTypeTextPlain
                                                                           );
 
@@ -35,6 +35,7 @@ public class AsyncTask implements Callable<Object>
     private static Logger log = Fuseki.serverLog;
 
     private final Callable<Object> callable;
+    private final Runnable task;
     private final AsyncPool pool;
 
     private final String displayName;
@@ -50,12 +51,14 @@ public class AsyncTask implements Callable<Object>
     private Boolean success = null;
     
     /*package*/ AsyncTask(Callable<Object> callable,
+                          Runnable task,
                           AsyncPool pool,
                           String taskId,
                           String displayName,
                           DataService dataService,
                           long requestId) {
         this.callable = callable;
+        this.task = task;
         this.pool = pool;
         this.taskId = taskId;
         this.displayName = displayName;
@@ -74,6 +77,9 @@ public class AsyncTask implements Callable<Object>
 
     public DataService getDataService() { return dataService; }
 
+    /** The work this task runs */
+    public Runnable getTask() { return task; }
+
     private void start() {
         if ( startPoint != null ) {
             FmtLog.warn(Fuseki.serverLog, "[Task %s] Async task has already been started", taskId);
@@ -28,6 +28,7 @@ import org.apache.jena.fuseki.servlets.ServletOps;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.DatasetGraphWrapper;
 import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.sys.IncrementalCompaction;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.slf4j.Logger;
 
@@ -91,20 +92,32 @@ public class ActionCompact extends ActionAsyncTask
         static private final Logger log = Fuseki.compactLog;
 
         private final boolean shouldDeleteOld;
+        private final boolean incremental;
+        private volatile IncrementalCompaction compaction = null;
 
         public CompactTask(HttpAction action) {
             super(action);
 
-            String deleteOldParam = action.getRequestParameter("deleteOld");
+            this.shouldDeleteOld = booleanParam(action, "deleteOld");
+            this.incremental = booleanParam(action, "incremental");
+        }
 
-            this.shouldDeleteOld = ( deleteOldParam != null
-                                     && ( deleteOldParam.isEmpty() || deleteOldParam.equalsIgnoreCase("true") ) );
+        private static boolean booleanParam(HttpAction action, String paramName) {
+            String param = action.getRequestParameter(paramName);
+            return param != null && ( param.isEmpty() || param.equalsIgnoreCase("true") );
         }
 
         @Override
         public void run() {
             try {
                 DatasetGraph dsg = getTDB2(dataset);
+                if ( incremental ) {
+                    log.info(format("[%d] >>>> Start incremental compact %s", actionId, datasetName));
+                    compaction = new IncrementalCompaction(dsg);
+                    compaction.run();
+                    log.info(format("[%d] <<<< Finish incremental compact %s : %s", actionId, datasetName, compaction));
+                    return;
+                }
                 log.info(format("[%d] >>>> Start compact %s", actionId, datasetName));
                 DatabaseMgr.compact(dsg, this.shouldDeleteOld);
                 log.info(format("[%d] <<<< Finish compact %s", actionId, datasetName));
@@ -114,5 +127,13 @@ public class ActionCompact extends ActionAsyncTask
                 throw ex;
             }
         }
+
+        @Override
+        public String getProgress() {
+            IncrementalCompaction x = compaction;
+            if ( x == null )
+                return null;
+            return format("indexes %d/%d, blocks %d", x.getIndexesDone(), Math.max(0, x.getIndexesTotal()), x.getBlocks());
+        }
     }
 }
@@ -117,6 +117,11 @@ public class ActionTasks extends ActionCtl
             builder.key(JsonConstCtl.finished).value(aTask.getFinishPoint());
         if ( aTask.wasSuccessful() != null )
             builder.key(JsonConstCtl.success).value(aTask.wasSuccessful());
+        if ( aTask.getTask() instanceof TaskBase ) {
+            String progress = ((TaskBase)aTask.getTask()).getProgress();
+            if ( progress != null )
+                builder.key(JsonConstCtl.progress).value(progress);
+        }
         builder.finishObject("SingleTask");
     }
 }
@@ -26,5 +26,6 @@ public class JsonConstCtl {
     public static final String finished         = "finished";
     public static final String started          = "started";
     public static final String success          = "success";
+    public static final String progress         = "progress";
 
 }
@@ -40,4 +40,9 @@ public abstract class TaskBase implements Runnable {
         this.transactional = dataset;
         this.datasetName = ActionCtl.getItemDatasetName(action);
     }
+
+    /** Description of how far the task has got, or null if not available. */
+    public String getProgress() {
+        return null;
+    }
 }
@@ -198,6 +198,7 @@ public class JettyLib {
         mimeTypes.addMimeMapping("rj",      WebContent.contentTypeRDFJSON);
         mimeTypes.addMimeMapping("rt",      WebContent.contentTypeRDFThrift);
         mimeTypes.addMimeMapping("trdf",    WebContent.contentTypeRDFThrift);
+        mimeTypes.addMimeMapping("rdfb",    WebContent.contentTypeRDFBlocks);
 
         // SPARQL syntax
         mimeTypes.addMimeMapping("rq",      WebContent.contentTypeSPARQLQuery);
@@ -208,6 +209,7 @@ public class JettyLib {
         mimeTypes.addMimeMapping("rsx",     WebContent.contentTypeResultsXML);
         mimeTypes.addMimeMapping("srt",     WebContent.contentTypeResultsThrift);
         mimeTypes.addMimeMapping("srt",     WebContent.contentTypeResultsProtobuf);
+        mimeTypes.addMimeMapping("srcol",   WebContent.contentTypeResultsColumnar);
 
         // Other
         mimeTypes.addMimeMapping("txt",     WebContent.contentTypeTextPlain);
@@ -20,11 +20,13 @@ package org.apache.jena.tdb2;
 
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.query.Dataset;
+import org.apache.jena.riot.RDFFormat;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.sys.DatabaseConnection;
 import org.apache.jena.tdb2.sys.DatabaseOps;
+import org.apache.jena.tdb2.sys.IncrementalCompaction;
 import org.apache.jena.tdb2.sys.TDBInternal;
 
 /** Operations for TDBS DatasetGraph, including admin operations
@@ -81,6 +83,19 @@ public class DatabaseMgr {
         DatabaseOps.compact(dsg, shouldDeleteOld);
     }
 
+    /**
+     * Compact a TDB2 dataset in place, while it is in use, by making the unused
+     * blocks of its indexes available for reuse by later write transactions.
+     * Files do not get smaller; they stop growing while there are blocks to reuse.
+     *
+     * @see IncrementalCompaction
+     * @param container
+     * @return The number of blocks found.
+     */
+    public static long compactIncremental(DatasetGraph container) {
+        return new IncrementalCompaction(container).run();
+    }
+
     /**
      * Create a backup for a switchable TDB database. This is the normal dataset type for
      * on-disk TDB2 databases.
@@ -98,6 +113,21 @@ public class DatabaseMgr {
         return DatabaseOps.backup(dsg);
     }
 
+    /**
+     * Create a backup for a switchable TDB database in the given quads format, for
+     * example {@link RDFFormat#RDF_BLOCKS} for a compact binary backup that can be
+     * reloaded in parallel.
+     *
+     * @see #backup(DatasetGraph)
+     * @param container
+     * @param format
+     * @return File name of the backup.
+     */
+    public static String backup(DatasetGraph container, RDFFormat format) {
+        DatasetGraphSwitchable dsg = requireSwitchable(container);
+        return DatabaseOps.backup(dsg, format);
+    }
+
     /** Create an in-memory TDB2-backed dataset (for testing) */
     public static DatasetGraph createDatasetGraph() {
         return connectDatasetGraph(Location.mem());
@@ -32,6 +32,7 @@ import org.apache.jena.sys.JenaSystem;
 import org.apache.jena.tdb2.assembler.VocabTDB2;
 import org.apache.jena.tdb2.modify.UpdateEngineTDB;
 import org.apache.jena.tdb2.solver.QueryEngineTDB;
+import org.apache.jena.tdb2.solver.ReadForkTDB2;
 import org.apache.jena.tdb2.solver.StageGeneratorDirectTDB;
 import org.apache.jena.tdb2.sys.EnvTDB;
 import org.apache.jena.tdb2.sys.SystemTDB;
@@ -92,6 +93,66 @@ public class TDB2 {
      */
     public static final Symbol  symUnionDefaultGraph             = symUnionDefaultGraph2;
 
+    /**
+     * Context symbol for the number of input rows handled together by each triple
+     * pattern step of basic graph pattern matching. Within a block, index lookups are
+     * made in index order. Unset, or a value of 1 or less, means row at a time.
+     */
+    public static final Symbol  symSolverBatchSize               = SystemTDB.allocSymbol("solverBatchSize");
+
+    /**
+     * Context symbol: if true, a basic graph pattern whose first two triple patterns
+     * share a variable, and where index ranges sorted on that variable exist for
+     * both, starts with a sort-merge join of the two index ranges instead of
+     * index nested loop lookups.
+     */
+    public static final Symbol  symMergeJoin                     = SystemTDB.allocSymbol("mergeJoin");
+
+    /**
+     * Context symbol to control evaluation of a basic graph pattern by leapfrog
+     * triejoin. If true, it is used whenever possible; if false, never. If not set,
+     * it is used for basic graph patterns where the variables form a cycle
+     * (e.g. triangles), with the matches sorted in memory for a pattern limited
+     * by {@link #symLeapfrogMaxSortedRows}.
+     */
+    public static final Symbol  symLeapfrogJoin                  = SystemTDB.allocSymbol("leapfrogJoin");
+
+    /**
+     * Context symbol for the maximum number of matches of a triple pattern that
+     * leapfrog triejoin sorts in memory when it has been chosen automatically (see
+     * {@link #symLeapfrogJoin}). Patterns with no index in the order needed are
+     * sorted for each input row; if there are more matches than this, the row is
+     * evaluated one pattern at a time instead. Default 100,000.
+     */
+    public static final Symbol  symLeapfrogMaxSortedRows         = SystemTDB.allocSymbol("leapfrogMaxSortedRows");
+
+    /**
+     * Context symbol: if true, DISTINCT, REDUCED, GROUP BY, joins and sameTerm filters
+     * on TDB data work on NodeIds and terms are only decoded when needed for output or
+     * for value-based expressions. The NodeId versions of DISTINCT and joins are not
+     * used when {@link org.apache.jena.query.ARQ#spillToDiskThreshold} is set.
+     * Default is false: the general ARQ operators are used, which decode every NodeId.
+     */
+    public static final Symbol  symLateMaterialization           = SystemTDB.allocSymbol("lateMaterialization");
+
+    /**
+     * Context symbol: if false, filters that restrict a variable to a range of numeric
+     * or dateTime values are only applied after the pattern is matched. If not set, or
+     * true, the range is used to limit the index key ranges read for the triple pattern
+     * that binds the variable.
+     */
+    public static final Symbol  symRangeScan                     = SystemTDB.allocSymbol("rangeScan");
+
+    /**
+     * Context symbol: if true, the first triple pattern of a basic graph pattern is
+     * matched by scanning partitions of the index in parallel, and COUNT with GROUP BY
+     * over a single triple pattern counts the partitions in parallel, then adds the
+     * counts. The partitions are key ranges taken from the internal nodes of the
+     * B+Tree and all read the caller's transaction. The order of the matches is not
+     * the index order. If not set, or false, index scans are done in the calling thread.
+     */
+    public static final Symbol  symParallelScan                  = SystemTDB.allocSymbol("parallelScan");
+
     public static Context getContext() {
         return ARQ.getContext();
     }
@@ -134,6 +195,7 @@ public class TDB2 {
             AssemblerUtils.init();
             VocabTDB2.init();
             QueryEngineTDB.register();
+            ReadForkTDB2.register();
             UpdateEngineTDB.register();
             MappingRegistry.addPrefixMapping(TDB2.tdbSymbolPrefix, TDB2.tdbParamNS);
 
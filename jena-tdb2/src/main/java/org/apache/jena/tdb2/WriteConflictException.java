@@ -0,0 +1,32 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2;
+
+/**
+ * A write did not commit because another write changed the same graph since the
+ * writer's snapshot was taken.
+ * @see org.apache.jena.tdb2.store.ConcurrentWriters
+ */
+public class WriteConflictException extends TDBException
+{
+    public WriteConflictException()                          { super(); }
+    public WriteConflictException(String msg)                { super(msg); }
+    public WriteConflictException(Throwable th)              { super(th); }
+    public WriteConflictException(String msg, Throwable th)  { super(msg, th); }
+}
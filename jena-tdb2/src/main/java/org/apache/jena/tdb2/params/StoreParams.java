@@ -53,6 +53,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
     /*package*/ final Item<Integer>            Node2NodeIdCacheSize;
     /*package*/ final Item<Integer>            NodeId2NodeCacheSize;
     /*package*/ final Item<Integer>            NodeMissCacheSize;
+    /*package*/ final Item<Integer>            NodeId2NodeOffHeapCacheSize;
+    /*package*/ final Item<String>             nodeCacheType;
     /*package*/ final Item<Integer>            prefixNode2NodeIdCacheSize;
     /*package*/ final Item<Integer>            prefixNodeId2NodeCacheSize;
     /*package*/ final Item<Integer>            prefixNodeMissCacheSize;
@@ -78,6 +80,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
     /*package*/ final Item<String>             primaryIndexPrefix;
     /*package*/ final Item<String[]>           prefixIndexes;
 
+    /*package*/ final Item<Boolean>            indexCompression;
+
     /** @deprecated Prefer {@link #builder(String)}. */
     @Deprecated
     public static StoreParamsBuilder builder() {
@@ -107,7 +111,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
                             Item<Integer> blockReadCacheSize, Item<Integer> blockWriteCacheSize,
 
                             Item<Integer> node2NodeIdCacheSize, Item<Integer> nodeId2NodeCacheSize,
-                            Item<Integer> nodeMissCacheSize,
+                            Item<Integer> nodeMissCacheSize, Item<Integer> nodeId2NodeOffHeapCacheSize,
+                            Item<String> nodeCacheType,
 
                             Item<Integer> prefixNode2NodeIdCacheSize, Item<Integer> prefixNodeId2NodeCacheSize,
                             Item<Integer> prefixNodeMissCacheSize,
@@ -117,7 +122,9 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
                             Item<String> primaryIndexQuads, Item<String[]> quadIndexes,
 
                             Item<String> prefixTableBasename,
-                            Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes) {
+                            Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes,
+
+                            Item<Boolean> indexCompression) {
         this.label                  = label;
         this.fileMode               = fileMode;
         this.blockSize              = blockSize;
@@ -127,6 +134,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         this.Node2NodeIdCacheSize   = node2NodeIdCacheSize;
         this.NodeId2NodeCacheSize   = nodeId2NodeCacheSize;
         this.NodeMissCacheSize      = nodeMissCacheSize;
+        this.NodeId2NodeOffHeapCacheSize = nodeId2NodeOffHeapCacheSize;
+        this.nodeCacheType          = nodeCacheType;
 
         this.prefixNode2NodeIdCacheSize   = prefixNode2NodeIdCacheSize;
         this.prefixNodeId2NodeCacheSize   = prefixNodeId2NodeCacheSize;
@@ -142,6 +151,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         this.prefixIndexes          = prefixIndexes;
 
         this.prefixTableBaseName    = prefixTableBasename;
+
+        this.indexCompression       = indexCompression;
     }
 
     /** The system default settings. This is the normal set to use.
@@ -239,6 +250,26 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         return NodeMissCacheSize.isSet;
     }
 
+    @Override
+    public Integer getNodeId2NodeOffHeapCacheSize() {
+        return NodeId2NodeOffHeapCacheSize.value;
+    }
+
+    @Override
+    public boolean isSetNodeId2NodeOffHeapCacheSize() {
+        return NodeId2NodeOffHeapCacheSize.isSet;
+    }
+
+    @Override
+    public String getNodeCacheType() {
+        return nodeCacheType.value;
+    }
+
+    @Override
+    public boolean isSetNodeCacheType() {
+        return nodeCacheType.isSet;
+    }
+
     @Override
     public Integer getPrefixNode2NodeIdCacheSize() {
         return prefixNode2NodeIdCacheSize.value;
@@ -311,6 +342,14 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         return prefixIndexes.value;
     }
 
+    /**
+     * Whether the leaf blocks of the triple, quad and prefix indexes are compressed.
+     * Compressed indexes are smaller, and slower to update.
+     */
+    public boolean isIndexCompression() {
+        return indexCompression.value;
+    }
+
     @Override
     public String toString() {
         StringBuilder buff = new StringBuilder();
@@ -324,6 +363,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         fmt(buff, "Node2NodeIdCacheSize", getNode2NodeIdCacheSize(), Node2NodeIdCacheSize.isSet);
         fmt(buff, "NodeId2NodeCacheSize", getNodeId2NodeCacheSize(), NodeId2NodeCacheSize.isSet);
         fmt(buff, "NodeMissCacheSize", getNodeMissCacheSize(), NodeMissCacheSize.isSet);
+        fmt(buff, "NodeId2NodeOffHeapCacheSize", getNodeId2NodeOffHeapCacheSize(), NodeId2NodeOffHeapCacheSize.isSet);
+        fmt(buff, "nodeCacheType", getNodeCacheType(), nodeCacheType.isSet);
 
         fmt(buff, "nodeTableBaseName", getNodeTableBaseName(), nodeTableBaseName.isSet);
         fmt(buff, "primaryIndexTriples", getPrimaryIndexTriples(), primaryIndexTriples.isSet);
@@ -334,6 +375,7 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         fmt(buff, "prefixTableBaseName", getPrefixTableBaseName(), prefixTableBaseName.isSet);
         fmt(buff, "primaryIndexPrefix", getPrimaryIndexPrefix(), primaryIndexPrefix.isSet);
         fmt(buff, "prefixIndexes", getPrefixIndexes(), prefixIndexes.isSet);
+        fmt(buff, "indexCompression", Boolean.toString(isIndexCompression()), indexCompression.isSet);
 
         return buff.toString();
     }
@@ -381,6 +423,10 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
             return false;
         if ( !sameValues(params1.NodeMissCacheSize, params2.NodeMissCacheSize) )
             return false;
+        if ( !sameValues(params1.NodeId2NodeOffHeapCacheSize, params2.NodeId2NodeOffHeapCacheSize) )
+            return false;
+        if ( !sameValues(params1.nodeCacheType, params2.nodeCacheType) )
+            return false;
         if ( !sameValues(params1.nodeTableBaseName, params2.nodeTableBaseName) )
             return false;
         if ( !sameValues(params1.primaryIndexTriples, params2.primaryIndexTriples) )
@@ -397,6 +443,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
             return false;
         if ( !sameValues(params1.prefixIndexes, params2.prefixIndexes) )
             return false;
+        if ( !sameValues(params1.indexCompression, params2.indexCompression) )
+            return false;
         return true;
     }
 
@@ -411,6 +459,8 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         result = prime * result + ((Node2NodeIdCacheSize == null) ? 0 : Node2NodeIdCacheSize.hashCode());
         result = prime * result + ((NodeId2NodeCacheSize == null) ? 0 : NodeId2NodeCacheSize.hashCode());
         result = prime * result + ((NodeMissCacheSize == null) ? 0 : NodeMissCacheSize.hashCode());
+        result = prime * result + ((NodeId2NodeOffHeapCacheSize == null) ? 0 : NodeId2NodeOffHeapCacheSize.hashCode());
+        result = prime * result + ((nodeCacheType == null) ? 0 : nodeCacheType.hashCode());
         result = prime * result + ((blockReadCacheSize == null) ? 0 : blockReadCacheSize.hashCode());
         result = prime * result + ((blockSize == null) ? 0 : blockSize.hashCode());
         result = prime * result + ((blockWriteCacheSize == null) ? 0 : blockWriteCacheSize.hashCode());
@@ -423,6 +473,7 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
         result = prime * result + ((primaryIndexTriples == null) ? 0 : primaryIndexTriples.hashCode());
         result = prime * result + ((quadIndexes == null) ? 0 : quadIndexes.hashCode());
         result = prime * result + ((tripleIndexes == null) ? 0 : tripleIndexes.hashCode());
+        result = prime * result + ((indexCompression == null) ? 0 : indexCompression.hashCode());
         return result;
     }
 
@@ -450,6 +501,16 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
                 return false;
         } else if ( !NodeMissCacheSize.equals(other.NodeMissCacheSize) )
             return false;
+        if ( NodeId2NodeOffHeapCacheSize == null ) {
+            if ( other.NodeId2NodeOffHeapCacheSize != null )
+                return false;
+        } else if ( !NodeId2NodeOffHeapCacheSize.equals(other.NodeId2NodeOffHeapCacheSize) )
+            return false;
+        if ( nodeCacheType == null ) {
+            if ( other.nodeCacheType != null )
+                return false;
+        } else if ( !nodeCacheType.equals(other.nodeCacheType) )
+            return false;
         if ( blockReadCacheSize == null ) {
             if ( other.blockReadCacheSize != null )
                 return false;
@@ -510,6 +571,11 @@ public class StoreParams implements IndexParams, BlockParams, StoreParamsDynamic
                 return false;
         } else if ( !tripleIndexes.equals(other.tripleIndexes) )
             return false;
+        if ( indexCompression == null ) {
+            if ( other.indexCompression != null )
+                return false;
+        } else if ( !indexCompression.equals(other.indexCompression) )
+            return false;
         return true;
     }
 }
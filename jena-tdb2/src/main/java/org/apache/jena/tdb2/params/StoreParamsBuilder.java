@@ -77,6 +77,10 @@ public class StoreParamsBuilder {
 
     private Item<Integer>            NodeMissCacheSize     = new Item<>(StoreParamsConst.NodeMissCacheSize, false);
 
+    private Item<Integer>            NodeId2NodeOffHeapCacheSize = new Item<>(StoreParamsConst.NodeId2NodeOffHeapCacheSize, false);
+
+    private Item<String>             nodeCacheType         = new Item<>(StoreParamsConst.NodeCacheType, false);
+
     private Item<Integer>            prefixNode2NodeIdCacheSize  = new Item<>(StoreParamsConst.Node2NodeIdCacheSize, false);
 
     private Item<Integer>            prefixNodeId2NodeCacheSize  = new Item<>(StoreParamsConst.NodeId2NodeCacheSize, false);
@@ -103,6 +107,8 @@ public class StoreParamsBuilder {
 
     private Item<String[]>           prefixIndexes         = new Item<>(StoreParamsConst.prefixIndexes, false);
 
+    private Item<Boolean>            indexCompression      = new Item<>(StoreParamsConst.indexCompression, false);
+
     /** @deprecated Prefer {@link #create(String)}. */
     @Deprecated
     public static StoreParamsBuilder create() {
@@ -150,6 +156,12 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetNodeMissCacheSize() )
             b.nodeMissCacheSize(additionalParams.getNodeMissCacheSize());
 
+        if ( additionalParams.isSetNodeId2NodeOffHeapCacheSize() )
+            b.nodeId2NodeOffHeapCacheSize(additionalParams.getNodeId2NodeOffHeapCacheSize());
+
+        if ( additionalParams.isSetNodeCacheType() )
+            b.nodeCacheType(additionalParams.getNodeCacheType());
+
         return b.build();
     }
 
@@ -166,6 +178,8 @@ public class StoreParamsBuilder {
         this.Node2NodeIdCacheSize   = other.Node2NodeIdCacheSize;
         this.NodeId2NodeCacheSize   = other.NodeId2NodeCacheSize;
         this.NodeMissCacheSize      = other.NodeMissCacheSize;
+        this.NodeId2NodeOffHeapCacheSize = other.NodeId2NodeOffHeapCacheSize;
+        this.nodeCacheType          = other.nodeCacheType;
 
         this.prefixNode2NodeIdCacheSize   = other.prefixNode2NodeIdCacheSize;
         this.prefixNodeId2NodeCacheSize   = other.prefixNodeId2NodeCacheSize;
@@ -182,18 +196,21 @@ public class StoreParamsBuilder {
         this.prefixTableBaseName    = other.prefixTableBaseName;
         this.primaryIndexPrefix     = other.primaryIndexPrefix;
         this.prefixIndexes          = other.prefixIndexes;
+
+        this.indexCompression       = other.indexCompression;
     }
 
     public StoreParams build() {
         return new StoreParams(
                  label, fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize,
-                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize,
+                 Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize, NodeId2NodeOffHeapCacheSize, nodeCacheType,
                  prefixNode2NodeIdCacheSize, prefixNodeId2NodeCacheSize, prefixNodeMissCacheSize,
                  nodeTableBaseName,
                  primaryIndexTriples, tripleIndexes,
                  primaryIndexQuads, quadIndexes,
                  prefixTableBaseName, primaryIndexPrefix,
-                 prefixIndexes);
+                 prefixIndexes,
+                 indexCompression);
     }
 
     public String label() {
@@ -268,6 +285,24 @@ public class StoreParamsBuilder {
         return this;
     }
 
+    public int getNodeId2NodeOffHeapCacheSize() {
+        return NodeId2NodeOffHeapCacheSize.value;
+    }
+
+    public StoreParamsBuilder nodeId2NodeOffHeapCacheSize(int nodeId2NodeOffHeapCacheSize) {
+        this.NodeId2NodeOffHeapCacheSize = new Item<>(nodeId2NodeOffHeapCacheSize, true);
+        return this;
+    }
+
+    public String getNodeCacheType() {
+        return nodeCacheType.value;
+    }
+
+    public StoreParamsBuilder nodeCacheType(String nodeCacheType) {
+        this.nodeCacheType = new Item<>(nodeCacheType, true);
+        return this;
+    }
+
     public int getPrefixNode2NodeIdCacheSize() {
         return prefixNode2NodeIdCacheSize.value;
     }
@@ -367,4 +402,13 @@ public class StoreParamsBuilder {
         this.prefixIndexes = new Item<>(prefixIndexes, true);
         return this;
     }
+
+    public boolean getIndexCompression() {
+        return indexCompression.value;
+    }
+
+    public StoreParamsBuilder indexCompression(boolean indexCompression) {
+        this.indexCompression = new Item<>(indexCompression, true);
+        return this;
+    }
 }
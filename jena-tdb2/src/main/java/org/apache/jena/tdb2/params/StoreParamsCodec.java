@@ -95,6 +95,8 @@ public class StoreParamsCodec {
         encode(builder, key(fNode2NodeIdCacheSize),     params.getNode2NodeIdCacheSize());
         encode(builder, key(fNodeId2NodeCacheSize),     params.getNodeId2NodeCacheSize());
         encode(builder, key(fNodeMissCacheSize),        params.getNodeMissCacheSize());
+        encode(builder, key(fNodeId2NodeOffHeapCacheSize), params.getNodeId2NodeOffHeapCacheSize());
+        encode(builder, key(fNodeCacheType),            params.getNodeCacheType());
         encode(builder, key(fNodeTableBaseName),        params.getNodeTableBaseName());
         encode(builder, key(fPrimaryIndexTriples),      params.getPrimaryIndexTriples());
         encode(builder, key(fTripleIndexes),            params.getTripleIndexes());
@@ -103,6 +105,7 @@ public class StoreParamsCodec {
         encode(builder, key(fPrefixTableBaseName),      params.getPrefixTableBaseName());
         encode(builder, key(fPrimaryIndexPrefix),       params.getPrimaryIndexPrefix());
         encode(builder, key(fPrefixIndexes),            params.getPrefixIndexes());
+        encode(builder, key(fIndexCompression),         params.isIndexCompression());
 
         builder.finishObject("StoreParams");
         return (JsonObject)builder.build();
@@ -138,6 +141,8 @@ public class StoreParamsCodec {
                 case fNode2NodeIdCacheSize:    builder.node2NodeIdCacheSize(getInt(json, key));            break ;
                 case fNodeId2NodeCacheSize:    builder.nodeId2NodeCacheSize(getInt(json, key));            break ;
                 case fNodeMissCacheSize:       builder.nodeMissCacheSize(getInt(json, key));               break ;
+                case fNodeId2NodeOffHeapCacheSize: builder.nodeId2NodeOffHeapCacheSize(getInt(json, key));  break ;
+                case fNodeCacheType:           builder.nodeCacheType(getString(json, key));                break ;
 
                 case fNodeTableBaseName:       builder.nodeTableBaseName(getString(json, key));            break ;
                 case fPrimaryIndexTriples:     builder.primaryIndexTriples(getString(json, key));          break ;
@@ -148,6 +153,8 @@ public class StoreParamsCodec {
                 case fPrefixTableBaseName:     builder.prefixTableBaseName(getString(json, key));          break ;
                 case fPrimaryIndexPrefix:      builder.primaryIndexPrefix(getString(json, key));           break ;
                 case fPrefixIndexes:           builder.prefixIndexes(getStringArray(json, key));           break ;
+                // Optional (absent means not compressed)
+                case fIndexCompression:        builder.indexCompression(getBoolean(json, key));            break ;
 
                 default:
                     throw new TDBException("StoreParams key not recognized: "+key);
@@ -172,6 +179,12 @@ public class StoreParamsCodec {
         return x;
     }
 
+    private static boolean getBoolean(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getBoolean: no such key: "+key);
+        return json.get(key).getAsBoolean().value();
+    }
+
     private static String[] getStringArray(JsonObject json, String key) {
         if ( ! json.hasKey(key) )
             throw new TDBException("StoreParamsCodec.getStringArray: no such key: "+key);
@@ -194,6 +207,10 @@ public class StoreParamsCodec {
             builder.key(name).value(value.toString());
             return;
         }
+        if ( value instanceof Boolean ) {
+            builder.key(name).value(((Boolean)value).booleanValue());
+            return;
+        }
         if ( value instanceof String[] ) {
             String[] x = (String[])value;
             builder.key(name);
@@ -58,6 +58,16 @@ public class StoreParamsConst {
     public static final String  fPrefixNodeMissCacheSize  = "prefix_node_miss_cache_size";
     public static final int     PrefixNodeMissCacheSize   = SystemTDB.PrefixNodeMissCacheSize;
 
+    public static final String   fNodeId2NodeOffHeapCacheSize = "nodeid2node_offheap_cache_mb";
+    public static final int      NodeId2NodeOffHeapCacheSize  = SystemTDB.NodeId2NodeOffHeapCacheSize;
+
+    public static final String  fNodeCacheType        = "node_cache_type";
+    public static final String  NodeCacheType         = SystemTDB.NodeCacheType;
+    /** Node cache type : LRU-like cache, single map. */
+    public static final String  NodeCacheTypeLRU      = "lru";
+    /** Node cache type : segmented cache with lock-free lookups (see {@link org.apache.jena.atlas.lib.cache.CacheStriped}). */
+    public static final String  NodeCacheTypeStriped  = "striped";
+
     /** Database layout - ignored after a database is created */
     public static final String   fBlockSize            = "block_size";
     public static final int      blockSize             = SystemTDB.BlockSize;
@@ -86,6 +96,10 @@ public class StoreParamsConst {
     public static final String   fPrefixIndexes        = "prefix_indexes";
     public static final String[] prefixIndexes         = Names.prefixIndexes;
 
+    /** Compress the leaf blocks of the triple, quad and prefix indexes. */
+    public static final String   fIndexCompression     = "index_compression";
+    public static final boolean  indexCompression      = false;
+
     // Must be after the constants above to get initialization order right
     // because StoreParamsBuilder uses these constants.
 
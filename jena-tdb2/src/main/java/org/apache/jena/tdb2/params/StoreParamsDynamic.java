@@ -55,6 +55,17 @@ public interface StoreParamsDynamic {
     public Integer getNodeMissCacheSize();
     public boolean isSetNodeMissCacheSize();
 
+    /**
+     * Off-heap node cache for NodeId{@literal ->}Node, in megabytes. Used as a second
+     * level to the NodeId{@literal ->}Node cache; 0 for none.
+     */
+    public Integer getNodeId2NodeOffHeapCacheSize();
+    public boolean isSetNodeId2NodeOffHeapCacheSize();
+
+    /** Implementation of the node caches: {@code "lru"} or {@code "striped"} */
+    public String getNodeCacheType();
+    public boolean isSetNodeCacheType();
+
     // == NodeTable - Prefix table.
     /** Node cache for Node{@literal ->}NodeId. */
     public Integer getPrefixNode2NodeIdCacheSize();
@@ -94,6 +94,8 @@ public class BindingTDB extends BindingBase
 
     public BindingNodeId getBindingId() { return idBinding; }
 
+    public NodeTable getNodeTable() { return nodeTable; }
+
     public NodeId getNodeId(Var var)
     {
         NodeId id = idBinding.get(var);
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.expr.*;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdType;
+import org.apache.jena.tdb2.store.value.DateTimeNode;
+import org.apache.jena.tdb2.store.value.DoubleNode62;
+import org.apache.jena.tdb2.store.value.IntegerNode;
+
+/**
+ * A range of numeric or dateTime values for a variable, from filter expressions
+ * such as {@code ?x > 100} or {@code ?d < "2020-01-01T00:00:00Z"^^xsd:dateTime},
+ * and the ranges of NodeIds, in index order, that may hold matching terms.
+ * <p>
+ * The NodeId ranges are a superset of the matches: all pointer NodeIds
+ * (terms that are not inlined), whole ranges for inline types where the encoding
+ * does not follow the value order, and narrowed ranges for integers, doubles and
+ * dateTimes. The filter must still be applied to the results.
+ */
+class NodeIdRange
+{
+    private enum Kind { NUMERIC, DATETIME }
+
+    private final Kind kind;
+    // null for unbounded. Inclusive; an exclusive bound is treated as inclusive.
+    private final BigDecimal numLow;
+    private final BigDecimal numHigh;
+    private final Long timeLow;
+    private final Long timeHigh;
+
+    private NodeIdRange(Kind kind, BigDecimal numLow, BigDecimal numHigh, Long timeLow, Long timeHigh) {
+        this.kind = kind;
+        this.numLow = numLow;
+        this.numHigh = numHigh;
+        this.timeLow = timeLow;
+        this.timeHigh = timeHigh;
+    }
+
+    /**
+     * The ranges given by the expressions (each is a conjunct of a filter), by
+     * variable. Expressions that are not value comparisons of a variable and a
+     * numeric or dateTime constant are ignored.
+     */
+    static Map<Var, NodeIdRange> create(ExprList exprs) {
+        Map<Var, NodeIdRange> ranges = new HashMap<>();
+        Set<Var> conflicts = new HashSet<>();
+        for ( Expr expr : exprs ) {
+            Var var = rangeVar(expr);
+            if ( var == null )
+                continue;
+            NodeIdRange r = fromExpr(expr);
+            if ( r == null )
+                continue;
+            NodeIdRange r0 = ranges.get(var);
+            if ( r0 != null ) {
+                r = r0.intersect(r);
+                if ( r == null ) {
+                    // Different kinds of value.
+                    conflicts.add(var);
+                    continue;
+                }
+            }
+            ranges.put(var, r);
+        }
+        conflicts.forEach(ranges::remove);
+        return ranges;
+    }
+
+    private static Var rangeVar(Expr expr) {
+        if ( ! isComparison(expr) )
+            return null;
+        ExprFunction2 func = (ExprFunction2)expr;
+        if ( func.getArg1().isVariable() && func.getArg2().isConstant() )
+            return func.getArg1().asVar();
+        if ( func.getArg2().isVariable() && func.getArg1().isConstant() )
+            return func.getArg2().asVar();
+        return null;
+    }
+
+    private static boolean isComparison(Expr expr) {
+        return expr instanceof E_LessThan || expr instanceof E_LessThanOrEqual ||
+               expr instanceof E_GreaterThan || expr instanceof E_GreaterThanOrEqual ||
+               expr instanceof E_Equals;
+    }
+
+    private static NodeIdRange fromExpr(Expr expr) {
+        ExprFunction2 func = (ExprFunction2)expr;
+        boolean varFirst = func.getArg1().isVariable();
+        NodeValue nv = varFirst ? func.getArg2().getConstant() : func.getArg1().getConstant();
+        // ?x < C  or C > ?x : upper bound.
+        boolean less = ( expr instanceof E_LessThan || expr instanceof E_LessThanOrEqual );
+        boolean greater = ( expr instanceof E_GreaterThan || expr instanceof E_GreaterThanOrEqual );
+        boolean upper = ( varFirst ? less : greater );
+        boolean lower = ( varFirst ? greater : less );
+        if ( expr instanceof E_Equals ) {
+            upper = true;
+            lower = true;
+        }
+        if ( nv.isNumber() ) {
+            BigDecimal x = decimal(nv);
+            if ( x == null )
+                return null;
+            return new NodeIdRange(Kind.NUMERIC, lower ? x : null, upper ? x : null, null, null);
+        }
+        if ( nv.isDateTime() ) {
+            long x = millis(nv.getDateTime());
+            return new NodeIdRange(Kind.DATETIME, null, null, lower ? x : null, upper ? x : null);
+        }
+        return null;
+    }
+
+    private static BigDecimal decimal(NodeValue nv) {
+        if ( nv.isInteger() )
+            return new BigDecimal(nv.getInteger());
+        if ( nv.isDecimal() )
+            return nv.getDecimal();
+        double d = nv.getDouble();
+        if ( Double.isNaN(d) || Double.isInfinite(d) )
+            return null;
+        return new BigDecimal(d);
+    }
+
+    private static long millis(XMLGregorianCalendar cal) {
+        // No timezone : the margin on the dateTime ranges covers any timezone.
+        if ( cal.getTimezone() == DatatypeConstants.FIELD_UNDEFINED ) {
+            cal = (XMLGregorianCalendar)cal.clone();
+            cal.setTimezone(0);
+        }
+        return cal.toGregorianCalendar().getTimeInMillis();
+    }
+
+    private NodeIdRange intersect(NodeIdRange other) {
+        if ( kind != other.kind )
+            return null;
+        return new NodeIdRange(kind,
+                               max(numLow, other.numLow), min(numHigh, other.numHigh),
+                               max(timeLow, other.timeLow), min(timeHigh, other.timeHigh));
+    }
+
+    private static <T extends Comparable<T>> T max(T x, T y) {
+        if ( x == null ) return y;
+        if ( y == null ) return x;
+        return x.compareTo(y) >= 0 ? x : y;
+    }
+
+    private static <T extends Comparable<T>> T min(T x, T y) {
+        if ( x == null ) return y;
+        if ( y == null ) return x;
+        return x.compareTo(y) <= 0 ? x : y;
+    }
+
+    // ---- NodeId ranges.
+
+    private static final NodeIdType[] integerTypes = {
+        NodeIdType.XSD_INTEGER,
+        NodeIdType.XSD_POSITIVE_INTEGER, NodeIdType.XSD_NEGATIVE_INTEGER,
+        NodeIdType.XSD_NON_NEGATIVE_INTEGER, NodeIdType.XSD_NON_POSITIVE_INTEGER,
+        NodeIdType.XSD_LONG, NodeIdType.XSD_INT, NodeIdType.XSD_SHORT, NodeIdType.XSD_BYTE,
+        NodeIdType.XSD_UNSIGNEDLONG, NodeIdType.XSD_UNSIGNEDINT, NodeIdType.XSD_UNSIGNEDSHORT, NodeIdType.XSD_UNSIGNEDBYTE
+    };
+
+    private static final NodeIdType[] dateTimeTypes = {
+        NodeIdType.XSD_DATETIME, NodeIdType.XSD_DATETIMESTAMP, NodeIdType.XSD_DATE
+    };
+
+    // Values, other than doubles, are 56 bits.
+    private static final long MaxValue56 = (1L << 56) - 1;
+    // Doubles are 62 bits; bit 61 is the sign.
+    private static final long DoubleSign = 1L << 61;
+    private static final long DoubleMagnitude = DoubleSign - 1;
+    // Exponent all ones: infinities and NaN.
+    private static final long DoubleSpecial = 0x1FFL << 52;
+    // DateTime : timezone in bits 49-55, local date and time below that.
+    private static final int TZ = 49;
+    private static final long MaxLocalTime = (1L << TZ) - 1;
+    // Covers timezones, and dateTimes compared to dates.
+    private static final long DateTimeMargin = 2 * 24 * 60 * 60 * 1000L;
+
+    /**
+     * The ranges of NodeIds, as pairs of inclusive bounds, in index order, that
+     * include all terms in this range of values.
+     */
+    List<NodeId[]> nodeIdRanges() {
+        List<NodeId[]> ranges = new ArrayList<>();
+        // Terms that are not inlined.
+        ranges.add(new NodeId[] {NodeIdFactory.createPtr(0), NodeIdFactory.createPtr(Long.MAX_VALUE)});
+        if ( kind == Kind.NUMERIC ) {
+            for ( NodeIdType type : integerTypes )
+                integerRanges(type, ranges);
+            wholeType(NodeIdType.XSD_DECIMAL, ranges);
+            wholeType(NodeIdType.XSD_FLOAT, ranges);
+            doubleRanges(ranges);
+        } else {
+            for ( NodeIdType type : dateTimeTypes )
+                dateTimeRanges(type, ranges);
+        }
+        ranges.sort((r1, r2) -> NodeIdFactory.compareEncoded(r1[0], r2[0]));
+        return ranges;
+    }
+
+    private static void wholeType(NodeIdType type, List<NodeId[]> ranges) {
+        add(type, 0, MaxValue56, ranges);
+    }
+
+    private static void add(NodeIdType type, long min, long max, List<NodeId[]> ranges) {
+        ranges.add(new NodeId[] {NodeIdFactory.createValue(type, min), NodeIdFactory.createValue(type, max)});
+    }
+
+    /** 56 bit two's complement : non-negative values, then negative values. */
+    private void integerRanges(NodeIdType type, List<NodeId[]> ranges) {
+        BigInteger min = BigInteger.valueOf(IntegerNode.MIN);
+        BigInteger max = BigInteger.valueOf(IntegerNode.MAX);
+        BigInteger lo = ( numLow == null ) ? min : numLow.setScale(0, RoundingMode.FLOOR).toBigInteger().max(min);
+        BigInteger hi = ( numHigh == null ) ? max : numHigh.setScale(0, RoundingMode.CEILING).toBigInteger().min(max);
+        if ( lo.compareTo(hi) > 0 )
+            return;
+        long x = lo.longValue();
+        long y = hi.longValue();
+        if ( x >= 0 ) {
+            add(type, x, y, ranges);
+        } else if ( y < 0 ) {
+            add(type, x & MaxValue56, y & MaxValue56, ranges);
+        } else {
+            add(type, 0, y, ranges);
+            add(type, x & MaxValue56, MaxValue56, ranges);
+        }
+    }
+
+    /** Sign and magnitude : non-negative values, then negative values by increasing magnitude. */
+    private void doubleRanges(List<NodeId[]> ranges) {
+        double lo = ( numLow == null ) ? Double.NEGATIVE_INFINITY : Math.nextDown(numLow.doubleValue());
+        double hi = ( numHigh == null ) ? Double.POSITIVE_INFINITY : Math.nextUp(numHigh.doubleValue());
+        if ( hi >= 0 )
+            add(NodeIdType.XSD_DOUBLE, magnitude(Math.max(lo, 0)), magnitude(hi), ranges);
+        if ( lo < 0 )
+            add(NodeIdType.XSD_DOUBLE, DoubleSign | magnitude(Math.abs(Math.min(hi, 0))), DoubleSign | magnitude(Math.abs(lo)), ranges);
+        // Infinities and NaNs. The all-ones value is not used (and has no successor).
+        add(NodeIdType.XSD_DOUBLE, DoubleSpecial, DoubleMagnitude, ranges);
+        add(NodeIdType.XSD_DOUBLE, DoubleSign | DoubleSpecial, (DoubleSign | DoubleMagnitude) - 1, ranges);
+    }
+
+    /** The encoding of a non-negative double, or the nearest bound if it can not be encoded. */
+    private static long magnitude(double d) {
+        if ( Double.isInfinite(d) )
+            return DoubleSpecial - 1;
+        long z = DoubleNode62.pack(d);
+        if ( z != DoubleNode62.NO_ENCODING )
+            return z;
+        // Out of range: too small, or too large.
+        return ( d < 1 ) ? 0 : DoubleSpecial - 1;
+    }
+
+    /**
+     * The timezone is the high bits, then the local date and time. For each timezone,
+     * the range of local times that may be in range, with a margin.
+     */
+    private void dateTimeRanges(NodeIdType type, List<NodeId[]> ranges) {
+        long lo = ( timeLow == null ) ? 0 : localBits(timeLow - DateTimeMargin, 0);
+        long hi = ( timeHigh == null ) ? MaxLocalTime : localBits(timeHigh + DateTimeMargin, MaxLocalTime);
+        if ( lo > hi )
+            return;
+        for ( long tz = 0 ; tz < (1 << 7) ; tz++ )
+            add(type, (tz << TZ) | lo, (tz << TZ) | hi, ranges);
+    }
+
+    /** The local date and time bits for a point in time as UTC. */
+    private static long localBits(long millis, long outOfRange) {
+        LocalDateTime dt = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), 0, ZoneOffset.UTC);
+        int year = dt.getYear();
+        if ( year < 0 )
+            return 0;
+        if ( year > 7999 )
+            return MaxLocalTime;
+        String lex = String.format("%04d-%02d-%02dT%02d:%02d:%02d.%03d",
+                                   year, dt.getMonthValue(), dt.getDayOfMonth(),
+                                   dt.getHour(), dt.getMinute(), dt.getSecond(), Math.floorMod(millis, 1000));
+        long v = DateTimeNode.packDateTime(lex);
+        if ( v == -1 )
+            return outOfRange;
+        return v & MaxLocalTime;
+    }
+}
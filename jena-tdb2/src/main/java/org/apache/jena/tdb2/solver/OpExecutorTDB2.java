@@ -18,34 +18,60 @@
 
 package org.apache.jena.tdb2.solver;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.ARQ;
 import org.apache.jena.sparql.ARQInternalErrorException;
 import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.algebra.OpVars;
 import org.apache.jena.sparql.algebra.op.*;
 import org.apache.jena.sparql.algebra.optimize.TransformFilterPlacement;
 import org.apache.jena.sparql.core.BasicPattern;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.core.Substitute;
 import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.core.VarExprList;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
 import org.apache.jena.sparql.engine.iterator.QueryIterPeek;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.engine.iterator.QueryIterProject;
+import org.apache.jena.sparql.engine.iterator.QueryIterRoot;
 import org.apache.jena.sparql.engine.main.OpExecutor;
 import org.apache.jena.sparql.engine.main.OpExecutorFactory;
 import org.apache.jena.sparql.engine.main.QC;
 import org.apache.jena.sparql.engine.main.iterator.QueryIterGraph;
+import org.apache.jena.sparql.engine.main.solver.SolverLib;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprAggregator;
 import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.expr.aggregate.AggCount;
+import org.apache.jena.sparql.expr.aggregate.AggCountVar;
+import org.apache.jena.sparql.expr.aggregate.Aggregator;
 import org.apache.jena.sparql.mgt.Explain;
+import org.apache.jena.sparql.util.VarUtils;
+import org.apache.jena.tdb2.TDB2;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,17 +116,151 @@ public class OpExecutorTDB2 extends OpExecutor
     // Retrieving nodes isn't so bad because they will be needed anyway.
     // And if their duplicates, likely to be cached.
     // Need to work with SolverLib which wraps the NodeId bindgins with a converter.
+    //
+    // DISTINCT, REDUCED, GROUP BY (on variables), joins and sameTerm filters
+    // compare NodeIds, and leave NodeIds in the results, so that terms are only
+    // decoded for output or for value-based expressions ("late materialization").
+    // Not by default: see TDB2.symLateMaterialization.
+
+    /** Whether to use the NodeId versions of operators. */
+    private boolean lateMaterialization() {
+        return isForTDB && execCxt.getContext().isTrue(TDB2.symLateMaterialization);
+    }
 
     @Override
     protected QueryIterator execute(OpDistinct opDistinct, QueryIterator input)
     {
-        return super.execute(opDistinct, input);
+        // QueryIterDistinctTDB does not spill to disk.
+        if ( ! lateMaterialization() || execCxt.getContext().isDefined(ARQ.spillToDiskThreshold) )
+            return super.execute(opDistinct, input);
+        return executeDistinctReduced(opDistinct.getSubOp(), false, input);
     }
 
     @Override
     protected QueryIterator execute(OpReduced opReduced, QueryIterator input)
     {
-        return super.execute(opReduced, input);
+        if ( ! lateMaterialization() )
+            return super.execute(opReduced, input);
+        return executeDistinctReduced(opReduced.getSubOp(), true, input);
+    }
+
+    private QueryIterator executeDistinctReduced(Op subOp, boolean reduced, QueryIterator input)
+    {
+        NodeTable nodeTable = SolverLibTDB.nodeTable(execCxt);
+        if ( subOp instanceof OpProject && input instanceof QueryIterRoot ) {
+            // (distinct (project ...)) : remove duplicates before projecting.
+            // The bindings are still NodeId-based at this point.
+            OpProject opProject = (OpProject)subOp;
+            QueryIterator qIter = exec(opProject.getSubOp(), input);
+            qIter = new QueryIterDistinctTDB(qIter, opProject.getVars(), nodeTable, reduced, execCxt);
+            return new QueryIterProject(qIter, opProject.getVars(), execCxt);
+        }
+        QueryIterator qIter = exec(subOp, input);
+        return new QueryIterDistinctTDB(qIter, null, nodeTable, reduced, execCxt);
+    }
+
+    @Override
+    protected QueryIterator execute(OpGroup opGroup, QueryIterator input)
+    {
+        if ( isForTDB && execCxt.getContext().isTrue(TDB2.symParallelScan) ) {
+            QueryIterator qIter = executeCountParallel(opGroup, input);
+            if ( qIter != null )
+                return qIter;
+        }
+        if ( ! lateMaterialization() )
+            return super.execute(opGroup, input);
+        VarExprList groupVars = opGroup.getGroupVars();
+        for ( Var v : groupVars.getVars() ) {
+            // GROUP BY (expression) : general case.
+            if ( groupVars.getExpr(v) != null )
+                return super.execute(opGroup, input);
+        }
+        QueryIterator qIter = exec(opGroup.getSubOp(), input);
+        return new QueryIterGroupTDB(qIter, groupVars.getVars(), opGroup.getAggregators(),
+                                     SolverLibTDB.nodeTable(execCxt), execCxt);
+    }
+
+    /**
+     * COUNT(*) or COUNT(?var), grouped by variables, of a single triple pattern:
+     * count partitions of the index in parallel (see {@link TDB2#symParallelScan}).
+     * Returns null if the group is not of this form.
+     */
+    private QueryIterator executeCountParallel(OpGroup opGroup, QueryIterator input)
+    {
+        if ( ! input.isJoinIdentity() || QC2.getFilter(execCxt.getContext()) != null )
+            return null;
+        GraphTDB graph = (GraphTDB)execCxt.getActiveGraph();
+        Op subOp = opGroup.getSubOp();
+        Node gn;
+        Triple triple;
+        if ( subOp instanceof OpBGP && ((OpBGP)subOp).getPattern().size() == 1 ) {
+            gn = graph.getGraphName();
+            triple = ((OpBGP)subOp).getPattern().get(0);
+        } else if ( subOp instanceof OpQuadPattern && ((OpQuadPattern)subOp).getBasicPattern().size() == 1 ) {
+            gn = ((OpQuadPattern)subOp).getGraphNode();
+            triple = ((OpQuadPattern)subOp).getBasicPattern().get(0);
+        } else
+            return null;
+        gn = decideGraphNode(gn, execCxt);
+        if ( gn != null && ( Var.isVar(gn) || Node.ANY.equals(gn) ) )
+            return null;
+        if ( SolverLib.tripleHasEmbTripleWithVars(triple) )
+            return null;
+        Set<Var> tripleVars = VarUtils.getVars(triple);
+        VarExprList groupVars = opGroup.getGroupVars();
+        for ( Var v : groupVars.getVars() ) {
+            if ( groupVars.getExpr(v) != null || ! tripleVars.contains(v) )
+                return null;
+        }
+        for ( ExprAggregator agg : opGroup.getAggregators() ) {
+            Aggregator aggregator = agg.getAggregator();
+            if ( aggregator instanceof AggCount )
+                continue;
+            // COUNT(?var) where ?var is always bound.
+            if ( aggregator instanceof AggCountVar ) {
+                Expr expr = aggregator.getExprList().get(0);
+                if ( expr.isVariable() && tripleVars.contains(expr.asVar()) )
+                    continue;
+            }
+            return null;
+        }
+
+        NodeTupleTable nodeTupleTable = graph.getDSG().chooseNodeTupleTable(gn);
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        List<Var> vars = groupVars.getVars();
+        Map<List<NodeId>, Long> counts = PatternMatchTDB2.countParallel(nodeTupleTable, gn, triple, vars, execCxt);
+        input.close();
+        List<Binding> results = new ArrayList<>(counts.size());
+        if ( counts.isEmpty() && vars.isEmpty() )
+            // No matches, no GROUP BY : one row of zeros.
+            counts = Map.of(List.of(), 0L);
+        counts.forEach((key, count) -> {
+            BindingBuilder builder = Binding.builder();
+            Node countNode = NodeValue.makeInteger(count).asNode();
+            for ( ExprAggregator agg : opGroup.getAggregators() )
+                builder.add(agg.getVar(), countNode);
+            BindingNodeId ids = new BindingNodeId(builder.build());
+            for ( int i = 0 ; i < vars.size() ; i++ )
+                ids.put(vars.get(i), key.get(i));
+            results.add(new BindingTDB(ids, nodeTable));
+        });
+        return QueryIterPlainWrapper.create(results.iterator(), execCxt);
+    }
+
+    @Override
+    protected QueryIterator execute(OpJoin opJoin, QueryIterator input)
+    {
+        // QueryIterJoinTDB does not spill to disk.
+        if ( ! lateMaterialization() || execCxt.getContext().isDefined(ARQ.spillToDiskThreshold) )
+            return super.execute(opJoin, input);
+        Set<Var> joinVars = new LinkedHashSet<>(OpVars.fixedVars(opJoin.getLeft()));
+        joinVars.retainAll(OpVars.fixedVars(opJoin.getRight()));
+        if ( joinVars.isEmpty() )
+            // Cross product, or a join on variables that may be unbound.
+            return super.execute(opJoin, input);
+        QueryIterator left = exec(opJoin.getLeft(), input);
+        QueryIterator right = exec(opJoin.getRight(), root());
+        return new QueryIterJoinTDB(left, right, new ArrayList<>(joinVars), SolverLibTDB.nodeTable(execCxt), execCxt);
     }
 
     @Override
@@ -132,8 +292,20 @@ public class OpExecutorTDB2 extends OpExecutor
         }
 
         // (filter (anything else))
-        return super.execute(opFilter, input);
-        }
+        if ( ! lateMaterialization() )
+            return super.execute(opFilter, input);
+        QueryIterator qIter = exec(opFilter.getSubOp(), input);
+        return filter(opFilter.getExprs(), qIter, execCxt);
+    }
+
+    /** Filter by each expression, comparing NodeIds for sameTerm tests. */
+    private static QueryIterator filter(ExprList exprs, QueryIterator qIter, ExecutionContext execCxt)
+    {
+        NodeTable nodeTable = SolverLibTDB.nodeTable(execCxt);
+        for ( Expr expr : exprs )
+            qIter = QueryIterFilterTermTDB.create(qIter, expr, nodeTable, execCxt);
+        return qIter;
+    }
 
     // ---- Triple patterns
 
@@ -212,6 +384,10 @@ public class OpExecutorTDB2 extends OpExecutor
             Predicate<Tuple<NodeId>> filter = QC2.getFilter(execCxt.getContext());
             return PatternMatchTDB2.execute(dsgtdb, Quad.defaultGraphNodeGenerated, pattern, input, filter, execCxt);
         }
+        QueryIterator qIterRange = executeRangeScan(dsgtdb, input, null, pattern, exprs, execCxt);
+        if ( qIterRange != null )
+            return qIterRange;
+
         // -- Filter placement
 
         Op op = TransformFilterPlacement.transform(exprs, pattern);
@@ -251,11 +427,65 @@ public class OpExecutorTDB2 extends OpExecutor
             return PatternMatchTDB2.execute(dsgtdb, gn, bgp, input, filter, execCxt);
         }
 
+        QueryIterator qIterRange = executeRangeScan(dsgtdb, input, gn, bgp, exprs, execCxt);
+        if ( qIterRange != null )
+            return qIterRange;
+
         // -- Filter placement
         Op op = TransformFilterPlacement.transform(exprs, gn, bgp);
         return plainExecute(op, input, execCxt);
     }
 
+    /**
+     * Where a filter restricts the object of a triple pattern to a range of numeric or
+     * dateTime values, match that triple pattern by reading only the matching index
+     * key ranges, then execute the rest of the pattern. The triple pattern is used if
+     * it would be first in the reordered pattern when the ranged variable is treated
+     * as bound. All the filters are still applied.
+     * Returns null if there is no such triple pattern.
+     */
+    private static QueryIterator executeRangeScan(DatasetGraphTDB dsgtdb, QueryIterator input,
+                                                  Node gn, BasicPattern pattern, ExprList exprs,
+                                                  ExecutionContext execCxt)
+    {
+        if ( execCxt.getContext().isFalse(TDB2.symRangeScan) || Node.ANY.equals(gn) )
+            return null;
+        Map<Var, NodeIdRange> ranges = NodeIdRange.create(exprs);
+        if ( ranges.isEmpty() || pattern.isEmpty() )
+            return null;
+        ReorderTransformation transform = dsgtdb.getReorderTransform();
+        if ( pattern.size() >= 2 && transform != null ) {
+            BindingBuilder builder = Binding.builder();
+            ranges.keySet().forEach(v -> builder.add(v, rangeMarker));
+            ReorderProc proc = transform.reorderIndexes(Substitute.substitute(pattern, builder.build()));
+            pattern = proc.reorder(pattern);
+        }
+        Triple triple = pattern.get(0);
+        Node object = triple.getObject();
+        if ( ! Var.isVar(object) || ! ranges.containsKey(object) )
+            return null;
+        if ( object.equals(triple.getSubject()) || object.equals(triple.getPredicate()) || object.equals(gn) )
+            return null;
+        if ( SolverLib.tripleHasEmbTripleWithVars(triple) )
+            return null;
+
+        Explain.explain("Execute (range)", BasicPattern.wrap(List.of(triple)), execCxt.getContext());
+        Predicate<Tuple<NodeId>> filter = QC2.getFilter(execCxt.getContext());
+        QueryIterator qIter = PatternMatchTDB2.executeRange(dsgtdb, gn, triple, ranges.get(object), input, filter, execCxt);
+        BasicPattern rest = new BasicPattern();
+        for ( int i = 1 ; i < pattern.size() ; i++ )
+            rest.add(pattern.get(i));
+        if ( ! rest.isEmpty() )
+            qIter = ( gn == null )
+                ? optimizeExecuteTriples(dsgtdb, qIter, rest, null, execCxt)
+                : optimizeExecuteQuads(dsgtdb, qIter, gn, rest, null, execCxt);
+        // The range scan may return more than the range; apply all the filters.
+        return filter(exprs, qIter, execCxt);
+    }
+
+    // Stands for "bound to some value in the range" when reordering a pattern.
+    private static final Node rangeMarker = NodeFactory.createLiteral("range");
+
     /** Execute without modification of the op - does <b>not</b> apply special graph name translations */
     private static QueryIterator plainExecute(Op op, QueryIterator input, ExecutionContext execCxt)
     {
@@ -422,5 +652,15 @@ public class OpExecutorTDB2 extends OpExecutor
             Log.warn(this, "Non-DatasetGraphTDB passed to OpExecutorPlainTDB");
             return super.execute(opQuadPattern, input);
         }
+
+        @Override
+        public QueryIterator execute(OpFilter opFilter, QueryIterator input)
+        {
+            // The filters placed in a basic graph pattern.
+            if ( ! execCxt.getContext().isTrue(TDB2.symLateMaterialization) )
+                return super.execute(opFilter, input);
+            QueryIterator qIter = exec(opFilter.getSubOp(), input);
+            return filter(opFilter.getExprs(), qIter, execCxt);
+        }
     }
 }
@@ -19,10 +19,14 @@
 package org.apache.jena.tdb2.solver;
 
 import static org.apache.jena.sparql.engine.main.solver.SolverLib.makeAbortable;
+import static org.apache.jena.sparql.engine.main.solver.SolverLib.tripleHasEmbTripleWithVars;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.iterator.Iter;
@@ -32,11 +36,15 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.core.BasicPattern;
 import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.VarUtils;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.iterator.Abortable;
 import org.apache.jena.sparql.engine.iterator.QueryIterAbortable;
+import org.apache.jena.tdb2.TDB2;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.GraphTDB;
@@ -102,14 +110,44 @@ public class PatternMatchTDB2 {
         Iterator<BindingNodeId> chain = Iter.map(input, SolverLibTDB.convFromBinding(nodeTable));
         List<Abortable> killList = new ArrayList<>();
 
-        for ( Triple triple : triples ) {
-            Tuple<Node> patternTuple = null;
-            if ( graphNode == null )
-                // 3-tuples
-                patternTuple = TupleFactory.create3(triple.getSubject(), triple.getPredicate(), triple.getObject());
-            else
-                // 4-tuples.
-                patternTuple = TupleFactory.create4(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject());
+        List<Tuple<Node>> patternTuples = new ArrayList<>(triples.size());
+        for ( Triple triple : triples )
+            patternTuples.add(patternTuple(graphNode, triple));
+
+        int start = 0;
+        if ( useLeapfrogJoin(triples, patternTuples, anyGraph, filter, execCxt) ) {
+            // Whole BGP.
+            if ( execCxt.getContext().isTrue(TDB2.symLeapfrogJoin) )
+                chain = StageLeapfrogJoin.access(nodeTupleTable, chain, patternTuples, execCxt);
+            else {
+                // Chosen automatically: limit the matches sorted in memory.
+                Node gn = graphNode;
+                Function<BindingNodeId, Iterator<BindingNodeId>> fallback = bnid -> {
+                    Iterator<BindingNodeId> iter = Iter.singleton(bnid);
+                    for ( int i = 0 ; i < triples.size() ; i++ )
+                        iter = matchQuadPattern(iter, gn, triples.get(i), nodeTupleTable, patternTuples.get(i), anyGraph, filter, execCxt);
+                    return iter;
+                };
+                long maxSortedRows = execCxt.getContext().getLong(TDB2.symLeapfrogMaxSortedRows, StageLeapfrogJoin.DftMaxSortedRows);
+                chain = StageLeapfrogJoin.access(nodeTupleTable, chain, patternTuples, maxSortedRows, fallback, execCxt);
+            }
+            chain = makeAbortable(chain, killList);
+            start = triples.size();
+        } else if ( useMergeJoin(triples, anyGraph, execCxt) ) {
+            // First two triple patterns.
+            chain = StageMergeJoin.access(nodeTupleTable, chain, patternTuples.get(0), patternTuples.get(1), filter, execCxt);
+            chain = makeAbortable(chain, killList);
+            start = 2;
+        } else if ( useParallelScan(triples, anyGraph, execCxt) ) {
+            // First triple pattern.
+            chain = StageParallelScan.access(nodeTupleTable, chain, patternTuples.get(0), filter);
+            chain = makeAbortable(chain, killList);
+            start = 1;
+        }
+
+        for ( int i = start ; i < triples.size() ; i++ ) {
+            Triple triple = triples.get(i);
+            Tuple<Node> patternTuple = patternTuples.get(i);
             // Plain RDF, no RDF-star
             // chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt)
             // ;
@@ -126,6 +164,110 @@ public class PatternMatchTDB2 {
         return new QueryIterAbortable(iterBinding, killList, input, execCxt);
     }
 
+    /**
+     * Match one triple pattern, whose object is a variable, with the object restricted
+     * to a range of values. The range is a superset of the values that match so the
+     * filter for the range must still be applied.
+     * GraphNode is null for execution over the real default graph.
+     */
+    static QueryIterator executeRange(DatasetGraphTDB ds, Node graphNode, Triple triple, NodeIdRange range,
+                                      QueryIterator input, Predicate<Tuple<NodeId>> filter,
+                                      ExecutionContext execCxt)
+    {
+        if ( Quad.isDefaultGraph(graphNode) )
+            graphNode = null;
+        NodeTupleTable nodeTupleTable = ds.chooseNodeTupleTable(graphNode);
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        Iterator<BindingNodeId> chain = Iter.map(input, SolverLibTDB.convFromBinding(nodeTable));
+        List<Abortable> killList = new ArrayList<>();
+        Tuple<Node> patternTuple = patternTuple(graphNode, triple);
+        chain = StageMatchRange.access(nodeTupleTable, chain, patternTuple, patternTuple.len()-1, range, filter);
+        chain = makeAbortable(chain, killList);
+        Iterator<Binding> iterBinding = SolverLibTDB.convertToNodes(chain, nodeTable);
+        return new QueryIterAbortable(iterBinding, killList, input, execCxt);
+    }
+
+    private static Tuple<Node> patternTuple(Node graphNode, Triple triple) {
+        if ( graphNode == null )
+            // 3-tuples
+            return TupleFactory.create3(triple.getSubject(), triple.getPredicate(), triple.getObject());
+        // 4-tuples.
+        return TupleFactory.create4(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject());
+    }
+
+    /**
+     * Whether to evaluate the whole BGP by leapfrog triejoin. Controlled by
+     * {@link TDB2#symLeapfrogJoin}: if true, always (when possible); if false,
+     * never; if unset, when the BGP is cyclic, in which case matches of a pattern
+     * that has no suitable index are only sorted up to a limit.
+     * Not used with a tuple filter, for the union graph, for RDF-star patterns
+     * with variables or if a variable occurs twice in a triple pattern.
+     */
+    private static boolean useLeapfrogJoin(List<Triple> triples, List<Tuple<Node>> patternTuples, boolean anyGraph,
+                                           Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
+        if ( triples.size() < 2 || anyGraph || filter != null )
+            return false;
+        Context context = execCxt.getContext();
+        if ( context.isFalse(TDB2.symLeapfrogJoin) )
+            return false;
+        for ( Triple triple : triples ) {
+            if ( tripleHasEmbTripleWithVars(triple) )
+                return false;
+        }
+        for ( Tuple<Node> tuple : patternTuples ) {
+            if ( tuple.stream().filter(Var::isVar).count() != tuple.stream().filter(Var::isVar).distinct().count() )
+                return false;
+        }
+        if ( context.isTrue(TDB2.symLeapfrogJoin) )
+            return true;
+        return StageLeapfrogJoin.isCyclic(patternTuples);
+    }
+
+    /**
+     * Whether to start the BGP with a merge join of the first two triple patterns.
+     * This is only tried if enabled by {@link TDB2#symMergeJoin} and the two triple
+     * patterns have a variable in common.
+     */
+    private static boolean useMergeJoin(List<Triple> triples, boolean anyGraph, ExecutionContext execCxt) {
+        if ( triples.size() < 2 || anyGraph )
+            return false;
+        if ( ! execCxt.getContext().isTrue(TDB2.symMergeJoin) )
+            return false;
+        Triple t1 = triples.get(0);
+        Triple t2 = triples.get(1);
+        if ( tripleHasEmbTripleWithVars(t1) || tripleHasEmbTripleWithVars(t2) )
+            return false;
+        Set<Var> vars1 = VarUtils.getVars(t1);
+        Set<Var> vars2 = VarUtils.getVars(t2);
+        return vars1.stream().anyMatch(vars2::contains);
+    }
+
+    /**
+     * Whether to match the first triple pattern by scanning partitions of the index
+     * in parallel. This is only done if enabled by {@link TDB2#symParallelScan}.
+     */
+    private static boolean useParallelScan(List<Triple> triples, boolean anyGraph, ExecutionContext execCxt) {
+        if ( triples.isEmpty() || anyGraph )
+            return false;
+        if ( ! execCxt.getContext().isTrue(TDB2.symParallelScan) )
+            return false;
+        return ! tripleHasEmbTripleWithVars(triples.get(0));
+    }
+
+    /**
+     * Count the matches of a triple pattern, grouped by some of its variables, by
+     * counting partitions of the index in parallel. See {@link TDB2#symParallelScan}.
+     * GraphNode is null for the real default graph.
+     */
+    static Map<List<NodeId>, Long> countParallel(NodeTupleTable nodeTupleTable, Node graphNode, Triple triple, List<Var> groupVars,
+                                                 ExecutionContext execCxt) {
+        Tuple<Node> patternTuple = patternTuple(graphNode, triple);
+        int[] groupSlots = new int[groupVars.size()];
+        for ( int i = 0 ; i < groupSlots.length ; i++ )
+            groupSlots[i] = patternTuple.asList().indexOf(groupVars.get(i));
+        return StageParallelScan.count(nodeTupleTable, patternTuple, groupSlots, execCxt.getCancelSignal());
+    }
+
     private static Iterator<BindingNodeId> matchQuadPattern(Iterator<BindingNodeId> chain, Node graphNode, Triple tPattern,
                                                             NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple, boolean anyGraph,
                                                             Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.*;
+
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingProjectNamed;
+import org.apache.jena.sparql.engine.iterator.QueryIter1;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * DISTINCT and REDUCED, comparing rows by NodeId where possible
+ * (see {@link SolverLibTDB#termKey}) so that duplicate rows are dropped without
+ * decoding their terms. The order of the input is preserved.
+ * <p>
+ * This does not spill to disk; the TDB executor only uses it when no spill threshold is set.
+ */
+class QueryIterDistinctTDB extends QueryIter1
+{
+    // Window size for REDUCED, as QueryIterReduced.
+    private static final int ReducedWindow = 1;
+
+    private final List<Var> vars;
+    private final NodeTable nodeTable;
+    private final boolean reduced;
+    private Set<Map<Var, Object>> seen = new HashSet<>();
+    private LinkedList<Map<Var, Object>> window = new LinkedList<>();
+    private Binding slot = null;
+
+    /**
+     * DISTINCT or REDUCED over the given variables, or over the named variables of each
+     * row if {@code vars} is null. If variables are given, the caller is responsible for
+     * projecting them.
+     */
+    QueryIterDistinctTDB(QueryIterator input, List<Var> vars, NodeTable nodeTable, boolean reduced, ExecutionContext execCxt) {
+        super(input, execCxt);
+        this.vars = vars;
+        this.nodeTable = nodeTable;
+        this.reduced = reduced;
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        if ( slot != null )
+            return true;
+        while ( getInput().hasNext() ) {
+            Binding b = getInput().nextBinding();
+            Map<Var, Object> key = key(b);
+            if ( isFreshSighting(key) ) {
+                slot = ( vars == null ) ? new BindingProjectNamed(b) : b;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        Binding r = slot;
+        slot = null;
+        return r;
+    }
+
+    private boolean isFreshSighting(Map<Var, Object> key) {
+        if ( ! reduced )
+            return seen.add(key);
+        if ( window.contains(key) )
+            return false;
+        if ( window.size() >= ReducedWindow )
+            window.removeLast();
+        window.addFirst(key);
+        return true;
+    }
+
+    private Map<Var, Object> key(Binding binding) {
+        Map<Var, Object> key = new HashMap<>();
+        Iterator<Var> iter = ( vars == null ) ? binding.vars() : vars.iterator();
+        while ( iter.hasNext() ) {
+            Var v = iter.next();
+            // Hide unnamed and internal variables, as BindingProjectNamed.
+            if ( ! v.isNamedVar() )
+                continue;
+            Object x = SolverLibTDB.termKey(binding, v, nodeTable);
+            if ( x != null )
+                key.put(v, x);
+        }
+        return key;
+    }
+
+    @Override
+    protected void requestSubCancel() {}
+
+    @Override
+    protected void closeSubIterator() {
+        seen = null;
+        window = null;
+        slot = null;
+    }
+}
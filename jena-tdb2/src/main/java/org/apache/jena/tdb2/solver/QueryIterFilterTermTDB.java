@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.Objects;
+
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIterFilterExpr;
+import org.apache.jena.sparql.engine.iterator.QueryIterProcessBinding;
+import org.apache.jena.sparql.expr.*;
+import org.apache.jena.sparql.serializer.SerializationContext;
+import org.apache.jena.sparql.util.ExprUtils;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * Filter by a term test, comparing NodeIds where possible (see {@link SolverLibTDB#termKey})
+ * so that the terms are not decoded. The tests are:
+ * <ul>
+ * <li>{@code sameTerm(?x, ?y)} and {@code sameTerm(?x, constant)}
+ * <li>{@code ?x = <iri>} and {@code ?x != <iri>} : for an IRI, "=" is the same as sameTerm.
+ * </ul>
+ * An unbound variable is an evaluation error, so the row is rejected.
+ */
+class QueryIterFilterTermTDB extends QueryIterProcessBinding
+{
+    private final Expr expr;
+    private final Var var1;
+    // Either a second variable or the key for a constant.
+    private final Var var2;
+    private final Object constantKey;
+    private final boolean negate;
+    private final NodeTable nodeTable;
+
+    /** Filter by {@code expr} : by term if possible, else by general expression evaluation. */
+    static QueryIterator create(QueryIterator input, Expr expr, NodeTable nodeTable, ExecutionContext execCxt) {
+        QueryIterator qIter = createTermFilter(input, expr, nodeTable, execCxt);
+        if ( qIter != null )
+            return qIter;
+        return new QueryIterFilterExpr(input, expr, execCxt);
+    }
+
+    private static QueryIterator createTermFilter(QueryIterator input, Expr expr, NodeTable nodeTable, ExecutionContext execCxt) {
+        if ( nodeTable == null )
+            return null;
+        boolean sameTerm = expr instanceof E_SameTerm;
+        boolean negate = expr instanceof E_NotEquals;
+        if ( ! sameTerm && ! negate && ! ( expr instanceof E_Equals ) )
+            return null;
+        ExprFunction2 func = (ExprFunction2)expr;
+        Expr arg1 = func.getArg1();
+        Expr arg2 = func.getArg2();
+        if ( ! arg1.isVariable() ) {
+            Expr x = arg1;
+            arg1 = arg2;
+            arg2 = x;
+        }
+        if ( ! arg1.isVariable() )
+            return null;
+        Var var1 = arg1.asVar();
+        if ( arg2.isVariable() ) {
+            // "=" between two variables is value based.
+            if ( ! sameTerm )
+                return null;
+            return new QueryIterFilterTermTDB(input, expr, var1, arg2.asVar(), null, false, nodeTable, execCxt);
+        }
+        if ( ! arg2.isConstant() )
+            return null;
+        Node node = arg2.getConstant().asNode();
+        if ( ! sameTerm && ! node.isURI() )
+            return null;
+        Object key = SolverLibTDB.termKey(node, nodeTable);
+        return new QueryIterFilterTermTDB(input, expr, var1, null, key, negate, nodeTable, execCxt);
+    }
+
+    private QueryIterFilterTermTDB(QueryIterator input, Expr expr, Var var1, Var var2, Object constantKey,
+                                   boolean negate, NodeTable nodeTable, ExecutionContext execCxt) {
+        super(input, execCxt);
+        this.expr = expr;
+        this.var1 = var1;
+        this.var2 = var2;
+        this.constantKey = constantKey;
+        this.negate = negate;
+        this.nodeTable = nodeTable;
+    }
+
+    @Override
+    public Binding accept(Binding binding) {
+        Object key1 = SolverLibTDB.termKey(binding, var1, nodeTable);
+        if ( key1 == null )
+            return null;
+        Object key2 = ( var2 != null ) ? SolverLibTDB.termKey(binding, var2, nodeTable) : constantKey;
+        if ( key2 == null )
+            return null;
+        boolean same = Objects.equals(key1, key2);
+        return ( same != negate ) ? binding : null;
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext cxt) {
+        out.print(Lib.className(this));
+        out.print(" ");
+        ExprUtils.fmtSPARQL(out, expr, cxt);
+    }
+}
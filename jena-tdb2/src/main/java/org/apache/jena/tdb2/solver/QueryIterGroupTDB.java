@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.*;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorDelayedInitialization;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBuilder;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import org.apache.jena.sparql.expr.ExprAggregator;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.expr.aggregate.Accumulator;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * GROUP BY where the group keys are variables (no expressions).
+ * Groups are keyed by NodeId where possible (see {@link SolverLibTDB#termKey})
+ * and the key variables of each group row are left as NodeIds in a {@link BindingTDB}.
+ * The results are the same as {@link org.apache.jena.sparql.engine.iterator.QueryIterGroup}.
+ */
+class QueryIterGroupTDB extends QueryIterPlainWrapper
+{
+    private final QueryIterator embeddedIterator;
+
+    QueryIterGroupTDB(QueryIterator qIter, List<Var> groupVars, List<ExprAggregator> aggregators,
+                      NodeTable nodeTable, ExecutionContext execCxt) {
+        super(calc(qIter, groupVars, aggregators, nodeTable, execCxt), execCxt);
+        this.embeddedIterator = qIter;
+    }
+
+    @Override
+    public void requestCancel() {
+        this.embeddedIterator.cancel();
+        super.requestCancel();
+    }
+
+    @Override
+    protected void closeIterator() {
+        this.embeddedIterator.close();
+        super.closeIterator();
+    }
+
+    private static Iterator<Binding> calc(QueryIterator iter, List<Var> groupVars, List<ExprAggregator> aggregators,
+                                          NodeTable nodeTable, ExecutionContext execCxt) {
+        return new IteratorDelayedInitialization<Binding>() {
+            @Override
+            protected Iterator<Binding> initializeIterator() {
+                boolean hasAggregators = ( aggregators != null && ! aggregators.isEmpty() );
+                boolean hasGroupBy = ! groupVars.isEmpty();
+
+                // No input : as QueryIterGroup.
+                if ( ! iter.hasNext() ) {
+                    if ( hasGroupBy )
+                        return Iter.nullIterator();
+                    if ( ! hasAggregators )
+                        return Iter.singleton(BindingFactory.binding());
+                    BindingBuilder builder = Binding.builder();
+                    for ( ExprAggregator agg : aggregators ) {
+                        Node value = agg.getAggregator().getValueEmpty();
+                        if ( value == null )
+                            continue;
+                        builder.add(agg.getVar(), value);
+                    }
+                    return Iter.singleton(builder.build());
+                }
+
+                // Group key -> accumulators, in order of first sighting.
+                // The first binding of the group is kept to make the group row.
+                Map<List<Object>, Group> groups = new LinkedHashMap<>();
+                while ( iter.hasNext() ) {
+                    Binding b = iter.nextBinding();
+                    List<Object> key = new ArrayList<>(groupVars.size());
+                    for ( Var v : groupVars )
+                        key.add(SolverLibTDB.termKey(b, v, nodeTable));
+                    Group group = groups.get(key);
+                    if ( group == null ) {
+                        group = new Group(key, b, hasAggregators ? aggregators : null);
+                        groups.put(key, group);
+                    }
+                    if ( hasAggregators ) {
+                        for ( Accumulator acc : group.accumulators )
+                            acc.accumulate(b, execCxt);
+                    }
+                }
+
+                List<Binding> results = new ArrayList<>(groups.size());
+                for ( Group group : groups.values() ) {
+                    Binding k = keyBinding(groupVars, group, nodeTable);
+                    if ( ! hasAggregators ) {
+                        results.add(k);
+                        continue;
+                    }
+                    BindingBuilder builder = Binding.builder(k);
+                    for ( int i = 0 ; i < aggregators.size() ; i++ ) {
+                        NodeValue value = group.accumulators[i].getValue();
+                        if ( value == null )
+                            continue;
+                        builder.add(aggregators.get(i).getVar(), value.asNode());
+                    }
+                    results.add(builder.build());
+                }
+                return results.iterator();
+            }
+        };
+    }
+
+    private static class Group {
+        final List<Object> key;
+        final Binding first;
+        final Accumulator[] accumulators;
+
+        Group(List<Object> key, Binding first, List<ExprAggregator> aggregators) {
+            this.key = key;
+            this.first = first;
+            if ( aggregators == null ) {
+                this.accumulators = null;
+                return;
+            }
+            this.accumulators = new Accumulator[aggregators.size()];
+            for ( int i = 0 ; i < accumulators.length ; i++ )
+                accumulators[i] = aggregators.get(i).getAggregator().createAccumulator();
+        }
+    }
+
+    /** The group variables of a group : NodeIds where the key is a NodeId, else the node. */
+    private static Binding keyBinding(List<Var> groupVars, Group group, NodeTable nodeTable) {
+        BindingBuilder nodes = Binding.builder();
+        boolean hasIds = false;
+        for ( int i = 0 ; i < groupVars.size() ; i++ ) {
+            Object x = group.key.get(i);
+            if ( x instanceof Node ) {
+                Var v = groupVars.get(i);
+                nodes.add(v, group.first.get(v));
+            } else if ( x != null )
+                hasIds = true;
+        }
+        if ( ! hasIds )
+            return nodes.build();
+        BindingNodeId ids = new BindingNodeId(nodes.build());
+        for ( int i = 0 ; i < groupVars.size() ; i++ ) {
+            Object x = group.key.get(i);
+            if ( x instanceof NodeId )
+                ids.put(groupVars.get(i), (NodeId)x);
+        }
+        return new BindingTDB(ids, nodeTable);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.*;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIter2;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+
+/**
+ * Hash join on NodeIds. The right hand side is loaded into a hash table keyed by the
+ * terms of the join variables (see {@link SolverLibTDB#termKey}) and the left hand side
+ * is streamed. The join variables are expected to be bound in every row; rows where they
+ * are not are compared with every row of the other side.
+ * <p>
+ * Rows are compared by NodeId where possible and, when both rows are {@link BindingTDB},
+ * the result is a {@link BindingTDB} so terms are not decoded by the join.
+ * <p>
+ * The whole of the right hand side is held in memory. This join is not used if
+ * {@link ARQ#spillToDiskThreshold} is set; the general hash join, which spills to
+ * disk, is used instead.
+ */
+class QueryIterJoinTDB extends QueryIter2
+{
+    private final List<Var> joinVars;
+    private final NodeTable nodeTable;
+    private Map<List<Object>, List<Binding>> table = null;
+    // Right hand side rows with an unbound join variable.
+    private List<Binding> partial = null;
+    private Binding current = null;
+    private Iterator<Binding> candidates = null;
+    private Binding slot = null;
+
+    QueryIterJoinTDB(QueryIterator left, QueryIterator right, List<Var> joinVars, NodeTable nodeTable, ExecutionContext execCxt) {
+        super(left, right, execCxt);
+        this.joinVars = joinVars;
+        this.nodeTable = nodeTable;
+    }
+
+    private void load() {
+        table = new HashMap<>();
+        partial = new ArrayList<>();
+        QueryIterator right = getRight();
+        while ( right.hasNext() ) {
+            Binding b = right.nextBinding();
+            List<Object> key = key(b);
+            if ( key == null )
+                partial.add(b);
+            else
+                table.computeIfAbsent(key, k -> new ArrayList<>()).add(b);
+        }
+        right.close();
+    }
+
+    /** The join key, or null if any join variable is unbound. */
+    private List<Object> key(Binding binding) {
+        List<Object> key = new ArrayList<>(joinVars.size());
+        for ( Var v : joinVars ) {
+            Object x = SolverLibTDB.termKey(binding, v, nodeTable);
+            if ( x == null )
+                return null;
+            key.add(x);
+        }
+        return key;
+    }
+
+    private Iterator<Binding> candidates(Binding binding) {
+        List<Object> key = key(binding);
+        if ( key == null ) {
+            // Unbound join variable : all rows are candidates.
+            Iterator<Binding> iter = Iter.flatMap(table.values().iterator(), List::iterator);
+            return Iter.concat(iter, partial.iterator());
+        }
+        List<Binding> x = table.get(key);
+        if ( x == null )
+            return partial.iterator();
+        return Iter.concat(x.iterator(), partial.iterator());
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        if ( slot != null )
+            return true;
+        if ( table == null )
+            load();
+        for ( ;; ) {
+            while ( candidates != null && candidates.hasNext() ) {
+                Binding r = merge(current, candidates.next());
+                if ( r != null ) {
+                    slot = r;
+                    return true;
+                }
+            }
+            if ( ! getLeft().hasNext() )
+                return false;
+            current = getLeft().nextBinding();
+            candidates = candidates(current);
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        Binding r = slot;
+        slot = null;
+        return r;
+    }
+
+    private Binding merge(Binding left, Binding right) {
+        boolean allIds = ( left instanceof BindingTDB ) && ( right instanceof BindingTDB );
+        Iterator<Var> iter = right.vars();
+        while ( iter.hasNext() ) {
+            Var v = iter.next();
+            if ( allIds ) {
+                NodeId id = ((BindingTDB)right).getNodeId(v);
+                if ( id == null || NodeId.isDoesNotExist(id) )
+                    allIds = false;
+            }
+            if ( ! left.contains(v) )
+                continue;
+            Object k1 = SolverLibTDB.termKey(left, v, nodeTable);
+            Object k2 = SolverLibTDB.termKey(right, v, nodeTable);
+            if ( k1 != null && k2 != null && ! k1.equals(k2) )
+                return null;
+        }
+        if ( ! allIds )
+            return Algebra.merge(left, right);
+        BindingTDB leftTDB = (BindingTDB)left;
+        BindingTDB rightTDB = (BindingTDB)right;
+        if ( leftTDB.getNodeTable() != nodeTable || rightTDB.getNodeTable() != nodeTable )
+            return Algebra.merge(left, right);
+        BindingNodeId ids = new BindingNodeId(leftTDB.getBindingId());
+        Iterator<Var> iter2 = right.vars();
+        while ( iter2.hasNext() ) {
+            Var v = iter2.next();
+            if ( ! left.contains(v) )
+                ids.put(v, rightTDB.getNodeId(v));
+        }
+        return new BindingTDB(ids, nodeTable);
+    }
+
+    @Override
+    protected void requestSubCancel() {}
+
+    @Override
+    protected void closeSubIterator() {
+        table = null;
+        partial = null;
+        candidates = null;
+        current = null;
+        slot = null;
+    }
+}
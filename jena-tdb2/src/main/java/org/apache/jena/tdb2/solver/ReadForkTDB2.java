@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import org.apache.jena.dboe.transaction.txn.Transaction;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.iterator.QueryIterAsync;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+
+/**
+ * Parallel query evaluation for TDB2 in a read transaction (see
+ * {@link QueryIterAsync.ReadFork}). A TDB2 read transaction sees the data as of the
+ * data version when it started, so a pool thread has the same view as the caller if
+ * its read transaction starts at the same data version.
+ */
+public class ReadForkTDB2 implements QueryIterAsync.ReadFork
+{
+    private static final QueryIterAsync.ReadFork readFork = new ReadForkTDB2();
+
+    static public QueryIterAsync.ReadFork get() { return readFork; }
+    static public void register()       { QueryIterAsync.addReadFork(readFork); }
+    static public void unregister()     { QueryIterAsync.removeReadFork(readFork); }
+
+    private static class View {
+        final DatasetGraphTDB dsgtdb;
+        final long dataVersion;
+        View(DatasetGraphTDB dsgtdb, long dataVersion) {
+            this.dsgtdb = dsgtdb;
+            this.dataVersion = dataVersion;
+        }
+    }
+
+    private ReadForkTDB2() {}
+
+    @Override
+    public boolean accept(DatasetGraph dsg) {
+        return TDBInternal.getDatasetGraphTDB(dsg) != null;
+    }
+
+    @Override
+    public Object view(DatasetGraph dsg) {
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+        if ( dsgtdb == null )
+            return null;
+        Transaction txn = dsgtdb.getTxnSystem().getThreadTransaction();
+        // Only a plain read transaction: a write transaction has changes the pool
+        // thread can not see and a promotable read transaction may become one.
+        if ( txn == null || txn.getTxnType() != TxnType.READ )
+            return null;
+        return new View(dsgtdb, txn.getDataVersion());
+    }
+
+    @Override
+    public boolean begin(DatasetGraph dsg, Object view) {
+        View v = (View)view;
+        // The storage of a switchable dataset changes after compaction.
+        if ( TDBInternal.getDatasetGraphTDB(dsg) != v.dsgtdb )
+            return false;
+        dsg.begin(TxnType.READ);
+        Transaction txn = v.dsgtdb.getTxnSystem().getThreadTransaction();
+        if ( txn == null || txn.getDataVersion() != v.dataVersion ) {
+            dsg.end();
+            return false;
+        }
+        return true;
+    }
+}
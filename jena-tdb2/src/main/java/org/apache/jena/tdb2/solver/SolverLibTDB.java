@@ -27,6 +27,7 @@ import java.util.function.Predicate;
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.tuple.Tuple;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.ExecutionContext;
@@ -39,7 +40,9 @@ import org.apache.jena.sparql.engine.iterator.QueryIterAbortable;
 import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator;
 import org.apache.jena.tdb2.lib.NodeLib;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdInline;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
 import org.apache.jena.tdb2.store.tupletable.TupleIndex;
@@ -117,6 +120,50 @@ public class SolverLibTDB
         return b;
     }
 
+    /**
+     * The node table for the active graph of the execution context, or null if it is
+     * not a TDB graph.
+     */
+    static NodeTable nodeTable(ExecutionContext execCxt) {
+        Graph graph = execCxt.getActiveGraph();
+        if ( ! ( graph instanceof GraphTDB ) )
+            return null;
+        return ((GraphTDB)graph).getDSG().getTripleTable().getNodeTupleTable().getNodeTable();
+    }
+
+    /**
+     * A key for the RDF term bound to {@code var} such that two keys are equal if and
+     * only if the terms are the same (sameTerm). This is the NodeId, if the term is
+     * in the node table, which avoids decoding the term for {@link BindingTDB}.
+     * Otherwise, it is the {@link Node} itself. Returns null if the variable is unbound.
+     */
+    static Object termKey(Binding binding, Var var, NodeTable nodeTable) {
+        if ( binding instanceof BindingTDB ) {
+            BindingTDB bindingTDB = (BindingTDB)binding;
+            if ( bindingTDB.getNodeTable() == nodeTable ) {
+                NodeId id = bindingTDB.getNodeId(var);
+                if ( id != null && ! NodeId.isDoesNotExist(id) )
+                    return id;
+            }
+        }
+        Node node = binding.get(var);
+        if ( node == null )
+            return null;
+        return termKey(node, nodeTable);
+    }
+
+    /** A key for a term : see {@link #termKey(Binding, Var, NodeTable)}. */
+    static Object termKey(Node node, NodeTable nodeTable) {
+        NodeId id = nodeTable.getNodeIdForNode(node);
+        if ( id == null || NodeId.isDoesNotExist(id) )
+            return node;
+        // Inline values are canonical: "01"^^xsd:integer has the same NodeId as "1"^^xsd:integer
+        // but is a different term.
+        if ( id.isInline() && ! node.equals(NodeIdInline.extract(id)) )
+            return node;
+        return id;
+    }
+
     /** Find whether a specific graph name is in the quads table. */
     static QueryIterator testForGraphName(DatasetGraphTDB ds, Node graphNode, QueryIterator input,
                                                  Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
@@ -38,6 +38,7 @@ import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.binding.BindingFactory;
 import org.apache.jena.sparql.engine.main.solver.SolverRX4;
+import org.apache.jena.tdb2.TDB2;
 import org.apache.jena.tdb2.lib.TupleLib;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
@@ -59,9 +60,13 @@ public class SolverRX {
                                                     NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple,
                                                     boolean anyGraph, Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
         if ( DATAPATH ) {
-            if ( ! tripleHasEmbTripleWithVars(tPattern) )
+            if ( ! tripleHasEmbTripleWithVars(tPattern) ) {
                 // No RDF-star <<>> with variables.
+                int batchSize = execCxt.getContext().getInt(TDB2.symSolverBatchSize, 0);
+                if ( batchSize > 1 )
+                    return StageMatchTupleBatch.access(nodeTupleTable, chain, patternTuple, filter, anyGraph, batchSize, execCxt);
                 return StageMatchTuple.access(nodeTupleTable, chain, patternTuple, filter, anyGraph, execCxt);
+            }
         }
 
         // RDF-star <<>> with variables.
@@ -0,0 +1,423 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.*;
+import java.util.function.Function;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+
+/**
+ * Leapfrog triejoin evaluation of a whole basic graph pattern.
+ * <p>
+ * The variables are given a global order. Each tuple pattern is a trie, one level
+ * per variable in that order, and the variables are bound one at a time by
+ * intersecting the keys of all the tries containing the variable. This is
+ * worst-case optimal and avoids the large intermediate results of pairwise joins
+ * on cyclic patterns (triangles, cliques).
+ * <p>
+ * A pattern uses a tuple index as its trie when the index has the fixed slots of
+ * the pattern as leading key followed by the variables in order. Otherwise the
+ * matches of the pattern are read and sorted in memory. The variable order is
+ * chosen to minimize the number of patterns that need sorting. It is chosen once
+ * for each set of variables bound by the input rows.
+ * <p>
+ * The sorted matches are held in memory and are read again for each input row.
+ * With a limit on the number of rows to sort, if a pattern has more matches
+ * than that, the input row is evaluated by the fallback (pattern at a time
+ * evaluation) instead.
+ */
+class StageLeapfrogJoin {
+
+    // Beyond this number of variables, do not search all variable orders.
+    private static final int MaxVarsForSearch = 6;
+
+    /** Limit on the rows sorted for one pattern when leapfrog join has been chosen automatically. */
+    static final long DftMaxSortedRows = 100_000;
+
+    /* Entry point */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                                          List<Tuple<Node>> patternTuples, ExecutionContext execCxt) {
+        return access(nodeTupleTable, input, patternTuples, Long.MAX_VALUE, null, execCxt);
+    }
+
+    /**
+     * Leapfrog triejoin, sorting at most {@code maxSortedRows} matches of any one
+     * pattern. If there are more, the input row is passed to {@code fallback}.
+     */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                                          List<Tuple<Node>> patternTuples, long maxSortedRows,
+                                          Function<BindingNodeId, Iterator<BindingNodeId>> fallback,
+                                          ExecutionContext execCxt) {
+        // The variable order for each shape of the patterns after substituting the input row.
+        Map<List<List<Var>>, List<Var>> orders = new HashMap<>();
+        return Iter.flatMap(input, bnid -> {
+            Iterator<BindingNodeId> iter = access(nodeTupleTable, bnid, patternTuples, maxSortedRows, orders);
+            if ( iter == null )
+                return fallback.apply(bnid);
+            return iter;
+        });
+    }
+
+    /** Returns null if a pattern has more than {@code maxSortedRows} matches to sort. */
+    private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input, List<Tuple<Node>> patternTuples,
+                                                  long maxSortedRows, Map<List<List<Var>>, List<Var>> orders) {
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        List<NodeId[]> patternIds = new ArrayList<>();
+        List<Var[]> patternVars = new ArrayList<>();
+        // Variables, in order of first appearance.
+        List<Var> vars = new ArrayList<>();
+        for ( Tuple<Node> patternTuple : patternTuples ) {
+            int len = patternTuple.len();
+            NodeId[] ids = new NodeId[len];
+            Var[] pVars = new Var[len];
+            if ( ! StageMatchTuple.prepare(nodeTable, patternTuple, input, ids, pVars) )
+                return Iter.nullIterator();
+            boolean hasVars = false;
+            for ( Var v : pVars ) {
+                if ( v == null )
+                    continue;
+                hasVars = true;
+                if ( ! vars.contains(v) )
+                    vars.add(v);
+            }
+            if ( ! hasVars ) {
+                // All slots known: existence test.
+                Iterator<Tuple<NodeId>> iter = nodeTupleTable.find(TupleFactory.create(ids));
+                try {
+                    if ( ! iter.hasNext() )
+                        return Iter.nullIterator();
+                } finally {
+                    Iter.close(iter);
+                }
+                continue;
+            }
+            patternIds.add(ids);
+            patternVars.add(pVars);
+        }
+        if ( vars.isEmpty() )
+            return Iter.singleton(input);
+
+        // The choice of order depends only on the variable slots of the patterns.
+        List<List<Var>> shape = new ArrayList<>(patternVars.size());
+        for ( Var[] pVars : patternVars )
+            shape.add(Arrays.asList(pVars));
+        TupleTable tupleTable = nodeTupleTable.getTupleTable();
+        List<Var> order = orders.computeIfAbsent(shape, k -> chooseOrder(tupleTable, patternIds, patternVars, vars));
+
+        // Tries, and for each variable (depth), the tries involved.
+        List<List<TrieIterator>> participants = new ArrayList<>();
+        for ( int d = 0 ; d < order.size() ; d++ )
+            participants.add(new ArrayList<>());
+        for ( int i = 0 ; i < patternIds.size() ; i++ ) {
+            NodeId[] ids = patternIds.get(i);
+            int[] slots = slotsInOrder(patternVars.get(i), order);
+            TrieIterator trie = trie(nodeTupleTable, ids, slots, maxSortedRows);
+            if ( trie == null )
+                return null;
+            for ( int slot : slots )
+                participants.get(order.indexOf(patternVars.get(i)[slot])).add(trie);
+        }
+        TrieIterator[][] levels = new TrieIterator[order.size()][];
+        for ( int d = 0 ; d < order.size() ; d++ )
+            levels[d] = participants.get(d).toArray(new TrieIterator[0]);
+        return new IteratorLeapfrog(input, order.toArray(new Var[0]), levels);
+    }
+
+    /**
+     * Trie over the matches of a pattern, with levels for the variable slots in the order given.
+     * Returns null if the matches need to be sorted and there are more than {@code maxSortedRows}.
+     */
+    private static TrieIterator trie(NodeTupleTable nodeTupleTable, NodeId[] ids, int[] slots, long maxSortedRows) {
+        TupleIndex index = findIndex(nodeTupleTable.getTupleTable(), ids, slots);
+        if ( index != null ) {
+            TupleMap tupleMap = index.getMapping();
+            NodeId[] fixed = new NodeId[ids.length-slots.length];
+            for ( int i = 0 ; i < fixed.length ; i++ )
+                fixed[i] = ids[tupleMap.mapIdx(i)];
+            return new TrieIteratorIndex((TupleIndexRecord)index, fixed);
+        }
+        // No suitable index. Sort the matches.
+        List<NodeId[]> rows = new ArrayList<>();
+        Iterator<Tuple<NodeId>> iter = nodeTupleTable.find(TupleFactory.create(ids));
+        try {
+            while ( iter.hasNext() ) {
+                if ( rows.size() >= maxSortedRows )
+                    return null;
+                Tuple<NodeId> tuple = iter.next();
+                NodeId[] row = new NodeId[slots.length];
+                for ( int j = 0 ; j < slots.length ; j++ )
+                    row[j] = tuple.get(slots[j]);
+                rows.add(row);
+            }
+        } finally {
+            Iter.close(iter);
+        }
+        return TrieIteratorArray.create(rows, slots.length);
+    }
+
+    /**
+     * Find a tuple index where the fixed slots of the pattern are the leading key,
+     * followed by the slots {@code slots} in that order.
+     */
+    private static TupleIndex findIndex(TupleTable tupleTable, NodeId[] ids, int[] slots) {
+        int numFixed = ids.length - slots.length;
+        for ( TupleIndex index : tupleTable.getIndexes() ) {
+            if ( ! ( index instanceof TupleIndexRecord ) )
+                continue;
+            TupleMap tupleMap = index.getMapping();
+            boolean matches = true;
+            for ( int i = 0 ; i < ids.length && matches ; i++ ) {
+                int slot = tupleMap.mapIdx(i);
+                if ( i < numFixed )
+                    matches = ! NodeId.isAny(ids[slot]);
+                else
+                    matches = ( slot == slots[i-numFixed] );
+            }
+            if ( matches )
+                return index;
+        }
+        return null;
+    }
+
+    /** The variable slots of a pattern, ordered by the position of the variable in {@code order} */
+    private static int[] slotsInOrder(Var[] pVars, List<Var> order) {
+        int[] slots = new int[pVars.length];
+        int n = 0;
+        for ( Var v : order ) {
+            for ( int i = 0 ; i < pVars.length ; i++ ) {
+                if ( v.equals(pVars[i]) )
+                    slots[n++] = i;
+            }
+        }
+        return Arrays.copyOf(slots, n);
+    }
+
+    /**
+     * Choose the order of variables. Prefer the order with the fewest patterns that
+     * do not have an index in the order needed; ties go to the order of appearance.
+     */
+    private static List<Var> chooseOrder(TupleTable tupleTable, List<NodeId[]> patternIds, List<Var[]> patternVars, List<Var> vars) {
+        if ( vars.size() > MaxVarsForSearch )
+            return vars;
+        List<Var> best = vars;
+        int bestCost = cost(tupleTable, patternIds, patternVars, vars);
+        List<List<Var>> orders = new ArrayList<>();
+        permutations(new ArrayList<>(), new ArrayList<>(vars), orders);
+        for ( List<Var> order : orders ) {
+            if ( bestCost == 0 )
+                break;
+            int c = cost(tupleTable, patternIds, patternVars, order);
+            if ( c < bestCost ) {
+                best = order;
+                bestCost = c;
+            }
+        }
+        return best;
+    }
+
+    private static int cost(TupleTable tupleTable, List<NodeId[]> patternIds, List<Var[]> patternVars, List<Var> order) {
+        int cost = 0;
+        for ( int i = 0 ; i < patternIds.size() ; i++ ) {
+            if ( findIndex(tupleTable, patternIds.get(i), slotsInOrder(patternVars.get(i), order)) == null )
+                cost++;
+        }
+        return cost;
+    }
+
+    private static void permutations(List<Var> prefix, List<Var> remaining, List<List<Var>> acc) {
+        if ( remaining.isEmpty() ) {
+            acc.add(new ArrayList<>(prefix));
+            return;
+        }
+        for ( int i = 0 ; i < remaining.size() ; i++ ) {
+            Var v = remaining.remove(i);
+            prefix.add(v);
+            permutations(prefix, remaining, acc);
+            prefix.remove(prefix.size()-1);
+            remaining.add(i, v);
+        }
+    }
+
+    /**
+     * Test whether the patterns form a cyclic hypergraph (variables as vertices,
+     * patterns as hyperedges) using GYO reduction: repeatedly remove variables that
+     * occur in only one pattern and patterns whose variables are contained in
+     * another pattern. The patterns are acyclic if this removes everything.
+     */
+    /*package*/ static boolean isCyclic(List<Tuple<Node>> patternTuples) {
+        List<Set<Var>> edges = new ArrayList<>();
+        for ( Tuple<Node> tuple : patternTuples ) {
+            Set<Var> edge = new HashSet<>();
+            tuple.forEach(n -> {
+                if ( Var.isVar(n) )
+                    edge.add(Var.alloc(n));
+            });
+            edges.add(edge);
+        }
+        boolean changed = true;
+        while ( changed ) {
+            changed = false;
+            // Variables in only one pattern.
+            for ( Set<Var> edge : edges ) {
+                Iterator<Var> iter = edge.iterator();
+                while ( iter.hasNext() ) {
+                    Var v = iter.next();
+                    if ( edges.stream().filter(e -> e.contains(v)).count() == 1 ) {
+                        iter.remove();
+                        changed = true;
+                    }
+                }
+            }
+            // Patterns contained in another pattern.
+            for ( int i = 0 ; i < edges.size() ; i++ ) {
+                Set<Var> edge = edges.get(i);
+                boolean contained = false;
+                for ( int j = 0 ; j < edges.size() && ! contained ; j++ ) {
+                    if ( i != j && edges.get(j).containsAll(edge) )
+                        contained = true;
+                }
+                if ( edge.isEmpty() || contained ) {
+                    edges.remove(i);
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return ! edges.isEmpty();
+    }
+
+    /** Enumerate the solutions, one variable (depth) at a time. */
+    private static class IteratorLeapfrog extends IteratorSlotted<BindingNodeId> {
+        private final BindingNodeId input;
+        private final Var[] vars;
+        // For each depth, the tries that have the variable, and the index into
+        // that array of the trie to move next.
+        private final TrieIterator[][] levels;
+        private final int[] p;
+        // The key found at each depth. A trie that has several of the variables is
+        // positioned at its deepest open level so can not be asked for the key later.
+        private final NodeId[] keys;
+        private int depth = -1;
+        private boolean finished = false;
+
+        IteratorLeapfrog(BindingNodeId input, Var[] vars, TrieIterator[][] levels) {
+            this.input = input;
+            this.vars = vars;
+            this.levels = levels;
+            this.p = new int[vars.length];
+            this.keys = new NodeId[vars.length];
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return ! finished;
+        }
+
+        @Override
+        protected BindingNodeId moveToNext() {
+            boolean found;
+            if ( depth < 0 ) {
+                depth = 0;
+                found = leapfrogOpen(0);
+            } else
+                // Last result was at the deepest level.
+                found = leapfrogNext(depth);
+
+            for (;;) {
+                if ( found ) {
+                    keys[depth] = levels[depth][0].key();
+                    if ( depth == vars.length-1 )
+                        return binding();
+                    depth++;
+                    found = leapfrogOpen(depth);
+                } else {
+                    for ( TrieIterator trie : levels[depth] )
+                        trie.up();
+                    if ( depth == 0 ) {
+                        finished = true;
+                        return null;
+                    }
+                    depth--;
+                    found = leapfrogNext(depth);
+                }
+            }
+        }
+
+        private BindingNodeId binding() {
+            BindingNodeId b = new BindingNodeId(input);
+            for ( int d = 0 ; d < vars.length ; d++ )
+                b.put(vars[d], keys[d]);
+            return b;
+        }
+
+        private boolean leapfrogOpen(int d) {
+            TrieIterator[] tries = levels[d];
+            for ( TrieIterator trie : tries )
+                trie.open();
+            for ( TrieIterator trie : tries ) {
+                if ( trie.atEnd() )
+                    return false;
+            }
+            Arrays.sort(tries, (t1, t2) -> NodeIdFactory.compareEncoded(t1.key(), t2.key()));
+            p[d] = 0;
+            return leapfrogSearch(d);
+        }
+
+        private boolean leapfrogNext(int d) {
+            TrieIterator[] tries = levels[d];
+            tries[p[d]].next();
+            if ( tries[p[d]].atEnd() )
+                return false;
+            p[d] = (p[d]+1) % tries.length;
+            return leapfrogSearch(d);
+        }
+
+        /** Move the tries forward until they all have the same key. */
+        private boolean leapfrogSearch(int d) {
+            TrieIterator[] tries = levels[d];
+            int k = tries.length;
+            NodeId max = tries[(p[d]+k-1) % k].key();
+            for (;;) {
+                TrieIterator trie = tries[p[d]];
+                if ( trie.key().equals(max) )
+                    return true;
+                trie.seek(max);
+                if ( trie.atEnd() )
+                    return false;
+                max = trie.key();
+                p[d] = (p[d]+1) % k;
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.tdb2.lib.TupleLib;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+
+/**
+ * Match a tuple pattern where one slot is a variable restricted to ranges of
+ * NodeIds ({@link NodeIdRange}). This uses an index where the fixed slots are the
+ * leading part of the key, followed by the range slot, and reads only the key
+ * ranges. If there is no such index, or the input binds the variable, this is the
+ * same as {@link StageMatchTuple}.
+ */
+class StageMatchRange {
+
+    /* Entry point */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, Tuple<Node> patternTuple,
+                                          int rangeSlot, NodeIdRange range, Predicate<Tuple<NodeId>> filter) {
+        List<NodeId[]> ranges = range.nodeIdRanges();
+        return Iter.flatMap(input, bnid -> access(nodeTupleTable, bnid, patternTuple, rangeSlot, ranges, filter));
+    }
+
+    private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input, Tuple<Node> patternTuple,
+                                                  int rangeSlot, List<NodeId[]> ranges, Predicate<Tuple<NodeId>> filter) {
+        NodeId[] ids = new NodeId[patternTuple.len()];
+        Var[] vars = new Var[patternTuple.len()];
+        if ( ! StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternTuple, input, ids, vars) )
+            return Iter.nullIterator();
+        TupleIndex index = ( ids[rangeSlot] == null ) ? findIndex(nodeTupleTable.getTupleTable(), ids, rangeSlot) : null;
+        if ( index == null )
+            return StageMatchTuple.matchTuple(nodeTupleTable, input, TupleFactory.create(ids), vars, filter, false);
+
+        Iterator<Tuple<NodeId>> iterMatches = Iter.flatMap(ranges.iterator(), r -> find((TupleIndexRecord)index, ids, r[0], r[1]));
+        if ( filter != null )
+            iterMatches = Iter.filter(iterMatches, filter);
+        return Iter.iter(iterMatches).map(tuple -> StageMatchTuple.tupleToBinding(input, tuple, vars)).removeNulls();
+    }
+
+    /** Tuples, in natural order, with the fixed slots of {@code ids} and the next index slot between min and max inclusive. */
+    private static Iterator<Tuple<NodeId>> find(TupleIndexRecord index, NodeId[] ids, NodeId min, NodeId max) {
+        RangeIndex rIndex = index.getRangeIndex();
+        RecordFactory recordFactory = rIndex.getRecordFactory();
+        TupleMap tupleMap = index.getMapping();
+        Record minRec = recordFactory.createKeyOnly();
+        Record maxRec = recordFactory.createKeyOnly();
+        int i = 0;
+        for ( ; ! NodeId.isAny(ids[tupleMap.mapIdx(i)]) ; i++ ) {
+            NodeId x = ids[tupleMap.mapIdx(i)];
+            NodeIdFactory.set(x, minRec.getKey(), i*NodeId.SIZE);
+            NodeIdFactory.set(x, maxRec.getKey(), i*NodeId.SIZE);
+        }
+        NodeIdFactory.set(min, minRec.getKey(), i*NodeId.SIZE);
+        NodeIdFactory.setNext(max, maxRec.getKey(), i*NodeId.SIZE);
+        return Iter.map(rIndex.iterator(minRec, maxRec), r -> TupleLib.tuple(r, tupleMap));
+    }
+
+    /** Find a tuple index where the fixed slots are the leading key, followed by {@code rangeSlot}. */
+    private static TupleIndex findIndex(TupleTable tupleTable, NodeId[] ids, int rangeSlot) {
+        int numFixed = 0;
+        for ( NodeId id : ids ) {
+            if ( ! NodeId.isAny(id) )
+                numFixed++;
+        }
+        for ( TupleIndex index : tupleTable.getIndexes() ) {
+            if ( ! ( index instanceof TupleIndexRecord ) )
+                continue;
+            TupleMap tupleMap = index.getMapping();
+            boolean matches = true;
+            for ( int i = 0 ; i < numFixed && matches ; i++ )
+                matches = ! NodeId.isAny(ids[tupleMap.mapIdx(i)]);
+            if ( matches && tupleMap.mapIdx(numFixed) == rangeSlot )
+                return index;
+        }
+        return null;
+    }
+}
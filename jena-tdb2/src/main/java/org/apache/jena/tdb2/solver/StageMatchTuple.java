@@ -56,7 +56,17 @@ class StageMatchTuple {
             // Short cut - known unknown NodeId
             return Iter.nullIterator();
 
-        Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(TupleFactory.create(ids));
+        return matchTuple(nodeTupleTable, input, TupleFactory.create(ids), vars, filter, anyGraph);
+    }
+
+    /**
+     * Find the matches of a tuple of NodeIds (null for unbound slots) and extend the
+     * input binding with the values for the variables in {@code vars}.
+     * {@code vars} has a variable for each unbound slot and null otherwise.
+     */
+    /*package*/ static Iterator<BindingNodeId> matchTuple(NodeTupleTable nodeTupleTable, BindingNodeId input, Tuple<NodeId> patternIds, Var[] vars,
+                                                          Predicate<Tuple<NodeId>> filter, boolean anyGraph) {
+        Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(patternIds);
         if ( false ) {
             List<Tuple<NodeId>> x = Iter.toList(iterMatches);
             System.out.println(x);
@@ -94,7 +104,7 @@ class StageMatchTuple {
         return Iter.iter(iterMatches).map(binder).removeNulls();
     }
 
-    private static BindingNodeId tupleToBinding(BindingNodeId input, Tuple<NodeId> tuple, Var[] var) {
+    /*package*/ static BindingNodeId tupleToBinding(BindingNodeId input, Tuple<NodeId> tuple, Var[] var) {
         // Reuseable BindingNodeId builder?
         BindingNodeId output = new BindingNodeId(input);
         for ( int i = 0 ; i < var.length ; i++ ) {
@@ -115,7 +125,7 @@ class StageMatchTuple {
      * null in the NodeIds. A variable that is not bound by the binding is placed in
      * the var array. Return false if preparation detects the pattern can not match.
      */
-    private static boolean prepare(NodeTable nodeTable, Tuple<Node> patternTuple, BindingNodeId input, NodeId ids[], Var[] var) {
+    /*package*/ static boolean prepare(NodeTable nodeTable, Tuple<Node> patternTuple, BindingNodeId input, NodeId ids[], Var[] var) {
         // Process the Node to NodeId conversion ourselves because
         // we wish to abort if an unknown node is seen.
         for ( int i = 0 ; i < patternTuple.len() ; i++ ) {
@@ -154,7 +164,7 @@ class StageMatchTuple {
         return false;
     }
 
-    private static Var asVar(Node node) {
+    /*package*/ static Var asVar(Node node) {
         if ( Var.isVar(node) )
             return Var.alloc(node);
         return null;
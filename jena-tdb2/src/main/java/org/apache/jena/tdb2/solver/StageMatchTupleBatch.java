@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorCloseable;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+
+/**
+ * Block-at-a-time version of {@link StageMatchTuple}.
+ * <p>
+ * Input bindings are read in blocks. The probe keys for a block are held in one
+ * array, a row of {@code tupleLen} NodeIds per input binding, and the probes are
+ * made in the key order of the index that will be used so that consecutive B+Tree
+ * lookups go to the same or nearby leaf blocks.
+ * <p>
+ * The pattern constants are converted to NodeIds once, not once per input
+ * binding. Output is in probe order, not input order.
+ */
+class StageMatchTupleBatch {
+
+    /* Entry point */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, Tuple<Node> patternTuple,
+                                          Predicate<Tuple<NodeId>> filter, boolean anyGraph, int batchSize, ExecutionContext execCxt) {
+        int len = patternTuple.len();
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+
+        // Split the pattern into constants, as NodeIds, and variables.
+        NodeId[] constants = new NodeId[len];
+        Var[] patternVars = new Var[len];
+        for ( int i = 0 ; i < len ; i++ ) {
+            Node n = patternTuple.get(i);
+            if ( Var.isVar(n) ) {
+                patternVars[i] = StageMatchTuple.asVar(n);
+                continue;
+            }
+            NodeId nId = nodeTable.getNodeIdForNode(n);
+            if ( NodeId.isDoesNotExist(nId) )
+                // Known unknown NodeId - no input binding can match.
+                return Iter.nullIterator();
+            constants[i] = nId;
+        }
+
+        // The variables still to be bound depend only on which pattern
+        // variables the input binding already has. Index by bitmask of unbound slots.
+        Var[][] varsByMask = new Var[1<<len][];
+
+        Iterator<List<BindingNodeId>> blocks = new IteratorCloseable<>() {
+            @Override
+            public boolean hasNext() {
+                return input.hasNext();
+            }
+
+            @Override
+            public List<BindingNodeId> next() {
+                if ( ! hasNext() )
+                    throw new NoSuchElementException();
+                // Not Iter.take which closes the input when the limit is reached.
+                List<BindingNodeId> block = new ArrayList<>(batchSize);
+                while ( block.size() < batchSize && input.hasNext() )
+                    block.add(input.next());
+                return block;
+            }
+
+            @Override
+            public void close() {
+                Iter.close(input);
+            }
+        };
+
+        return Iter.flatMap(blocks, block -> accessBlock(nodeTupleTable, block, constants, patternVars, varsByMask, filter, anyGraph));
+    }
+
+    private static Iterator<BindingNodeId> accessBlock(NodeTupleTable nodeTupleTable, List<BindingNodeId> block,
+                                                       NodeId[] constants, Var[] patternVars, Var[][] varsByMask,
+                                                       Predicate<Tuple<NodeId>> filter, boolean anyGraph) {
+        final int len = constants.length;
+        final int N = block.size();
+        // Row r is ids[r*len] to ids[r*len+len-1]; null for an unbound slot.
+        final NodeId[] ids = new NodeId[N*len];
+        final BindingNodeId[] inputs = new BindingNodeId[N];
+        final int[] masks = new int[N];
+
+        int rows = 0;
+        for ( BindingNodeId bnid : block ) {
+            if ( prepare(bnid, constants, patternVars, ids, rows*len, masks, rows) ) {
+                inputs[rows] = bnid;
+                rows++;
+            }
+        }
+        if ( rows == 0 )
+            return Iter.nullIterator();
+
+        Integer[] order = new Integer[rows];
+        for ( int r = 0 ; r < rows ; r++ )
+            order[r] = r;
+        if ( rows > 1 ) {
+            TupleIndex index = nodeTupleTable.getTupleTable().chooseIndex(row(ids, 0, len));
+            Arrays.sort(order, probeOrder(ids, len, index.getMapping()));
+        }
+
+        return Iter.flatMap(Arrays.asList(order).iterator(), r -> {
+            int mask = masks[r];
+            Var[] vars = varsByMask[mask];
+            if ( vars == null ) {
+                vars = new Var[len];
+                for ( int i = 0 ; i < len ; i++ ) {
+                    if ( (mask & (1<<i)) != 0 )
+                        vars[i] = patternVars[i];
+                }
+                varsByMask[mask] = vars;
+            }
+            return StageMatchTuple.matchTuple(nodeTupleTable, inputs[r], row(ids, r*len, len), vars, filter, anyGraph);
+        });
+    }
+
+    /**
+     * Fill in one row of the probe keys. Return false if the input binding can not
+     * match the pattern.
+     */
+    private static boolean prepare(BindingNodeId input, NodeId[] constants, Var[] patternVars, NodeId[] ids, int offset, int[] masks, int row) {
+        int mask = 0;
+        for ( int i = 0 ; i < constants.length ; i++ ) {
+            NodeId nId = constants[i];
+            if ( nId == null ) {
+                nId = input.get(patternVars[i]);
+                if ( nId == null )
+                    mask |= (1<<i);
+                else if ( NodeId.isDoesNotExist(nId) )
+                    return false;
+            }
+            ids[offset+i] = nId;
+        }
+        masks[row] = mask;
+        return true;
+    }
+
+    /** Order rows by the slots of the probe key as they appear in the index. Unbound sorts first. */
+    private static Comparator<Integer> probeOrder(NodeId[] ids, int len, TupleMap tupleMap) {
+        return (r1, r2) -> {
+            int base1 = r1*len;
+            int base2 = r2*len;
+            for ( int i = 0 ; i < len ; i++ ) {
+                int j = ( tupleMap == null ) ? i : tupleMap.mapIdx(i);
+                NodeId x1 = ids[base1+j];
+                NodeId x2 = ids[base2+j];
+                if ( x1 == x2 )
+                    continue;
+                if ( x1 == null )
+                    return -1;
+                if ( x2 == null )
+                    return 1;
+                int c = NodeIdFactory.compareEncoded(x1, x2);
+                if ( c != 0 )
+                    return c;
+            }
+            return 0;
+        };
+    }
+
+    private static Tuple<NodeId> row(NodeId[] ids, int offset, int len) {
+        switch (len) {
+            case 3: return TupleFactory.create3(ids[offset], ids[offset+1], ids[offset+2]);
+            case 4: return TupleFactory.create4(ids[offset], ids[offset+1], ids[offset+2], ids[offset+3]);
+            default: return TupleFactory.create(Arrays.copyOfRange(ids, offset, offset+len));
+        }
+    }
+}
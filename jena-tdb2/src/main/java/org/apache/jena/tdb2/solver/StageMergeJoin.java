@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorSlotted;
+import org.apache.jena.atlas.iterator.PeekIterator;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleTable;
+
+/**
+ * Sort-merge join of two tuple patterns.
+ * <p>
+ * For each input binding, if the two patterns share a variable and, for each
+ * pattern, there is an index where the fixed slots of the pattern are the leading
+ * key and the join variable is the next slot, both index ranges are read in key
+ * order and merged on the NodeId of the join variable. This replaces one B+Tree
+ * descent per row of the first pattern by a single scan of each range.
+ * <p>
+ * If there is no such pair of indexes, the patterns are evaluated as in
+ * {@link StageMatchTuple}.
+ */
+class StageMergeJoin {
+
+    /* Entry point */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                                          Tuple<Node> patternTuple1, Tuple<Node> patternTuple2,
+                                          Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
+        return Iter.flatMap(input, bnid -> access(nodeTupleTable, bnid, patternTuple1, patternTuple2, filter, execCxt));
+    }
+
+    private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input,
+                                                  Tuple<Node> patternTuple1, Tuple<Node> patternTuple2,
+                                                  Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt) {
+        NodeTable nodeTable = nodeTupleTable.getNodeTable();
+        int len = patternTuple1.len();
+        NodeId[] ids1 = new NodeId[len];
+        Var[] vars1 = new Var[len];
+        NodeId[] ids2 = new NodeId[len];
+        Var[] vars2 = new Var[len];
+        if ( ! StageMatchTuple.prepare(nodeTable, patternTuple1, input, ids1, vars1) )
+            return Iter.nullIterator();
+        if ( ! StageMatchTuple.prepare(nodeTable, patternTuple2, input, ids2, vars2) )
+            return Iter.nullIterator();
+
+        TupleTable tupleTable = nodeTupleTable.getTupleTable();
+        for ( int slot1 = 0 ; slot1 < len ; slot1++ ) {
+            Var v = vars1[slot1];
+            if ( v == null || occurrences(vars1, v) != 1 || occurrences(vars2, v) != 1 )
+                continue;
+            int slot2 = slotOf(vars2, v);
+            TupleIndex index1 = findSortedIndex(tupleTable, ids1, slot1);
+            if ( index1 == null )
+                continue;
+            TupleIndex index2 = findSortedIndex(tupleTable, ids2, slot2);
+            if ( index2 == null )
+                continue;
+            Iterator<Tuple<NodeId>> iter1 = index1.find(TupleFactory.create(ids1));
+            Iterator<Tuple<NodeId>> iter2 = index2.find(TupleFactory.create(ids2));
+            if ( filter != null ) {
+                iter1 = Iter.filter(iter1, filter);
+                iter2 = Iter.filter(iter2, filter);
+            }
+            // Variables of the second pattern that are also in the first pattern
+            // are checked, not bound again.
+            int[] shared2 = new int[len];
+            Var[] newVars2 = new Var[len];
+            for ( int i = 0 ; i < len ; i++ ) {
+                shared2[i] = ( vars2[i] == null ) ? -1 : slotOf(vars1, vars2[i]);
+                if ( shared2[i] < 0 )
+                    newVars2[i] = vars2[i];
+            }
+            return new IteratorMergeJoin(input, iter1, slot1, vars1, iter2, slot2, newVars2, shared2);
+        }
+
+        // No merge join possible. Index nested loop.
+        Iterator<BindingNodeId> chain = StageMatchTuple.matchTuple(nodeTupleTable, input, TupleFactory.create(ids1), vars1, filter, false);
+        return StageMatchTuple.access(nodeTupleTable, chain, patternTuple2, filter, false, execCxt);
+    }
+
+    /**
+     * Find an index for which the fixed slots of the pattern are the leading part
+     * of the key, and the slot {@code slot} comes immediately after. A scan of the
+     * pattern on that index returns tuples sorted on {@code slot}.
+     */
+    /*package*/ static TupleIndex findSortedIndex(TupleTable tupleTable, NodeId[] ids, int slot) {
+        int numFixed = 0;
+        for ( NodeId nId : ids ) {
+            if ( ! NodeId.isAny(nId) )
+                numFixed++;
+        }
+        for ( TupleIndex index : tupleTable.getIndexes() ) {
+            if ( index == null )
+                continue;
+            TupleMap tupleMap = index.getMapping();
+            boolean leading = true;
+            for ( int i = 0 ; i < numFixed ; i++ ) {
+                if ( NodeId.isAny(ids[tupleMap.mapIdx(i)]) ) {
+                    leading = false;
+                    break;
+                }
+            }
+            if ( leading && tupleMap.mapIdx(numFixed) == slot )
+                return index;
+        }
+        return null;
+    }
+
+    private static int occurrences(Var[] vars, Var v) {
+        int count = 0;
+        for ( Var x : vars ) {
+            if ( v.equals(x) )
+                count++;
+        }
+        return count;
+    }
+
+    private static int slotOf(Var[] vars, Var v) {
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            if ( v.equals(vars[i]) )
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Merge two iterators of tuples, each sorted by the NodeId in its join slot.
+     * Tuples from the second iterator with the same join key are buffered.
+     */
+    private static class IteratorMergeJoin extends IteratorSlotted<BindingNodeId> {
+        private final BindingNodeId input;
+        private final Iterator<Tuple<NodeId>> base1;
+        private final Iterator<Tuple<NodeId>> base2;
+        private final PeekIterator<Tuple<NodeId>> iter1;
+        private final int slot1;
+        private final Var[] vars1;
+        private final PeekIterator<Tuple<NodeId>> iter2;
+        private final int slot2;
+        private final Var[] vars2;
+        // Slot of the first pattern with the same variable, or -1.
+        private final int[] shared2;
+
+        // Matches of the second pattern for the current key.
+        private final List<Tuple<NodeId>> group = new ArrayList<>();
+        private NodeId groupKey = null;
+        // Current binding of the first pattern, and position in the group.
+        private Tuple<NodeId> currentTuple = null;
+        private BindingNodeId current = null;
+        private int groupIdx = 0;
+
+        IteratorMergeJoin(BindingNodeId input,
+                          Iterator<Tuple<NodeId>> iter1, int slot1, Var[] vars1,
+                          Iterator<Tuple<NodeId>> iter2, int slot2, Var[] vars2, int[] shared2) {
+            this.input = input;
+            this.base1 = iter1;
+            this.base2 = iter2;
+            this.iter1 = PeekIterator.create(iter1);
+            this.slot1 = slot1;
+            this.vars1 = vars1;
+            this.iter2 = PeekIterator.create(iter2);
+            this.slot2 = slot2;
+            this.vars2 = vars2;
+            this.shared2 = shared2;
+        }
+
+        @Override
+        protected boolean hasMore() {
+            return true;
+        }
+
+        @Override
+        protected BindingNodeId moveToNext() {
+            for (;;) {
+                // Pair the current left binding with the rest of the group.
+                while ( current != null && groupIdx < group.size() ) {
+                    Tuple<NodeId> tuple2 = group.get(groupIdx++);
+                    if ( ! sameShared(tuple2) )
+                        continue;
+                    BindingNodeId b = StageMatchTuple.tupleToBinding(current, tuple2, vars2);
+                    if ( b != null )
+                        return b;
+                }
+                current = null;
+                if ( ! nextLeft() )
+                    return null;
+            }
+        }
+
+        /** Advance to the next tuple of the first iterator that has matches in the second. */
+        private boolean nextLeft() {
+            while ( iter1.hasNext() ) {
+                Tuple<NodeId> tuple1 = iter1.next();
+                NodeId key = tuple1.get(slot1);
+                if ( groupKey == null || ! groupKey.equals(key) ) {
+                    if ( ! fillGroup(key) )
+                        return false;
+                    if ( group.isEmpty() )
+                        continue;
+                }
+                BindingNodeId b = StageMatchTuple.tupleToBinding(input, tuple1, vars1);
+                if ( b == null )
+                    continue;
+                currentTuple = tuple1;
+                current = b;
+                groupIdx = 0;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean sameShared(Tuple<NodeId> tuple2) {
+            for ( int i = 0 ; i < shared2.length ; i++ ) {
+                if ( shared2[i] >= 0 && ! tuple2.get(i).equals(currentTuple.get(shared2[i])) )
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Read the second iterator up to {@code key} and collect the tuples with
+         * that key. Return false if the second iterator is exhausted before the key.
+         */
+        private boolean fillGroup(NodeId key) {
+            group.clear();
+            groupKey = key;
+            while ( iter2.hasNext() ) {
+                Tuple<NodeId> tuple2 = iter2.peek();
+                int c = NodeIdFactory.compareEncoded(tuple2.get(slot2), key);
+                if ( c > 0 )
+                    return true;
+                iter2.next();
+                if ( c == 0 )
+                    group.add(tuple2);
+            }
+            return ! group.isEmpty();
+        }
+
+        @Override
+        protected void closeIterator() {
+            Iter.close(base1);
+            Iter.close(base2);
+        }
+    }
+}
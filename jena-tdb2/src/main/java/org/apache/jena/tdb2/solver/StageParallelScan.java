@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.iterator.IteratorCloseable;
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.atlas.lib.tuple.TupleMap;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.lib.TupleLib;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+
+/**
+ * Match a tuple pattern by scanning partitions of the index key range in parallel.
+ * The partitions are found from the internal nodes of the B+Tree
+ * ({@link BPlusTree#splitKeys}) and the index iterators are created in the calling
+ * thread, so all the partitions read the state of the calling thread's transaction.
+ * Pool threads only read index blocks; filtering and binding is done by the caller.
+ * <p>
+ * The order of the results is not the index order.
+ */
+class StageParallelScan {
+    // More partitions than threads so that partitions of different sizes even out.
+    private static final int PartitionsPerThread = 4;
+    private static final int BatchSize = 1000;
+    private static final int QueueSize = 16;
+    private static final long PollMillis = 100;
+
+    private static ExecutorService executor = null;
+
+    private static synchronized ExecutorService executor() {
+        if ( executor == null ) {
+            AtomicInteger counter = new AtomicInteger(0);
+            ThreadFactory threadFactory = r -> {
+                Thread thread = new Thread(r, "TDB2-scan-"+counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            executor = Executors.newFixedThreadPool(threads(), threadFactory);
+        }
+        return executor;
+    }
+
+    private static int threads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /* Entry point */
+    static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, Tuple<Node> patternTuple,
+                                          Predicate<Tuple<NodeId>> filter) {
+        return Iter.flatMap(input, bnid -> access(nodeTupleTable, bnid, patternTuple, filter));
+    }
+
+    private static Iterator<BindingNodeId> access(NodeTupleTable nodeTupleTable, BindingNodeId input, Tuple<Node> patternTuple,
+                                                  Predicate<Tuple<NodeId>> filter) {
+        NodeId[] ids = new NodeId[patternTuple.len()];
+        Var[] vars = new Var[patternTuple.len()];
+        if ( ! StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternTuple, input, ids, vars) )
+            return Iter.nullIterator();
+        List<Iterator<Tuple<NodeId>>> partitions = partitions(nodeTupleTable, ids);
+        if ( partitions == null )
+            return StageMatchTuple.matchTuple(nodeTupleTable, input, TupleFactory.create(ids), vars, filter, false);
+        Iterator<Tuple<NodeId>> iterMatches = new IterParallel(partitions);
+        if ( filter != null )
+            iterMatches = Iter.filter(iterMatches, filter);
+        return Iter.iter(iterMatches).map(tuple -> StageMatchTuple.tupleToBinding(input, tuple, vars)).removeNulls();
+    }
+
+    /**
+     * Count the matches of a tuple pattern, grouped by the terms in {@code groupSlots}.
+     * Each partition is counted in a pool thread and the counts are added together.
+     */
+    static Map<List<NodeId>, Long> count(NodeTupleTable nodeTupleTable, Tuple<Node> patternTuple, int[] groupSlots,
+                                         AtomicBoolean cancelSignal) {
+        NodeId[] ids = new NodeId[patternTuple.len()];
+        Var[] vars = new Var[patternTuple.len()];
+        if ( ! StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternTuple, new BindingNodeId(), ids, vars) )
+            return Map.of();
+        // A variable that occurs twice in the pattern : the slot of its first occurrence.
+        int[] sameAs = new int[vars.length];
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            sameAs[i] = i;
+            for ( int j = 0 ; j < i ; j++ ) {
+                if ( vars[i] != null && vars[i].equals(vars[j]) ) {
+                    sameAs[i] = j;
+                    break;
+                }
+            }
+        }
+        List<Iterator<Tuple<NodeId>>> partitions = partitions(nodeTupleTable, ids);
+        if ( partitions == null )
+            partitions = List.of(nodeTupleTable.find(TupleFactory.create(ids)));
+        AtomicBoolean stop = new AtomicBoolean(false);
+        List<Future<Map<List<NodeId>, long[]>>> futures = new ArrayList<>(partitions.size());
+        for ( Iterator<Tuple<NodeId>> partition : partitions )
+            futures.add(executor().submit(()->countPartition(partition, groupSlots, sameAs, cancelSignal, stop)));
+        Map<List<NodeId>, Long> counts = new HashMap<>();
+        try {
+            for ( Future<Map<List<NodeId>, long[]>> future : futures )
+                future.get().forEach((key, c) -> counts.merge(key, c[0], Long::sum));
+        } catch (InterruptedException ex) {
+            stop(futures, stop);
+            Thread.currentThread().interrupt();
+            throw new QueryCancelledException();
+        } catch (ExecutionException ex) {
+            stop(futures, stop);
+            if ( ex.getCause() instanceof RuntimeException )
+                throw (RuntimeException)ex.getCause();
+            throw new TDBException(ex.getCause());
+        }
+        return counts;
+    }
+
+    /**
+     * Stop the pool threads working for a call. Threads are not interrupted: an
+     * interrupt during {@code FileChannel} IO closes the channel for all users of
+     * the index file. Instead, the threads check the stop flag.
+     */
+    private static void stop(List<? extends Future<?>> futures, AtomicBoolean stop) {
+        stop.set(true);
+        futures.forEach(f -> f.cancel(false));
+    }
+
+    private static Map<List<NodeId>, long[]> countPartition(Iterator<Tuple<NodeId>> partition, int[] groupSlots, int[] sameAs,
+                                                            AtomicBoolean cancelSignal, AtomicBoolean stop) {
+        Map<List<NodeId>, long[]> counts = new HashMap<>();
+        long n = 0;
+        while ( partition.hasNext() ) {
+            if ( n++ % BatchSize == 0 ) {
+                if ( stop.get() )
+                    return counts;
+                if ( cancelSignal != null && cancelSignal.get() )
+                    throw new QueryCancelledException();
+            }
+            Tuple<NodeId> tuple = partition.next();
+            if ( ! consistent(tuple, sameAs) )
+                continue;
+            NodeId[] key = new NodeId[groupSlots.length];
+            for ( int i = 0 ; i < groupSlots.length ; i++ )
+                key[i] = tuple.get(groupSlots[i]);
+            counts.computeIfAbsent(Arrays.asList(key), k -> new long[1])[0]++;
+        }
+        return counts;
+    }
+
+    private static boolean consistent(Tuple<NodeId> tuple, int[] sameAs) {
+        for ( int i = 0 ; i < sameAs.length ; i++ ) {
+            if ( sameAs[i] != i && ! tuple.get(i).equals(tuple.get(sameAs[i])) )
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Index scans, in natural tuple order, for the partitions of the matches of
+     * {@code ids} (null for a variable). Returns null if the matches can not be
+     * partitioned.
+     */
+    private static List<Iterator<Tuple<NodeId>>> partitions(NodeTupleTable nodeTupleTable, NodeId[] ids) {
+        TupleIndexRecord index = findIndex(nodeTupleTable.getTupleTable().getIndexes(), ids);
+        if ( index == null || ! ( index.getRangeIndex() instanceof BPlusTree ) )
+            return null;
+        BPlusTree bpt = (BPlusTree)index.getRangeIndex();
+        TupleMap tupleMap = index.getMapping();
+        Record minRec = null;
+        Record maxRec = null;
+        int numFixed = numFixed(ids);
+        if ( numFixed > 0 ) {
+            RecordFactory recordFactory = bpt.getRecordFactory();
+            minRec = recordFactory.createKeyOnly();
+            maxRec = recordFactory.createKeyOnly();
+            for ( int i = 0 ; i < numFixed ; i++ ) {
+                NodeId x = ids[tupleMap.mapIdx(i)];
+                NodeIdFactory.set(x, minRec.getKey(), i*NodeId.SIZE);
+                if ( i < numFixed-1 )
+                    NodeIdFactory.set(x, maxRec.getKey(), i*NodeId.SIZE);
+                else
+                    NodeIdFactory.setNext(x, maxRec.getKey(), i*NodeId.SIZE);
+            }
+        }
+        List<Record> keys = bpt.splitKeys(minRec, maxRec, threads()*PartitionsPerThread);
+        if ( keys.isEmpty() )
+            return null;
+        List<Iterator<Tuple<NodeId>>> partitions = new ArrayList<>(keys.size()+1);
+        Record lo = minRec;
+        for ( Record key : keys ) {
+            partitions.add(scan(bpt, lo, key, tupleMap));
+            lo = key;
+        }
+        partitions.add(scan(bpt, lo, maxRec, tupleMap));
+        return partitions;
+    }
+
+    private static Iterator<Tuple<NodeId>> scan(RangeIndex rIndex, Record min, Record max, TupleMap tupleMap) {
+        return Iter.map(rIndex.iterator(min, max), r -> TupleLib.tuple(r, tupleMap));
+    }
+
+    private static int numFixed(NodeId[] ids) {
+        int numFixed = 0;
+        for ( NodeId id : ids ) {
+            if ( ! NodeId.isAny(id) )
+                numFixed++;
+        }
+        return numFixed;
+    }
+
+    /** Find a tuple index where the fixed slots are the leading part of the key. */
+    private static TupleIndexRecord findIndex(TupleIndex[] indexes, NodeId[] ids) {
+        int numFixed = numFixed(ids);
+        for ( TupleIndex index : indexes ) {
+            if ( ! ( index instanceof TupleIndexRecord ) )
+                continue;
+            TupleMap tupleMap = index.getMapping();
+            boolean matches = true;
+            for ( int i = 0 ; i < numFixed && matches ; i++ )
+                matches = ! NodeId.isAny(ids[tupleMap.mapIdx(i)]);
+            if ( matches )
+                return (TupleIndexRecord)index;
+        }
+        return null;
+    }
+
+    /** Iterator over the tuples from all the partitions, each read by a pool thread, in no particular order. */
+    private static class IterParallel implements IteratorCloseable<Tuple<NodeId>> {
+        private static final Object EndMarker = new Object();
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QueueSize);
+        private final List<Future<?>> futures;
+        private volatile boolean stopped = false;
+        private int running;
+        private Iterator<Tuple<NodeId>> current = null;
+
+        IterParallel(List<Iterator<Tuple<NodeId>>> partitions) {
+            this.running = partitions.size();
+            this.futures = new ArrayList<>(partitions.size());
+            for ( Iterator<Tuple<NodeId>> partition : partitions )
+                futures.add(executor().submit(()->run(partition)));
+        }
+
+        private void run(Iterator<Tuple<NodeId>> partition) {
+            try {
+                List<Tuple<NodeId>> batch = new ArrayList<>(BatchSize);
+                while ( ! stopped && partition.hasNext() ) {
+                    batch.add(partition.next());
+                    if ( batch.size() >= BatchSize ) {
+                        put(batch);
+                        batch = new ArrayList<>(BatchSize);
+                    }
+                }
+                if ( ! batch.isEmpty() )
+                    put(batch);
+                put(EndMarker);
+            } catch (Throwable th) {
+                put(th);
+            }
+        }
+
+        private void put(Object item) {
+            try {
+                while ( ! stopped ) {
+                    if ( queue.offer(item, PollMillis, TimeUnit.MILLISECONDS) )
+                        return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean hasNext() {
+            while ( current == null || ! current.hasNext() ) {
+                if ( running == 0 || stopped )
+                    return false;
+                Object item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new QueryCancelledException();
+                }
+                if ( item == EndMarker ) {
+                    running--;
+                    continue;
+                }
+                if ( item instanceof Throwable ) {
+                    close();
+                    if ( item instanceof RuntimeException )
+                        throw (RuntimeException)item;
+                    throw new TDBException((Throwable)item);
+                }
+                current = ((List<Tuple<NodeId>>)item).iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Tuple<NodeId> next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException();
+            return current.next();
+        }
+
+        @Override
+        public void close() {
+            // Not interrupted: see stop().
+            stopped = true;
+            futures.forEach(f -> f.cancel(false));
+            queue.clear();
+        }
+    }
+}
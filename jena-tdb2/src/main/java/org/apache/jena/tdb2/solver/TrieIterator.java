@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+
+/**
+ * Iterator over a trie of NodeIds, as used by the leapfrog triejoin.
+ * <p>
+ * Each level of the trie is one variable of a pattern. At each level, keys are
+ * distinct and in index order ({@link NodeIdFactory#compareEncoded}). An iterator
+ * starts at the root, above the first level.
+ */
+interface TrieIterator {
+    /**
+     * Move down a level, to the first key under the current key or, from the root,
+     * to the first key of the first level.
+     */
+    public void open();
+
+    /** Move up a level. */
+    public void up();
+
+    /** The key at the current position. Not valid if {@link #atEnd()}. */
+    public NodeId key();
+
+    /** Move to the next key at this level. */
+    public void next();
+
+    /**
+     * Move to the least key at this level that is greater than or equal to
+     * {@code nodeId}. The iterator does not move backwards.
+     */
+    public void seek(NodeId nodeId);
+
+    /** No more keys at this level. */
+    public boolean atEnd();
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+
+/**
+ * {@link TrieIterator} over an in-memory, sorted array of rows.
+ * Used when no index has the slot order needed by the join.
+ */
+class TrieIteratorArray implements TrieIterator {
+    private final NodeId[][] rows;
+    private int level = -1;
+    // For each level: the range of rows under the current key of the level above,
+    // and the current row.
+    private final int[] lo;
+    private final int[] hi;
+    private final int[] pos;
+
+    /** Create from distinct rows of NodeIds, one column per level. */
+    static TrieIteratorArray create(List<NodeId[]> rows, int numLevels) {
+        NodeId[][] array = rows.toArray(new NodeId[rows.size()][]);
+        Arrays.sort(array, (row1, row2) -> {
+            for ( int i = 0 ; i < numLevels ; i++ ) {
+                int c = NodeIdFactory.compareEncoded(row1[i], row2[i]);
+                if ( c != 0 )
+                    return c;
+            }
+            return 0;
+        });
+        return new TrieIteratorArray(array, numLevels);
+    }
+
+    private TrieIteratorArray(NodeId[][] rows, int numLevels) {
+        this.rows = rows;
+        this.lo = new int[numLevels];
+        this.hi = new int[numLevels];
+        this.pos = new int[numLevels];
+    }
+
+    @Override
+    public void open() {
+        level++;
+        if ( level == 0 ) {
+            lo[0] = 0;
+            hi[0] = rows.length;
+        } else {
+            int above = level-1;
+            lo[level] = pos[above];
+            hi[level] = upperBound(pos[above], hi[above], above, rows[pos[above]][above]);
+        }
+        pos[level] = lo[level];
+    }
+
+    @Override
+    public void up() {
+        level--;
+    }
+
+    @Override
+    public NodeId key() {
+        return rows[pos[level]][level];
+    }
+
+    @Override
+    public void next() {
+        pos[level] = upperBound(pos[level], hi[level], level, key());
+    }
+
+    @Override
+    public void seek(NodeId nodeId) {
+        pos[level] = lowerBound(pos[level], hi[level], level, nodeId);
+    }
+
+    @Override
+    public boolean atEnd() {
+        return pos[level] >= hi[level];
+    }
+
+    /** First row in [start, finish) with column {@code col} greater than or equal to {@code nodeId}. */
+    private int lowerBound(int start, int finish, int col, NodeId nodeId) {
+        int low = start;
+        int high = finish;
+        while ( low < high ) {
+            int mid = (low+high) >>> 1;
+            if ( NodeIdFactory.compareEncoded(rows[mid][col], nodeId) < 0 )
+                low = mid+1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /** First row in [start, finish) with column {@code col} greater than {@code nodeId}. */
+    private int upperBound(int start, int finish, int col, NodeId nodeId) {
+        int low = start;
+        int high = finish;
+        while ( low < high ) {
+            int mid = (low+high) >>> 1;
+            if ( NodeIdFactory.compareEncoded(rows[mid][col], nodeId) <= 0 )
+                low = mid+1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
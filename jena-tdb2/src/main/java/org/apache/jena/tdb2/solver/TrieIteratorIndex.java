@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.Iterator;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.index.RangeIndex;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+
+/**
+ * {@link TrieIterator} over a tuple index.
+ * <p>
+ * The leading slots of the index key are fixed; each following slot is a level of
+ * the trie. Moving to a key ({@link #seek}, {@link #next}, {@link #open}) is a
+ * B+Tree range lookup from that key, reading the first record only.
+ */
+class TrieIteratorIndex implements TrieIterator {
+    private final RangeIndex index;
+    private final RecordFactory recordFactory;
+    private final int numFixed;
+    // Key of the current position, in index order: fixed slots, then the keys of each level.
+    private final NodeId[] path;
+    private int level = -1;
+    private boolean atEnd = false;
+
+    /**
+     * @param tupleIndex The index
+     * @param fixed The fixed, leading slot values, in index order.
+     */
+    TrieIteratorIndex(TupleIndexRecord tupleIndex, NodeId[] fixed) {
+        this.index = tupleIndex.getRangeIndex();
+        this.recordFactory = index.getRecordFactory();
+        this.numFixed = fixed.length;
+        this.path = new NodeId[tupleIndex.getTupleLength()];
+        System.arraycopy(fixed, 0, path, 0, numFixed);
+    }
+
+    @Override
+    public void open() {
+        level++;
+        position(null);
+    }
+
+    @Override
+    public void up() {
+        level--;
+        atEnd = false;
+    }
+
+    @Override
+    public NodeId key() {
+        return path[numFixed+level];
+    }
+
+    @Override
+    public void next() {
+        position(key());
+    }
+
+    @Override
+    public void seek(NodeId nodeId) {
+        if ( NodeIdFactory.compareEncoded(nodeId, key()) <= 0 )
+            return;
+        int slot = numFixed+level;
+        Record min = recordFactory.createKeyOnly();
+        setPrefix(min, slot);
+        NodeIdFactory.set(nodeId, min.getKey(), slot*NodeId.SIZE);
+        find(min, slot);
+    }
+
+    @Override
+    public boolean atEnd() {
+        return atEnd;
+    }
+
+    /** Move to the first key at this level, or the first key after {@code after}. */
+    private void position(NodeId after) {
+        int slot = numFixed+level;
+        Record min = recordFactory.createKeyOnly();
+        setPrefix(min, slot);
+        if ( after != null )
+            NodeIdFactory.setNext(after, min.getKey(), slot*NodeId.SIZE);
+        find(min, slot);
+    }
+
+    private void find(Record min, int slot) {
+        Record max = null;
+        if ( slot > 0 ) {
+            max = recordFactory.createKeyOnly();
+            setPrefix(max, slot-1);
+            NodeIdFactory.setNext(path[slot-1], max.getKey(), (slot-1)*NodeId.SIZE);
+        }
+        Iterator<Record> iter = index.iterator(min, max);
+        try {
+            if ( ! iter.hasNext() ) {
+                atEnd = true;
+                return;
+            }
+            Record r = iter.next();
+            path[slot] = NodeIdFactory.get(r.getKey(), slot*NodeId.SIZE);
+            atEnd = false;
+        } finally {
+            Iter.close(iter);
+        }
+    }
+
+    /** Set the key of a record, up to but not including {@code slot}, from the path. */
+    private void setPrefix(Record record, int slot) {
+        byte[] key = record.getKey();
+        for ( int i = 0 ; i < slot ; i++ )
+            NodeIdFactory.set(path[i], key, i*NodeId.SIZE);
+    }
+}
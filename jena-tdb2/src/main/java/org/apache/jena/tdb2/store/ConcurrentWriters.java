@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.WriteConflictException;
+import org.apache.jena.tdb2.sys.TDBInternal;
+
+/**
+ * Concurrent writers for a TDB2 database, where writers that change different
+ * graphs do not wait for each other.
+ * <p>
+ * TDB2 has a single active writer. With {@code ConcurrentWriters}, a write action
+ * runs in a read transaction, on a view of the database that keeps its changes in
+ * memory. Many actions can run at the same time. When an action finishes, its
+ * changes are applied to the database in a short write transaction, after
+ * checking that no other write has committed a change to any of the graphs the
+ * action changed since its read transaction started. If there has been such a
+ * write, the changes are discarded and the action is run again, up to a maximum
+ * number of times; after that, a {@link WriteConflictException} is thrown.
+ * <p>
+ * This is snapshot isolation with graphs as the unit of conflict: an action sees
+ * the database as of its start, and two actions that change the same graph (the
+ * default graph counts as one graph, and so do the prefixes) do not both commit
+ * from the same snapshot.
+ * What an action only reads is not checked. Write transactions on the database
+ * that do not go through this object are assumed to conflict with everything.
+ * <p>
+ * Actions should only change the dataset (no other side effects), because they
+ * may be run more than once, and must not start or finish transactions.
+ * The changes of an action are held in memory until it commits, so this is suited
+ * to many small or medium sized changes, such as loading separate named graphs,
+ * not to bulk loading.
+ */
+public class ConcurrentWriters {
+    public static final int DftMaxRetries = 10;
+    // Number of commits that are remembered for conflict checking.
+    private static final int MaxHistory = 10_000;
+
+    private final DatasetGraph dsg;
+    private final int maxRetries;
+
+    // Guarded by "this".
+    // The data version each graph was last changed at by this object.
+    private final Map<Node, Long> lastWrite = new HashMap<>();
+    // Data versions created by commits through this object.
+    private final NavigableSet<Long> versions = new TreeSet<>();
+    // Commits after this version are all known.
+    private long horizon;
+
+    private final LongAdder commits     = new LongAdder();
+    private final LongAdder conflicts   = new LongAdder();
+    private final LongAdder retries     = new LongAdder();
+
+    /** Concurrent writers for a TDB2 dataset, with the default maximum number of retries. */
+    public ConcurrentWriters(DatasetGraph dsg) {
+        this(dsg, DftMaxRetries);
+    }
+
+    /**
+     * Concurrent writers for a TDB2 dataset.
+     * @param dsg A TDB2 dataset.
+     * @param maxRetries The number of times an action is run again after a conflict.
+     */
+    public ConcurrentWriters(DatasetGraph dsg, int maxRetries) {
+        if ( ! TDBInternal.isTDB2(dsg) )
+            throw new TDBException("Not a TDB2 dataset");
+        if ( maxRetries < 0 )
+            throw new IllegalArgumentException("Negative number of retries: "+maxRetries);
+        this.dsg = dsg;
+        this.maxRetries = maxRetries;
+        dsg.begin(TxnType.READ);
+        try {
+            this.horizon = dataVersion();
+        } finally { dsg.end(); }
+    }
+
+    /**
+     * Run a write action and commit its changes, running it again if there is a
+     * conflict. The action is called with a dataset for reading and changing the database.
+     * @throws WriteConflictException if the action still conflicts after the maximum number of retries.
+     */
+    public void execute(Consumer<DatasetGraph> action) {
+        for ( int attempt = 0 ; ; attempt++ ) {
+            if ( attempt > 0 )
+                retries.increment();
+            try {
+                attemptOnce(action);
+                return;
+            } catch (WriteConflictException ex) {
+                if ( attempt >= maxRetries )
+                    throw ex;
+            }
+        }
+    }
+
+    /**
+     * Run a write action and commit its changes once.
+     * @throws WriteConflictException if another write changed a graph that the action changed.
+     */
+    public void attemptOnce(Consumer<DatasetGraph> action) {
+        long snapshot;
+        DatasetGraphBuffered buffer;
+        dsg.begin(TxnType.READ);
+        try {
+            snapshot = dataVersion();
+            buffer = new DatasetGraphBuffered(dsg);
+            action.accept(buffer);
+        } finally { dsg.end(); }
+        if ( ! buffer.hasChanges() )
+            return;
+        apply(snapshot, buffer);
+    }
+
+    private synchronized void apply(long snapshot, DatasetGraphBuffered buffer) {
+        dsg.begin(TxnType.WRITE);
+        try {
+            long current = dataVersion();
+            String conflict = checkConflict(snapshot, current, buffer.getChangedGraphs());
+            if ( conflict != null ) {
+                dsg.abort();
+                conflicts.increment();
+                throw new WriteConflictException(conflict);
+            }
+            buffer.getDeleted().forEach(dsg::delete);
+            buffer.getAdded().forEach(dsg::add);
+            buffer.getPrefixChanges().forEach((prefix, iri) -> {
+                if ( iri == null )
+                    dsg.prefixes().delete(prefix);
+                else
+                    dsg.prefixes().add(prefix, iri);
+            });
+            dsg.commit();
+            // A write transaction commit increments the data version by one.
+            long version = current + 1;
+            buffer.getChangedGraphs().forEach(g -> lastWrite.put(g, version));
+            versions.add(version);
+            commits.increment();
+            trimHistory();
+        } finally { dsg.end(); }
+    }
+
+    /** Return a description of the conflict, or null if there isn't one. */
+    private String checkConflict(long snapshot, long current, Set<Node> graphs) {
+        if ( snapshot == current )
+            return null;
+        if ( snapshot < horizon )
+            return "Snapshot too old: "+snapshot;
+        // All commits since the snapshot must have been made through this object.
+        int known = versions.subSet(snapshot, false, current, true).size();
+        if ( known != current - snapshot )
+            return "Other writers since snapshot "+snapshot;
+        for ( Node g : graphs ) {
+            Long v = lastWrite.get(g);
+            if ( v != null && v > snapshot ) {
+                String what = ( g == DatasetGraphBuffered.prefixesGraph ) ? "Prefixes" : "Graph "+g;
+                return what+" changed since snapshot "+snapshot;
+            }
+        }
+        return null;
+    }
+
+    private void trimHistory() {
+        if ( versions.size() <= MaxHistory )
+            return;
+        while ( versions.size() > MaxHistory / 2 )
+            horizon = versions.pollFirst();
+        lastWrite.values().removeIf(v -> v <= horizon);
+    }
+
+    /** The committed data version seen by the transaction of this thread. */
+    private long dataVersion() {
+        return TDBInternal.requireStorage(dsg).getTxnSystem().getThreadTransaction().getDataVersion();
+    }
+
+    /** Number of actions whose changes have been committed. */
+    public long getCommits()    { return commits.sum(); }
+
+    /** Number of attempts to commit that found a conflict. */
+    public long getConflicts()  { return conflicts.sum(); }
+
+    /** Number of times an action was run again after a conflict. */
+    public long getRetries()    { return retries.sum(); }
+
+    @Override
+    public String toString() {
+        return String.format("ConcurrentWriters: commits=%,d conflicts=%,d retries=%,d",
+                             getCommits(), getConflicts(), getRetries());
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import java.util.*;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.riot.system.PrefixLib;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.PrefixMapBase;
+import org.apache.jena.sparql.core.*;
+import org.apache.jena.sparql.util.Context;
+
+/**
+ * A {@link DatasetGraph} that reads from another dataset, inside a read transaction,
+ * and keeps changes in memory. Used by {@link ConcurrentWriters}.
+ * <p>
+ * Changes to the prefixes are kept in memory as well. For conflict checking, the
+ * prefixes count as one graph, {@link #prefixesGraph}.
+ * <p>
+ * The view is always in a write transaction: the transaction operations are
+ * managed by {@link ConcurrentWriters}, and {@code begin}/{@code commit}/{@code abort}
+ * are errors.
+ */
+/*package*/ class DatasetGraphBuffered extends DatasetGraphTriplesQuads {
+    private final DatasetGraph base;
+    // Quads not in the base, and quads of the base that have been deleted.
+    // Default graph quads use Quad.defaultGraphIRI.
+    private final Set<Quad> added = new LinkedHashSet<>();
+    private final Set<Quad> deleted = new LinkedHashSet<>();
+    // Graphs changed, even if the change is later undone.
+    private final Set<Node> graphs = new HashSet<>();
+    // Prefix to IRI, or to null for a deleted prefix.
+    private final Map<String, String> prefixChanges = new LinkedHashMap<>();
+    private final PrefixMap prefixes = new PrefixMapBuffered();
+
+    /** Stands for the prefixes in the changed graphs. */
+    /*package*/ static final Node prefixesGraph = NodeFactory.createBlankNode();
+
+    /*package*/ DatasetGraphBuffered(DatasetGraph base) {
+        this.base = base;
+    }
+
+    /*package*/ Set<Quad> getAdded()          { return added; }
+    /*package*/ Set<Quad> getDeleted()        { return deleted; }
+    /*package*/ Set<Node> getChangedGraphs()  { return graphs; }
+    /*package*/ Map<String, String> getPrefixChanges() { return prefixChanges; }
+
+    /*package*/ boolean hasChanges() {
+        return !added.isEmpty() || !deleted.isEmpty() || !prefixChanges.isEmpty();
+    }
+
+    private static Quad normalize(Quad quad) {
+        if ( Quad.isDefaultGraph(quad.getGraph()) && ! Quad.defaultGraphIRI.equals(quad.getGraph()) )
+            return Quad.create(Quad.defaultGraphIRI, quad.asTriple());
+        return quad;
+    }
+
+    private void addQuad(Quad quad) {
+        quad = normalize(quad);
+        graphs.add(quad.getGraph());
+        if ( deleted.remove(quad) )
+            return;
+        if ( ! base.contains(quad) )
+            added.add(quad);
+    }
+
+    private void deleteQuad(Quad quad) {
+        quad = normalize(quad);
+        graphs.add(quad.getGraph());
+        if ( added.remove(quad) )
+            return;
+        if ( base.contains(quad) )
+            deleted.add(quad);
+    }
+
+    @Override
+    protected void addToDftGraph(Node s, Node p, Node o) {
+        addQuad(Quad.create(Quad.defaultGraphIRI, s, p, o));
+    }
+
+    @Override
+    protected void addToNamedGraph(Node g, Node s, Node p, Node o) {
+        addQuad(Quad.create(g, s, p, o));
+    }
+
+    @Override
+    protected void deleteFromDftGraph(Node s, Node p, Node o) {
+        deleteQuad(Quad.create(Quad.defaultGraphIRI, s, p, o));
+    }
+
+    @Override
+    protected void deleteFromNamedGraph(Node g, Node s, Node p, Node o) {
+        deleteQuad(Quad.create(g, s, p, o));
+    }
+
+    @Override
+    protected Iterator<Quad> findInDftGraph(Node s, Node p, Node o) {
+        Iterator<Quad> iter = base.find(Quad.defaultGraphIRI, s, p, o);
+        return merge(iter, Quad.defaultGraphIRI, s, p, o);
+    }
+
+    @Override
+    protected Iterator<Quad> findInSpecificNamedGraph(Node g, Node s, Node p, Node o) {
+        Iterator<Quad> iter = base.find(g, s, p, o);
+        return merge(iter, g, s, p, o);
+    }
+
+    @Override
+    protected Iterator<Quad> findInAnyNamedGraphs(Node s, Node p, Node o) {
+        Iterator<Quad> iter = base.findNG(Node.ANY, s, p, o);
+        return merge(iter, null, s, p, o);
+    }
+
+    /** Base quads not deleted, then added quads that match; {@code g} null for any named graph. */
+    private Iterator<Quad> merge(Iterator<Quad> baseIter, Node g, Node s, Node p, Node o) {
+        Iterator<Quad> iter1 = deleted.isEmpty() ? baseIter : Iter.filter(baseIter, q -> ! deleted.contains(normalize(q)));
+        if ( added.isEmpty() )
+            return iter1;
+        List<Quad> matches = new ArrayList<>();
+        for ( Quad quad : added ) {
+            boolean graphMatch = ( g == null ) ? ! quad.isDefaultGraph() : quad.getGraph().equals(g);
+            if ( graphMatch && matches(quad.getSubject(), s) && matches(quad.getPredicate(), p) && matches(quad.getObject(), o) )
+                matches.add(quad);
+        }
+        return Iter.append(iter1, matches.iterator());
+    }
+
+    private static boolean matches(Node node, Node pattern) {
+        return pattern == null || pattern == Node.ANY || pattern.equals(node);
+    }
+
+    @Override
+    public Iterator<Node> listGraphNodes() {
+        Set<Node> nodes = new LinkedHashSet<>();
+        base.listGraphNodes().forEachRemaining(nodes::add);
+        for ( Quad quad : added ) {
+            if ( ! quad.isDefaultGraph() )
+                nodes.add(quad.getGraph());
+        }
+        // Graphs that are now empty.
+        nodes.removeIf(gn -> graphs.contains(gn) && ! findInSpecificNamedGraph(gn, Node.ANY, Node.ANY, Node.ANY).hasNext());
+        return nodes.iterator();
+    }
+
+    @Override
+    public Graph getDefaultGraph() {
+        return GraphView.createDefaultGraph(this);
+    }
+
+    @Override
+    public Graph getGraph(Node graphNode) {
+        return GraphView.createNamedGraph(this, graphNode);
+    }
+
+    @Override
+    public PrefixMap prefixes() {
+        return prefixes;
+    }
+
+    /** The prefixes of the base with the changes of this view. */
+    private class PrefixMapBuffered extends PrefixMapBase {
+        @Override
+        public String get(String prefix) {
+            prefix = PrefixLib.canonicalPrefix(Objects.requireNonNull(prefix));
+            if ( prefixChanges.containsKey(prefix) )
+                return prefixChanges.get(prefix);
+            return base.prefixes().get(prefix);
+        }
+
+        @Override
+        public Map<String, String> getMapping() {
+            Map<String, String> mapping = new LinkedHashMap<>(base.prefixes().getMapping());
+            prefixChanges.forEach((prefix, iri) -> {
+                if ( iri == null )
+                    mapping.remove(prefix);
+                else
+                    mapping.put(prefix, iri);
+            });
+            return Collections.unmodifiableMap(mapping);
+        }
+
+        @Override
+        public void add(String prefix, String iriString) {
+            Objects.requireNonNull(iriString);
+            change(prefix, iriString);
+        }
+
+        @Override
+        public void delete(String prefix) {
+            change(prefix, null);
+        }
+
+        @Override
+        public void clear() {
+            getMapping().keySet().forEach(this::delete);
+        }
+
+        private void change(String prefix, String iriString) {
+            prefix = PrefixLib.canonicalPrefix(Objects.requireNonNull(prefix));
+            graphs.add(prefixesGraph);
+            if ( Objects.equals(base.prefixes().get(prefix), iriString) )
+                prefixChanges.remove(prefix);
+            else
+                prefixChanges.put(prefix, iriString);
+        }
+
+        @Override
+        public boolean containsPrefix(String prefix) {
+            return get(prefix) != null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getMapping().isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return getMapping().size();
+        }
+    }
+
+    @Override
+    public Context getContext() {
+        return base.getContext();
+    }
+
+    @Override
+    public boolean supportsTransactions() {
+        return true;
+    }
+
+    @Override
+    public void begin(TxnType type) {
+        throw new UnsupportedOperationException("Transactions are managed by ConcurrentWriters");
+    }
+
+    @Override
+    public void begin(ReadWrite readWrite) {
+        throw new UnsupportedOperationException("Transactions are managed by ConcurrentWriters");
+    }
+
+    @Override
+    public boolean promote(Promote mode) {
+        return true;
+    }
+
+    @Override
+    public void commit() {
+        throw new UnsupportedOperationException("Transactions are managed by ConcurrentWriters");
+    }
+
+    @Override
+    public void abort() {
+        throw new UnsupportedOperationException("Transactions are managed by ConcurrentWriters");
+    }
+
+    @Override
+    public void end() {}
+
+    @Override
+    public ReadWrite transactionMode() {
+        return ReadWrite.WRITE;
+    }
+
+    @Override
+    public TxnType transactionType() {
+        return TxnType.WRITE;
+    }
+
+    @Override
+    public boolean isInTransaction() {
+        return true;
+    }
+}
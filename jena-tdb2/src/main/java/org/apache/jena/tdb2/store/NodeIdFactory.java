@@ -175,6 +175,14 @@ public class NodeIdFactory
         b.putLong(idx, v2);
     }
 
+    /**
+     * Compare two NodeIds by their encoded (on-disk) form.
+     * This is the order of NodeIds in the slots of a tuple index.
+     */
+    public static int compareEncoded(NodeId nodeId1, NodeId nodeId2) {
+        return Long.compareUnsigned(encode(nodeId1), encode(nodeId2));
+    }
+
     public static void setNext(NodeId nodeId, byte[] b, int idx) {
         long v2 = encode(nodeId);
         Bytes.setLong(v2+1, b, idx);
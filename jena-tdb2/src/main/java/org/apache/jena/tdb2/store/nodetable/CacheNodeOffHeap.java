@@ -0,0 +1,441 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.Pair;
+import org.apache.jena.atlas.lib.cache.CacheInfo;
+import org.apache.jena.graph.Node;
+import org.apache.jena.riot.thrift.RiotThriftException;
+import org.apache.jena.riot.thrift.ThriftConvert;
+import org.apache.jena.riot.thrift.wire.RDF_Term;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+
+/**
+ * A NodeId to Node cache held outside the Java heap.
+ * <p>
+ * Only NodeIds that are pointers into the node table are cached; they are keyed
+ * by the pointer location.
+ * <p>
+ * Nodes are stored in their Thrift encoding (as used by {@link NodeTableTRDF}) in a
+ * circular log of direct byte buffers, and decoded when found. When the log is
+ * full, new entries overwrite the oldest ones (FIFO).
+ * <p>
+ * The index from NodeId to log position is also off-heap: a table of buckets of
+ * (NodeId, position) slots, addressed by hash. An index entry is valid while the
+ * log has not wrapped past its position. A full bucket replaces its oldest entry.
+ * <p>
+ * The drop handler is called for entries evicted by the log wrapping round and for
+ * entries replaced in a full bucket, with the node decoded from the log. It is not
+ * called for {@link #remove} or {@link #clear}.
+ * <p>
+ * Lookups use an optimistic read and retry under a read lock if there was a
+ * concurrent update. Updates take the write lock.
+ */
+public class CacheNodeOffHeap implements Cache<NodeId, Node> {
+    // Record layout in the log: NodeId location (8 bytes), length (4 bytes), encoded term.
+    // A length of -1 marks the unused end of a chunk.
+    private static final int HeaderLength     = Long.BYTES + Integer.BYTES;
+    private static final int SkipMarker       = -1;
+    private static final int MaxChunkSize     = 64 * 1024 * 1024;
+    private static final int SlotsPerBucket   = 4;
+    // Index slot: NodeId, then (position+1), 0 for an empty slot.
+    private static final int SlotLength       = 2 * Long.BYTES;
+    // Index size: one slot per this many bytes of log, up to 1G bytes (one ByteBuffer).
+    private static final int BytesPerSlot     = 32;
+    private static final int MaxIndexBuckets  = 1 << 24;
+
+    private final ByteBuffer[] chunks;
+    private final int chunkSize;
+    private final long capacity;
+    private final ByteBuffer index;
+    private final int bucketMask;
+
+    // Next write position in the log, counting from the start, not wrapped.
+    private long writePosition = 0;
+    // The oldest record not yet overwritten. Records before it have been dropped.
+    private long dropPosition = 0;
+    private volatile BiConsumer<NodeId, Node> dropHandler = null;
+    private final StampedLock lock = new StampedLock();
+
+    private final LongAdder hits      = new LongAdder();
+    private final LongAdder misses    = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /** Create an off-heap cache using about {@code sizeBytes} bytes of memory for the log. */
+    public CacheNodeOffHeap(long sizeBytes) {
+        if ( sizeBytes < HeaderLength )
+            throw new IllegalArgumentException("Off-heap cache size too small: "+sizeBytes);
+        this.chunkSize = (int)Math.min(sizeBytes, MaxChunkSize);
+        int numChunks = (int)((sizeBytes + chunkSize - 1) / chunkSize);
+        this.chunks = new ByteBuffer[numChunks];
+        for ( int i = 0 ; i < numChunks ; i++ )
+            chunks[i] = ByteBuffer.allocateDirect(chunkSize);
+        this.capacity = (long)numChunks * chunkSize;
+
+        long wantBuckets = Math.max(1, capacity / BytesPerSlot / SlotsPerBucket);
+        int numBuckets = 1;
+        while ( numBuckets < wantBuckets && numBuckets < MaxIndexBuckets )
+            numBuckets = numBuckets << 1;
+        this.index = ByteBuffer.allocateDirect(numBuckets * SlotsPerBucket * SlotLength);
+        this.bucketMask = numBuckets - 1;
+    }
+
+    @Override
+    public boolean containsKey(NodeId key) {
+        return getIfPresent(key) != null;
+    }
+
+    @Override
+    public Node getIfPresent(NodeId key) {
+        if ( ! key.isPtr() )
+            return null;
+        byte[] bytes = fetch(key);
+        if ( bytes == null ) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return decode(bytes);
+    }
+
+    private static Node decode(byte[] bytes) {
+        try {
+            RDF_Term term = ThriftConvert.termFromBytes(bytes);
+            return ThriftConvert.convert(term);
+        } catch (RiotThriftException ex) {
+            // Do not fail the caller; the node table can be read.
+            return null;
+        }
+    }
+
+    /** Get the encoded bytes for a NodeId or null. */
+    private byte[] fetch(NodeId key) {
+        long stamp = lock.tryOptimisticRead();
+        if ( stamp != 0 ) {
+            byte[] bytes;
+            boolean ok = true;
+            try {
+                bytes = find(key, true);
+            } catch (RuntimeException ex) {
+                // Inconsistent read of data being changed.
+                bytes = null;
+                ok = false;
+            }
+            if ( ok && lock.validate(stamp) )
+                return bytes;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(key, false);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // "optimistic" : the data may be changing; do not trust lengths from the log.
+    private byte[] find(NodeId key, boolean optimistic) {
+        long id = key.getPtrLocation();
+        int slot = findSlot(id);
+        if ( slot < 0 )
+            return null;
+        long position = index.getLong(slot + Long.BYTES) - 1;
+        ByteBuffer chunk = chunk(position);
+        int offset = offset(position);
+        if ( chunk.getLong(offset) != id )
+            return null;
+        int len = chunk.getInt(offset + Long.BYTES);
+        if ( len < 0 || len > chunkSize - HeaderLength - offset ) {
+            if ( optimistic )
+                return null;
+            throw new IllegalStateException("Corrupt off-heap node cache entry: "+key);
+        }
+        byte[] bytes = new byte[len];
+        ByteBuffer bb = chunk.duplicate();
+        bb.position(offset + HeaderLength);
+        bb.get(bytes);
+        return bytes;
+    }
+
+    /** Find the index slot with a valid entry for the NodeId, or -1. */
+    private int findSlot(long id) {
+        int bucket = bucket(id);
+        for ( int i = 0 ; i < SlotsPerBucket ; i++ ) {
+            int slot = bucket + i * SlotLength;
+            long p = index.getLong(slot + Long.BYTES);
+            if ( p != 0 && index.getLong(slot) == id && isLive(p - 1) )
+                return slot;
+        }
+        return -1;
+    }
+
+    @Override
+    public Node getOrFill(NodeId key, Callable<Node> callable) {
+        // No synchronization needed: entries do not change and put() ignores
+        // a key that is already present.
+        Node value = getIfPresent(key);
+        if ( value != null )
+            return value;
+        try { value = callable.call(); }
+        catch (RuntimeException ex) { throw ex; }
+        catch (Exception ex) { throw new TDBException("Exception on cache fill", ex); }
+        if ( value != null )
+            put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(NodeId key, Node thing) {
+        if ( thing == null ) {
+            remove(key);
+            return;
+        }
+        if ( ! key.isPtr() )
+            return;
+        RDF_Term term = ThriftConvert.convert(thing, true);
+        byte[] bytes = ThriftConvert.termToBytes(term);
+        if ( HeaderLength + bytes.length > chunkSize )
+            // Too large to cache.
+            return;
+        long id = key.getPtrLocation();
+        // Entries to pass to the drop handler, after the lock is released.
+        List<Pair<Long, byte[]>> dropped = ( dropHandler == null ) ? null : new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            if ( findSlot(id) >= 0 )
+                // Node table entries do not change.
+                return;
+            long position = append(id, bytes, dropped);
+            int slot = chooseSlot(id, dropped);
+            index.putLong(slot, id);
+            index.putLong(slot + Long.BYTES, position + 1);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if ( dropped != null )
+            notifyDrop(dropped);
+    }
+
+    private void notifyDrop(List<Pair<Long, byte[]>> dropped) {
+        BiConsumer<NodeId, Node> handler = dropHandler;
+        if ( handler == null )
+            return;
+        for ( Pair<Long, byte[]> entry : dropped ) {
+            Node node = decode(entry.getRight());
+            if ( node != null )
+                handler.accept(NodeIdFactory.createPtr(entry.getLeft()), node);
+        }
+    }
+
+    /** Write a record to the log, returning its position. Write lock held. */
+    private long append(long id, byte[] bytes, List<Pair<Long, byte[]>> dropped) {
+        int recordLength = HeaderLength + bytes.length;
+        long position = writePosition;
+        boolean skip = offset(position) + recordLength > chunkSize;
+        if ( skip )
+            // Does not fit in this chunk; start the next one.
+            position = position + (chunkSize - offset(position));
+        // Move past the records that this write overwrites.
+        dropTo(position + recordLength - capacity, dropped);
+        if ( skip && offset(writePosition) + HeaderLength <= chunkSize )
+            chunk(writePosition).putInt(offset(writePosition) + Long.BYTES, SkipMarker);
+        writePosition = position + recordLength;
+        ByteBuffer chunk = chunk(position);
+        int offset = offset(position);
+        chunk.putLong(offset, id);
+        chunk.putInt(offset + Long.BYTES, bytes.length);
+        ByteBuffer bb = chunk.duplicate();
+        bb.position(offset + HeaderLength);
+        bb.put(bytes);
+        return position;
+    }
+
+    /**
+     * Move {@code dropPosition} to the first record at or after {@code limit},
+     * collecting the entries of the index whose records are passed over.
+     * Write lock held.
+     */
+    private void dropTo(long limit, List<Pair<Long, byte[]>> dropped) {
+        while ( dropPosition < limit ) {
+            ByteBuffer chunk = chunk(dropPosition);
+            int offset = offset(dropPosition);
+            int len = ( offset + HeaderLength > chunkSize ) ? SkipMarker : chunk.getInt(offset + Long.BYTES);
+            if ( len == SkipMarker ) {
+                dropPosition = dropPosition + (chunkSize - offset);
+                continue;
+            }
+            if ( dropped != null ) {
+                long id = chunk.getLong(offset);
+                int slot = findSlot(id);
+                if ( slot >= 0 && index.getLong(slot + Long.BYTES) - 1 == dropPosition ) {
+                    dropped.add(Pair.create(id, recordBytes(dropPosition)));
+                }
+            }
+            dropPosition = dropPosition + HeaderLength + len;
+        }
+    }
+
+    /** The encoded term of the record at a position. */
+    private byte[] recordBytes(long position) {
+        ByteBuffer chunk = chunk(position);
+        int offset = offset(position);
+        byte[] bytes = new byte[chunk.getInt(offset + Long.BYTES)];
+        ByteBuffer bb = chunk.duplicate();
+        bb.position(offset + HeaderLength);
+        bb.get(bytes);
+        return bytes;
+    }
+
+    /** Choose a slot in the bucket for a new entry: empty, overwritten, or the oldest. */
+    private int chooseSlot(long id, List<Pair<Long, byte[]>> dropped) {
+        int bucket = bucket(id);
+        int oldest = bucket;
+        long oldestPosition = Long.MAX_VALUE;
+        for ( int i = 0 ; i < SlotsPerBucket ; i++ ) {
+            int slot = bucket + i * SlotLength;
+            long p = index.getLong(slot + Long.BYTES);
+            if ( p == 0 || ! isLive(p - 1) )
+                return slot;
+            if ( p < oldestPosition ) {
+                oldest = slot;
+                oldestPosition = p;
+            }
+        }
+        evictions.increment();
+        if ( dropped != null )
+            dropped.add(Pair.create(index.getLong(oldest), recordBytes(oldestPosition - 1)));
+        return oldest;
+    }
+
+    @Override
+    public void remove(NodeId key) {
+        if ( ! key.isPtr() )
+            return;
+        long id = key.getPtrLocation();
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(id);
+            if ( slot >= 0 )
+                index.putLong(slot + Long.BYTES, 0);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<NodeId> keys() {
+        List<NodeId> keys = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            for ( int slot = 0 ; slot < index.capacity() ; slot += SlotLength ) {
+                long p = index.getLong(slot + Long.BYTES);
+                if ( p != 0 && isLive(p - 1) )
+                    keys.add(NodeIdFactory.createPtr(index.getLong(slot)));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return keys.iterator();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            for ( int slot = 0 ; slot < index.capacity() ; slot += SlotLength )
+                index.putLong(slot + Long.BYTES, 0);
+            writePosition = 0;
+            dropPosition = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Number of entries. This scans the index. */
+    @Override
+    public long size() {
+        long x = 0;
+        long stamp = lock.readLock();
+        try {
+            for ( int slot = 0 ; slot < index.capacity() ; slot += SlotLength ) {
+                long p = index.getLong(slot + Long.BYTES);
+                if ( p != 0 && isLive(p - 1) )
+                    x++;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return x;
+    }
+
+    /** Callback for entries when dropped from the cache */
+    @Override
+    public void setDropHandler(BiConsumer<NodeId, Node> dropHandler) {
+        this.dropHandler = dropHandler;
+    }
+
+    /** Bytes of log memory. */
+    public long capacity() {
+        return capacity;
+    }
+
+    public CacheInfo stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        long requests = h + m;
+        double hitRate = ( requests == 0 ) ? 1.0 : (double)h / requests;
+        int indexSlots = index.capacity() / SlotLength;
+        return new CacheInfo(indexSlots, requests, h, m, hitRate, evictions.sum());
+    }
+
+    // A log entry is live if the log has not wrapped round and written over it.
+    private boolean isLive(long position) {
+        return writePosition - position <= capacity;
+    }
+
+    private int bucket(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        int b = (int)(h ^ (h >>> 32)) & bucketMask;
+        return b * SlotsPerBucket * SlotLength;
+    }
+
+    private ByteBuffer chunk(long position) {
+        return chunks[(int)((position % capacity) / chunkSize)];
+    }
+
+    private int offset(long position) {
+        return (int)((position % capacity) % chunkSize);
+    }
+}
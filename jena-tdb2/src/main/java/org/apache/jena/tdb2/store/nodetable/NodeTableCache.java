@@ -26,12 +26,18 @@ import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.Cache;
 import org.apache.jena.atlas.lib.CacheFactory;
 import org.apache.jena.atlas.lib.Pair;
+import org.apache.jena.atlas.lib.cache.CacheGuava;
+import org.apache.jena.atlas.lib.cache.CacheInfo;
+import org.apache.jena.atlas.lib.cache.CacheStriped;
+import org.apache.jena.atlas.lib.cache.CacheWrapper;
 import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.dboe.transaction.txn.Transaction;
 import org.apache.jena.dboe.transaction.txn.TransactionListener;
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeInterner;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.params.StoreParamsConst;
 import org.apache.jena.tdb2.store.NodeId;
 
 /**
@@ -64,6 +70,8 @@ public class NodeTableCache implements NodeTable, TransactionListener {
 
     private ThreadBufferingCache<Node, NodeId> node2id_Cache = null;
     private ThreadBufferingCache<NodeId, Node> id2node_Cache = null;
+    // Second level for id2node_Cache, or null.
+    private CacheNodeOffHeap id2node_OffHeap = null;
 
     // A small cache of "known unknowns" to speed up searching for impossible things.
     private Cache<Node, Object> notPresent    = null;
@@ -77,31 +85,142 @@ public class NodeTableCache implements NodeTable, TransactionListener {
         int nodeToIdCacheSize   = isData ? params.getNode2NodeIdCacheSize() : params.getPrefixNode2NodeIdCacheSize();
         int idToNodeCacheSize   = isData ? params.getNodeId2NodeCacheSize() : params.getPrefixNodeId2NodeCacheSize();
         int missCacheSize       = isData ? params.getNodeMissCacheSize()    : params.getPrefixNodeMissCacheSize();
-        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, missCacheSize);
+        int offHeapCacheSize    = isData ? params.getNodeId2NodeOffHeapCacheSize() : 0;
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, missCacheSize, offHeapCacheSize, params.getNodeCacheType());
     }
 
     /** Build a node table cache. */
     public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, 0, StoreParamsConst.NodeCacheType);
+    }
+
+    /**
+     * Build a node table cache, with the caches of the given type
+     * ({@link StoreParamsConst#NodeCacheTypeLRU} or {@link StoreParamsConst#NodeCacheTypeStriped})
+     * and, if {@code idToNodeOffHeapCacheSizeMB} is not zero, an off-heap
+     * NodeId{@literal ->}Node cache behind the NodeId{@literal ->}Node cache.
+     */
+    public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
+                                   int idToNodeOffHeapCacheSizeMB, String cacheType) {
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize);
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, idToNodeOffHeapCacheSizeMB, cacheType);
     }
 
-    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
+    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize,
+                           int idToNodeOffHeapCacheSizeMB, String cacheType) {
         this.baseTable = baseTable;
         if ( nodeToIdCacheSize > 0 )
-            node2id_Cache = createCache("nodeToId", nodeToIdCacheSize, 1000);
-        if ( idToNodeCacheSize > 0 )
-            id2node_Cache = createCache("idToNode", idToNodeCacheSize, 1000);
+            node2id_Cache = createCache("nodeToId", cacheType, nodeToIdCacheSize, 1000);
+        if ( idToNodeCacheSize > 0 ) {
+            Cache<NodeId, Node> cache = createMainCache(cacheType, idToNodeCacheSize);
+            if ( idToNodeOffHeapCacheSizeMB > 0 ) {
+                id2node_OffHeap = new CacheNodeOffHeap(idToNodeOffHeapCacheSizeMB * 1024L * 1024L);
+                cache = new CacheTiered(cache, id2node_OffHeap);
+            }
+            id2node_Cache = new ThreadBufferingCache<>("idToNode", cache, 1000);
+        }
         if ( nodeMissesCacheSize > 0 )
-            notPresent = CacheFactory.createCache(nodeMissesCacheSize);
+            notPresent = createMainCache(cacheType, nodeMissesCacheSize);
     }
 
-    private static <Key, Value> ThreadBufferingCache<Key, Value> createCache(String label, int mainCachesize, int bufferSize) {
-        Cache<Key, Value> cache = CacheFactory.createCache(mainCachesize);
+    private static <Key, Value> ThreadBufferingCache<Key, Value> createCache(String label, String cacheType, int mainCachesize, int bufferSize) {
+        Cache<Key, Value> cache = createMainCache(cacheType, mainCachesize);
         return new ThreadBufferingCache<>(label, cache, bufferSize);
     }
 
+    /**
+     * Java heap cache in front of the off-heap cache. Updates go to both; a node
+     * found off-heap is added to the heap cache.
+     */
+    private static class CacheTiered extends CacheWrapper<NodeId, Node> {
+        private final Cache<NodeId, Node> offHeap;
+
+        CacheTiered(Cache<NodeId, Node> cache, Cache<NodeId, Node> offHeap) {
+            super(cache);
+            this.offHeap = offHeap;
+        }
+
+        Cache<NodeId, Node> front() {
+            return cache;
+        }
+
+        @Override
+        public boolean containsKey(NodeId key) {
+            return cache.containsKey(key) || offHeap.containsKey(key);
+        }
+
+        @Override
+        public Node getIfPresent(NodeId key) {
+            Node n = cache.getIfPresent(key);
+            if ( n != null )
+                return n;
+            // Decoded from bytes : use the shared node if there is one.
+            n = NodeInterner.get().intern(offHeap.getIfPresent(key));
+            if ( n != null )
+                cache.put(key, n);
+            return n;
+        }
+
+        @Override
+        public void put(NodeId key, Node thing) {
+            cache.put(key, thing);
+            offHeap.put(key, thing);
+        }
+
+        @Override
+        public void remove(NodeId key) {
+            cache.remove(key);
+            offHeap.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+            offHeap.clear();
+        }
+    }
+
+    private static <Key, Value> Cache<Key, Value> createMainCache(String cacheType, int size) {
+        if ( cacheType == null )
+            cacheType = StoreParamsConst.NodeCacheType;
+        switch (cacheType) {
+            case StoreParamsConst.NodeCacheTypeLRU :
+                return CacheFactory.createCache(size);
+            case StoreParamsConst.NodeCacheTypeStriped :
+                return CacheFactory.createStripedCache(size);
+            default :
+                throw new TDBException("Node cache type not recognized: " + cacheType);
+        }
+    }
+
+    // ---- Cache statistics.
+
+    /** Statistics for the Node to NodeId cache, or null if not available. */
+    public CacheInfo getNodeToIdCacheInfo() {
+        return node2id_Cache == null ? null : cacheInfo(node2id_Cache.getBaseCache());
+    }
+
+    /** Statistics for the NodeId to Node cache, or null if not available. */
+    public CacheInfo getIdToNodeCacheInfo() {
+        return id2node_Cache == null ? null : cacheInfo(id2node_Cache.getBaseCache());
+    }
+
+    /** Statistics for the off-heap NodeId to Node cache, or null if there isn't one. */
+    public CacheInfo getIdToNodeOffHeapCacheInfo() {
+        return id2node_OffHeap == null ? null : id2node_OffHeap.stats();
+    }
+
+    private static CacheInfo cacheInfo(Cache<?, ?> cache) {
+        if ( cache instanceof CacheTiered )
+            cache = ((CacheTiered)cache).front();
+        if ( cache instanceof CacheStriped )
+            return ((CacheStriped<?, ?>)cache).stats();
+        if ( cache instanceof CacheGuava )
+            return new CacheInfo((int)cache.size(), ((CacheGuava<?, ?>)cache).stats());
+        return null;
+    }
+
     // ---- Cache access, no going to underlying table.
 
     public Node getNodeForNodeIdCache(NodeId id) {
@@ -205,7 +324,8 @@ public class NodeTableCache implements NodeTable, TransactionListener {
             if ( n != null )
                 return n;
 
-            n = baseTable.getNodeForNodeId(id);
+            // Share nodes with the parsers and other node tables.
+            n = NodeInterner.get().intern(baseTable.getNodeForNodeId(id));
             cacheUpdate(n, id);
             return n;
         }
@@ -389,6 +509,7 @@ public class NodeTableCache implements NodeTable, TransactionListener {
         baseTable.close();
         node2id_Cache = null;
         id2node_Cache = null;
+        id2node_OffHeap = null;
         notPresent = null;
         baseTable = null;
         writingThread = null;
@@ -147,6 +147,18 @@ public class TupleTable implements Sync, Closeable
         if ( numSlots == 0 )
             return scanAllIndex.all();
 
+        TupleIndex index = chooseIndex(pattern);
+        return index.find(pattern);
+    }
+
+    /**
+     * Return the index that {@link #find} uses for a pattern (natural order, a slot
+     * of NodeId.NodeIdAny or null means match any). The result is never null.
+     */
+    public TupleIndex chooseIndex(Tuple<NodeId> pattern) {
+        if ( pattern.stream().allMatch(NodeId::isAny) )
+            return scanAllIndex;
+
         int indexNumSlots = 0;
         TupleIndex index = null;
         for ( TupleIndex idx : indexes ) {
@@ -162,7 +174,7 @@ public class TupleTable implements Sync, Closeable
         if ( index == null )
             // No index at all.  Scan.
             index = indexes[0];
-        return index.find(pattern);
+        return index;
     }
 
     @Override
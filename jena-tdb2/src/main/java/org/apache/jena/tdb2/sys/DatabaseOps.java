@@ -38,6 +38,8 @@ import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
 import org.apache.jena.query.ARQ;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFLanguages;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
@@ -73,7 +75,7 @@ public class DatabaseOps {
     public static final String startCount   = "0001";
 
     private static final String BACKUPS_DIR  = "Backups";
-    // Basename of the backup file. "backup_{DateTime}.nq.gz
+    // Basename of the backup file. "backup_{DateTime}.nq.gz" (or the extension for the format)
     private static final String BACKUPS_FN   = "backup";
 
     /**
@@ -184,7 +186,18 @@ public class DatabaseOps {
     }
 
     public static String backup(DatasetGraphSwitchable container) {
+        return backup(container, RDFFormat.NQUADS);
+    }
+
+    /**
+     * Backup in the given format, which must be a quads format. The output is
+     * gzip-compressed unless the format is RDF-Blocks which has its own compression.
+     */
+    public static String backup(DatasetGraphSwitchable container, RDFFormat format) {
         checkSupportsAdmin(container);
+        Lang lang = format.getLang();
+        if ( ! RDFLanguages.isQuads(lang) )
+            throw new IllegalArgumentException("Not a quads format: "+format);
         Path dbPath = container.getContainerPath();
         Path backupDir = dbPath.resolve(BACKUPS_DIR);
         if ( ! Files.exists(backupDir) )
@@ -192,11 +205,15 @@ public class DatabaseOps {
 
         DatasetGraph dsg = container;
 
-        Pair<OutputStream, Path> x = openUniqueFileForWriting(backupDir, BACKUPS_FN, "nq.gz");
+        boolean gzip = ! Lang.RDFBLOCKS.equals(lang);
+        String ext = lang.getFileExtensions().get(0);
+        if ( gzip )
+            ext = ext+".gz";
+        Pair<OutputStream, Path> x = openUniqueFileForWriting(backupDir, BACKUPS_FN, ext);
         try (OutputStream out2 = x.getLeft();
-             OutputStream out1 = new GZIPOutputStream(out2, 8 * 1024);
+             OutputStream out1 = gzip ? new GZIPOutputStream(out2, 8 * 1024) : out2;
              OutputStream out = new BufferedOutputStream(out1)) {
-            Txn.executeRead(dsg, ()->RDFDataMgr.write(out, dsg, Lang.NQUADS));
+            Txn.executeRead(dsg, ()->RDFDataMgr.write(out, dsg, format));
         } catch (IOException e) {
             throw IOX.exception(e);
         }
@@ -239,7 +256,7 @@ public class DatabaseOps {
     }
 
     // JVM-wide :-(
-    private static Object compactionLock = new Object();
+    static final Object compactionLock = new Object();
 
     /**
      * Equivalent to {@code compact(container, false)}.
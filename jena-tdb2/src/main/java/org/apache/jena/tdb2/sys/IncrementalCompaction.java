@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compaction of a TDB2 database in place, one index at a time, while the
+ * database is in use.
+ * <p>
+ * Write transactions copy the index blocks they change, so an index file keeps
+ * growing. {@link DatabaseOps#compact compact} copies the database to a new
+ * directory. Incremental compaction instead finds the blocks of each B+Tree
+ * that are no longer part of the tree ({@link BPlusTree#reclaim}) and makes
+ * later write transactions reuse them, so the files stop growing. Each index
+ * is done in its own read transaction; readers and the writer are not blocked.
+ * <p>
+ * Files do not get shorter, and the node data file is not changed (NodeIds are
+ * offsets into it). Reuse is not recorded on disk: after a restart, blocks are
+ * not reused until incremental compaction is run again.
+ */
+public class IncrementalCompaction {
+    private static Logger LOG = LoggerFactory.getLogger(IncrementalCompaction.class);
+
+    private final DatasetGraph dsg;
+    private volatile int indexesTotal   = -1;
+    private final AtomicLong indexesDone = new AtomicLong();
+    private final AtomicLong blocks      = new AtomicLong();
+
+    /** Incremental compaction of a TDB2 dataset. */
+    public IncrementalCompaction(DatasetGraph dsg) {
+        if ( ! TDBInternal.isTDB2(dsg) )
+            throw new TDBException("Not a TDB2 dataset");
+        this.dsg = dsg;
+    }
+
+    /**
+     * Find the reusable blocks of each index of the database.
+     * @return The number of blocks found.
+     */
+    public long run() {
+        synchronized(DatabaseOps.compactionLock) {
+            DatasetGraphTDB dsgtdb = TDBInternal.requireStorage(dsg);
+            List<BPlusTree> indexes = dsgtdb.getTxnSystem().getTxnMgr().listComponents().stream()
+                    .filter(c -> c instanceof BPlusTree)
+                    .map(c -> (BPlusTree)c)
+                    .collect(Collectors.toList());
+            indexesDone.set(0);
+            indexesTotal = indexes.size();
+            long total = 0;
+            for ( BPlusTree bpt : indexes ) {
+                long n = Txn.calculateRead(dsgtdb, bpt::reclaim);
+                LOG.debug(String.format("Compact %s: %,d blocks", bpt.getComponentId().label(), n));
+                total += n;
+                blocks.addAndGet(n);
+                indexesDone.incrementAndGet();
+            }
+            return total;
+        }
+    }
+
+    /** Number of indexes to compact, or -1 if not started. */
+    public int getIndexesTotal()    { return indexesTotal; }
+
+    /** Number of indexes compacted so far. */
+    public long getIndexesDone()    { return indexesDone.get(); }
+
+    /** Number of reusable blocks found so far. */
+    public long getBlocks()         { return blocks.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("IncrementalCompaction: indexes=%d/%d blocks=%,d",
+                             getIndexesDone(), Math.max(0, getIndexesTotal()), getBlocks());
+    }
+}
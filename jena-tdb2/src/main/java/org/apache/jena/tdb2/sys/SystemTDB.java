@@ -158,6 +158,9 @@ public class SystemTDB
     /** Size of Node lookup miss cache. */
     public static final int NodeMissCacheSize       = 1000;
 
+    /** Size, in megabytes, of the off-heap NodeId to Node cache. 0 for none. */
+    public static final int NodeId2NodeOffHeapCacheSize = intValue("NodeId2NodeOffHeapCacheSize", 0);
+
     /** Size of Node to NodeId cache for prefixes. */
     public static final int PrefixNode2NodeIdCacheSize    = intValue("PrefixNode2NodeIdCacheSize", 250);
 
@@ -167,6 +170,9 @@ public class SystemTDB
     /** Size of Node lookup miss cache for prefixes. */
     public static final int PrefixNodeMissCacheSize       = 100;
 
+    /** Node table cache implementation: "lru" or "striped" (for many concurrent readers). */
+    public static final String NodeCacheType              = "lru";
+
     /** Size of the delayed-write block cache (32 bit systems only). Per file. */
     public static final int BlockWriteCacheSize     = intValue("BlockWriteCacheSize", 1000);
 
@@ -25,6 +25,7 @@ import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.params.StoreParamsBuilder;
 import org.apache.jena.tdb2.params.StoreParamsCodec;
+import org.apache.jena.tdb2.params.StoreParamsConst;
 
 import static org.junit.Assert.*;
 import org.junit.Test;
@@ -135,6 +136,46 @@ public class TestStoreParams {
     }
 
 
+    @Test public void store_params_23() {
+        StoreParams params = StoreParams.builder(label()).nodeCacheType(StoreParamsConst.NodeCacheTypeStriped).build();
+        assertTrue(params.isSetNodeCacheType());
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+        assertEquals(StoreParamsConst.NodeCacheTypeStriped, params2.getNodeCacheType());
+    }
+
+    @Test public void store_params_24() {
+        StoreParams params1 = StoreParams.builder(label()).build();
+        StoreParams params2 = StoreParams.builder(label()).nodeCacheType(StoreParamsConst.NodeCacheTypeStriped).build();
+        StoreParams params3 = StoreParamsBuilder.modify(params1, params2);
+        assertEquals(StoreParamsConst.NodeCacheTypeStriped, params3.getNodeCacheType());
+        assertFalse(StoreParams.sameValues(params1, params3));
+    }
+
+    @Test public void store_params_25() {
+        StoreParams params = StoreParams.builder(label()).indexCompression(true).build();
+        assertTrue(params.isIndexCompression());
+        assertFalse(StoreParams.sameValues(params, StoreParams.getDftStoreParams()));
+        StoreParams params2 = roundTrip(params);
+        assertEqualsStoreParams(params, params2);
+        assertTrue(params2.isIndexCompression());
+    }
+
+    @Test public void store_params_26() {
+        // Layout - not changed after creation.
+        StoreParams params1 = StoreParams.builder(label()).build();
+        StoreParams params2 = StoreParams.builder(label()).indexCompression(true).build();
+        StoreParams params3 = StoreParamsBuilder.modify(params1, params2);
+        assertFalse(params3.isIndexCompression());
+    }
+
+    @Test public void store_params_27() {
+        // Absent means not compressed.
+        String xs = "{ \"tdb.file_mode\" : \"direct\" } ";
+        StoreParams params = StoreParamsCodec.decode(JSON.parse(xs));
+        assertFalse(params.isIndexCompression());
+    }
+
     // --------
 
     private static StoreParams roundTrip(StoreParams params) {
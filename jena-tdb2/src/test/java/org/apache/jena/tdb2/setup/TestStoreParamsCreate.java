@@ -23,9 +23,15 @@ import static org.junit.Assert.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
 import org.apache.jena.tdb2.ConfigTest;
 import org.apache.jena.tdb2.params.StoreParams;
 import org.apache.jena.tdb2.params.StoreParamsCodec;
@@ -100,6 +106,35 @@ public class TestStoreParamsCreate {
         assertTrue(StoreParams.sameValues(pLoc, pApp));
     }
 
+    @Test public void params_create_03() {
+        StoreParams pCompressed = StoreParams.builder("pCompressed", pApp).indexCompression(true).build();
+        dbConnection = DatabaseConnection.connectCreate(locContainer, pCompressed, null);
+        DatasetGraph dsg = dbConnection.getDatasetGraph();
+        Txn.executeWrite(dsg, ()->{
+            for ( int i = 0 ; i < 5000 ; i++ ) {
+                Node s = NodeFactory.createURI("http://example/s"+(i/10));
+                dsg.add(Quad.defaultGraphIRI, s, p, NodeFactory.createLiteral(Integer.toString(i)));
+                dsg.add(g, s, p, NodeFactory.createLiteral(Integer.toString(i)));
+            }
+        });
+        expel();
+        // Reconnect - index compression is from the location.
+        dbConnection = DatabaseConnection.connectCreate(locContainer);
+        StoreParams pDB = TDBInternal.getDatasetGraphTDB(dbConnection.getDatasetGraph()).getStoreParams();
+        assertTrue(pDB.isIndexCompression());
+        DatasetGraph dsg2 = dbConnection.getDatasetGraph();
+        Txn.executeRead(dsg2, ()->{
+            assertEquals(5000, Iter.count(dsg2.getDefaultGraph().find()));
+            assertEquals(5000, Iter.count(dsg2.find(g, null, null, null)));
+            Node s = NodeFactory.createURI("http://example/s42");
+            // Default graph and g.
+            assertEquals(20, Iter.count(dsg2.find(null, s, p, null)));
+        });
+    }
+
+    private static Node p = NodeFactory.createURI("http://example/p");
+    private static Node g = NodeFactory.createURI("http://example/g");
+
     // Defaults
     @Test public void params_reconnect_01() {
         // Create.
@@ -24,6 +24,13 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestSolverTDB.class
+    , TestSolverBatch.class
+    , TestSolverMergeJoin.class
+    , TestSolverLeapfrog.class
+    , TestSolverLateMaterialization.class
+    , TestSolverRangeScan.class
+    , TestSolverParallelScan.class
+    , TestSolverParallelExecution.class
     , TestStats.class
 })
 
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.query.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Check that block-at-a-time BGP matching gives the same results as row at a time. */
+public class TestSolverBatch {
+    static Dataset dataset = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dataset = TL.createTestDatasetMem();
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        for ( int i = 0 ; i < 50 ; i++ ) {
+            sb.append(String.format(":s%d :p :o%d .\n", i, i % 7));
+            sb.append(String.format(":s%d :r :s%d .\n", i, (i * 13) % 50));
+            sb.append(String.format("GRAPH :g%d { :s%d :p :o%d }\n", i % 3, i, i % 5));
+        }
+        for ( int j = 0 ; j < 7 ; j++ )
+            sb.append(String.format(":o%d :q %d .\n", j, j));
+        dataset.executeWrite(()->RDFParser.fromString(sb.toString()).lang(Lang.TRIG).parse(dataset));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    @Test public void batch_01() { test("SELECT * { ?s :p ?o . ?o :q ?v }"); }
+
+    @Test public void batch_02() { test("SELECT * { ?s :r ?x . ?x :r ?y . ?y :p ?o }"); }
+
+    @Test public void batch_03() { test("SELECT * { ?s :p ?o . ?s :r ?s2 . ?s2 :p ?o }"); }
+
+    @Test public void batch_04() { test("SELECT * { ?s :p ?o . ?o :q 3 }"); }
+
+    @Test public void batch_05() { test("SELECT * { ?s :p ?o . ?o :notHere ?v }"); }
+
+    @Test public void batch_06() { test("SELECT * { VALUES ?o { :o1 :o3 :zzz } ?s :p ?o . ?s :r ?x }"); }
+
+    @Test public void batch_07() { test("SELECT * { GRAPH ?g { ?s :p ?o } ?s :r ?x . GRAPH ?g { ?x :p ?o2 } }"); }
+
+    @Test public void batch_08() { test("SELECT * { GRAPH <urn:x-arq:UnionGraph> { ?s :p ?o . ?x :p ?o } }"); }
+
+    @Test public void batch_09() { test("SELECT * { ?s :p ?o OPTIONAL { ?s :r ?x . ?x :p ?o } }"); }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create("PREFIX : <http://example/>\n" + queryString);
+        dataset.executeRead(() -> {
+            ResultSetRewindable rs1 = exec(query, 0);
+            ResultSetRewindable rs2 = exec(query, 2);
+            ResultSetRewindable rs3 = exec(query, 100);
+            assertEquals(rs1.size(), rs2.size());
+            assertEquals(rs1.size(), rs3.size());
+            assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+            rs1.reset();
+            assertTrue(ResultSetCompare.equalsByTerm(rs1, rs3));
+        });
+    }
+
+    private static ResultSetRewindable exec(Query query, int batchSize) {
+        try ( QueryExecution qExec = QueryExecution.dataset(dataset).query(query).set(TDB2.symSolverBatchSize, batchSize).build() ) {
+            ResultSetRewindable rs = qExec.execSelect().rewindable();
+            return rs;
+        }
+    }
+}
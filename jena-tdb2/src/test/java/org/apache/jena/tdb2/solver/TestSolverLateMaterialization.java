@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.query.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Check that operators working on NodeIds give the same results as the general operators. */
+public class TestSolverLateMaterialization {
+    static Dataset dataset = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dataset = TL.createTestDatasetMem();
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        for ( int i = 0 ; i < 30 ; i++ ) {
+            sb.append(String.format(":s%d :p :o%d .\n", i, i % 4));
+            sb.append(String.format(":s%d :q %d .\n", i, i % 5));
+            sb.append(String.format(":s%d :r \"%s\" .\n", i, "str"+(i % 3)));
+            sb.append(String.format(":o%d :label \"label%d\" .\n", i % 4, i % 4));
+            sb.append(String.format("GRAPH :g%d { :s%d :p :o%d }\n", i % 2, i, i % 3));
+        }
+        sb.append(":x :q 1.0 .\n");
+        sb.append(":x :q 01 .\n");
+        dataset.executeWrite(()->RDFParser.fromString(sb.toString()).lang(Lang.TRIG).parse(dataset));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    @Test public void distinct_01() { test("SELECT DISTINCT ?o { ?s :p ?o }"); }
+
+    @Test public void distinct_02() { test("SELECT DISTINCT * { ?s :p ?o . ?s :q ?v }"); }
+
+    @Test public void distinct_03() { test("SELECT DISTINCT ?v { ?s :q ?v }"); }
+
+    @Test public void distinct_04() { test("SELECT DISTINCT ?o ?g { GRAPH ?g { ?s :p ?o } }"); }
+
+    // Unbound variables.
+    @Test public void distinct_05() { test("SELECT DISTINCT ?o ?z { ?s :p ?o OPTIONAL { ?s :z ?z } }"); }
+
+    // Terms not in the database.
+    @Test public void distinct_06() { test("SELECT DISTINCT ?o { { ?s :p ?o } UNION { VALUES ?o { :o1 :new 01 1 } } }"); }
+
+    @Test public void distinct_07() { test("SELECT DISTINCT ?o { ?s :p ?o } ORDER BY ?o"); }
+
+    @Test public void reduced_01() { test("SELECT REDUCED ?o { ?s :p ?o } ORDER BY ?o"); }
+
+    @Test public void group_01() { test("SELECT ?o (count(*) AS ?c) { ?s :p ?o } GROUP BY ?o"); }
+
+    @Test public void group_02() { test("SELECT ?o ?v (count(*) AS ?c) (sum(?v) AS ?sum) { ?s :p ?o ; :q ?v } GROUP BY ?o ?v"); }
+
+    @Test public void group_03() { test("SELECT ?o (sample(?s) AS ?x) { ?s :p ?o } GROUP BY ?o HAVING (count(*) > 7)"); }
+
+    @Test public void group_04() { test("SELECT ?z (count(*) AS ?c) { ?s :p ?o OPTIONAL { ?s :z ?z } } GROUP BY ?z"); }
+
+    @Test public void group_05() { test("SELECT (count(*) AS ?c) { ?s :p ?o }"); }
+
+    @Test public void group_06() { test("SELECT ?o (count(*) AS ?c) { ?s :nothing ?o } GROUP BY ?o"); }
+
+    @Test public void group_07() { test("SELECT (count(*) AS ?c) { ?s :nothing ?o }"); }
+
+    @Test public void group_08() { test("SELECT ?v (count(*) AS ?c) { { ?s :q ?v } UNION { VALUES ?v { 1 01 :new } } } GROUP BY ?v"); }
+
+    @Test public void filter_01() { test("SELECT * { ?s :p ?o FILTER(sameTerm(?o, :o1)) }"); }
+
+    @Test public void filter_02() { test("SELECT * { ?s :p ?o FILTER(?o = :o1) }"); }
+
+    @Test public void filter_03() { test("SELECT * { ?s :p ?o FILTER(?o != :o1) }"); }
+
+    @Test public void filter_04() { test("SELECT * { ?s :q ?v FILTER(sameTerm(?v, 1)) }"); }
+
+    @Test public void filter_05() { test("SELECT * { ?s :q ?v FILTER(sameTerm(?v, 01)) }"); }
+
+    @Test public void filter_06() { test("SELECT * { ?s :p ?o . ?t :p ?o2 FILTER(sameTerm(?o, ?o2)) }"); }
+
+    @Test public void filter_07() { test("SELECT * { ?s :q ?v FILTER(?v = 1) }"); }
+
+    @Test public void filter_08() { test("SELECT * { ?s :p ?o OPTIONAL { ?s :z ?z } FILTER(!sameTerm(?z, :o1)) }"); }
+
+    @Test public void filter_09() { test("SELECT * { ?s :p ?o FILTER(sameTerm(?o, :new)) }"); }
+
+    @Test public void filter_10() { test("SELECT * { VALUES ?v { 1 01 } ?s :q ?v2 FILTER(sameTerm(?v, ?v2)) }"); }
+
+    @Test public void join_01() { test("SELECT * { { ?s :p ?o } { SELECT ?o (count(*) AS ?c) { ?x :p ?o } GROUP BY ?o } }"); }
+
+    @Test public void join_02() { test("SELECT * { { ?s :p ?o } { ?o :label ?l } UNION { ?o :other ?l } }"); }
+
+    @Test public void join_03() { test("SELECT * { { ?s :p ?o } { SELECT DISTINCT ?o ?s { ?s :p ?o . ?s :q 2 } } }"); }
+
+    @Test public void join_04() { test("SELECT * { { ?s :q ?v } { VALUES ?v { 1 01 2 :new } } }"); }
+
+    // With a spill threshold, the general operators, which spill, are used.
+    @Test public void spill_01() { testSpill("SELECT * { { ?s :p ?o } { SELECT ?o (count(*) AS ?c) { ?x :p ?o } GROUP BY ?o } }"); }
+
+    @Test public void spill_02() { testSpill("SELECT DISTINCT ?o ?v { { ?s :p ?o } { ?s :q ?v } UNION { ?s :r ?v } }"); }
+
+    private static void test(String queryString) {
+        test(queryString, null);
+    }
+
+    private static void testSpill(String queryString) {
+        test(queryString, 5L);
+    }
+
+    private static void test(String queryString, Long spillThreshold) {
+        Query query = QueryFactory.create("PREFIX : <http://example/>\n" + queryString);
+        dataset.executeRead(() -> {
+            ResultSetRewindable rs1 = exec(query, false, spillThreshold);
+            ResultSetRewindable rs2 = exec(query, true, spillThreshold);
+            assertEquals(rs1.size(), rs2.size());
+            if ( query.isOrdered() )
+                assertTrue(ResultSetCompare.equalsByTermAndOrder(rs1, rs2));
+            else
+                assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+        });
+    }
+
+    private static ResultSetRewindable exec(Query query, boolean lateMaterialization, Long spillThreshold) {
+        QueryExecutionDatasetBuilder builder = QueryExecution.dataset(dataset).query(query).set(TDB2.symLateMaterialization, lateMaterialization);
+        if ( spillThreshold != null )
+            builder.set(ARQ.spillToDiskThreshold, spillThreshold);
+        try ( QueryExecution qExec = builder.build() ) {
+            ResultSetRewindable rs = qExec.execSelect().rewindable();
+            return rs;
+        }
+    }
+}
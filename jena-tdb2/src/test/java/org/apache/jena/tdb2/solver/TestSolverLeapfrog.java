@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Check that leapfrog triejoin gives the same results as index nested loops. */
+public class TestSolverLeapfrog {
+    static Dataset dataset = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dataset = TL.createTestDatasetMem();
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        // A graph with triangles.
+        for ( int i = 0 ; i < 40 ; i++ ) {
+            sb.append(String.format(":n%d :knows :n%d .\n", i, (i+1) % 40));
+            sb.append(String.format(":n%d :knows :n%d .\n", i, (i+2) % 40));
+            sb.append(String.format(":n%d :knows :n%d .\n", i, (i*7) % 40));
+            sb.append(String.format(":n%d :type :T%d .\n", i, i % 3));
+            sb.append(String.format("GRAPH :g%d { :n%d :knows :n%d . :n%d :knows :n%d }\n", i % 2, i, (i+1) % 40, (i+1) % 40, i));
+        }
+        dataset.executeWrite(()->RDFParser.fromString(sb.toString()).lang(Lang.TRIG).parse(dataset));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    @Test public void leapfrog_01() { test("SELECT * { ?a :knows ?b . ?b :knows ?c . ?c :knows ?a }"); }
+
+    @Test public void leapfrog_02() { test("SELECT * { ?a :knows ?b . ?b :knows ?c . ?a :knows ?c }"); }
+
+    @Test public void leapfrog_03() { test("SELECT * { ?a :knows ?b . ?b :knows ?c . ?a :knows ?c . ?a :type :T1 }"); }
+
+    // Variable predicate.
+    @Test public void leapfrog_04() { test("SELECT * { ?a ?p ?b . ?b :knows ?c . ?c ?p ?a }"); }
+
+    // Acyclic.
+    @Test public void leapfrog_05() { test("SELECT * { ?a :knows ?b . ?b :type ?t }"); }
+
+    // Input bindings.
+    @Test public void leapfrog_06() { test("SELECT * { VALUES ?a { :n1 :n5 :nothing } ?a :knows ?b . ?b :knows ?c . ?c :knows ?a }"); }
+
+    // Fixed patterns.
+    @Test public void leapfrog_07() { test("SELECT * { :n1 :knows :n2 . ?a :knows ?b . ?b :knows ?a }"); }
+
+    @Test public void leapfrog_08() { test("SELECT * { :n1 :knows :n3 . ?a :knows ?b . ?b :knows ?a }"); }
+
+    // Named graphs.
+    @Test public void leapfrog_09() { test("SELECT * { GRAPH ?g { ?a :knows ?b . ?b :knows ?a } }"); }
+
+    @Test public void leapfrog_10() { test("SELECT * { GRAPH :g1 { ?a :knows ?b . ?b :knows ?c . ?c :knows ?a } }"); }
+
+    // No match.
+    @Test public void leapfrog_11() { test("SELECT * { ?a :knows ?b . ?b :knows ?c . ?c :notHere ?a }"); }
+
+    // Disconnected.
+    @Test public void leapfrog_12() { test("SELECT * { ?a :type :T0 . ?b :type :T2 }"); }
+
+    // Input rows binding different variables: a variable order for each.
+    @Test public void leapfrog_13() { test("SELECT * { VALUES (?a ?b) { (:n1 UNDEF) (UNDEF :n2) (:n3 UNDEF) (:n4 :n5) (UNDEF UNDEF) } ?a :knows ?b . ?b :knows ?c . ?c :knows ?a }"); }
+
+    // Chosen automatically, with a limit on the matches to sort.
+    // A directed cycle needs the matches of a pattern sorted.
+    @Test public void leapfrog_auto_01() { testAuto(10, "SELECT * { ?a :knows ?b . ?b :knows ?c . ?c :knows ?a }"); }
+
+    @Test public void leapfrog_auto_02() { testAuto(1000, "SELECT * { ?a :knows ?b . ?b :knows ?c . ?c :knows ?a }"); }
+
+    @Test public void leapfrog_auto_03() { testAuto(10, "SELECT * { VALUES ?a { :n1 :n5 :nothing } ?a :knows ?b . ?b :knows ?c . ?c :knows ?a }"); }
+
+    @Test public void cyclic_01() { testCyclic(true, "(?a :p ?b)", "(?b :p ?c)", "(?c :p ?a)"); }
+
+    @Test public void cyclic_02() { testCyclic(false, "(?a :p ?b)", "(?b :p ?c)", "(?c :p ?d)"); }
+
+    @Test public void cyclic_03() { testCyclic(false, "(?a :p ?b)", "(?a :q ?b)"); }
+
+    @Test public void cyclic_04() { testCyclic(false, "(?a :p ?b)", "(?a :q ?c)", "(?a :r ?d)"); }
+
+    @Test public void cyclic_05() { testCyclic(true, "(?a :p ?b)", "(?b :p ?c)", "(?c :p ?d)", "(?d :p ?a)"); }
+
+    @Test public void cyclic_06() { testCyclic(false, "(?a ?b ?c)", "(?b :p ?c)", "(?c :p ?a)"); }
+
+    private static void testCyclic(boolean expected, String... triples) {
+        BasicPattern bgp = SSE.parseBGP("(bgp " + String.join(" ", triples) + ")");
+        List<Tuple<Node>> tuples = new ArrayList<>();
+        for ( Triple t : bgp )
+            tuples.add(TupleFactory.create3(t.getSubject(), t.getPredicate(), t.getObject()));
+        if ( expected )
+            assertTrue(StageLeapfrogJoin.isCyclic(tuples));
+        else
+            assertFalse(StageLeapfrogJoin.isCyclic(tuples));
+    }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create("PREFIX : <http://example/>\n" + queryString);
+        dataset.executeRead(() -> {
+            ResultSetRewindable rs1 = exec(query, false);
+            ResultSetRewindable rs2 = exec(query, true);
+            assertEquals(rs1.size(), rs2.size());
+            assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+        });
+    }
+
+    private static void testAuto(long maxSortedRows, String queryString) {
+        Query query = QueryFactory.create("PREFIX : <http://example/>\n" + queryString);
+        dataset.executeRead(() -> {
+            ResultSetRewindable rs1 = exec(query, false);
+            ResultSetRewindable rs2;
+            try ( QueryExecution qExec = QueryExecution.dataset(dataset).query(query).set(TDB2.symLeapfrogMaxSortedRows, maxSortedRows).build() ) {
+                rs2 = qExec.execSelect().rewindable();
+            }
+            assertEquals(rs1.size(), rs2.size());
+            assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+        });
+    }
+
+    private static ResultSetRewindable exec(Query query, boolean leapfrog) {
+        try ( QueryExecution qExec = QueryExecution.dataset(dataset).query(query).set(TDB2.symLeapfrogJoin, leapfrog).build() ) {
+            ResultSetRewindable rs = qExec.execSelect().rewindable();
+            return rs;
+        }
+    }
+}
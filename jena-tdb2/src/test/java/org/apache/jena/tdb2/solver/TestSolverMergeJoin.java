@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.query.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Check that starting a BGP with a merge join gives the same results as index nested loops. */
+public class TestSolverMergeJoin {
+    static Dataset dataset = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dataset = TL.createTestDatasetMem();
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        for ( int i = 0 ; i < 60 ; i++ ) {
+            sb.append(String.format(":s%d :type :C%d .\n", i, i % 3));
+            sb.append(String.format(":s%d :p :o%d .\n", i, i % 7));
+            sb.append(String.format(":s%d :r :s%d .\n", i, (i * 13) % 60));
+            if ( i % 4 == 0 )
+                sb.append(String.format(":s%d :p %d .\n", i, i));
+            sb.append(String.format("GRAPH :g%d { :s%d :type :C%d . :s%d :p :o%d }\n", i % 2, i, i % 3, i, i % 5));
+        }
+        for ( int j = 0 ; j < 7 ; j++ )
+            sb.append(String.format(":o%d :q %d .\n", j, j));
+        dataset.executeWrite(()->RDFParser.fromString(sb.toString()).lang(Lang.TRIG).parse(dataset));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    // Star on subject, both POS.
+    @Test public void mergeJoin_01() { test("SELECT * { ?x :type :C1 . ?x :p :o3 }"); }
+
+    // Chain : SPO then POS
+    @Test public void mergeJoin_02() { test("SELECT * { :s5 :r ?x . ?x :p :o2 }"); }
+
+    // Chain : object of one, object of the other.
+    @Test public void mergeJoin_03() { test("SELECT * { ?a :p ?x . ?b :p ?x }"); }
+
+    // No sorted index for the second pattern: nested loop fallback.
+    @Test public void mergeJoin_04() { test("SELECT * { ?x :type :C2 . ?x :p ?o }"); }
+
+    // Second shared variable.
+    @Test public void mergeJoin_05() { test("SELECT * { ?x :r ?y . ?y :r ?x }"); }
+
+    // More patterns after the merge join.
+    @Test public void mergeJoin_06() { test("SELECT * { ?x :type :C0 . ?x :p :o1 . ?x :r ?y . ?y :p ?o }"); }
+
+    // Input binding
+    @Test public void mergeJoin_07() { test("SELECT * { VALUES ?c { :C0 :C2 :Cnone } ?x :type ?c . ?x :p :o4 }"); }
+
+    // Named graphs
+    @Test public void mergeJoin_08() { test("SELECT * { GRAPH :g1 { ?x :type :C1 . ?x :p ?o } }"); }
+
+    @Test public void mergeJoin_09() { test("SELECT * { GRAPH ?g { ?x :type :C1 . ?y :p ?x } }"); }
+
+    // No match
+    @Test public void mergeJoin_10() { test("SELECT * { ?x :type :C1 . ?x :p :o99 }"); }
+
+    @Test public void mergeJoin_11() { test("SELECT * { ?x :type :C1 . ?x :notHere ?z }"); }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create("PREFIX : <http://example/>\n" + queryString);
+        dataset.executeRead(() -> {
+            ResultSetRewindable rs1 = exec(query, false);
+            ResultSetRewindable rs2 = exec(query, true);
+            assertEquals(rs1.size(), rs2.size());
+            assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+        });
+    }
+
+    private static ResultSetRewindable exec(Query query, boolean mergeJoin) {
+        try ( QueryExecution qExec = QueryExecution.dataset(dataset).query(query).set(TDB2.symMergeJoin, mergeJoin).build() ) {
+            ResultSetRewindable rs = qExec.execSelect().rewindable();
+            return rs;
+        }
+    }
+}
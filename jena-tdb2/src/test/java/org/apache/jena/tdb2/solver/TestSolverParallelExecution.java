@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.jena.atlas.lib.Lib;
+import org.apache.jena.query.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.iterator.QueryIterAsync;
+import org.apache.jena.sparql.engine.iterator.QueryIterRoot;
+import org.apache.jena.sparql.engine.main.QC;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.system.ThreadTxn;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Parallel evaluation of independent parts of a query in a TDB2 read transaction. */
+public class TestSolverParallelExecution {
+    static Dataset dataset = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dataset = TL.createTestDatasetMem();
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        for ( int i = 0 ; i < 200 ; i++ ) {
+            sb.append(String.format(":s%d :p :o%d .\n", i, i % 7));
+            sb.append(String.format(":s%d :q %d .\n", i, i % 5));
+            sb.append(String.format(":o%d :label \"label%d\" .\n", i % 7, i % 7));
+        }
+        dataset.executeWrite(()->RDFParser.fromString(sb.toString()).lang(Lang.TRIG).parse(dataset));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    @Test public void parallel_01() { test("SELECT * { { ?s :p ?o } UNION { ?s :q ?v } }"); }
+
+    @Test public void parallel_02() { test("SELECT * { { ?s :p ?o OPTIONAL { ?o :label ?l } } { ?s :q ?v } }"); }
+
+    @Test public void parallel_03() { test("SELECT * { ?s :p :o1 . ?x :q 3 }"); }
+
+    @Test public void canRunAsync_01() {
+        DatasetGraph dsg = dataset.asDatasetGraph();
+        dsg.executeRead(()->assertTrue(QueryIterAsync.canRunAsync(dsg)));
+        dsg.executeWrite(()->assertFalse(QueryIterAsync.canRunAsync(dsg)));
+        dsg.begin(TxnType.READ_PROMOTE);
+        try {
+            assertFalse(QueryIterAsync.canRunAsync(dsg));
+        } finally { dsg.end(); }
+    }
+
+    @Test public void worker_01() {
+        // The worker has a read transaction.
+        DatasetGraph dsg = dataset.asDatasetGraph();
+        AtomicReference<Boolean> inTxn = new AtomicReference<>();
+        AtomicReference<String> threadName = new AtomicReference<>();
+        dsg.executeRead(()->{
+            ExecutionContext execCxt = execCxt(dsg);
+            QueryIterator qIter = new QueryIterAsync(c -> {
+                inTxn.set(c.getDataset().isInTransaction());
+                threadName.set(Thread.currentThread().getName());
+                return QueryIterRoot.create(c);
+            }, execCxt);
+            try {
+                // Let the pool thread start the evaluation.
+                for ( int i = 0 ; i < 100 && threadName.get() == null ; i++ )
+                    Lib.sleep(50);
+                assertTrue(qIter.hasNext());
+            } finally { qIter.close(); }
+        });
+        assertTrue(threadName.get(), threadName.get().startsWith("ARQ-parallel-"));
+        assertTrue(inTxn.get());
+    }
+
+    @Test public void isolation_01() {
+        // A commit made after the query's transaction started is not seen by a worker.
+        DatasetGraph dsg = TL.createTestDatasetGraphMem();
+        QueryIterAsync.ReadFork readFork = ReadForkTDB2.get();
+        dsg.executeRead(()->{
+            Object view1 = readFork.view(dsg);
+            assertNotNull(view1);
+            assertTrue(begin(readFork, dsg, view1));
+            ThreadTxn.threadTxnWrite(dsg, ()->dsg.add(SSE.parseQuad("(_ :s :p 1)"))).run();
+            assertFalse(begin(readFork, dsg, view1));
+        });
+        String qs = "PREFIX : <http://example/> SELECT * { { ?s :p ?o } UNION { ?s :q ?o } }";
+        Dataset ds = DatasetFactory.wrap(dsg);
+        ds.executeRead(()->{
+            ThreadTxn.threadTxnWrite(dsg, ()->dsg.add(SSE.parseQuad("(_ :s :q 2)"))).run();
+            assertEquals(1, exec(ds, QueryFactory.create(qs), true).size());
+        });
+        ds.executeRead(()->assertEquals(2, exec(ds, QueryFactory.create(qs), true).size()));
+        TL.expel(dsg);
+    }
+
+    @Test public void isolation_02() {
+        // Not for a different database.
+        DatasetGraph dsg = TL.createTestDatasetGraphMem();
+        QueryIterAsync.ReadFork readFork = ReadForkTDB2.get();
+        assertTrue(readFork.accept(dsg));
+        Object view = dsg.calculateRead(()->readFork.view(dsg));
+        assertFalse(begin(readFork, dataset.asDatasetGraph(), view));
+        TL.expel(dsg);
+    }
+
+    private static boolean begin(QueryIterAsync.ReadFork readFork, DatasetGraph dsg, Object view) {
+        return CompletableFuture.supplyAsync(()->{
+            if ( ! readFork.begin(dsg, view) )
+                return false;
+            dsg.end();
+            return true;
+        }).join();
+    }
+
+    private static ExecutionContext execCxt(DatasetGraph dsg) {
+        DatasetGraph dsgtdb = TDBInternal.getDatasetGraphTDB(dsg);
+        Context cxt = ARQ.getContext().copy();
+        return new ExecutionContext(cxt, dsgtdb.getDefaultGraph(), dsgtdb, QC.getFactory(cxt));
+    }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create("PREFIX : <http://example/>\n" + queryString);
+        dataset.executeRead(() -> {
+            ResultSetRewindable rs1 = exec(dataset, query, false);
+            ResultSetRewindable rs2 = exec(dataset, query, true);
+            assertEquals(rs1.size(), rs2.size());
+            assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+        });
+    }
+
+    private static ResultSetRewindable exec(Dataset ds, Query query, boolean parallel) {
+        try ( QueryExecution qExec = QueryExecution.dataset(ds).query(query).set(ARQ.parallelExecution, parallel).build() ) {
+            return qExec.execSelect().rewindable();
+        }
+    }
+}
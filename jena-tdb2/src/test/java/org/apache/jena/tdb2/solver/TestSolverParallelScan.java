@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.jena.atlas.lib.tuple.Tuple;
+import org.apache.jena.atlas.lib.tuple.TupleFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Check that parallel partitioned index scans give the same results as a single scan. */
+public class TestSolverParallelScan {
+    static Dataset dataset = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dataset = TL.createTestDatasetMem();
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        // Enough triples for the indexes to have several leaf blocks.
+        for ( int i = 0 ; i < 5000 ; i++ ) {
+            sb.append(String.format(":s%d :p :o%d .\n", i, i % 13));
+            sb.append(String.format(":s%d :q %d .\n", i, i % 7));
+            sb.append(String.format(":o%d :label \"label%d\" .\n", i % 13, i % 13));
+            sb.append(String.format("GRAPH :g%d { :s%d :r %d }\n", i % 3, i, i));
+        }
+        sb.append(":x :p :x .\n");
+        dataset.executeWrite(()->RDFParser.fromString(sb.toString()).lang(Lang.TRIG).parse(dataset));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    @Test public void count_01() { test("SELECT (count(*) AS ?c) { ?s ?p ?o }"); }
+
+    @Test public void count_02() { test("SELECT ?p (count(*) AS ?c) { ?s ?p ?o } GROUP BY ?p"); }
+
+    @Test public void count_03() { test("SELECT ?o (count(?s) AS ?c) { ?s :p ?o } GROUP BY ?o"); }
+
+    @Test public void count_04() { test("SELECT ?s ?p (count(*) AS ?c) { ?s ?p ?o } GROUP BY ?s ?p HAVING (count(*) > 1)"); }
+
+    @Test public void count_05() { test("SELECT (count(*) AS ?c) { ?s :nothing ?o }"); }
+
+    @Test public void count_06() { test("SELECT ?o (count(*) AS ?c) { ?s :nothing ?o } GROUP BY ?o"); }
+
+    @Test public void count_07() { test("SELECT (count(*) AS ?c) { ?s ?p ?s }"); }
+
+    @Test public void count_08() { test("SELECT (count(*) AS ?c) { GRAPH :g1 { ?s ?p ?o } }"); }
+
+    @Test public void count_09() { test("SELECT ?o (count(*) AS ?c) (count(?s) AS ?c2) { ?s :q ?o } GROUP BY ?o"); }
+
+    // Not counted in parallel.
+    @Test public void count_10() { test("SELECT ?o (count(DISTINCT ?s) AS ?c) { ?s :q ?o } GROUP BY ?o"); }
+
+    @Test public void count_11() { test("SELECT (count(*) AS ?c) { GRAPH ?g { ?s ?p ?o } }"); }
+
+    @Test public void scan_01() { test("SELECT * { ?s ?p ?o }"); }
+
+    @Test public void scan_02() { test("SELECT * { ?s :p ?o . ?o :label ?l }"); }
+
+    @Test public void scan_03() { test("SELECT * { ?s :q 3 . ?s :p ?o }"); }
+
+    @Test public void scan_04() { test("SELECT * { GRAPH :g2 { ?s ?p ?o } }"); }
+
+    @Test public void scan_05() { test("SELECT * { ?s :q ?v } LIMIT 10"); }
+
+    @Test public void count_cancel_01() {
+        // Cancelled: the pool threads stop and the dataset can still be used.
+        dataset.executeRead(() -> {
+            NodeTupleTable ntt = TDBInternal.getDatasetGraphTDB(dataset.asDatasetGraph()).getTripleTable().getNodeTupleTable();
+            Tuple<Node> pattern = TupleFactory.create3(Var.alloc("s"), Var.alloc("p"), Var.alloc("o"));
+            try {
+                StageParallelScan.count(ntt, pattern, new int[0], new AtomicBoolean(true));
+                fail("Not cancelled");
+            } catch (QueryCancelledException ex) {}
+        });
+        test("SELECT (count(*) AS ?c) { ?s ?p ?o }");
+    }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create("PREFIX : <http://example/>\n" + queryString);
+        dataset.executeRead(() -> {
+            ResultSetRewindable rs1 = exec(query, false);
+            ResultSetRewindable rs2 = exec(query, true);
+            assertEquals(rs1.size(), rs2.size());
+            if ( ! query.hasLimit() )
+                assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+        });
+    }
+
+    private static ResultSetRewindable exec(Query query, boolean parallelScan) {
+        try ( QueryExecution qExec = QueryExecution.dataset(dataset).query(query).set(TDB2.symParallelScan, parallelScan).build() ) {
+            ResultSetRewindable rs = qExec.execSelect().rewindable();
+            return rs;
+        }
+    }
+}
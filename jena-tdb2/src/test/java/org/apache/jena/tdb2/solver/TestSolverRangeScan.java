@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.jena.query.*;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.sparql.resultset.ResultSetCompare;
+import org.apache.jena.tdb2.TDB2;
+import org.apache.jena.tdb2.junit.TL;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Check that filters pushed into index range scans give the same results as filtering after the match. */
+public class TestSolverRangeScan {
+    static Dataset dataset = null;
+
+    @BeforeClass
+    static public void beforeClass() {
+        dataset = TL.createTestDatasetMem();
+        StringBuilder sb = new StringBuilder();
+        sb.append("PREFIX : <http://example/>\n");
+        sb.append("PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>\n");
+        for ( int i = -20 ; i <= 20 ; i++ ) {
+            sb.append(String.format(":s%d :p %d .\n", i+20, i));
+            sb.append(String.format(":s%d :p \"%d.5\"^^xsd:decimal .\n", i+20, i));
+            sb.append(String.format(":s%d :p \"%de0\"^^xsd:double .\n", i+20, i));
+            sb.append(String.format(":s%d :p \"%d.25\"^^xsd:float .\n", i+20, i));
+            sb.append(String.format(":s%d :p \"%d\"^^xsd:short .\n", i+20, i*3));
+            sb.append(String.format(":s%d :q :o%d .\n", i+20, (i+20) % 4));
+            sb.append(String.format("GRAPH :g%d { :s%d :p %d }\n", (i+20) % 2, i+20, i));
+        }
+        sb.append(":x :p 123456789012345678901234567890 .\n");
+        sb.append(":x :p -123456789012345678901234567890 .\n");
+        sb.append(":x :p \"INF\"^^xsd:double , \"-INF\"^^xsd:double , \"NaN\"^^xsd:double .\n");
+        sb.append(":x :p \"1.0e300\"^^xsd:double , \"-0.0e0\"^^xsd:double .\n");
+        sb.append(":x :p \"abc\" , \"5\" , :o1 .\n");
+        sb.append(":x :p \"010\"^^xsd:integer .\n");
+        for ( int i = 1 ; i <= 12 ; i++ ) {
+            sb.append(String.format(":d%d :t \"2020-%02d-15T12:00:00Z\"^^xsd:dateTime .\n", i, i));
+            sb.append(String.format(":d%d :t \"2020-%02d-15T23:30:00+05:00\"^^xsd:dateTime .\n", i, i));
+            sb.append(String.format(":d%d :t \"2020-%02d-01T00:30:00-11:00\"^^xsd:dateTime .\n", i, i));
+            sb.append(String.format(":d%d :t \"2020-%02d-01T00:00:00\"^^xsd:dateTime .\n", i, i));
+            sb.append(String.format(":d%d :t \"2020-%02d-10\"^^xsd:date .\n", i, i));
+            sb.append(String.format(":d%d :t \"2020-%02d-10T10:00:00Z\"^^xsd:dateTimeStamp .\n", i, i));
+        }
+        sb.append(":d0 :t \"1066-10-14T09:00:00Z\"^^xsd:dateTime , \"9999-01-01T00:00:00Z\"^^xsd:dateTime , \"2020-06-01\" .\n");
+        dataset.executeWrite(()->RDFParser.fromString(sb.toString()).lang(Lang.TRIG).parse(dataset));
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        TL.expel(dataset);
+    }
+
+    @Test public void range_01() { test("SELECT * { ?s :p ?v FILTER(?v > 5) }"); }
+
+    @Test public void range_02() { test("SELECT * { ?s :p ?v FILTER(?v < -5) }"); }
+
+    @Test public void range_03() { test("SELECT * { ?s :p ?v FILTER(?v >= -3 && ?v <= 3) }"); }
+
+    @Test public void range_04() { test("SELECT * { ?s :p ?v FILTER(?v >= -3) FILTER(?v < 3.5) }"); }
+
+    @Test public void range_05() { test("SELECT * { ?s :p ?v FILTER(?v = 10) }"); }
+
+    @Test public void range_06() { test("SELECT * { ?s :p ?v FILTER(?v > 1.0e10) }"); }
+
+    @Test public void range_07() { test("SELECT * { ?s :p ?v FILTER(0 > ?v) }"); }
+
+    @Test public void range_08() { test("SELECT * { ?s :p ?v FILTER(?v > 10 && ?v < 5) }"); }
+
+    @Test public void range_09() { test("SELECT * { ?s :p ?v ; :q ?o FILTER(?v > 2) }"); }
+
+    @Test public void range_10() { test("SELECT * { ?s :q :o1 ; :p ?v FILTER(?v <= 0) }"); }
+
+    @Test public void range_11() { test("SELECT * { GRAPH ?g { ?s :p ?v } FILTER(?v > 15) }"); }
+
+    @Test public void range_12() { test("SELECT * { GRAPH :g1 { ?s :p ?v FILTER(?v < -15) } }"); }
+
+    @Test public void range_13() { test("SELECT * { VALUES ?s { :s1 :s30 :x } ?s :p ?v FILTER(?v > 0) }"); }
+
+    @Test public void range_14() { test("SELECT * { VALUES ?v { 1 50 } ?s :p ?v FILTER(?v > 0) }"); }
+
+    @Test public void range_15() { test("SELECT * { ?s :p ?v FILTER(?v > 0 || ?v < -10) }"); }
+
+    @Test public void range_16() { test("SELECT * { ?s :p ?v FILTER(?v > \"4\") }"); }
+
+    @Test public void datetime_01() { test("SELECT * { ?s :t ?d FILTER(?d > \"2020-06-01T00:00:00Z\"^^xsd:dateTime) }"); }
+
+    @Test public void datetime_02() { test("SELECT * { ?s :t ?d FILTER(?d < \"2020-03-01T00:00:00+02:00\"^^xsd:dateTime) }"); }
+
+    @Test public void datetime_03() { test("SELECT * { ?s :t ?d FILTER(?d >= \"2020-04-01T00:00:00\"^^xsd:dateTime && ?d <= \"2020-07-15T12:00:00Z\"^^xsd:dateTime) }"); }
+
+    @Test public void datetime_04() { test("SELECT * { ?s :t ?d FILTER(?d = \"2020-05-15T12:00:00Z\"^^xsd:dateTime) }"); }
+
+    @Test public void datetime_05() { test("SELECT * { ?s :t ?d FILTER(?d < \"1500-01-01T00:00:00Z\"^^xsd:dateTime) }"); }
+
+    @Test public void datetime_06() { test("SELECT * { ?s :t ?d FILTER(?d > \"2020-06-01T00:00:00Z\"^^xsd:dateTime) FILTER(?d < 5) }"); }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create("PREFIX : <http://example/>\nPREFIX xsd: <http://www.w3.org/2001/XMLSchema#>\n" + queryString);
+        dataset.executeRead(() -> {
+            ResultSetRewindable rs1 = exec(query, false);
+            ResultSetRewindable rs2 = exec(query, true);
+            assertEquals(rs1.size(), rs2.size());
+            assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2));
+        });
+    }
+
+    private static ResultSetRewindable exec(Query query, boolean rangeScan) {
+        try ( QueryExecution qExec = QueryExecution.dataset(dataset).query(query).set(TDB2.symRangeScan, rangeScan).build() ) {
+            ResultSetRewindable rs = qExec.execSelect().rewindable();
+            return rs;
+        }
+    }
+}
@@ -48,6 +48,7 @@ import org.junit.runners.Suite;
     , TestStoreConnectionMapped.class
     , TestStoreConnectionLock.class
     , TestTransactions.class
+    , TestConcurrentWriters.class
     , TestTransactionLifecycleTDB.class
     , TestTransPromoteTDB.class
     , TestQuadFilter.class
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.apache.jena.tdb2.WriteConflictException;
+import org.junit.Test;
+
+public class TestConcurrentWriters
+{
+    private static Node graph(int i) { return NodeFactory.createURI("http://example/g"+i); }
+
+    private static Quad quad(Node g, int i) {
+        return Quad.create(g, SSE.parseNode(":s"), SSE.parseNode(":p"), NodeFactory.createLiteral(""+i));
+    }
+
+    private static long count(DatasetGraph dsg, Node g) {
+        return Txn.calculateRead(dsg, ()->Iter.count(dsg.find(g, Node.ANY, Node.ANY, Node.ANY)));
+    }
+
+    @Test public void concurrentWriters_buffer() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        Quad q1 = quad(graph(1), 1);
+        Quad q2 = quad(graph(1), 2);
+        Quad q3 = SSE.parseQuad("(_ :s :p :o)");
+        Txn.executeWrite(dsg, ()->dsg.add(q1));
+        ConcurrentWriters writers = new ConcurrentWriters(dsg);
+        writers.execute(buffer->{
+            // Read your own writes, not committed yet.
+            buffer.delete(q1);
+            buffer.add(q2);
+            buffer.add(q3);
+            assertFalse(buffer.contains(q1));
+            assertTrue(buffer.contains(q2));
+            assertTrue(buffer.getDefaultGraph().contains(q3.asTriple()));
+            assertEquals(1, Iter.count(buffer.find(graph(1), Node.ANY, Node.ANY, Node.ANY)));
+            assertEquals(List.of(graph(1)), Iter.toList(buffer.listGraphNodes()));
+            assertFalse(Txn.calculateRead(dsg, ()->dsg.contains(q2)));
+        });
+        Txn.executeRead(dsg, ()->{
+            assertFalse(dsg.contains(q1));
+            assertTrue(dsg.contains(q2));
+            assertTrue(dsg.contains(Quad.defaultGraphIRI, q3.getSubject(), q3.getPredicate(), q3.getObject()));
+        });
+        assertEquals(1, writers.getCommits());
+    }
+
+    @Test public void concurrentWriters_prefixes() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        Txn.executeWrite(dsg, ()->{
+            dsg.prefixes().add("ex", "http://example/");
+            dsg.prefixes().add("old", "http://example/old#");
+        });
+        ConcurrentWriters writers = new ConcurrentWriters(dsg);
+        writers.execute(buffer->{
+            buffer.prefixes().add("new:", "http://example/new#");
+            buffer.prefixes().delete("old");
+            assertEquals("http://example/new#", buffer.prefixes().get("new"));
+            assertFalse(buffer.prefixes().containsPrefix("old"));
+            assertEquals(Set.of("ex", "new"), buffer.prefixes().getMapping().keySet());
+            // Not in the database until the action commits.
+            assertFalse(Txn.calculateRead(dsg, ()->dsg.prefixes().containsPrefix("new")));
+            assertTrue(Txn.calculateRead(dsg, ()->dsg.prefixes().containsPrefix("old")));
+        });
+        Txn.executeRead(dsg, ()->{
+            assertEquals("http://example/new#", dsg.prefixes().get("new"));
+            assertFalse(dsg.prefixes().containsPrefix("old"));
+            assertEquals("http://example/", dsg.prefixes().get("ex"));
+        });
+        assertEquals(1, writers.getCommits());
+    }
+
+    @Test public void concurrentWriters_prefixes_conflict() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        ConcurrentWriters writers = new ConcurrentWriters(dsg);
+        boolean[] done = { false };
+        writers.execute(buffer->{
+            buffer.prefixes().add("ex", "http://example/1#");
+            if ( ! done[0] ) {
+                done[0] = true;
+                Thread thread = new Thread(()->writers.execute(b->b.prefixes().add("ex2", "http://example/2#")));
+                thread.start();
+                try { thread.join(); } catch (InterruptedException ex) {}
+            }
+        });
+        assertEquals(2, writers.getCommits());
+        assertEquals(1, writers.getConflicts());
+        Txn.executeRead(dsg, ()->assertEquals(2, dsg.prefixes().size()));
+    }
+
+    @Test public void concurrentWriters_threads() throws Exception {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        ConcurrentWriters writers = new ConcurrentWriters(dsg);
+        int threads = 4;
+        int N = 50;
+        List<Thread> workers = new ArrayList<>();
+        for ( int t = 0 ; t < threads ; t++ ) {
+            Node g = graph(t);
+            Thread thread = new Thread(()->{
+                for ( int i = 0 ; i < N ; i++ ) {
+                    int x = i;
+                    writers.execute(buffer->buffer.add(quad(g, x)));
+                }
+            });
+            thread.start();
+            workers.add(thread);
+        }
+        for ( Thread thread : workers )
+            thread.join();
+        for ( int t = 0 ; t < threads ; t++ )
+            assertEquals(N, count(dsg, graph(t)));
+        assertEquals(threads*N, writers.getCommits());
+        assertEquals(0, writers.getConflicts());
+    }
+
+    // Run "other" on another thread during the action, the first time it is called.
+    private static void executeDuring(ConcurrentWriters writers, Node g, Runnable other) {
+        boolean[] done = { false };
+        Consumer<DatasetGraph> action = buffer->{
+            buffer.add(quad(g, 1));
+            if ( ! done[0] ) {
+                done[0] = true;
+                Thread thread = new Thread(other);
+                thread.start();
+                try { thread.join(); } catch (InterruptedException ex) {}
+            }
+        };
+        writers.execute(action);
+    }
+
+    @Test public void concurrentWriters_disjoint() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        ConcurrentWriters writers = new ConcurrentWriters(dsg);
+        executeDuring(writers, graph(1), ()->writers.execute(buffer->buffer.add(quad(graph(2), 2))));
+        assertEquals(2, writers.getCommits());
+        assertEquals(0, writers.getConflicts());
+        assertEquals(1, count(dsg, graph(1)));
+        assertEquals(1, count(dsg, graph(2)));
+    }
+
+    @Test public void concurrentWriters_conflict() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        ConcurrentWriters writers = new ConcurrentWriters(dsg);
+        executeDuring(writers, graph(1), ()->writers.execute(buffer->buffer.add(quad(graph(1), 2))));
+        assertEquals(2, writers.getCommits());
+        assertEquals(1, writers.getConflicts());
+        assertEquals(1, writers.getRetries());
+        assertEquals(2, count(dsg, graph(1)));
+    }
+
+    @Test public void concurrentWriters_external() {
+        // A write not through the ConcurrentWriters is a conflict.
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        ConcurrentWriters writers = new ConcurrentWriters(dsg);
+        executeDuring(writers, graph(1), ()->Txn.executeWrite(dsg, ()->dsg.add(quad(graph(2), 2))));
+        assertEquals(1, writers.getCommits());
+        assertEquals(1, writers.getConflicts());
+        assertEquals(1, count(dsg, graph(1)));
+    }
+
+    @Test(expected=WriteConflictException.class)
+    public void concurrentWriters_noRetry() {
+        DatasetGraph dsg = DatabaseMgr.createDatasetGraph();
+        ConcurrentWriters writers = new ConcurrentWriters(dsg, 0);
+        executeDuring(writers, graph(1), ()->writers.execute(buffer->buffer.add(quad(graph(1), 2))));
+    }
+}
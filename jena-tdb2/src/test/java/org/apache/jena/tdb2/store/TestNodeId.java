@@ -24,6 +24,7 @@ import static org.junit.Assert.assertFalse;
 import java.nio.ByteBuffer;
 
 import org.apache.jena.atlas.lib.BitsLong;
+import org.apache.jena.atlas.lib.Bytes;
 import org.apache.jena.graph.Node;
 import org.apache.jena.sparql.util.NodeFactoryExtra;
 import org.junit.Test;
@@ -125,4 +126,26 @@ public class TestNodeId
         assertEquals(expected, nid1);
     }
 
+    // Order of NodeIds as in an index.
+
+    @Test public void nodeId_order_01() { testOrder(NodeIdFactory.createPtr(37), NodeIdFactory.createPtr(38)); }
+
+    @Test public void nodeId_order_02() { testOrder(NodeIdFactory.createPtr(1L<<40), NodeId.createRaw(NodeIdType.XSD_INTEGER, 1)); }
+
+    @Test public void nodeId_order_03() { testOrder(NodeIdInline.inline(NodeFactoryExtra.parseNode("12")), NodeIdInline.inline(NodeFactoryExtra.parseNode("1.5e0"))); }
+
+    @Test public void nodeId_order_04() { testOrder(NodeId.createRaw(NodeIdType.XSD_INTEGER, 1), NodeId.createRaw(NodeIdType.XSD_INTEGER, 2)); }
+
+    private static void testOrder(NodeId nid1, NodeId nid2) {
+        byte[] b1 = new byte[8];
+        byte[] b2 = new byte[8];
+        NodeIdFactory.set(nid1, b1);
+        NodeIdFactory.set(nid2, b2);
+        int cmpBytes = Integer.signum(Bytes.compare(b1, b2));
+        assertEquals(-1, cmpBytes);
+        assertEquals(cmpBytes, Integer.signum(NodeIdFactory.compareEncoded(nid1, nid2)));
+        assertEquals(-cmpBytes, Integer.signum(NodeIdFactory.compareEncoded(nid2, nid1)));
+        assertEquals(0, NodeIdFactory.compareEncoded(nid1, nid1));
+    }
+
 }
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.tdb2.junit.BuildTestLib;
+import org.apache.jena.tdb2.params.StoreParams;
+import org.apache.jena.tdb2.params.StoreParamsBuilder;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.NodeIdType;
+import org.junit.Test;
+
+public class TestCacheNodeOffHeap
+{
+    private static Node node(int i) { return SSE.parseNode("<http://example/node"+i+">"); }
+
+    @Test public void offheap_01() {
+        CacheNodeOffHeap cache = new CacheNodeOffHeap(10*1024);
+        NodeId id = NodeIdFactory.createPtr(100);
+        assertNull(cache.getIfPresent(id));
+        cache.put(id, node(1));
+        assertEquals(node(1), cache.getIfPresent(id));
+        assertEquals(1, cache.size());
+    }
+
+    @Test public void offheap_02() {
+        CacheNodeOffHeap cache = new CacheNodeOffHeap(10*1024);
+        Node literal = SSE.parseNode("'abc'@en");
+        NodeId id = NodeIdFactory.createPtr(5);
+        cache.put(id, literal);
+        assertEquals(literal, cache.getIfPresent(id));
+        cache.remove(id);
+        assertNull(cache.getIfPresent(id));
+        assertTrue(cache.isEmpty());
+    }
+
+    // Inline NodeIds are not cached.
+    @Test public void offheap_03() {
+        CacheNodeOffHeap cache = new CacheNodeOffHeap(10*1024);
+        NodeId id = NodeIdFactory.createValue(NodeIdType.XSD_INTEGER, 10);
+        cache.put(id, SSE.parseNode("10"));
+        assertNull(cache.getIfPresent(id));
+    }
+
+    // The log wraps round: old entries go, new entries are found.
+    @Test public void offheap_04() {
+        CacheNodeOffHeap cache = new CacheNodeOffHeap(1024);
+        int N = 200;
+        for ( int i = 0 ; i < N ; i++ )
+            cache.put(NodeIdFactory.createPtr(i), node(i));
+        assertNull(cache.getIfPresent(NodeIdFactory.createPtr(0)));
+        assertEquals(node(N-1), cache.getIfPresent(NodeIdFactory.createPtr(N-1)));
+        assertTrue(cache.size() < N);
+        for ( int i = 0 ; i < N ; i++ ) {
+            Node n = cache.getIfPresent(NodeIdFactory.createPtr(i));
+            if ( n != null )
+                assertEquals(node(i), n);
+        }
+    }
+
+    @Test public void offheap_05() {
+        CacheNodeOffHeap cache = new CacheNodeOffHeap(10*1024);
+        cache.put(NodeIdFactory.createPtr(1), node(1));
+        cache.clear();
+        assertFalse(cache.containsKey(NodeIdFactory.createPtr(1)));
+        assertEquals(0, cache.size());
+    }
+
+    // Every entry is either in the cache or has been passed to the drop handler, once.
+    @Test public void offheap_06() {
+        CacheNodeOffHeap cache = new CacheNodeOffHeap(1024);
+        Map<NodeId, Node> dropped = new HashMap<>();
+        cache.setDropHandler((id, n) -> assertNull("Dropped twice: "+id, dropped.put(id, n)));
+        int N = 500;
+        for ( int i = 0 ; i < N ; i++ ) {
+            // Records of different lengths.
+            Node n = SSE.parseNode("<http://example/node"+"x".repeat(i % 17)+i+">");
+            cache.put(NodeIdFactory.createPtr(i), n);
+        }
+        assertFalse(dropped.isEmpty());
+        for ( int i = 0 ; i < N ; i++ ) {
+            NodeId id = NodeIdFactory.createPtr(i);
+            Node n = SSE.parseNode("<http://example/node"+"x".repeat(i % 17)+i+">");
+            Node n1 = cache.getIfPresent(id);
+            Node n2 = dropped.get(id);
+            assertTrue("Entry "+i, (n1 == null) != (n2 == null));
+            assertEquals(n, (n1 != null) ? n1 : n2);
+        }
+    }
+
+    // Node table with an off-heap second level cache.
+    @Test public void offheap_10() {
+        StoreParams params = StoreParamsBuilder.create("offheap")
+            .nodeId2NodeCacheSize(2)
+            .nodeId2NodeOffHeapCacheSize(1)
+            .build();
+        NodeTable nt = BuildTestLib.makeNodeTable(Location.mem(), "test", params);
+        NodeId[] ids = new NodeId[10];
+        for ( int i = 0 ; i < ids.length ; i++ )
+            ids[i] = nt.getAllocateNodeId(node(i));
+        for ( int i = 0 ; i < ids.length ; i++ )
+            assertEquals(node(i), nt.getNodeForNodeId(ids[i]));
+        NodeTableCache ntc = (NodeTableCache)nt.wrapped();
+        assertTrue(ntc.getIdToNodeOffHeapCacheInfo().hits > 0);
+    }
+}
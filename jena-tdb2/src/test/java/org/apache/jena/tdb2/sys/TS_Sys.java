@@ -26,6 +26,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses( {
     TestDatabaseOps.class
     , TestDatabaseCompact.class
+    , TestIncrementalCompaction.class
     , TestDatabaseConnection.class
     , TestSys.class
     , TestTransactionalSystemControl.class
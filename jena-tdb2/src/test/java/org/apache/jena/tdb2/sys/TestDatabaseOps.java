@@ -29,6 +29,7 @@ import org.apache.jena.atlas.lib.FileOps;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.sse.SSE;
@@ -60,6 +61,7 @@ public class TestDatabaseOps
     public void after() {
         TDBInternal.reset();
         FileUtils.deleteQuietly(testingDirBackupFile);
+        FileOps.ensureDir(testingDirBackup);
     }
 
     @Rule
@@ -82,4 +84,20 @@ public class TestDatabaseOps
         String file2 = DatabaseMgr.backup(dsg);
         assertNotEquals(file1, file2);
     }
+
+    @Test public void backup_2() {
+        Location dir = Location.create(folder.getRoot().getPath());
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        Txn.executeWrite(dsg, ()-> {
+            dsg.add(quad2);
+            dsg.add(quad1);
+        });
+        String file1 = DatabaseMgr.backup(dsg, RDFFormat.RDF_BLOCKS);
+        assertTrue(file1.endsWith(".rdfb"));
+        DatasetGraph dsg2 = RDFDataMgr.loadDatasetGraph(file1);
+        Txn.executeRead(dsg, ()-> {
+            assertEquals(2, dsg2.getDefaultGraph().size());
+            assertTrue(dsg2.getDefaultGraph().isIsomorphicWith(dsg.getDefaultGraph()));
+        });
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jena.atlas.lib.FileOps;
+import org.apache.jena.dboe.base.file.Location;
+import org.apache.jena.dboe.sys.IO_DB;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.sse.SSE;
+import org.apache.jena.system.ThreadAction;
+import org.apache.jena.system.ThreadTxn;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.ConfigTest;
+import org.apache.jena.tdb2.DatabaseMgr;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestIncrementalCompaction
+{
+    private Location dir = null;
+
+    static Quad quad1 = SSE.parseQuad("(_ <s> <p> 1)");
+    static Quad quad2 = SSE.parseQuad("(_ <s> <p> 2)");
+
+    @Before
+    public void before() {
+        String DIR = ConfigTest.getCleanDir();
+        FileOps.ensureDir(DIR);
+        FileOps.clearAll(DIR);
+        dir = Location.create(DIR);
+    }
+
+    @After
+    public void after() {
+        TDBInternal.reset();
+        FileUtils.deleteQuietly(IO_DB.asFile(dir));
+    }
+
+    /** Blocks used by all the indexes of the database. */
+    private static long indexBlocks(DatasetGraph dsg) {
+        return TDBInternal.getTransactionCoordinator(dsg).listComponents().stream()
+                .filter(c -> c instanceof BPlusTree)
+                .map(c -> (BPlusTree)c)
+                .mapToLong(bpt -> bpt.getNodeManager().allocLimit() + bpt.getRecordsMgr().allocLimit())
+                .sum();
+    }
+
+    private static void updates(DatasetGraph dsg, int n) {
+        for ( int i = 0 ; i < n ; i++ ) {
+            Txn.executeWrite(dsg, ()->dsg.add(quad2));
+            Txn.executeWrite(dsg, ()->dsg.delete(quad2));
+        }
+    }
+
+    @Test public void compact_incremental_1() {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        Txn.executeWrite(dsg, ()->dsg.add(quad1));
+        updates(dsg, 20);
+
+        // Restart.
+        TDBInternal.expel(dsg);
+        DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(dir);
+
+        IncrementalCompaction compaction = new IncrementalCompaction(dsg2);
+        long n = compaction.run();
+        assertTrue(n > 0);
+        assertEquals(n, compaction.getBlocks());
+        assertEquals(compaction.getIndexesTotal(), compaction.getIndexesDone());
+
+        updates(dsg2, 5);
+        long blocks1 = indexBlocks(dsg2);
+        updates(dsg2, 50);
+        long blocks2 = indexBlocks(dsg2);
+        assertEquals(blocks1, blocks2);
+
+        Txn.executeRead(dsg2, ()-> {
+            assertTrue(dsg2.contains(quad1));
+            assertFalse(dsg2.contains(quad2));
+        });
+    }
+
+    @Test public void compact_incremental_2() {
+        // Without incremental compaction, the indexes grow.
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        Txn.executeWrite(dsg, ()->dsg.add(quad1));
+        updates(dsg, 5);
+        long blocks1 = indexBlocks(dsg);
+        updates(dsg, 50);
+        long blocks2 = indexBlocks(dsg);
+        assertTrue(blocks2 > blocks1);
+    }
+
+    @Test public void compact_incremental_3() {
+        // A reader from before compaction is not affected by reuse.
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        Txn.executeWrite(dsg, ()->dsg.add(quad1));
+        updates(dsg, 10);
+        ThreadAction reader = ThreadTxn.threadTxnRead(dsg, ()-> {
+            assertTrue(dsg.contains(quad1));
+            assertFalse(dsg.contains(quad2));
+        });
+        DatabaseMgr.compactIncremental(dsg);
+        Txn.executeWrite(dsg, ()->dsg.delete(quad1));
+        updates(dsg, 20);
+        reader.run();
+        Txn.executeRead(dsg, ()->assertTrue(dsg.isEmpty()));
+    }
+}